@@ -0,0 +1,168 @@
+package my.mmu.rssnewsreader.data.database;
+
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.room.migration.Migration;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import my.mmu.rssnewsreader.data.entry.BodyCodec;
+import my.mmu.rssnewsreader.data.entry.EntryIdentity;
+
+import static org.junit.Assert.*;
+
+// Builds a version 5 database from the exported schema, fills it the way the app did back then and migrates it to
+// the current version. Room validates the resulting schema against the entities, the rest checks what each
+// migration did to the data and that the triggers are the same as in a freshly created database.
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+    private static final Migration[] MIGRATIONS = {
+            AppDatabase.MIGRATION_5_6, AppDatabase.MIGRATION_6_7, AppDatabase.MIGRATION_7_8, AppDatabase.MIGRATION_8_9,
+            AppDatabase.MIGRATION_9_10, AppDatabase.MIGRATION_10_11, AppDatabase.MIGRATION_11_12, AppDatabase.MIGRATION_12_13,
+            AppDatabase.MIGRATION_13_14, AppDatabase.MIGRATION_14_15, AppDatabase.MIGRATION_15_16
+    };
+
+    private static final String FIRST_LINK = "https://www.example.com/first/";
+    private static final String FIRST_CONTENT = "First sentence.--####--Second sentence.";
+    private static final String FIRST_HTML = "<p>First sentence.</p><p>Second sentence.</p>";
+    private static final String SECOND_HTML = "<p class=\"translated-title\">Zweiter</p><p>Zweiter Artikel.</p>";
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(InstrumentationRegistry.getInstrumentation(), AppDatabase.class);
+
+    @Test
+    public void migrate5To16() throws IOException {
+        createVersion5();
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 16, true, MIGRATIONS);
+
+        // 6 -> 7 moved the bodies out and set the flags, 14 -> 15 encoded them
+        try (Cursor cursor = db.query("SELECT content, html, original_html, translated, content_utterances FROM entry_body WHERE entryId = 1")) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(FIRST_CONTENT, BodyCodec.decode(cursor.getBlob(0)));
+            assertEquals(FIRST_HTML, BodyCodec.decode(cursor.getBlob(1)));
+            assertTrue(BodyCodec.isSameAsBase(cursor.getBlob(2)));
+            assertTrue(cursor.isNull(3));
+            assertTrue(cursor.isNull(4));
+        }
+        try (Cursor cursor = db.query("SELECT translated FROM entry_body WHERE entryId = 2")) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals("Zweiter Artikel.", BodyCodec.decode(cursor.getBlob(0)));
+        }
+        assertEquals(Arrays.asList(1L, 1L, 0L), longs(db, "SELECT hasContent, hasOriginalHtml, hasTranslation FROM entry_table WHERE id = 1"));
+        assertEquals(Arrays.asList(1L, 1L, 1L), longs(db, "SELECT hasContent, hasOriginalHtml, hasTranslation FROM entry_table WHERE id = 2"));
+        assertEquals(Arrays.asList(0L, 0L, 0L), longs(db, "SELECT hasContent, hasOriginalHtml, hasTranslation FROM entry_table WHERE id = 3"));
+        assertEquals(Arrays.asList(3L), longs(db, "SELECT COUNT(*) FROM entry_body"));
+
+        // 5 -> 6 queued the extracted entries, translated ones as done
+        assertEquals(Arrays.asList(1L, 2L), longs(db, "SELECT entryId FROM translation_job_table ORDER BY entryId"));
+        assertEquals(Arrays.asList(2L), longs(db, "SELECT entryId FROM translation_job_table WHERE status = 'done'"));
+
+        // 7 -> 8 dated the entry without a published date
+        assertEquals(Arrays.asList(0L), longs(db, "SELECT COUNT(*) FROM entry_table WHERE publishedDate IS NULL"));
+
+        // 8 -> 9 indexed titles, descriptions and bodies without the delimiter
+        assertEquals(Arrays.asList(1L), longs(db, "SELECT rowid FROM entry_fts WHERE entry_fts MATCH 'sentence'"));
+        assertEquals(Arrays.asList(1L, 2L), longs(db, "SELECT rowid FROM entry_fts WHERE entry_fts MATCH 'second' ORDER BY rowid"));
+
+        // 10 -> 11 keyed entries and history by link, so the two agree
+        long firstHash = EntryIdentity.hash(null, FIRST_LINK, "First");
+        assertEquals(Arrays.asList(firstHash), longs(db, "SELECT itemHash FROM entry_table WHERE id = 1"));
+        assertEquals(Arrays.asList(firstHash), longs(db, "SELECT itemHash FROM history_table"));
+        assertEquals(Arrays.asList(0L), longs(db, "SELECT COUNT(*) FROM entry_table WHERE itemHash = 0"));
+
+        // 11 -> 12 split the playlist and put the cursor on the last visited entry
+        assertEquals(Arrays.asList(1L, 2L, 3L), longs(db, "SELECT entryId FROM playlist_item ORDER BY position"));
+        assertEquals(Arrays.asList(1L), longs(db, "SELECT currentPosition FROM playlist_table"));
+
+        // 12 -> 13 counted unread entries, 13 -> 14 moved the position out of entry_table
+        assertEquals(Arrays.asList(2L, 1L), longs(db, "SELECT unread, unreadBookmarked FROM feed_counts WHERE feedId = 1"));
+        assertEquals(Arrays.asList(1L, 1L), longs(db, "SELECT entryId, sentence FROM playback_position"));
+        assertEquals(Arrays.asList(0L), longs(db, "SELECT COUNT(*) FROM entry_table WHERE sentCountStopAt != 0"));
+
+        // The triggers still work on the migrated tables
+        db.execSQL("INSERT INTO entry_table (id, feedId, priority, title, link, publishedDate, sentCountStopAt, bookmark, isCached, hasContent, hasOriginalHtml, hasTranslation, itemHash) " +
+                "VALUES (4, 1, 0, 'Fourth', 'https://example.com/fourth', 4000, 0, 'N', 0, 0, 0, 0, 4)");
+        assertEquals(Arrays.asList(4L), longs(db, "SELECT entryId FROM entry_body WHERE entryId = 4"));
+        assertEquals(Arrays.asList(3L), longs(db, "SELECT unread FROM feed_counts WHERE feedId = 1"));
+        db.execSQL("UPDATE entry_body SET content = ? WHERE entryId = 4", new Object[]{BodyCodec.encode("Body.")});
+        assertEquals(Arrays.asList(1L), longs(db, "SELECT hasContent FROM entry_table WHERE id = 4"));
+
+        db.execSQL("DELETE FROM entry_table WHERE id = 1");
+        assertEquals(Arrays.asList(0L), longs(db, "SELECT COUNT(*) FROM entry_body WHERE entryId = 1"));
+        assertEquals(Arrays.asList(0L), longs(db, "SELECT COUNT(*) FROM playback_position"));
+        assertEquals(Arrays.asList(0L), longs(db, "SELECT COUNT(*) FROM entry_fts WHERE rowid = 1"));
+        assertEquals(Arrays.asList(2L, 0L), longs(db, "SELECT unread, unreadBookmarked FROM feed_counts WHERE feedId = 1"));
+        db.close();
+    }
+
+    @Test
+    public void migratedTriggersMatchCreatedOnes() throws IOException {
+        createVersion5();
+        SupportSQLiteDatabase migrated = helper.runMigrationsAndValidate(TEST_DB, 16, true, MIGRATIONS);
+        Set<String> migratedTriggers = triggers(migrated);
+        migrated.close();
+
+        AppDatabase created = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getInstrumentation().getTargetContext(), AppDatabase.class)
+                .addCallback(new AppDatabase.Callback(() -> null))
+                .build();
+        try {
+            assertEquals(triggers(created.getOpenHelper().getWritableDatabase()), migratedTriggers);
+        } finally {
+            created.close();
+        }
+    }
+
+    // One feed with an unread bookmarked entry that was extracted and partly heard, a read translated entry
+    // and one that was never extracted, all in the playlist
+    private void createVersion5() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 5)) {
+            db.execSQL("INSERT INTO feed_table (id, delayTime, ttsSpeechRate, title, link, language) VALUES (1, 0, 1.0, 'Feed', 'https://example.com/feed', 'en')");
+            String insert = "INSERT INTO entry_table (id, feedId, priority, title, link, description, content, html, publishedDate, visitedDate, sentCountStopAt, bookmark, isCached, original_html, translated) " +
+                    "VALUES (?, 1, 0, ?, ?, NULL, ?, ?, ?, ?, ?, ?, 0, ?, ?)";
+            db.execSQL(insert, new Object[]{1, "First", FIRST_LINK, FIRST_CONTENT, FIRST_HTML, null, null, 1, "Y", FIRST_HTML, null});
+            db.execSQL(insert, new Object[]{2, "Second", "https://example.com/second", "Zweiter Artikel.", SECOND_HTML, 2000, 3000, 0, "N", "<p>Second article.</p>", "Zweiter Artikel."});
+            db.execSQL(insert, new Object[]{3, "Third", "https://example.com/third", null, null, 1000, null, 0, "N", null, null});
+            db.execSQL("INSERT INTO history_table (feedId, insertDate, title, link) VALUES (1, 1000, 'First', ?)", new Object[]{FIRST_LINK});
+            db.execSQL("INSERT INTO playlist_table (id, createdDate, playlist) VALUES (1, 5000, '1,2,3,')");
+        }
+    }
+
+    private static Set<String> triggers(SupportSQLiteDatabase db) {
+        Set<String> names = new HashSet<>();
+        try (Cursor cursor = db.query("SELECT name FROM sqlite_master WHERE type = 'trigger'")) {
+            while (cursor.moveToNext()) {
+                names.add(cursor.getString(0));
+            }
+        }
+        return names;
+    }
+
+    // Every column of every row, in order
+    private static List<Long> longs(SupportSQLiteDatabase db, String sql) {
+        List<Long> values = new ArrayList<>();
+        try (Cursor cursor = db.query(sql)) {
+            while (cursor.moveToNext()) {
+                for (int i = 0; i < cursor.getColumnCount(); i++) {
+                    values.add(cursor.getLong(i));
+                }
+            }
+        }
+        return values;
+    }
+}
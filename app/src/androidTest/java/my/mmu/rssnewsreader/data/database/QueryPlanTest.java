@@ -0,0 +1,160 @@
+package my.mmu.rssnewsreader.data.database;
+
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// The hot queries of the DAOs, checked with EXPLAIN QUERY PLAN against the schema Room creates, so
+// an index that is dropped or a query that stops using it fails here. The SQL is kept the same as in the DAOs.
+// Lines read "SCAN TABLE e" or "SCAN e" depending on the SQLite version, so only index names and the absence of
+// plain scans and sorts are checked.
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanTest {
+
+    private static final String FILTERS = "(:filter != 'bookmark' OR e.bookmark = 'Y') " +
+            "AND (:filter != 'unread' OR e.visitedDate IS NULL) " +
+            "AND (:filter != 'read' OR e.visitedDate IS NOT NULL) ";
+
+    private AppDatabase database;
+    private SupportSQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        database = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getInstrumentation().getTargetContext(), AppDatabase.class).build();
+        db = database.getOpenHelper().getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void latestPageWalksPublishedDateIndex() {
+        List<String> plan = plan("SELECT e.id, f.title FROM entry_table e LEFT JOIN feed_table f ON e.feedId = f.id " +
+                "WHERE " + FILTERS +
+                "AND (e.publishedDate < :afterDate OR (e.publishedDate = :afterDate AND e.id < :afterId)) " +
+                "ORDER BY e.publishedDate DESC, e.id DESC LIMIT :limit", "all", "all", "all", 1L, 1L, 1L, 50);
+        assertUses(plan, "index_entry_table_publishedDate_id");
+        assertNoScanOrSort(plan);
+    }
+
+    @Test
+    public void feedPageWalksFeedIndex() {
+        for (String filter : new String[]{"all", "unread", "read", "bookmark"}) {
+            List<String> plan = plan("SELECT e.id, f.title FROM entry_table e LEFT JOIN feed_table f ON e.feedId = f.id " +
+                    "WHERE e.feedId = :feedId AND " + FILTERS +
+                    "AND (e.publishedDate > :afterDate OR (e.publishedDate = :afterDate AND e.id > :afterId)) " +
+                    "ORDER BY e.publishedDate ASC, e.id ASC LIMIT :limit", 1L, filter, filter, filter, 1L, 1L, 1L, 50);
+            assertUses(plan, "index_entry_table_feedId_publishedDate_id");
+            assertNoScanOrSort(plan);
+        }
+    }
+
+    @Test
+    public void entryIdsAreReadInIndexOrder() {
+        assertNoScanOrSort(plan("SELECT e.id FROM entry_table e WHERE " + FILTERS +
+                "ORDER BY e.publishedDate DESC, e.id DESC", "unread", "unread", "unread"));
+
+        List<String> plan = plan("SELECT e.id FROM entry_table e WHERE e.feedId = :feedId AND " + FILTERS +
+                "ORDER BY e.publishedDate DESC, e.id DESC", 1L, "unread", "unread", "unread");
+        assertUses(plan, "index_entry_table_feedId_publishedDate_id");
+        assertNoScanOrSort(plan);
+    }
+
+    @Test
+    public void refreshLooksUpItemsByHash() {
+        List<String> plan = plan("UPDATE history_table SET insertDate = :date WHERE feedId = :feedId AND itemHash = :itemHash", 1L, 1L, 1L);
+        assertUses(plan, "index_history_table_feedId_itemHash");
+        assertNoScanOrSort(plan);
+
+        plan = plan("UPDATE OR IGNORE entry_table SET itemHash = :itemHash WHERE feedId = :feedId AND itemHash = :legacyHash", 1L, 1L, 1L);
+        assertUses(plan, "index_entry_table_feedId_itemHash");
+        assertNoScanOrSort(plan);
+    }
+
+    @Test
+    public void limitEntriesByFeedStaysWithinTheFeed() {
+        List<String> plan = plan("DELETE FROM entry_table WHERE feedId = :feedId " +
+                "AND id NOT IN (SELECT id FROM entry_table WHERE feedId = :feedId ORDER BY publishedDate DESC LIMIT :limit) " +
+                "AND id NOT IN (SELECT id FROM entry_table WHERE bookmark = 'Y' AND feedId = :feedId)", 1L, 1L, 100, 1L);
+        assertUses(plan, "index_entry_table_feedId_publishedDate_id");
+        assertNoScanOrSort(plan);
+    }
+
+    @Test
+    public void lastVisitedEntryReadsOneIndexEntry() {
+        List<String> plan = plan("SELECT id FROM entry_table ORDER BY visitedDate DESC LIMIT 1");
+        assertUses(plan, "index_entry_table_visitedDate");
+        assertNoScanOrSort(plan);
+    }
+
+    @Test
+    public void preloadQueueUsesPriorityIndex() {
+        List<String> plan = plan("SELECT * FROM entry_table WHERE isCached = 1 AND priority > 0 ORDER BY priority ASC");
+        assertUses(plan, "index_entry_table_priority");
+        assertNoScanOrSort(plan);
+    }
+
+    @Test
+    public void feedIsFoundByLink() {
+        List<String> plan = plan("SELECT id FROM feed_table WHERE link = :link", "https://example.com/feed");
+        assertUses(plan, "index_feed_table_link");
+        assertNoScanOrSort(plan);
+    }
+
+    @Test
+    public void playlistPositionIsFoundByEntry() {
+        List<String> plan = plan("SELECT position FROM playlist_item WHERE entryId = :entryId LIMIT 1", 1L);
+        assertUses(plan, "index_playlist_item_entryId");
+        assertNoScanOrSort(plan);
+    }
+
+    @Test
+    public void pendingTranslationsAreCountedFromStatusIndex() {
+        List<String> plan = plan("SELECT COUNT(*) FROM translation_job_table WHERE status = 'pending'");
+        assertUses(plan, "index_translation_job_table_status");
+        assertNoScanOrSort(plan);
+    }
+
+    // Room's named parameters are plain "?" to SQLite, the arguments are bound in order of appearance
+    private List<String> plan(String sql, Object... args) {
+        List<String> details = new ArrayList<>();
+        try (Cursor cursor = db.query("EXPLAIN QUERY PLAN " + sql.replaceAll(":[A-Za-z]+", "?"), args)) {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(detail));
+            }
+        }
+        return details;
+    }
+
+    private static void assertUses(List<String> plan, String index) {
+        for (String line : plan) {
+            if (line.contains("INDEX " + index + " ") || line.endsWith("INDEX " + index)) {
+                return;
+            }
+        }
+        fail("Expected " + index + " in " + plan);
+    }
+
+    private static void assertNoScanOrSort(List<String> plan) {
+        for (String line : plan) {
+            assertFalse("Full scan in " + plan, line.startsWith("SCAN") && !line.contains(" USING "));
+            assertFalse("Sort in " + plan, line.contains("TEMP B-TREE"));
+        }
+    }
+}
@@ -7,21 +7,35 @@ import androidx.room.RoomDatabase;
 import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 import android.content.Context;
+import android.database.Cursor;
 import android.util.Log;
 
+import my.mmu.rssnewsreader.data.entry.BodyCodec;
 import my.mmu.rssnewsreader.data.entry.Entry;
+import my.mmu.rssnewsreader.data.entry.EntryBody;
 import my.mmu.rssnewsreader.data.entry.EntryDao;
+import my.mmu.rssnewsreader.data.entry.EntryFts;
+import my.mmu.rssnewsreader.data.entry.EntryIdentity;
+import my.mmu.rssnewsreader.data.entry.FeedCounts;
 import my.mmu.rssnewsreader.data.feed.Feed;
 import my.mmu.rssnewsreader.data.feed.FeedDao;
 import my.mmu.rssnewsreader.data.history.History;
 import my.mmu.rssnewsreader.data.history.HistoryDao;
+import my.mmu.rssnewsreader.data.playback.PlaybackPosition;
+import my.mmu.rssnewsreader.data.playback.PlaybackPositionDao;
 import my.mmu.rssnewsreader.data.playlist.Playlist;
 import my.mmu.rssnewsreader.data.playlist.PlaylistDao;
+import my.mmu.rssnewsreader.data.playlist.PlaylistItem;
+import my.mmu.rssnewsreader.data.translation.TranslationJob;
+import my.mmu.rssnewsreader.data.translation.TranslationJobDao;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 
-@Database(entities = {Feed.class, Entry.class, Playlist.class, History.class}, version = 5)
+@Database(entities = {Feed.class, Entry.class, EntryBody.class, EntryFts.class, FeedCounts.class, Playlist.class, PlaylistItem.class, History.class, TranslationJob.class, PlaybackPosition.class}, version = 16)
 @androidx.room.TypeConverters({TypeConverters.class})
 // make this abstract to let room do the implementation
 public abstract class AppDatabase extends RoomDatabase {
@@ -30,6 +44,8 @@ public abstract class AppDatabase extends RoomDatabase {
     public abstract EntryDao entryDao();
     public abstract PlaylistDao playlistDao();
     public abstract HistoryDao historyDao();
+    public abstract TranslationJobDao translationJobDao();
+    public abstract PlaybackPositionDao playbackPositionDao();
 
     // Migration from version 2 to 3
     public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
@@ -82,6 +98,333 @@ public abstract class AppDatabase extends RoomDatabase {
         }
     };
 
+    // Migration from version 5 to 6
+    public static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            try {
+                database.execSQL("CREATE TABLE IF NOT EXISTS `translation_job_table` (`entryId` INTEGER NOT NULL, `status` TEXT NOT NULL, `attempts` INTEGER NOT NULL, `updatedDate` INTEGER, PRIMARY KEY(`entryId`))");
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_translation_job_table_status` ON `translation_job_table` (`status`)");
+                // One last scan of the bodies to seed the queue; afterwards jobs are created when html is extracted
+                database.execSQL("INSERT OR IGNORE INTO translation_job_table (entryId, status, attempts, updatedDate) " +
+                        "SELECT id, CASE WHEN html LIKE '%translated-title%' THEN 'done' ELSE 'pending' END, 0, NULL " +
+                        "FROM entry_table WHERE html IS NOT NULL");
+                Log.d("DatabaseMigration", "Migration from v5 to v6 completed successfully.");
+            } catch (Exception e) {
+                Log.e("DatabaseMigration", "Migration v5 to v6 failed: " + e.getMessage());
+            }
+        }
+    };
+
+    // Migration from version 6 to 7
+    public static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            try {
+                // Move the article bodies out of entry_table
+                database.execSQL("CREATE TABLE IF NOT EXISTS `entry_body` (`entryId` INTEGER NOT NULL, `content` TEXT, `html` TEXT, `original_html` TEXT, `translated` TEXT, PRIMARY KEY(`entryId`))");
+                database.execSQL("INSERT OR IGNORE INTO entry_body (entryId, content, html, original_html, translated) " +
+                        "SELECT id, content, html, original_html, translated FROM entry_table");
+
+                // SQLite cannot drop columns on older devices, so entry_table is rebuilt with the status flags instead
+                database.execSQL("CREATE TABLE IF NOT EXISTS `entry_table_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `feedId` INTEGER NOT NULL, `priority` INTEGER NOT NULL, `title` TEXT, `link` TEXT, `description` TEXT, `imageUrl` TEXT, `category` TEXT, `publishedDate` INTEGER, `visitedDate` INTEGER, `sentCountStopAt` INTEGER NOT NULL, `bookmark` TEXT, `isCached` INTEGER NOT NULL DEFAULT 0, `hasContent` INTEGER NOT NULL DEFAULT 0, `hasOriginalHtml` INTEGER NOT NULL DEFAULT 0, `hasTranslation` INTEGER NOT NULL DEFAULT 0)");
+                database.execSQL("INSERT INTO entry_table_new (id, feedId, priority, title, link, description, imageUrl, category, publishedDate, visitedDate, sentCountStopAt, bookmark, isCached, hasContent, hasOriginalHtml, hasTranslation) " +
+                        "SELECT e.id, e.feedId, e.priority, e.title, e.link, e.description, e.imageUrl, e.category, e.publishedDate, e.visitedDate, e.sentCountStopAt, e.bookmark, e.isCached, " +
+                        HAS_CONTENT.replace("NEW.", "e.") + ", " + HAS_ORIGINAL_HTML.replace("NEW.", "e.") + ", " + HAS_TRANSLATION.replace("NEW.", "e.") + " " +
+                        "FROM entry_table e");
+                database.execSQL("DROP TABLE entry_table");
+                database.execSQL("ALTER TABLE entry_table_new RENAME TO entry_table");
+
+                createEntryBodyTriggers(database);
+                Log.d("DatabaseMigration", "Migration from v6 to v7 completed successfully.");
+            } catch (Exception e) {
+                Log.e("DatabaseMigration", "Migration v6 to v7 failed: " + e.getMessage());
+            }
+        }
+    };
+
+    // Migration from version 7 to 8
+    public static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            try {
+                // The list is paged by (publishedDate, id), so neither may be null and both need to be indexed together
+                database.execSQL("UPDATE entry_table SET publishedDate = CAST(strftime('%s', 'now') AS INTEGER) * 1000 WHERE publishedDate IS NULL");
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_entry_table_publishedDate_id` ON `entry_table` (`publishedDate`, `id`)");
+                Log.d("DatabaseMigration", "Migration from v7 to v8 completed successfully.");
+            } catch (Exception e) {
+                Log.e("DatabaseMigration", "Migration v7 to v8 failed: " + e.getMessage());
+            }
+        }
+    };
+
+    // Migration from version 8 to 9
+    public static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            try {
+                database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `entry_fts` USING FTS4(`title` TEXT, `description` TEXT, `body` TEXT, tokenize=unicode61)");
+                database.execSQL("INSERT INTO entry_fts (rowid, title, description, body) " +
+                        "SELECT e.id, e.title, e.description, " + SEARCH_BODY.replace("NEW.", "b.") + " " +
+                        "FROM entry_table e LEFT JOIN entry_body b ON b.entryId = e.id");
+                createEntrySearchTriggers(database);
+                Log.d("DatabaseMigration", "Migration from v8 to v9 completed successfully.");
+            } catch (Exception e) {
+                Log.e("DatabaseMigration", "Migration v8 to v9 failed: " + e.getMessage());
+            }
+        }
+    };
+
+    // Migration from version 9 to 10
+    public static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            try {
+                // Same names Room derives from the @Index annotations, otherwise schema validation fails on open
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_entry_table_feedId_publishedDate_id` ON `entry_table` (`feedId`, `publishedDate`, `id`)");
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_entry_table_feedId_visitedDate` ON `entry_table` (`feedId`, `visitedDate`)");
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_entry_table_visitedDate` ON `entry_table` (`visitedDate`)");
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_entry_table_bookmark` ON `entry_table` (`bookmark`)");
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_entry_table_priority` ON `entry_table` (`priority`)");
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_feed_table_link` ON `feed_table` (`link`)");
+                database.execSQL("ANALYZE");
+                Log.d("DatabaseMigration", "Migration from v9 to v10 completed successfully.");
+            } catch (Exception e) {
+                Log.e("DatabaseMigration", "Migration v9 to v10 failed: " + e.getMessage());
+            }
+        }
+    };
+
+    // Migration from version 10 to 11
+    public static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            try {
+                database.execSQL("ALTER TABLE entry_table ADD COLUMN `itemHash` INTEGER NOT NULL DEFAULT 0");
+                database.execSQL("ALTER TABLE history_table ADD COLUMN `itemHash` INTEGER NOT NULL DEFAULT 0");
+                // Guids were never stored, so existing rows are keyed by link, which is what permalink guids hash to as well.
+                // Items with other guids find their rows through EntryDao.insertNewEntries on the next fetch.
+                backfillItemHashes(database, "entry_table");
+                backfillItemHashes(database, "history_table");
+
+                // Keep the oldest row of any duplicates so the unique indexes can be built
+                database.execSQL("DELETE FROM entry_table WHERE id NOT IN (SELECT MIN(id) FROM entry_table GROUP BY feedId, itemHash)");
+                database.execSQL("DELETE FROM history_table WHERE id NOT IN (SELECT MIN(id) FROM history_table GROUP BY feedId, itemHash)");
+                database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_entry_table_feedId_itemHash` ON `entry_table` (`feedId`, `itemHash`)");
+                database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_history_table_feedId_itemHash` ON `history_table` (`feedId`, `itemHash`)");
+                Log.d("DatabaseMigration", "Migration from v10 to v11 completed successfully.");
+            } catch (Exception e) {
+                Log.e("DatabaseMigration", "Migration v10 to v11 failed: " + e.getMessage());
+            }
+        }
+    };
+
+    public static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            try {
+                database.execSQL("CREATE TABLE IF NOT EXISTS `playlist_item` (`position` INTEGER NOT NULL, `entryId` INTEGER NOT NULL, PRIMARY KEY(`position`))");
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_playlist_item_entryId` ON `playlist_item` (`entryId`)");
+
+                // Split the comma separated playlist into rows and put the cursor on the last visited entry
+                long playlistId = 0;
+                Long createdDate = null;
+                String playlist = null;
+                try (Cursor cursor = database.query("SELECT id, createdDate, playlist FROM playlist_table ORDER BY createdDate DESC LIMIT 1")) {
+                    if (cursor.moveToFirst()) {
+                        playlistId = cursor.getLong(0);
+                        createdDate = cursor.isNull(1) ? null : cursor.getLong(1);
+                        playlist = cursor.getString(2);
+                    }
+                }
+                long lastVisitedId = -1;
+                try (Cursor cursor = database.query("SELECT id FROM entry_table WHERE visitedDate IS NOT NULL ORDER BY visitedDate DESC LIMIT 1")) {
+                    if (cursor.moveToFirst()) {
+                        lastVisitedId = cursor.getLong(0);
+                    }
+                }
+                int currentPosition = 0;
+                int position = 0;
+                if (playlist != null) {
+                    for (String id : playlist.split(",")) {
+                        if (id.isEmpty()) {
+                            continue;
+                        }
+                        long entryId = Long.parseLong(id);
+                        if (entryId == lastVisitedId) {
+                            currentPosition = position;
+                        }
+                        database.execSQL("INSERT INTO playlist_item (position, entryId) VALUES (?, ?)", new Object[]{position++, entryId});
+                    }
+                }
+
+                database.execSQL("CREATE TABLE IF NOT EXISTS `playlist_table_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `createdDate` INTEGER, `currentPosition` INTEGER NOT NULL DEFAULT 0)");
+                if (playlist != null) {
+                    database.execSQL("INSERT INTO playlist_table_new (id, createdDate, currentPosition) VALUES (?, ?, ?)", new Object[]{playlistId, createdDate, currentPosition});
+                }
+                database.execSQL("DROP TABLE playlist_table");
+                database.execSQL("ALTER TABLE playlist_table_new RENAME TO playlist_table");
+                Log.d("DatabaseMigration", "Migration from v11 to v12 completed successfully.");
+            } catch (Exception e) {
+                Log.e("DatabaseMigration", "Migration v11 to v12 failed: " + e.getMessage());
+            }
+        }
+    };
+
+    public static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            try {
+                database.execSQL("CREATE TABLE IF NOT EXISTS `feed_counts` (`feedId` INTEGER NOT NULL, `unread` INTEGER NOT NULL, `unreadBookmarked` INTEGER NOT NULL, PRIMARY KEY(`feedId`))");
+                database.execSQL("INSERT OR REPLACE INTO feed_counts (feedId, unread, unreadBookmarked) " +
+                        "SELECT feedId, SUM(visitedDate IS NULL), SUM(visitedDate IS NULL AND bookmark IS 'Y') FROM entry_table GROUP BY feedId");
+                createFeedCountTriggers(database);
+                Log.d("DatabaseMigration", "Migration from v12 to v13 completed successfully.");
+            } catch (Exception e) {
+                Log.e("DatabaseMigration", "Migration v12 to v13 failed: " + e.getMessage());
+            }
+        }
+    };
+
+    public static final Migration MIGRATION_13_14 = new Migration(13, 14) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            try {
+                database.execSQL("CREATE TABLE IF NOT EXISTS `playback_position` (`entryId` INTEGER NOT NULL, `sentence` INTEGER NOT NULL, PRIMARY KEY(`entryId`))");
+                database.execSQL("INSERT OR REPLACE INTO playback_position (entryId, sentence) SELECT id, sentCountStopAt FROM entry_table WHERE sentCountStopAt > 0");
+                database.execSQL("UPDATE entry_table SET sentCountStopAt = 0 WHERE sentCountStopAt != 0");
+                createPlaybackPositionTriggers(database);
+                Log.d("DatabaseMigration", "Migration from v13 to v14 completed successfully.");
+            } catch (Exception e) {
+                Log.e("DatabaseMigration", "Migration v13 to v14 failed: " + e.getMessage());
+            }
+        }
+    };
+
+    public static final Migration MIGRATION_14_15 = new Migration(14, 15) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            try {
+                // The entry_table triggers point at entry_body and would break the rename, they are recreated below
+                database.execSQL("DROP TRIGGER IF EXISTS entry_table_insert_body");
+                database.execSQL("DROP TRIGGER IF EXISTS entry_table_delete_body");
+                database.execSQL("CREATE TABLE IF NOT EXISTS `entry_body_new` (`entryId` INTEGER NOT NULL, `content` BLOB, `html` BLOB, `original_html` BLOB, `translated` BLOB, PRIMARY KEY(`entryId`))");
+
+                // One row at a time, so only a single article is ever held in memory
+                List<Long> ids = new ArrayList<>();
+                try (Cursor cursor = database.query("SELECT entryId FROM entry_body")) {
+                    while (cursor.moveToNext()) {
+                        ids.add(cursor.getLong(0));
+                    }
+                }
+                for (long id : ids) {
+                    try (Cursor cursor = database.query("SELECT content, html, original_html, translated FROM entry_body WHERE entryId = ?", new Object[]{id})) {
+                        if (cursor.moveToFirst()) {
+                            String html = cursor.getString(1);
+                            database.execSQL("INSERT INTO entry_body_new (entryId, content, html, original_html, translated) VALUES (?, ?, ?, ?, ?)", new Object[]{
+                                    id,
+                                    BodyCodec.encode(cursor.getString(0)),
+                                    BodyCodec.encode(html),
+                                    BodyCodec.encodeAgainst(cursor.getString(2), html),
+                                    BodyCodec.encode(cursor.getString(3))});
+                        }
+                    }
+                }
+
+                database.execSQL("DROP TABLE entry_body");
+                database.execSQL("ALTER TABLE entry_body_new RENAME TO entry_body");
+                createEntryBodyTriggers(database);
+                Log.d("DatabaseMigration", "Migration from v14 to v15 completed successfully.");
+            } catch (Exception e) {
+                Log.e("DatabaseMigration", "Migration v14 to v15 failed: " + e.getMessage());
+            }
+        }
+    };
+
+    public static final Migration MIGRATION_15_16 = new Migration(15, 16) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            try {
+                // Existing bodies get their index the first time they are played
+                database.execSQL("ALTER TABLE entry_body ADD COLUMN content_utterances BLOB");
+                database.execSQL("ALTER TABLE entry_body ADD COLUMN translated_utterances BLOB");
+                Log.d("DatabaseMigration", "Migration from v15 to v16 completed successfully.");
+            } catch (Exception e) {
+                Log.e("DatabaseMigration", "Migration v15 to v16 failed: " + e.getMessage());
+            }
+        }
+    };
+
+    private static void backfillItemHashes(SupportSQLiteDatabase database, String table) {
+        List<long[]> hashes = new ArrayList<>();
+        try (Cursor cursor = database.query("SELECT id, link, title FROM " + table)) {
+            while (cursor.moveToNext()) {
+                hashes.add(new long[]{cursor.getLong(0), EntryIdentity.hash(null, cursor.getString(1), cursor.getString(2))});
+            }
+        }
+        for (long[] hash : hashes) {
+            database.execSQL("UPDATE " + table + " SET itemHash = ? WHERE id = ?", new Object[]{hash[1], hash[0]});
+        }
+    }
+
+    // Written for both the old TEXT bodies and BodyCodec blobs, where an empty blob is an empty string
+    // and a one byte 'S' original_html means it is the same as html
+    private static final String HAS_CONTENT = "(IFNULL(length(NEW.content), 0) > 0)";
+    private static final String HAS_ORIGINAL_HTML = "(IFNULL(length(NEW.original_html), 0) > 0)";
+    private static final String HAS_TRANSLATION = "(IFNULL(length(NEW.html), 0) > 0 AND (NEW.original_html IS NULL OR (NEW.original_html != NEW.html AND NEW.original_html != X'53')))";
+
+    // Room has no annotation for triggers, so they are created here for both new and migrated databases
+    public static void createEntryBodyTriggers(SupportSQLiteDatabase database) {
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS entry_table_insert_body AFTER INSERT ON entry_table BEGIN " +
+                "INSERT OR IGNORE INTO entry_body (entryId) VALUES (NEW.id); END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS entry_table_delete_body AFTER DELETE ON entry_table BEGIN " +
+                "DELETE FROM entry_body WHERE entryId = OLD.id; END");
+
+        // Only touch entry_table when a flag actually changes, otherwise every body write would refresh the lists
+        String updateFlags = "UPDATE entry_table SET hasContent = " + HAS_CONTENT + ", hasOriginalHtml = " + HAS_ORIGINAL_HTML + ", hasTranslation = " + HAS_TRANSLATION + " " +
+                "WHERE id = NEW.entryId AND (hasContent != " + HAS_CONTENT + " OR hasOriginalHtml != " + HAS_ORIGINAL_HTML + " OR hasTranslation != " + HAS_TRANSLATION + "); END";
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS entry_body_insert_flags AFTER INSERT ON entry_body BEGIN " + updateFlags);
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS entry_body_update_flags AFTER UPDATE ON entry_body BEGIN " + updateFlags);
+    }
+
+    // Sentences are joined with the TTS delimiter, which would otherwise show up in search snippets
+    private static final String SEARCH_BODY = "replace(NEW.content, '--####--', ' ')";
+
+    public static void createEntrySearchTriggers(SupportSQLiteDatabase database) {
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS entry_fts_insert AFTER INSERT ON entry_table BEGIN " +
+                "INSERT INTO entry_fts (rowid, title, description) VALUES (NEW.id, NEW.title, NEW.description); END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS entry_fts_update AFTER UPDATE OF title, description ON entry_table BEGIN " +
+                "UPDATE entry_fts SET title = NEW.title, description = NEW.description WHERE rowid = NEW.id; END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS entry_fts_delete AFTER DELETE ON entry_table BEGIN " +
+                "DELETE FROM entry_fts WHERE rowid = OLD.id; END");
+        // Bodies are compressed since v15, EntryDao.updateContent writes the searchable text itself
+    }
+
+    private static final String NEW_UNREAD = "(NEW.visitedDate IS NULL)";
+    private static final String NEW_UNREAD_BOOKMARKED = "(NEW.visitedDate IS NULL AND NEW.bookmark IS 'Y')";
+    private static final String OLD_UNREAD = "(OLD.visitedDate IS NULL)";
+    private static final String OLD_UNREAD_BOOKMARKED = "(OLD.visitedDate IS NULL AND OLD.bookmark IS 'Y')";
+
+    // Each entry write adjusts one feed_counts row; updates that leave both flags alone never reach the table
+    public static void createFeedCountTriggers(SupportSQLiteDatabase database) {
+        String addNew = "INSERT OR IGNORE INTO feed_counts (feedId, unread, unreadBookmarked) VALUES (NEW.feedId, 0, 0); " +
+                "UPDATE feed_counts SET unread = unread + " + NEW_UNREAD + ", unreadBookmarked = unreadBookmarked + " + NEW_UNREAD_BOOKMARKED + " WHERE feedId = NEW.feedId; ";
+        String removeOld = "UPDATE feed_counts SET unread = unread - " + OLD_UNREAD + ", unreadBookmarked = unreadBookmarked - " + OLD_UNREAD_BOOKMARKED + " WHERE feedId = OLD.feedId; ";
+
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS feed_counts_insert AFTER INSERT ON entry_table WHEN " + NEW_UNREAD + " BEGIN " + addNew + "END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS feed_counts_delete AFTER DELETE ON entry_table WHEN " + OLD_UNREAD + " BEGIN " + removeOld + "END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS feed_counts_update AFTER UPDATE OF visitedDate, bookmark, feedId ON entry_table " +
+                "WHEN " + OLD_UNREAD + " != " + NEW_UNREAD + " OR " + OLD_UNREAD_BOOKMARKED + " != " + NEW_UNREAD_BOOKMARKED + " OR OLD.feedId != NEW.feedId BEGIN " +
+                removeOld + addNew + "END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS feed_counts_feed_delete AFTER DELETE ON feed_table BEGIN " +
+                "DELETE FROM feed_counts WHERE feedId = OLD.id; END");
+    }
+
+    public static void createPlaybackPositionTriggers(SupportSQLiteDatabase database) {
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS playback_position_delete AFTER DELETE ON entry_table BEGIN " +
+                "DELETE FROM playback_position WHERE entryId = OLD.id; END");
+    }
+
     public static class Callback extends RoomDatabase.Callback {
 
         private Provider<AppDatabase> database;
@@ -95,6 +438,10 @@ public abstract class AppDatabase extends RoomDatabase {
         @Override
         public void onCreate(@NonNull SupportSQLiteDatabase db) {
             super.onCreate(db);
+            createEntryBodyTriggers(db);
+            createEntrySearchTriggers(db);
+            createFeedCountTriggers(db);
+            createPlaybackPositionTriggers(db);
 
             // since db is not instantiated at this stage (db will only be created after build()), dagger will create an instance to run this
 //            FeedDao feedDao = database.get().feedDao();
@@ -0,0 +1,157 @@
+package my.mmu.rssnewsreader.data.entry;
+
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Encodes the entry_body columns as small blobs. The first byte says how the rest was stored:
+// deflated against a shared dictionary of common markup, identical to html, or deflated using html as the dictionary.
+// An empty blob is an empty string, so length() in SQL still tells empty bodies apart.
+// Very large bodies are kept by BodyFileStore instead, and the blob only records the file's length and checksum.
+public final class BodyCodec {
+
+    private static final byte DEFLATED = 'Z';
+    private static final byte SAME_AS_BASE = 'S';
+    private static final byte DELTA = 'D';
+    private static final byte FILE = 'F';
+    // Deflate only looks back this far, a longer dictionary would not be used
+    private static final int MAX_DICTIONARY = 32 * 1024;
+
+    // Strings that show up in almost every extracted article, most frequent last since deflate prefers closer matches
+    private static final byte[] DICTIONARY = ("<!DOCTYPE html><html lang=\"en\"><head><meta charset=\"utf-8\">" +
+            "<meta name=\"viewport\" content=\"width=device-width, initial-scale=1\"><title></title></head><body>" +
+            "<figure><figcaption></figcaption></figure><blockquote></blockquote><table><tbody><tr><td></td></tr></tbody></table>" +
+            "<ul><li></li></ul><ol><li></li></ol><h1></h1><h2></h2><h3></h3><h4></h4><strong></strong><em></em><br>" +
+            "<span class=\"\"></span><div class=\"\"></div><img src=\"https://\" alt=\"\" width=\"\" height=\"\">" +
+            "<a href=\"https://www.\" target=\"_blank\" rel=\"noopener noreferrer\"></a>" +
+            " the of and to in that is for it with as was on be by this are have from at not but has ." +
+            "--####--</p><p>--####--</p>\n<p></p></div></body></html>").getBytes(StandardCharsets.UTF_8);
+
+    private BodyCodec() {
+    }
+
+    @Nullable
+    public static byte[] encode(@Nullable String text) {
+        if (text == null) return null;
+        if (text.isEmpty()) return new byte[0];
+        return deflate(DEFLATED, text.getBytes(StandardCharsets.UTF_8), DICTIONARY);
+    }
+
+    // Stores text relative to base when there is one, as a marker when the two are equal
+    @Nullable
+    public static byte[] encodeAgainst(@Nullable String text, @Nullable String base) {
+        return encodeAgainst(text, base, true);
+    }
+
+    // Without allowDelta only the equality marker refers to base, for a base that is not at hand when decoding
+    @Nullable
+    public static byte[] encodeAgainst(@Nullable String text, @Nullable String base, boolean allowDelta) {
+        if (text == null || text.isEmpty() || base == null || base.isEmpty()) return encode(text);
+        if (text.equals(base)) return new byte[]{SAME_AS_BASE};
+        if (!allowDelta) return encode(text);
+        return deflate(DELTA, text.getBytes(StandardCharsets.UTF_8), dictionaryOf(base));
+    }
+
+    public static byte[] fileReference(long length, long checksum) {
+        return ByteBuffer.allocate(17).put(FILE).putLong(length).putLong(checksum).array();
+    }
+
+    public static boolean isFileReference(@Nullable byte[] data) {
+        return data != null && data.length == 17 && data[0] == FILE;
+    }
+
+    public static long fileLength(byte[] data) {
+        return ByteBuffer.wrap(data).getLong(1);
+    }
+
+    public static long fileChecksum(byte[] data) {
+        return ByteBuffer.wrap(data).getLong(9);
+    }
+
+    public static boolean isSameAsBase(@Nullable byte[] data) {
+        return data != null && data.length == 1 && data[0] == SAME_AS_BASE;
+    }
+
+    // True when the blob can only be decoded with the base it was encoded against
+    public static boolean dependsOnBase(@Nullable byte[] data) {
+        return data != null && data.length > 0 && (data[0] == SAME_AS_BASE || data[0] == DELTA);
+    }
+
+    @Nullable
+    public static String decode(@Nullable byte[] data) {
+        return decode(data, null);
+    }
+
+    // A file reference decodes to null here, EntryRepository reads it through BodyFileStore
+    @Nullable
+    public static String decode(@Nullable byte[] data, @Nullable String base) {
+        if (data == null) return null;
+        if (data.length == 0) return "";
+        switch (data[0]) {
+            case DEFLATED:
+                return inflate(data, DICTIONARY);
+            case SAME_AS_BASE:
+                return base;
+            case DELTA:
+                return base != null ? inflate(data, dictionaryOf(base)) : null;
+            case FILE:
+                return null;
+            default:
+                throw new IllegalArgumentException("Unknown body encoding " + data[0]);
+        }
+    }
+
+    private static byte[] dictionaryOf(String base) {
+        byte[] bytes = base.getBytes(StandardCharsets.UTF_8);
+        return bytes.length > MAX_DICTIONARY ? Arrays.copyOf(bytes, MAX_DICTIONARY) : bytes;
+    }
+
+    private static byte[] deflate(byte kind, byte[] input, byte[] dictionary) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setDictionary(dictionary);
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 4 + 16);
+            output.write(kind);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String inflate(byte[] data, byte[] dictionary) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, 1, data.length - 1);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(dictionary);
+                    } else if (inflater.needsInput()) {
+                        throw new IllegalArgumentException("Truncated body");
+                    }
+                }
+                output.write(buffer, 0, count);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt body", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package my.mmu.rssnewsreader.data.entry;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.LongPredicate;
+import java.util.zip.CRC32;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+
+// Bodies too large to keep in entry_body live here as plain UTF-8 files, one directory per entry.
+// The row keeps a BodyCodec file reference with the length and CRC32 of the file, and the file name carries
+// the checksum too, so a new version is written next to the old one and the old one is removed once the row points away.
+// Content is stored as segments with an offset table in front, so a single sentence can be read from a memory map.
+// Reader pages built by ReaderPages are kept in the same directory, named by variant and fingerprint.
+@Singleton
+public class BodyFileStore {
+
+    private static final String TAG = "BodyFileStore";
+    public static final String CONTENT = "content";
+    public static final String HTML = "html";
+    public static final String TRANSLATED = "translated";
+
+    private static final String DIRECTORY = "bodies";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String PAGE_PREFIX = "page-";
+    private static final String DELIMITER = "--####--";
+
+    private final File root;
+
+    @Inject
+    public BodyFileStore(@ApplicationContext Context context) {
+        this(new File(context.getFilesDir(), DIRECTORY));
+    }
+
+    public BodyFileStore(File root) {
+        this.root = root;
+    }
+
+    // Writes text for one column and returns the reference to store in its place. Content is split into its segments.
+    public byte[] write(long entryId, String column, String text) throws IOException {
+        byte[] data = CONTENT.equals(column) ? segment(text) : text.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        long checksum = crc.getValue();
+
+        File directory = new File(root, String.valueOf(entryId));
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File file = fileOf(entryId, column, checksum);
+        if (!file.isFile() || file.length() != data.length) {
+            File temp = new File(directory, file.getName() + TEMP_SUFFIX);
+            try (FileOutputStream output = new FileOutputStream(temp)) {
+                output.write(data);
+                output.getFD().sync();
+            }
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Cannot move " + temp + " into place");
+            }
+        }
+        return BodyCodec.fileReference(data.length, checksum);
+    }
+
+    // The whole column as a string, or null when the file is missing or does not match its reference
+    @Nullable
+    public String read(long entryId, String column, byte[] reference) {
+        File file = fileOf(entryId, column, BodyCodec.fileChecksum(reference));
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            byte[] data = new byte[(int) input.length()];
+            input.readFully(data);
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, data.length);
+            if (data.length != BodyCodec.fileLength(reference) || crc.getValue() != BodyCodec.fileChecksum(reference)) {
+                Log.w(TAG, "Checksum mismatch for " + file);
+                return null;
+            }
+            if (!CONTENT.equals(column)) {
+                return new String(data, StandardCharsets.UTF_8);
+            }
+            return String.join(DELIMITER, new Segments(ByteBuffer.wrap(data)));
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot read " + file, e);
+            return null;
+        }
+    }
+
+    // Streams the html without holding all of it, unverified since the checksum is only known at the end
+    public Reader openReader(long entryId, String column, byte[] reference) throws IOException {
+        File file = fileOf(entryId, column, BodyCodec.fileChecksum(reference));
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+
+    // The content's segments as a list backed by a memory map, each one decoded only when it is asked for
+    public List<String> readSegments(long entryId, byte[] reference) throws IOException {
+        File file = fileOf(entryId, CONTENT, BodyCodec.fileChecksum(reference));
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            if (channel.size() != BodyCodec.fileLength(reference)) {
+                throw new IOException("Length mismatch for " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Segments(buffer);
+        }
+    }
+
+    // Drops every file of the column except the one the row now refers to, if any
+    public void retain(long entryId, String column, @Nullable byte[] reference) {
+        File[] files = new File(root, String.valueOf(entryId)).listFiles();
+        if (files == null) return;
+        String kept = BodyCodec.isFileReference(reference) ? fileOf(entryId, column, BodyCodec.fileChecksum(reference)).getName() : null;
+        for (File file : files) {
+            if (file.getName().startsWith(column + "-") && !file.getName().equals(kept)) {
+                file.delete();
+            }
+        }
+        deleteIfEmpty(entryId);
+    }
+
+    public void delete(long entryId) {
+        File directory = new File(root, String.valueOf(entryId));
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    // Removes the directories of entries that no longer exist, after bulk deletes done in SQL
+    public void deleteOrphans(LongPredicate exists) {
+        String[] names = root.list();
+        if (names == null) return;
+        int deleted = 0;
+        for (String name : names) {
+            long entryId;
+            try {
+                entryId = Long.parseLong(name);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (!exists.test(entryId)) {
+                delete(entryId);
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            Log.d(TAG, "Deleted bodies of " + deleted + " removed entries");
+        }
+    }
+
+    @Nullable
+    public String readPage(long entryId, String variant, long fingerprint) {
+        File file = pageOf(entryId, variant, fingerprint);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            byte[] data = new byte[(int) input.length()];
+            input.readFully(data);
+            return new String(data, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot read " + file, e);
+            return null;
+        }
+    }
+
+    // A page is only a cache, so it is not synced, and it replaces every other page of the entry, including those
+    // of variants older versions of ReaderPages built
+    public void writePage(long entryId, String variant, long fingerprint, String html) throws IOException {
+        File directory = new File(root, String.valueOf(entryId));
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File file = pageOf(entryId, variant, fingerprint);
+        File temp = new File(directory, file.getName() + TEMP_SUFFIX);
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            output.write(html.getBytes(StandardCharsets.UTF_8));
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot move " + temp + " into place");
+        }
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File other : files) {
+            if (other.getName().startsWith(PAGE_PREFIX) && !other.equals(file)) {
+                other.delete();
+            }
+        }
+    }
+
+    public void deletePages(long entryId) {
+        File[] files = new File(root, String.valueOf(entryId)).listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.getName().startsWith(PAGE_PREFIX)) {
+                file.delete();
+            }
+        }
+        deleteIfEmpty(entryId);
+    }
+
+    private void deleteIfEmpty(long entryId) {
+        File directory = new File(root, String.valueOf(entryId));
+        String[] names = directory.list();
+        if (names != null && names.length == 0) {
+            directory.delete();
+        }
+    }
+
+    private File pageOf(long entryId, String variant, long fingerprint) {
+        return new File(new File(root, String.valueOf(entryId)), PAGE_PREFIX + variant + "-" + Long.toHexString(fingerprint));
+    }
+
+    private File fileOf(long entryId, String column, long checksum) {
+        return new File(new File(root, String.valueOf(entryId)), column + "-" + Long.toHexString(checksum));
+    }
+
+    // Segment count, then the end offset of each segment, then the UTF-8 segments back to back
+    private static byte[] segment(String text) {
+        List<byte[]> segments = new ArrayList<>();
+        int length = 0;
+        int start = 0;
+        while (true) {
+            int end = text.indexOf(DELIMITER, start);
+            byte[] segment = text.substring(start, end < 0 ? text.length() : end).getBytes(StandardCharsets.UTF_8);
+            segments.add(segment);
+            length += segment.length;
+            if (end < 0) break;
+            start = end + DELIMITER.length();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 * segments.size() + length);
+        buffer.putInt(segments.size());
+        int offset = 0;
+        for (byte[] segment : segments) {
+            offset += segment.length;
+            buffer.putInt(offset);
+        }
+        for (byte[] segment : segments) {
+            buffer.put(segment);
+        }
+        return buffer.array();
+    }
+
+    private static class Segments extends AbstractList<String> implements RandomAccess {
+        private final ByteBuffer buffer;
+        private final int count;
+        private final int dataStart;
+
+        Segments(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.count = buffer.getInt(0);
+            this.dataStart = 4 + 4 * count;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Segment " + index + " of " + count);
+            }
+            int start = index == 0 ? 0 : buffer.getInt(4 + 4 * (index - 1));
+            int end = buffer.getInt(4 + 4 * index);
+            byte[] segment = new byte[end - start];
+            ByteBuffer view = buffer.duplicate();
+            view.position(dataStart + start);
+            view.get(segment);
+            return new String(segment, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+}
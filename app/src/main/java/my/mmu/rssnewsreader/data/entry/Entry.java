@@ -2,15 +2,28 @@ package my.mmu.rssnewsreader.data.entry;
 
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.annotation.Nullable;
 
 import java.util.Date;
 import java.util.List;
 
-@Entity(tableName = "entry_table")
+@Entity(tableName = "entry_table", indices = {
+        @Index(value = {"publishedDate", "id"}),
+        @Index(value = {"feedId", "publishedDate", "id"}),
+        @Index(value = {"feedId", "visitedDate"}),
+        @Index(value = {"visitedDate"}),
+        @Index(value = {"bookmark"}),
+        @Index(value = {"priority"}),
+        @Index(value = {"feedId", "itemHash"}, unique = true)
+})
 public class Entry {
 
+    // Waiting for extraction with no particular rank. The playlist prefetch window ranks below it by playlist position.
+    public static final int PRIORITY_QUEUED = Integer.MAX_VALUE;
+
     @PrimaryKey(autoGenerate = true)
     private long id;
     private long feedId;
@@ -18,21 +31,35 @@ public class Entry {
     private String title;
     private String link;
     private String description;
+    // EntryIdentity hash, duplicates of an item in the same feed are dropped by the unique index
+    @ColumnInfo(defaultValue = "0")
+    private long itemHash;
+    // Bodies are stored in entry_body and only filled in when loaded through EntryWithBody
+    @Ignore
     private String content;
+    @Ignore
     private String html;
     private String imageUrl;
     private String category;
     private Date publishedDate;
     private Date visitedDate;
+    // No longer written, playback progress is kept in playback_position
     private int sentCountStopAt;
     private String bookmark;
     @ColumnInfo(defaultValue = "0")
     private boolean isCached;
-    @ColumnInfo(name = "original_html")
+    @Ignore
     private String originalHtml;
+    @Ignore
     @Nullable
-    @ColumnInfo(name = "translated")
     private String translated;
+    // Kept in sync with entry_body by triggers, so lists can show status without reading bodies
+    @ColumnInfo(defaultValue = "0")
+    private boolean hasContent;
+    @ColumnInfo(defaultValue = "0")
+    private boolean hasOriginalHtml;
+    @ColumnInfo(defaultValue = "0")
+    private boolean hasTranslation;
 
     public Entry(long feedId, String title, String link, String description, String imageUrl, String category, Date publishedDate) {
         this.feedId = feedId;
@@ -60,6 +87,14 @@ public class Entry {
         this.feedId = feedId;
     }
 
+    public long getItemHash() {
+        return itemHash;
+    }
+
+    public void setItemHash(long itemHash) {
+        this.itemHash = itemHash;
+    }
+
     public int getPriority() {
         return priority;
     }
@@ -179,4 +214,28 @@ public class Entry {
     public void setTranslated(String translated) {
         this.translated = translated;
     }
+
+    public boolean hasContent() {
+        return hasContent;
+    }
+
+    public void setHasContent(boolean hasContent) {
+        this.hasContent = hasContent;
+    }
+
+    public boolean hasOriginalHtml() {
+        return hasOriginalHtml;
+    }
+
+    public void setHasOriginalHtml(boolean hasOriginalHtml) {
+        this.hasOriginalHtml = hasOriginalHtml;
+    }
+
+    public boolean hasTranslation() {
+        return hasTranslation;
+    }
+
+    public void setHasTranslation(boolean hasTranslation) {
+        this.hasTranslation = hasTranslation;
+    }
 }
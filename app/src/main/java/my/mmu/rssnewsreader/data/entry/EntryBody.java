@@ -0,0 +1,84 @@
+package my.mmu.rssnewsreader.data.entry;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// Article bodies live apart from entry_table so list queries never page them in.
+// Each column holds a BodyCodec blob; original_html is usually stored relative to html.
+// content and translated carry an Utterances index next to them so playback does not split them again.
+@Entity(tableName = "entry_body")
+public class EntryBody {
+
+    @PrimaryKey
+    private long entryId;
+    private byte[] content;
+    private byte[] html;
+    @ColumnInfo(name = "original_html")
+    private byte[] originalHtml;
+    private byte[] translated;
+    @ColumnInfo(name = "content_utterances")
+    private byte[] contentUtterances;
+    @ColumnInfo(name = "translated_utterances")
+    private byte[] translatedUtterances;
+
+    public EntryBody(long entryId) {
+        this.entryId = entryId;
+    }
+
+    public long getEntryId() {
+        return entryId;
+    }
+
+    public void setEntryId(long entryId) {
+        this.entryId = entryId;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public void setContent(byte[] content) {
+        this.content = content;
+    }
+
+    public byte[] getHtml() {
+        return html;
+    }
+
+    public void setHtml(byte[] html) {
+        this.html = html;
+    }
+
+    public byte[] getOriginalHtml() {
+        return originalHtml;
+    }
+
+    public void setOriginalHtml(byte[] originalHtml) {
+        this.originalHtml = originalHtml;
+    }
+
+    public byte[] getTranslated() {
+        return translated;
+    }
+
+    public void setTranslated(byte[] translated) {
+        this.translated = translated;
+    }
+
+    public byte[] getContentUtterances() {
+        return contentUtterances;
+    }
+
+    public void setContentUtterances(byte[] contentUtterances) {
+        this.contentUtterances = contentUtterances;
+    }
+
+    public byte[] getTranslatedUtterances() {
+        return translatedUtterances;
+    }
+
+    public void setTranslatedUtterances(byte[] translatedUtterances) {
+        this.translatedUtterances = translatedUtterances;
+    }
+}
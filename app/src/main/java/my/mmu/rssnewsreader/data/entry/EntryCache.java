@@ -0,0 +1,95 @@
+package my.mmu.rssnewsreader.data.entry;
+
+import android.util.Log;
+import android.util.LruCache;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+// Recently read entries with their bodies, shared by every EntryRepository.
+// LruCache synchronizes internally and weighs each entry by the characters it holds, so the budget is in bytes.
+// An entry read from the database is only put if nothing invalidated it while it was being read, which a
+// generation counter per stripe of ids tells. A stripe shared with another id at worst skips a put.
+@Singleton
+public class EntryCache {
+
+    private static final String TAG = "EntryCache";
+    // Fixed cost of an Entry and its boxed key on top of its strings
+    private static final int ENTRY_OVERHEAD = 256;
+    private static final int STRIPES = 64;
+
+    private final LruCache<Long, Entry> cache;
+    // Guarded by this
+    private final int[] generations = new int[STRIPES];
+
+    @Inject
+    public EntryCache() {
+        this((int) Math.min(Runtime.getRuntime().maxMemory() / 16, Integer.MAX_VALUE));
+    }
+
+    public EntryCache(int maxBytes) {
+        cache = new LruCache<Long, Entry>(maxBytes) {
+            @Override
+            protected int sizeOf(Long id, Entry entry) {
+                return ENTRY_OVERHEAD + 2 * (length(entry.getTitle()) + length(entry.getDescription()) + length(entry.getContent())
+                        + length(entry.getHtml()) + length(entry.getOriginalHtml()) + length(entry.getTranslated()));
+            }
+        };
+    }
+
+    public Entry get(long id) {
+        return cache.get(id);
+    }
+
+    // Taken before the entry is read from the database, and handed to putIfUnchanged with it
+    public synchronized int generation(long id) {
+        return generations[stripe(id)];
+    }
+
+    public synchronized void putIfUnchanged(Entry entry, int generation) {
+        if (generations[stripe(entry.getId())] == generation) {
+            cache.put(entry.getId(), entry);
+        }
+    }
+
+    // Called after the write, so a read that started before it never puts what it read
+    public synchronized void invalidate(long id) {
+        generations[stripe(id)]++;
+        cache.remove(id);
+    }
+
+    public synchronized void invalidateAll() {
+        for (int i = 0; i < STRIPES; i++) {
+            generations[i]++;
+        }
+        cache.evictAll();
+    }
+
+    private static int stripe(long id) {
+        return (int) (id & (STRIPES - 1));
+    }
+
+    public void resize(int maxBytes) {
+        cache.resize(maxBytes);
+    }
+
+    public int hitCount() {
+        return cache.hitCount();
+    }
+
+    public int missCount() {
+        return cache.missCount();
+    }
+
+    public int evictionCount() {
+        return cache.evictionCount();
+    }
+
+    public void logStats() {
+        Log.d(TAG, cache + " size=" + cache.size() + " evictions=" + cache.evictionCount());
+    }
+
+    private static int length(String text) {
+        return text != null ? text.length() : 0;
+    }
+}
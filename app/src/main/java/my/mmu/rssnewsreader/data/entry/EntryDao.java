@@ -1,15 +1,20 @@
 package my.mmu.rssnewsreader.data.entry;
 
+import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
+import my.mmu.rssnewsreader.data.history.History;
 import my.mmu.rssnewsreader.model.EntryInfo;
+import my.mmu.rssnewsreader.model.EntrySearchResult;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -25,6 +30,49 @@ public interface EntryDao {
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     void insertEntries(List<Entry> entries);
 
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insertHistory(History history);
+
+    @Query("UPDATE history_table SET insertDate = :date WHERE feedId = :feedId AND itemHash = :itemHash")
+    void touchHistory(long feedId, long itemHash, Date date);
+
+    @Query("UPDATE OR IGNORE history_table SET itemHash = :itemHash, insertDate = :date WHERE feedId = :feedId AND itemHash = :legacyHash")
+    int adoptLegacyHistory(long feedId, long legacyHash, long itemHash, Date date);
+
+    @Query("UPDATE OR IGNORE entry_table SET itemHash = :itemHash WHERE feedId = :feedId AND itemHash = :legacyHash")
+    void adoptLegacyEntry(long feedId, long legacyHash, long itemHash);
+
+    @Query("DELETE FROM history_table WHERE feedId = :feedId AND insertDate < :before")
+    void deleteHistoriesBefore(long feedId, Date before);
+
+    // One transaction per fetched feed. The unique (feedId, itemHash) index on history_table decides what is new,
+    // so each item costs a single indexed insert; items seen again only get their history date refreshed.
+    // Returns the new row id of each entry, or -1 when it was a duplicate
+    @Transaction
+    default List<Long> insertNewEntries(long feedId, List<Entry> entries, Date now, Date historyExpiry) {
+        List<Long> ids = new ArrayList<>();
+        for (Entry entry : entries) {
+            // Rows stored before version 11 were hashed from the link or title. An item whose guid hashes differently
+            // takes over its old rows instead of being added again, which costs one indexed update. Legacy rows
+            // expire with the rest of the history.
+            long legacyHash = EntryIdentity.hash(null, entry.getLink(), entry.getTitle());
+            if (legacyHash != entry.getItemHash() && adoptLegacyHistory(feedId, legacyHash, entry.getItemHash(), now) > 0) {
+                adoptLegacyEntry(feedId, legacyHash, entry.getItemHash());
+                ids.add(-1L);
+                continue;
+            }
+            long historyId = insertHistory(new History(feedId, now, entry.getTitle(), entry.getLink(), entry.getItemHash()));
+            if (historyId == -1) {
+                touchHistory(feedId, entry.getItemHash(), now);
+                ids.add(-1L);
+            } else {
+                ids.add(insert(entry));
+            }
+        }
+        deleteHistoriesBefore(feedId, historyExpiry);
+        return ids;
+    }
+
     @Update
     Completable update(Entry entry);
 
@@ -40,58 +88,102 @@ public interface EntryDao {
     @Query("DELETE FROM entry_table WHERE feedId = :feedId")
     Completable deleteByFeedId(long feedId);
 
-    @Query("SELECT e.id as entryId, e.title as entryTitle, e.content as content, e.priority as priority, e.link as entryLink, e.description as entryDescription, e.imageUrl as entryImageUrl, e.publishedDate as entryPublishedDate, e.visitedDate as visitedDate, e.category as entryCategory, e.bookmark as bookmark, e.original_html as originalHtml, e.html as html, e.translated as translated, f.id as feedId, f.ttsSpeechRate as ttsSpeechRate, f.language as feedLanguage, f.title as feedTitle, f.imageUrl as feedImageUrl " +
-            "FROM entry_table e " +
-            "LEFT JOIN feed_table f ON e.feedId = f.id")
-    Flowable<List<EntryInfo>> getAllEntriesInfo();
-
-    @Query("SELECT e.id as entryId, e.title as entryTitle, e.content as content, e.priority as priority, e.link as entryLink, e.description as entryDescription, e.imageUrl as entryImageUrl, e.publishedDate as entryPublishedDate, e.visitedDate as visitedDate, e.category as entryCategory, e.bookmark as bookmark, e.original_html as originalHtml, e.html as html, e.translated as translated, f.id as feedId, f.ttsSpeechRate as ttsSpeechRate, f.language as feedLanguage, f.title as feedTitle, f.imageUrl as feedImageUrl " +
+    // Keyset pages: each page starts right after the last row of the previous one, so SQLite walks
+    // index_entry_table_publishedDate_id (or the feedId one for a single feed) instead of sorting or skipping with OFFSET.
+    // All feeds and a single feed are separate queries, since "(:feedId = 0 OR e.feedId = :feedId)" cannot use an index
+    @Query("SELECT e.id as entryId, e.title as entryTitle, e.priority as priority, e.link as entryLink, e.description as entryDescription, e.imageUrl as entryImageUrl, e.publishedDate as entryPublishedDate, e.visitedDate as visitedDate, e.category as entryCategory, e.bookmark as bookmark, e.hasContent as hasContent, e.hasOriginalHtml as hasOriginalHtml, e.hasTranslation as hasTranslation, f.id as feedId, f.ttsSpeechRate as ttsSpeechRate, f.language as feedLanguage, f.title as feedTitle, f.imageUrl as feedImageUrl " +
             "FROM entry_table e " +
             "LEFT JOIN feed_table f ON e.feedId = f.id " +
-            "WHERE bookmark = 'Y'")
-    Flowable<List<EntryInfo>> getEntriesByBookmark();
-
-    @Query("SELECT e.id as entryId, e.title as entryTitle, e.content as content, e.priority as priority, e.link as entryLink, e.description as entryDescription, e.imageUrl as entryImageUrl, e.publishedDate as entryPublishedDate, e.visitedDate as visitedDate, e.category as entryCategory, e.bookmark as bookmark, e.original_html as originalHtml, e.html as html, e.translated as translated, f.id as feedId, f.ttsSpeechRate as ttsSpeechRate, f.language as feedLanguage, f.title as feedTitle, f.imageUrl as feedImageUrl " +
+            "WHERE (:filter != 'bookmark' OR e.bookmark = 'Y') " +
+            "AND (:filter != 'unread' OR e.visitedDate IS NULL) " +
+            "AND (:filter != 'read' OR e.visitedDate IS NOT NULL) " +
+            "AND (e.publishedDate < :afterDate OR (e.publishedDate = :afterDate AND e.id < :afterId)) " +
+            "ORDER BY e.publishedDate DESC, e.id DESC LIMIT :limit")
+    List<EntryInfo> getLatestEntriesPage(String filter, long afterDate, long afterId, int limit);
+
+    @Query("SELECT e.id as entryId, e.title as entryTitle, e.priority as priority, e.link as entryLink, e.description as entryDescription, e.imageUrl as entryImageUrl, e.publishedDate as entryPublishedDate, e.visitedDate as visitedDate, e.category as entryCategory, e.bookmark as bookmark, e.hasContent as hasContent, e.hasOriginalHtml as hasOriginalHtml, e.hasTranslation as hasTranslation, f.id as feedId, f.ttsSpeechRate as ttsSpeechRate, f.language as feedLanguage, f.title as feedTitle, f.imageUrl as feedImageUrl " +
             "FROM entry_table e " +
             "LEFT JOIN feed_table f ON e.feedId = f.id " +
-            "WHERE visitedDate is null")
-    Flowable<List<EntryInfo>> getEntriesByUnread();
-
-    @Query("SELECT e.id as entryId, e.title as entryTitle, e.content as content, e.priority as priority, e.link as entryLink, e.description as entryDescription, e.imageUrl as entryImageUrl, e.publishedDate as entryPublishedDate, e.visitedDate as visitedDate, e.category as entryCategory, e.bookmark as bookmark, e.original_html as originalHtml, e.html as html, e.translated as translated, f.id as feedId, f.ttsSpeechRate as ttsSpeechRate, f.language as feedLanguage, f.title as feedTitle, f.imageUrl as feedImageUrl " +
+            "WHERE (:filter != 'bookmark' OR e.bookmark = 'Y') " +
+            "AND (:filter != 'unread' OR e.visitedDate IS NULL) " +
+            "AND (:filter != 'read' OR e.visitedDate IS NOT NULL) " +
+            "AND (e.publishedDate > :afterDate OR (e.publishedDate = :afterDate AND e.id > :afterId)) " +
+            "ORDER BY e.publishedDate ASC, e.id ASC LIMIT :limit")
+    List<EntryInfo> getOldestEntriesPage(String filter, long afterDate, long afterId, int limit);
+
+    @Query("SELECT e.id as entryId, e.title as entryTitle, e.priority as priority, e.link as entryLink, e.description as entryDescription, e.imageUrl as entryImageUrl, e.publishedDate as entryPublishedDate, e.visitedDate as visitedDate, e.category as entryCategory, e.bookmark as bookmark, e.hasContent as hasContent, e.hasOriginalHtml as hasOriginalHtml, e.hasTranslation as hasTranslation, f.id as feedId, f.ttsSpeechRate as ttsSpeechRate, f.language as feedLanguage, f.title as feedTitle, f.imageUrl as feedImageUrl " +
             "FROM entry_table e " +
             "LEFT JOIN feed_table f ON e.feedId = f.id " +
-            "WHERE visitedDate is not null")
-    Flowable<List<EntryInfo>> getEntriesByRead();
-
-    @Query("SELECT e.id as entryId, e.title as entryTitle, e.content as content, e.priority as priority, e.link as entryLink, e.description as entryDescription, e.imageUrl as entryImageUrl, e.publishedDate as entryPublishedDate, e.visitedDate as visitedDate, e.category as entryCategory, e.bookmark as bookmark, e.original_html as originalHtml, e.html as html, e.translated as translated, f.id as feedId, f.ttsSpeechRate as ttsSpeechRate, f.language as feedLanguage, f.title as feedTitle, f.imageUrl as feedImageUrl " +
+            "WHERE e.feedId = :feedId " +
+            "AND (:filter != 'bookmark' OR e.bookmark = 'Y') " +
+            "AND (:filter != 'unread' OR e.visitedDate IS NULL) " +
+            "AND (:filter != 'read' OR e.visitedDate IS NOT NULL) " +
+            "AND (e.publishedDate < :afterDate OR (e.publishedDate = :afterDate AND e.id < :afterId)) " +
+            "ORDER BY e.publishedDate DESC, e.id DESC LIMIT :limit")
+    List<EntryInfo> getLatestFeedEntriesPage(long feedId, String filter, long afterDate, long afterId, int limit);
+
+    @Query("SELECT e.id as entryId, e.title as entryTitle, e.priority as priority, e.link as entryLink, e.description as entryDescription, e.imageUrl as entryImageUrl, e.publishedDate as entryPublishedDate, e.visitedDate as visitedDate, e.category as entryCategory, e.bookmark as bookmark, e.hasContent as hasContent, e.hasOriginalHtml as hasOriginalHtml, e.hasTranslation as hasTranslation, f.id as feedId, f.ttsSpeechRate as ttsSpeechRate, f.language as feedLanguage, f.title as feedTitle, f.imageUrl as feedImageUrl " +
             "FROM entry_table e " +
             "LEFT JOIN feed_table f ON e.feedId = f.id " +
-            "WHERE bookmark = 'Y' AND e.feedId = :id")
-    Flowable<List<EntryInfo>> getEntriesByBookmark(long id);
-
-    @Query("SELECT e.id as entryId, e.title as entryTitle, e.content as content, e.priority as priority, e.link as entryLink, e.description as entryDescription, e.imageUrl as entryImageUrl, e.publishedDate as entryPublishedDate, e.visitedDate as visitedDate, e.category as entryCategory, e.bookmark as bookmark, e.original_html as originalHtml, e.html as html, e.translated as translated, f.id as feedId, f.ttsSpeechRate as ttsSpeechRate, f.language as feedLanguage, f.title as feedTitle, f.imageUrl as feedImageUrl " +
-            "FROM entry_table e " +
+            "WHERE e.feedId = :feedId " +
+            "AND (:filter != 'bookmark' OR e.bookmark = 'Y') " +
+            "AND (:filter != 'unread' OR e.visitedDate IS NULL) " +
+            "AND (:filter != 'read' OR e.visitedDate IS NOT NULL) " +
+            "AND (e.publishedDate > :afterDate OR (e.publishedDate = :afterDate AND e.id > :afterId)) " +
+            "ORDER BY e.publishedDate ASC, e.id ASC LIMIT :limit")
+    List<EntryInfo> getOldestFeedEntriesPage(long feedId, String filter, long afterDate, long afterId, int limit);
+
+    @Query("SELECT e.id FROM entry_table e " +
+            "WHERE (:filter != 'bookmark' OR e.bookmark = 'Y') " +
+            "AND (:filter != 'unread' OR e.visitedDate IS NULL) " +
+            "AND (:filter != 'read' OR e.visitedDate IS NOT NULL) " +
+            "ORDER BY e.publishedDate DESC, e.id DESC")
+    List<Long> getLatestEntryIds(String filter);
+
+    @Query("SELECT e.id FROM entry_table e " +
+            "WHERE (:filter != 'bookmark' OR e.bookmark = 'Y') " +
+            "AND (:filter != 'unread' OR e.visitedDate IS NULL) " +
+            "AND (:filter != 'read' OR e.visitedDate IS NOT NULL) " +
+            "ORDER BY e.publishedDate ASC, e.id ASC")
+    List<Long> getOldestEntryIds(String filter);
+
+    @Query("SELECT e.id FROM entry_table e " +
+            "WHERE e.feedId = :feedId " +
+            "AND (:filter != 'bookmark' OR e.bookmark = 'Y') " +
+            "AND (:filter != 'unread' OR e.visitedDate IS NULL) " +
+            "AND (:filter != 'read' OR e.visitedDate IS NOT NULL) " +
+            "ORDER BY e.publishedDate DESC, e.id DESC")
+    List<Long> getLatestFeedEntryIds(long feedId, String filter);
+
+    @Query("SELECT e.id FROM entry_table e " +
+            "WHERE e.feedId = :feedId " +
+            "AND (:filter != 'bookmark' OR e.bookmark = 'Y') " +
+            "AND (:filter != 'unread' OR e.visitedDate IS NULL) " +
+            "AND (:filter != 'read' OR e.visitedDate IS NOT NULL) " +
+            "ORDER BY e.publishedDate ASC, e.id ASC")
+    List<Long> getOldestFeedEntryIds(long feedId, String filter);
+
+    // Every match of the current feed and filter, with just enough of matchinfo to rank it
+    @Query("SELECT entry_fts.rowid AS entryId, matchinfo(entry_fts, 'pcnx') AS matchInfo " +
+            "FROM entry_fts " +
+            "JOIN entry_table e ON e.id = entry_fts.rowid " +
+            "WHERE entry_fts MATCH :query " +
+            "AND (:feedId = 0 OR e.feedId = :feedId) " +
+            "AND (:filter != 'bookmark' OR e.bookmark = 'Y') " +
+            "AND (:filter != 'unread' OR e.visitedDate IS NULL) " +
+            "AND (:filter != 'read' OR e.visitedDate IS NOT NULL)")
+    List<EntrySearchMatch> searchEntries(String query, long feedId, String filter);
+
+    @Query("SELECT e.id as entryId, e.title as entryTitle, e.priority as priority, e.link as entryLink, e.description as entryDescription, e.imageUrl as entryImageUrl, e.publishedDate as entryPublishedDate, e.visitedDate as visitedDate, e.category as entryCategory, e.bookmark as bookmark, e.hasContent as hasContent, e.hasOriginalHtml as hasOriginalHtml, e.hasTranslation as hasTranslation, f.id as feedId, f.ttsSpeechRate as ttsSpeechRate, f.language as feedLanguage, f.title as feedTitle, f.imageUrl as feedImageUrl, snippet(entry_fts, '<b>', '</b>', '...', -1, 16) AS snippet " +
+            "FROM entry_fts " +
+            "JOIN entry_table e ON e.id = entry_fts.rowid " +
             "LEFT JOIN feed_table f ON e.feedId = f.id " +
-            "WHERE visitedDate is null AND e.feedId = :id")
-    Flowable<List<EntryInfo>> getEntriesByUnread(long id);
+            "WHERE entry_fts MATCH :query AND entry_fts.rowid IN (:ids)")
+    List<EntrySearchResult> getSearchResults(String query, List<Long> ids);
 
-    @Query("SELECT e.id as entryId, e.title as entryTitle, e.content as content, e.priority as priority, e.link as entryLink, e.description as entryDescription, e.imageUrl as entryImageUrl, e.publishedDate as entryPublishedDate, e.visitedDate as visitedDate, e.category as entryCategory, e.bookmark as bookmark, e.original_html as originalHtml, e.html as html, e.translated as translated, f.id as feedId, f.ttsSpeechRate as ttsSpeechRate, f.language as feedLanguage, f.title as feedTitle, f.imageUrl as feedImageUrl " +
-            "FROM entry_table e " +
-            "LEFT JOIN feed_table f ON e.feedId = f.id " +
-            "WHERE visitedDate is not null AND e.feedId = :id")
-    Flowable<List<EntryInfo>> getEntriesByRead(long id);
-
-    @Query("SELECT e.id as entryId, e.title as entryTitle, e.content as content, e.priority as priority, e.link as entryLink, e.description as entryDescription, e.imageUrl as entryImageUrl, e.publishedDate as entryPublishedDate, e.visitedDate as visitedDate, e.category as entryCategory, e.bookmark as bookmark, e.original_html as originalHtml, e.html as html, e.translated as translated, f.id as feedId, f.ttsSpeechRate as ttsSpeechRate, f.language as feedLanguage, f.title as feedTitle, f.imageUrl as feedImageUrl " +
-            "FROM entry_table e " +
-            "LEFT JOIN feed_table f ON e.feedId = f.id " +
-            "WHERE e.feedId = :id")
-    Flowable<List<EntryInfo>> getEntriesByFeed(long id);
-
-    @Query("SELECT e.id as entryId, e.title as entryTitle, e.content as content, e.priority as priority, e.link as entryLink, e.description as entryDescription, e.imageUrl as entryImageUrl, e.publishedDate as entryPublishedDate, e.visitedDate as visitedDate, e.category as entryCategory, e.bookmark as bookmark, e.original_html as originalHtml, e.html as html, e.translated as translated, f.id as feedId, f.ttsSpeechRate as ttsSpeechRate, f.language as feedLanguage, f.title as feedTitle, f.imageUrl as feedImageUrl " +
-            "FROM entry_table e " +
-            "LEFT JOIN feed_table f ON e.feedId = f.id " +
-            "ORDER BY e.publishedDate DESC")
-    LiveData<List<EntryInfo>> getAllEntriesInfoLive();
+    // Cheap to run and re-emitted by Room whenever either table changes, so the loaded pages can be refreshed
+    @Query("SELECT IFNULL((SELECT MAX(id) FROM entry_table), 0) + IFNULL((SELECT MAX(id) FROM feed_table), 0)")
+    Flowable<Long> getEntryListChanges();
 
     @Query("SELECT e.* " +
             "FROM entry_table e " +
@@ -99,7 +191,7 @@ public interface EntryDao {
             "WHERE f.id = :id")
     List<Entry> getStaticEntriesByFeed(long id);
 
-    @Query("SELECT e.id as entryId, e.title as entryTitle, e.content as content, e.priority as priority, e.link as entryLink, e.description as entryDescription, e.imageUrl as entryImageUrl, e.publishedDate as entryPublishedDate, e.visitedDate as visitedDate, e.category as entryCategory, e.bookmark as bookmark, e.original_html as originalHtml, e.html as html, e.translated as translated, f.id as feedId, f.ttsSpeechRate as ttsSpeechRate, f.language as feedLanguage, f.title as feedTitle, f.imageUrl as feedImageUrl " +
+    @Query("SELECT e.id as entryId, e.title as entryTitle, e.priority as priority, e.link as entryLink, e.description as entryDescription, e.imageUrl as entryImageUrl, e.publishedDate as entryPublishedDate, e.visitedDate as visitedDate, e.category as entryCategory, e.bookmark as bookmark, e.hasContent as hasContent, e.hasOriginalHtml as hasOriginalHtml, e.hasTranslation as hasTranslation, f.id as feedId, f.ttsSpeechRate as ttsSpeechRate, f.language as feedLanguage, f.title as feedTitle, f.imageUrl as feedImageUrl " +
             "FROM entry_table e " +
             "LEFT JOIN feed_table f ON e.feedId = f.id " +
             "WHERE e.id = :id")
@@ -114,20 +206,56 @@ public interface EntryDao {
     @Query("SELECT id FROM entry_table WHERE id = :id")
     long checkEntryExist(long id);
 
-    @Query("SELECT content FROM entry_table WHERE id = :id")
-    String getContentById(long id);
+    // Body columns are BodyCodec blobs, EntryRepository encodes and decodes them
+    @Query("SELECT content FROM entry_body WHERE entryId = :id")
+    byte[] getEncodedContentById(long id);
+
+    @Query("SELECT html FROM entry_body WHERE entryId = :id")
+    byte[] getEncodedHtmlById(long id);
+
+    @Query("SELECT original_html FROM entry_body WHERE entryId = :id")
+    byte[] getEncodedOriginalHtmlById(long id);
 
-    @Query("SELECT html FROM entry_table WHERE id = :id")
-    String getHtmlById(long id);
+    @Query("SELECT translated FROM entry_body WHERE entryId = :id")
+    byte[] getEncodedTranslatedById(long id);
 
     @Query("UPDATE entry_table SET visitedDate = :date WHERE id = :entryId")
     void updateDate(Date date, long entryId);
 
-    @Query("UPDATE entry_table SET content = :content WHERE id = :id")
-    void updateContent(String content, long id);
+    @Query("UPDATE entry_body SET content = :content WHERE entryId = :id")
+    void updateEncodedContent(byte[] content, long id);
 
-    @Query("UPDATE entry_table SET html = :html WHERE id = :id")
-    void updateHtml(String html, long id);
+    // The search index can't read compressed bodies, so it gets the plain text alongside
+    @Query("UPDATE entry_fts SET body = :body WHERE rowid = :id")
+    void updateSearchBody(String body, long id);
+
+    @Query("UPDATE entry_body SET content_utterances = :utterances WHERE entryId = :id")
+    void updateContentUtterances(byte[] utterances, long id);
+
+    @Query("SELECT content_utterances, translated_utterances FROM entry_body WHERE entryId = :id")
+    UtteranceIndexes getUtteranceIndexes(long id);
+
+    @Transaction
+    default void updateContent(byte[] content, byte[] utterances, String searchBody, long id) {
+        updateEncodedContent(content, id);
+        updateContentUtterances(utterances, id);
+        updateSearchBody(searchBody, id);
+    }
+
+    @Query("UPDATE entry_body SET html = :html WHERE entryId = :id")
+    void updateEncodedHtml(byte[] html, long id);
+
+    @Query("UPDATE entry_body SET original_html = :originalHtml WHERE entryId = :id")
+    void updateEncodedOriginalHtml(byte[] originalHtml, long id);
+
+    // original_html is stored relative to html, so EntryRepository re-encodes it whenever html changes
+    @Transaction
+    default void updateHtml(byte[] html, @Nullable byte[] originalHtml, long id) {
+        if (originalHtml != null) {
+            updateEncodedOriginalHtml(originalHtml, id);
+        }
+        updateEncodedHtml(html, id);
+    }
 
     @Query("SELECT id FROM entry_table ORDER BY visitedDate DESC LIMIT 1")
     long getLastVisitedEntryId();
@@ -135,10 +263,10 @@ public interface EntryDao {
     @Query("SELECT visitedDate FROM entry_table WHERE id = :id")
     Date checkIsVisited(long id);
 
-    @Query("SELECT * FROM entry_table WHERE content is null AND priority != 0 ORDER BY priority ASC LIMIT 1")
+    @Query("SELECT e.* FROM entry_table e INNER JOIN entry_body b ON b.entryId = e.id WHERE b.content is null AND e.priority != 0 ORDER BY e.priority ASC LIMIT 1")
     Entry getEmptyEntryOrderByPrior();
 
-    @Query("SELECT * FROM entry_table WHERE content is null")
+    @Query("SELECT e.* FROM entry_table e INNER JOIN entry_body b ON b.entryId = e.id WHERE b.content is null LIMIT 1")
     Entry getEmptyEntry();
 
     @Query("SELECT id FROM entry_table WHERE feedId = :id")
@@ -150,75 +278,75 @@ public interface EntryDao {
     @Query("DELETE FROM entry_table WHERE visitedDate is not null AND bookmark is not 'Y'")
     void deleteAllVisitedEntries();
 
-    @Query("UPDATE entry_table SET priority = 0 WHERE priority != 0")
-    void clearPriority();
-
-    @Query("UPDATE entry_table SET priority = :priority WHERE id = :id AND content is null")
+    // Rows entering the playlist prefetch window are ranked by their playlist position and rows leaving it go back to the queue.
+    // The rank does not depend on the cursor, so the entries that stay in the window are not written when it slides.
+    @Query("UPDATE entry_table SET priority = CASE " +
+            "WHEN id IN (:window) THEN 1 + COALESCE((SELECT MIN(p.position) FROM playlist_item p WHERE p.entryId = entry_table.id), 0) " +
+            "WHEN id IN (SELECT entryId FROM entry_body WHERE content IS NULL) THEN " + Entry.PRIORITY_QUEUED + " ELSE 0 END " +
+            "WHERE id IN (:changed)")
+    void updateWindowPriority(List<Long> window, List<Long> changed);
+
+    // Ranks left from an earlier run go back to the queue before the first window is placed
+    @Query("UPDATE entry_table SET priority = CASE " +
+            "WHEN id IN (SELECT entryId FROM entry_body WHERE content IS NULL) THEN " + Entry.PRIORITY_QUEUED + " ELSE 0 END " +
+            "WHERE priority != 0 AND priority != " + Entry.PRIORITY_QUEUED)
+    void resetWindowPriority();
+
+    @Query("UPDATE entry_table SET priority = :priority WHERE id = :id AND id IN (SELECT entryId FROM entry_body WHERE content is null)")
     void updatePriority(int priority, long id);
 
-    @Query("UPDATE entry_table SET sentCountStopAt = :sentCount WHERE id = :id")
-    void updateSentCount(int sentCount, long id);
-
-    @Query("UPDATE entry_table SET sentCountStopAt = :sentCount WHERE id = :id")
-    void updateSentCountByLink(int sentCount, long id);
-
-    @Query("UPDATE entry_table SET title = :title WHERE feedId = :feedId AND link = :link")
-    void updateTitle(long feedId, String title, String link);
-
-    @Query("UPDATE entry_table SET link = :link WHERE feedId = :feedId AND title = :title")
-    void updateLink(long feedId, String title, String link);
-
     @Query("UPDATE entry_table SET bookmark = :bool WHERE id = :id")
     void updateBookmark(String bool, long id);
 
-    @Query("UPDATE entry_table SET content = null, html = null, sentCountStopAt = 0 WHERE feedId = :id")
-    void updateContentByFeedId(long id);
-
-    @Query("SELECT * FROM entry_table WHERE feedId = :feedId")
-    List<Entry> getEntriesByFeedId(long feedId);
+    @Query("UPDATE entry_body SET content = null, html = null, original_html = null, translated = null, content_utterances = null, translated_utterances = null WHERE entryId IN (SELECT id FROM entry_table WHERE feedId = :id)")
+    void clearBodiesByFeedId(long id);
 
-    @Query("SELECT sentCountStopAt FROM entry_table WHERE id = :id")
-    int getSentCount(long id);
+    @Query("UPDATE entry_fts SET body = null WHERE rowid IN (SELECT id FROM entry_table WHERE feedId = :id)")
+    void clearSearchBodiesByFeedId(long id);
 
-    @Query("SELECT bookmark FROM entry_table WHERE id = :id")
-    String getBookmark(long id);
+    @Query("UPDATE entry_table SET isCached = 0 WHERE feedId = :id")
+    void resetCachedByFeedId(long id);
 
-    @Query("SELECT COUNT(id) FROM entry_table WHERE visitedDate is null AND bookmark = 'Y'")
-    Flowable<Integer> getUnreadCountByBookmark();
+    @Query("DELETE FROM playback_position WHERE entryId IN (SELECT id FROM entry_table WHERE feedId = :id)")
+    void resetProgressByFeedId(long id);
 
-    @Query("SELECT COUNT(id) FROM entry_table WHERE visitedDate is null AND feedId = :id AND bookmark = 'Y'")
-    Flowable<Integer> getUnreadCountByBookmark(long id);
+    @Transaction
+    default void updateContentByFeedId(long id) {
+        clearBodiesByFeedId(id);
+        clearSearchBodiesByFeedId(id);
+        resetCachedByFeedId(id);
+        resetProgressByFeedId(id);
+    }
 
-    @Query("SELECT COUNT(id) FROM entry_table WHERE visitedDate is null")
-    Flowable<Integer> getUnreadCount();
+    @Query("SELECT bookmark FROM entry_table WHERE id = :id")
+    String getBookmark(long id);
 
-    @Query("SELECT COUNT(id) FROM entry_table WHERE visitedDate is null AND feedId = :id")
-    Flowable<Integer> getUnreadCount(long id);
+    @Query("SELECT * FROM feed_counts")
+    Flowable<List<FeedCounts>> getFeedCounts();
 
     @Query("DELETE FROM entry_table WHERE feedId = :feedId AND id NOT IN (SELECT id FROM entry_table WHERE feedId = :feedId ORDER BY publishedDate DESC LIMIT :limit) AND id NOT IN (SELECT id FROM entry_table WHERE bookmark = 'Y' AND feedId = :feedId)")
     void limitEntriesByFeed(long feedId, int limit);
 
-    @Query("UPDATE entry_table SET priority = 1 WHERE content IS NULL AND priority = 0")
+    @Query("UPDATE entry_table SET priority = " + Entry.PRIORITY_QUEUED + " WHERE priority = 0 AND id IN (SELECT entryId FROM entry_body WHERE content IS NULL)")
     void requeueMissingEntries();
 
+    @Transaction
     @Query("SELECT * FROM entry_table WHERE id = :id")
-    Entry getEntryById(long id);
+    EntryWithBody getEntryById(long id);
 
+    @Transaction
     @Query("SELECT * FROM entry_table WHERE id = :id")
-    LiveData<Entry> getEntryEntityById(long id);
-
-    @Query("SELECT * FROM entry_table WHERE html IS NOT NULL AND html NOT LIKE '%translated-title%'")
-    List<Entry> getUntranslatedEntries();
-
-    @Query("SELECT original_html FROM entry_table WHERE id = :id")
-    String getOriginalHtmlById(long id);
+    LiveData<EntryWithBody> getEntryEntityById(long id);
 
-    @Query("UPDATE entry_table SET original_html = :originalHtml WHERE id = :id")
-    void updateOriginalHtml(String originalHtml, long id);
+    @Query("UPDATE entry_body SET translated = :translated WHERE entryId = :id")
+    void updateEncodedTranslated(byte[] translated, long id);
 
-    @Query("UPDATE entry_table SET translated = :translated WHERE id = :id")
-    void updateTranslated(String translated, long id);
+    @Query("UPDATE entry_body SET translated_utterances = :utterances WHERE entryId = :id")
+    void updateTranslatedUtterances(byte[] utterances, long id);
 
-    @Query("UPDATE entry_table SET translated = :translated WHERE id = :id")
-    void updateTranslatedText(String translated, long id);
+    @Transaction
+    default void updateTranslated(byte[] translated, byte[] utterances, long id) {
+        updateEncodedTranslated(translated, id);
+        updateTranslatedUtterances(utterances, id);
+    }
 }
@@ -0,0 +1,80 @@
+package my.mmu.rssnewsreader.data.entry;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+// Stable 64-bit identity of a feed item, unique per feed in entry_table and history_table.
+// Taken from the guid when there is one, else the normalized link, else the title
+public final class EntryIdentity {
+
+    private EntryIdentity() {
+    }
+
+    public static long hash(String guid, String link, String title) {
+        String key;
+        if (!isEmpty(guid)) {
+            // Permalink guids usually equal the link, hashing them the same way keeps ids stable across both
+            key = isUrl(guid) ? "link:" + normalizeLink(guid) : "guid:" + guid.trim();
+        } else if (!isEmpty(link)) {
+            key = "link:" + normalizeLink(link);
+        } else {
+            key = "title:" + (title == null ? "" : title.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT));
+        }
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            long hash = ByteBuffer.wrap(digest).getLong();
+            // 0 is the column default for rows that have not been hashed
+            return hash != 0 ? hash : 1;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Drops the scheme, "www.", the fragment, a trailing slash and utm_* tracking parameters
+    static String normalizeLink(String link) {
+        String trimmed = link.trim();
+        try {
+            URI uri = new URI(trimmed);
+            String host = uri.getHost();
+            if (host == null) {
+                return trimmed.toLowerCase(Locale.ROOT);
+            }
+            host = host.toLowerCase(Locale.ROOT);
+            if (host.startsWith("www.")) {
+                host = host.substring(4);
+            }
+
+            String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+            while (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+
+            StringBuilder query = new StringBuilder();
+            if (uri.getRawQuery() != null) {
+                for (String parameter : uri.getRawQuery().split("&")) {
+                    if (!parameter.isEmpty() && !parameter.startsWith("utm_")) {
+                        query.append(query.length() == 0 ? "?" : "&").append(parameter);
+                    }
+                }
+            }
+            return host + path + query;
+        } catch (URISyntaxException e) {
+            return trimmed.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static boolean isUrl(String value) {
+        String lower = value.trim().toLowerCase(Locale.ROOT);
+        return lower.startsWith("http://") || lower.startsWith("https://");
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -2,13 +2,25 @@ package my.mmu.rssnewsreader.data.entry;
 
 import android.util.Log;
 
+import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Transformations;
 
-import my.mmu.rssnewsreader.data.history.History;
-import my.mmu.rssnewsreader.data.history.HistoryRepository;
 import my.mmu.rssnewsreader.data.sharedpreferences.SharedPreferencesRepository;
 import my.mmu.rssnewsreader.model.EntryInfo;
-
+import my.mmu.rssnewsreader.model.EntrySearchResult;
+import my.mmu.rssnewsreader.service.tts.AudioCache;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -26,46 +38,125 @@ import io.reactivex.rxjava3.schedulers.Schedulers;
 public class EntryRepository {
 
     private static final String TAG = "EntryRepository";
+    // Items missing from a feed for this long are forgotten and would be added again if they came back
+    private static final int HISTORY_DAYS = 30;
+    // Title, description and article body, in entry_fts column order
+    private static final double[] SEARCH_COLUMN_WEIGHTS = {5.0, 2.0, 1.0};
+    // Sentences are joined with the TTS delimiter, which would otherwise show up in search snippets
+    private static final String DELIMITER = "--####--";
+    // Bodies whose blob would still be larger than this go to BodyFileStore, well below the 2 MB cursor window
+    private static final int MAX_INLINE_BODY = 512 * 1024;
     private final EntryDao entryDao;
-    private final HistoryRepository historyRepository;
     private final SharedPreferencesRepository sharedPreferencesRepository;
-    private final Map<Long, Entry> entryCache = new HashMap<>();
+    private final EntryCache entryCache;
+    private final BodyFileStore bodyFileStore;
+    private final AudioCache audioCache;
 
     @Inject
-    public EntryRepository(EntryDao entryDao, HistoryRepository historyRepository, SharedPreferencesRepository sharedPreferencesRepository) {
+    public EntryRepository(EntryDao entryDao, SharedPreferencesRepository sharedPreferencesRepository, EntryCache entryCache, BodyFileStore bodyFileStore, AudioCache audioCache) {
         this.entryDao = entryDao;
-        this.historyRepository = historyRepository;
         this.sharedPreferencesRepository = sharedPreferencesRepository;
+        this.entryCache = entryCache;
+        this.bodyFileStore = bodyFileStore;
+        this.audioCache = audioCache;
     }
 
     public List<Entry> getStaticEntries(long id) {
         return entryDao.getStaticEntriesByFeed(id);
     }
 
-    public Flowable<List<EntryInfo>> getEntries(long id, String filter) {
-        if (id == 0) {
-            switch (filter) {
-                case "bookmark":
-                    return entryDao.getEntriesByBookmark();
-                case "read":
-                    return entryDao.getEntriesByRead();
-                case "unread":
-                    return entryDao.getEntriesByUnread();
-                default:
-                    return entryDao.getAllEntriesInfo();
-            }
+    // First page when afterEntry is null, otherwise the page that follows it in the chosen order
+    public List<EntryInfo> getEntriesPage(long feedId, String filter, boolean oldestFirst, @Nullable EntryInfo afterEntry, int limit) {
+        if (oldestFirst) {
+            long afterDate = afterEntry != null ? afterEntry.getEntryPublishedDate().getTime() : Long.MIN_VALUE;
+            long afterId = afterEntry != null ? afterEntry.getEntryId() : Long.MIN_VALUE;
+            return feedId == 0
+                    ? entryDao.getOldestEntriesPage(filter, afterDate, afterId, limit)
+                    : entryDao.getOldestFeedEntriesPage(feedId, filter, afterDate, afterId, limit);
         } else {
-            switch (filter) {
-                case "bookmark":
-                    return entryDao.getEntriesByBookmark(id);
-                case "read":
-                    return entryDao.getEntriesByRead(id);
-                case "unread":
-                    return entryDao.getEntriesByUnread(id);
-                default:
-                    return entryDao.getEntriesByFeed(id);
+            long afterDate = afterEntry != null ? afterEntry.getEntryPublishedDate().getTime() : Long.MAX_VALUE;
+            long afterId = afterEntry != null ? afterEntry.getEntryId() : Long.MAX_VALUE;
+            return feedId == 0
+                    ? entryDao.getLatestEntriesPage(filter, afterDate, afterId, limit)
+                    : entryDao.getLatestFeedEntriesPage(feedId, filter, afterDate, afterId, limit);
+        }
+    }
+
+    public List<Long> getEntryIds(long feedId, String filter, boolean oldestFirst) {
+        if (feedId == 0) {
+            return oldestFirst ? entryDao.getOldestEntryIds(filter) : entryDao.getLatestEntryIds(filter);
+        }
+        return oldestFirst ? entryDao.getOldestFeedEntryIds(feedId, filter) : entryDao.getLatestFeedEntryIds(feedId, filter);
+    }
+
+    // Ranks every full-text match in memory from its matchinfo, then loads rows and snippets for the best ones only
+    public List<EntrySearchResult> searchEntries(long feedId, String filter, String text, int limit) {
+        String query = toFtsQuery(text);
+        if (query == null) {
+            return new ArrayList<>();
+        }
+
+        List<EntrySearchMatch> matches = entryDao.searchEntries(query, feedId, filter);
+        Map<Long, Double> scores = new HashMap<>();
+        for (EntrySearchMatch match : matches) {
+            scores.put(match.getEntryId(), rankMatch(match.getMatchInfo()));
+        }
+        List<Long> ids = new ArrayList<>(scores.keySet());
+        ids.sort((a, b) -> {
+            int byScore = Double.compare(scores.get(b), scores.get(a));
+            return byScore != 0 ? byScore : Long.compare(b, a);
+        });
+        if (ids.size() > limit) {
+            ids = new ArrayList<>(ids.subList(0, limit));
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<EntrySearchResult> results = entryDao.getSearchResults(query, ids);
+        List<Long> order = ids;
+        results.sort((a, b) -> Integer.compare(order.indexOf(a.getEntryId()), order.indexOf(b.getEntryId())));
+        return results;
+    }
+
+    // Every word becomes a prefix term, so "elect" finds "elections" while typing and user input cannot break the syntax
+    private static String toFtsQuery(String text) {
+        if (text == null) return null;
+        StringBuilder query = new StringBuilder();
+        for (String token : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                query.append('"').append(token).append("*\" ");
+            }
+        }
+        return query.length() == 0 ? null : query.toString().trim();
+    }
+
+    // Okapi-style idf weighted per column from matchinfo 'pcnx': phrase count, column count, row count,
+    // then (hits in this row, hits in all rows, rows with hits) for every phrase and column
+    private static double rankMatch(byte[] matchInfo) {
+        if (matchInfo == null) return 0;
+        IntBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = info.get(0);
+        int columns = info.get(1);
+        int rows = info.get(2);
+
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns && column < SEARCH_COLUMN_WEIGHTS.length; column++) {
+                int offset = 3 + 3 * (phrase * columns + column);
+                int hits = info.get(offset);
+                int rowsWithHits = info.get(offset + 2);
+                if (hits > 0) {
+                    double idf = Math.log(1 + (rows - rowsWithHits + 0.5) / (rowsWithHits + 0.5));
+                    score += SEARCH_COLUMN_WEIGHTS[column] * idf * hits / (hits + 1.0);
+                }
             }
         }
+        return score;
+    }
+
+    public Flowable<Long> getEntryListChanges() {
+        return entryDao.getEntryListChanges();
     }
 
     public long getLastVisitedEntryId() {
@@ -77,8 +168,13 @@ public class EntryRepository {
         return date != null;
     }
 
-    public void clearPriority() {
-        entryDao.clearPriority();
+    // Only the rows in changed are written, the ones in window get their playlist rank
+    public void updateWindowPriority(List<Long> window, List<Long> changed) {
+        entryDao.updateWindowPriority(window, changed);
+    }
+
+    public void resetWindowPriority() {
+        entryDao.resetWindowPriority();
     }
 
     public void updatePriority(int priority, long id) {
@@ -101,11 +197,21 @@ public class EntryRepository {
     }
 
     public void updateContent(String content, long id) {
-        entryDao.updateContent(content, id);
+        byte[] encoded = encodeBody(id, BodyFileStore.CONTENT, content);
+        entryDao.updateContent(encoded, Utterances.index(content), content != null ? content.replace(DELIMITER, " ") : null, id);
+        bodyFileStore.retain(id, BodyFileStore.CONTENT, encoded);
+        entryCache.invalidate(id);
     }
 
     public void updateHtml(String html, long id) {
-        entryDao.updateHtml(html, id);
+        byte[] encodedOriginal = entryDao.getEncodedOriginalHtmlById(id);
+        String originalHtml = encodedOriginal != null && encodedOriginal.length > 0 ? getOriginalHtmlById(id) : null;
+        byte[] encoded = encodeBody(id, BodyFileStore.HTML, html);
+        // A delta needs html to decode, which for a file would mean reading all of it first
+        entryDao.updateHtml(encoded, originalHtml != null ? BodyCodec.encodeAgainst(originalHtml, html, !BodyCodec.isFileReference(encoded)) : null, id);
+        bodyFileStore.retain(id, BodyFileStore.HTML, encoded);
+        bodyFileStore.deletePages(id);
+        entryCache.invalidate(id);
     }
 
     public List<Long> getIdsByFeedId(long id) {
@@ -113,51 +219,146 @@ public class EntryRepository {
     }
 
     public String getContentById(long id) {
-        return entryDao.getContentById(id);
+        Entry entry = entryCache.get(id);
+        return entry != null ? entry.getContent() : decodeBody(id, BodyFileStore.CONTENT, entryDao.getEncodedContentById(id));
     }
 
     public String getHtmlById(long id) {
-        return entryDao.getHtmlById(id);
+        Entry entry = entryCache.get(id);
+        return entry != null ? entry.getHtml() : decodeBody(id, BodyFileStore.HTML, entryDao.getEncodedHtmlById(id));
+    }
+
+    // Sentences of the article, read one at a time from a memory map when the body is on disk
+    public List<String> getContentSegments(long id) {
+        byte[] encoded = entryDao.getEncodedContentById(id);
+        if (BodyCodec.isFileReference(encoded)) {
+            try {
+                return bodyFileStore.readSegments(id, encoded);
+            } catch (IOException e) {
+                Log.w(TAG, "getContentSegments: cannot map body of " + id, e);
+                return new ArrayList<>();
+            }
+        }
+        String content = BodyCodec.decode(encoded);
+        return content != null ? Arrays.asList(content.split(DELIMITER)) : new ArrayList<>();
+    }
+
+    // What TTS speaks for text, from the index stored with whichever body of the entry it is.
+    // Only the indexes are read: each one carries the length and hash of its text, so no body is decoded.
+    public List<String> getUtterances(long id, String text) {
+        UtteranceIndexes indexes = entryDao.getUtteranceIndexes(id);
+        if (indexes == null) {
+            return Utterances.split(text);
+        }
+        Utterances utterances = Utterances.fromIndex(text, indexes.getContent());
+        if (utterances == null) {
+            utterances = Utterances.fromIndex(text, indexes.getTranslated());
+        }
+        if (utterances != null) {
+            return utterances;
+        }
+
+        // Bodies stored before their index carried the hash get a new one the first time they are spoken.
+        // A current index that did not match means text is some other text, so the body is not read for it.
+        utterances = Utterances.split(text);
+        if (!Utterances.isCurrent(indexes.getContent()) && text.equals(getContentById(id))) {
+            entryDao.updateContentUtterances(utterances.toIndex(), id);
+        } else if (!Utterances.isCurrent(indexes.getTranslated()) && text.equals(getTranslatedTextById(id))) {
+            entryDao.updateTranslatedUtterances(utterances.toIndex(), id);
+        }
+        return utterances;
+    }
+
+    // Streams the html from its file when it has one instead of building the whole string
+    public Reader openHtmlReader(long id) throws IOException {
+        byte[] encoded = entryDao.getEncodedHtmlById(id);
+        if (BodyCodec.isFileReference(encoded)) {
+            return bodyFileStore.openReader(id, BodyFileStore.HTML, encoded);
+        }
+        String html = BodyCodec.decode(encoded);
+        return new StringReader(html != null ? html : "");
+    }
+
+    private byte[] encodeBody(long id, String column, @Nullable String text) {
+        byte[] encoded = BodyCodec.encode(text);
+        if (encoded != null && encoded.length > MAX_INLINE_BODY) {
+            try {
+                return bodyFileStore.write(id, column, text);
+            } catch (IOException e) {
+                Log.w(TAG, "encodeBody: keeping " + column + " of " + id + " in the database", e);
+            }
+        }
+        return encoded;
+    }
+
+    private String decodeBody(long id, String column, @Nullable byte[] encoded) {
+        return BodyCodec.isFileReference(encoded) ? bodyFileStore.read(id, column, encoded) : BodyCodec.decode(encoded);
+    }
+
+    // Fills in the columns EntryWithBody could not decode because they live in files
+    private Entry toEntry(EntryWithBody entryWithBody) {
+        Entry entry = entryWithBody.toEntry();
+        EntryBody body = entryWithBody.body;
+        if (body != null && BodyCodec.isFileReference(body.getHtml())) {
+            entry.setHtml(bodyFileStore.read(entry.getId(), BodyFileStore.HTML, body.getHtml()));
+            if (BodyCodec.isSameAsBase(body.getOriginalHtml())) {
+                entry.setOriginalHtml(entry.getHtml());
+            }
+        }
+        if (body != null && BodyCodec.isFileReference(body.getContent())) {
+            entry.setContent(bodyFileStore.read(entry.getId(), BodyFileStore.CONTENT, body.getContent()));
+        }
+        if (body != null && BodyCodec.isFileReference(body.getTranslated())) {
+            entry.setTranslated(bodyFileStore.read(entry.getId(), BodyFileStore.TRANSLATED, body.getTranslated()));
+        }
+        return entry;
+    }
+
+    private static boolean isFileBacked(EntryWithBody entryWithBody) {
+        EntryBody body = entryWithBody.body;
+        return body != null && (BodyCodec.isFileReference(body.getHtml()) || BodyCodec.isFileReference(body.getContent())
+                || BodyCodec.isFileReference(body.getTranslated()));
     }
 
     public void updateDate(Date date, long entryId) {
         entryDao.updateDate(date, entryId);
+        entryCache.invalidate(entryId);
     }
 
     public long insert(long feedId, Entry entry) {
-        // Handle updated link or title if the site modifies them
-        if (historyRepository.checkTitleExist(feedId, entry.getTitle())) {
-            if (!historyRepository.checkLinkExist(feedId, entry.getLink())) {
-                entryDao.updateLink(feedId, entry.getTitle(), entry.getLink());
+        return insertNewEntries(feedId, Collections.singletonList(entry)).get(0);
+    }
+
+    // Inserts the items of one feed in a single transaction and returns each new row id, or -1 for duplicates
+    public List<Long> insertNewEntries(long feedId, List<Entry> entries) {
+        Date now = new Date();
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.DAY_OF_MONTH, -HISTORY_DAYS);
+
+        for (Entry entry : entries) {
+            entry.setFeedId(feedId);
+            if (entry.getItemHash() == 0) {
+                entry.setItemHash(EntryIdentity.hash(null, entry.getLink(), entry.getTitle()));
             }
-            Log.d(TAG, "Skipped inserting duplicate entry: " + entry.getTitle());
-            return -1; // Entry already exists, no new insertion
-        } else if (historyRepository.checkLinkExist(feedId, entry.getLink())) {
-            if (!historyRepository.checkTitleExist(feedId, entry.getTitle())) {
-                entryDao.updateTitle(feedId, entry.getTitle(), entry.getLink());
+            if (entry.getPublishedDate() == null) {
+                // The list is paged by publishedDate, undated items are treated as just published
+                entry.setPublishedDate(now);
             }
-            Log.d(TAG, "Skipped inserting duplicate entry: " + entry.getTitle());
-            return -1; // Entry already exists, no new insertion
-        } else {
-            // If not in history, insert into history and database
-            historyRepository.insert(new History(entry.getFeedId(), new Date(), entry.getTitle(), entry.getLink()));
-            long id = entryDao.insert(entry);
+        }
 
+        List<Long> ids = entryDao.insertNewEntries(feedId, entries, now, calendar.getTime());
+        for (int i = 0; i < ids.size(); i++) {
+            long id = ids.get(i);
             if (id > 0) {
-                // Update entry ID and cache it
-                entry.setId(id);
-                entryCache.put(id, entry); // Add to cache
-                Log.d(TAG, "Inserted and cached entry: " + entry.getTitle());
-                return id; // Return the new entry ID
-            } else {
-                Log.e(TAG, "Failed to insert entry: " + entry.getTitle());
-                return -1; // Indicate insertion failure
+                entries.get(i).setId(id);
             }
         }
+        return ids;
     }
 
 
     public void update(Entry entry) {
+        entryCache.invalidate(entry.getId());
         entryDao.update(entry)
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
@@ -180,6 +381,9 @@ public class EntryRepository {
     }
 
     public void delete(Entry entry) {
+        entryCache.invalidate(entry.getId());
+        bodyFileStore.delete(entry.getId());
+        audioCache.delete(entry.getId());
         entryDao.delete(entry)
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
@@ -215,17 +419,36 @@ public class EntryRepository {
 
     public void deleteAllVisitedEntries() {
         entryDao.deleteAllVisitedEntries();
+        entryCache.invalidateAll();
+        bodyFileStore.deleteOrphans(this::checkIdExist);
+        audioCache.deleteOrphans(this::checkIdExist);
     }
 
+    // Bookmarked entries survive the delete, so only the files of rows that are really gone are removed
     public void deleteByIds(List<Long> ids) {
         entryDao.deleteByIds(ids);
+        for (long id : ids) {
+            entryCache.invalidate(id);
+            if (!checkIdExist(id)) {
+                bodyFileStore.delete(id);
+                audioCache.delete(id);
+            }
+        }
     }
 
     public void deleteById(long id) {
         entryDao.deleteById(id);
+        entryCache.invalidate(id);
+        bodyFileStore.delete(id);
+        audioCache.delete(id);
     }
 
     public void deleteByFeedId(long feedId) {
+        for (long id : entryDao.getIdsByFeedId(feedId)) {
+            entryCache.invalidate(id);
+            bodyFileStore.delete(id);
+            audioCache.delete(id);
+        }
         entryDao.deleteByFeedId(feedId)
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
@@ -252,7 +475,7 @@ public class EntryRepository {
             if (!entry.isCached()) {
                 entry.setCached(true);
                 entryDao.updatePreloadStatus(entry.getId(), true);
-                entryCache.put(entry.getId(), entry);
+                entryCache.invalidate(entry.getId());
                 Log.d(TAG, "Preloaded and cached entry: " + entry.getTitle());
             } else {
                 Log.d(TAG, "Preload skipped: Entry is already cached.");
@@ -269,6 +492,7 @@ public class EntryRepository {
         if (!entry.isCached()) {
             entry.setCached(true);
             entryDao.updatePreloadStatus(entry.getId(), true);
+            entryCache.invalidate(entry.getId());
             Log.d(TAG, "Preloaded entry: " + entry.getTitle());
         } else {
             Log.d(TAG, "Preload skipped: Entry is already cached.");
@@ -280,7 +504,11 @@ public class EntryRepository {
     }
 
     public Entry getCachedEntry(long entryId) {
-        return entryCache.getOrDefault(entryId, null);
+        return entryCache.get(entryId);
+    }
+
+    public void invalidateCachedEntry(long entryId) {
+        entryCache.invalidate(entryId);
     }
 
     public boolean hasEmptyContentEntries() {
@@ -291,36 +519,17 @@ public class EntryRepository {
         entryDao.requeueMissingEntries();
     }
 
-    public void updateSentCount(int sentCount, long id) {
-        Log.d(TAG, "speak: " + sentCount);
-        entryDao.updateSentCount(sentCount, id);
-    }
-
-    public void updateSentCountByLink(int sentCount, long id) {
-        entryDao.updateSentCountByLink(sentCount, id);
-    }
-
-    public int getSentCount(long id) {
-        return entryDao.getSentCount(id);
-    }
-
     public void updateBookmark(String bool, long id) {
         entryDao.updateBookmark(bool, id);
+        entryCache.invalidate(id);
     }
 
     public void reExtractContent(long feedId) {
         entryDao.updateContentByFeedId(feedId);
 
-        List<Entry> entries = entryDao.getEntriesByFeedId(feedId);
-        for (Entry entry : entries) {
-            entry.setContent(null);
-            entry.setHtml(null);
-            entry.setOriginalHtml(null);
-            entry.setTranslated(null);
-            entry.setSentCountStopAt(0);
-            entry.setCached(false);
-            update(entry);
-            entryCache.remove(entry.getId());
+        for (long id : entryDao.getIdsByFeedId(feedId)) {
+            entryCache.invalidate(id);
+            bodyFileStore.delete(id);
         }
     }
 
@@ -329,75 +538,97 @@ public class EntryRepository {
         return bool != null && !bool.equals("N");
     }
 
+    // Counters of every feed keyed by feed id, re-emitted only when a badge actually changes
+    public Flowable<Map<Long, FeedCounts>> getFeedCounts() {
+        return entryDao.getFeedCounts()
+                .map(list -> {
+                    Map<Long, FeedCounts> counts = new HashMap<>();
+                    for (FeedCounts feedCounts : list) {
+                        counts.put(feedCounts.getFeedId(), feedCounts);
+                    }
+                    return counts;
+                })
+                .distinctUntilChanged();
+    }
+
     public Flowable<Integer> getUnreadCount(long id, String filter) {
-        if (id == 0) {
-            switch (filter) {
-                case "bookmark":
-                    return entryDao.getUnreadCountByBookmark();
-                case "read":
-                    return Flowable.just(0);
-                default:
-                    return entryDao.getUnreadCount();
-            }
-        } else {
-            switch (filter) {
-                case "bookmark":
-                    return entryDao.getUnreadCountByBookmark(id);
-                case "read":
-                    return Flowable.just(0);
-                default:
-                    return entryDao.getUnreadCount(id);
-            }
-        }
+        return getFeedCounts()
+                .map(counts -> {
+                    if (id != 0) {
+                        FeedCounts feedCounts = counts.get(id);
+                        return feedCounts != null ? feedCounts.getUnread(filter) : 0;
+                    }
+                    int unread = 0;
+                    for (FeedCounts feedCounts : counts.values()) {
+                        unread += feedCounts.getUnread(filter);
+                    }
+                    return unread;
+                })
+                .distinctUntilChanged();
     }
 
     public void limitEntriesByFeedId(long feedId) {
         int limit = sharedPreferencesRepository.getEntriesLimitPerFeed();
         Log.d("test", "" + limit);
         entryDao.limitEntriesByFeed(feedId, limit);
-    }
-
-    public LiveData<List<EntryInfo>> getAllEntriesLive() {
-        return entryDao.getAllEntriesInfoLive();
-    }
-
-    public List<Entry> getUntranslatedEntries() {
-        return entryDao.getUntranslatedEntries();
+        entryCache.invalidateAll();
+        bodyFileStore.deleteOrphans(this::checkIdExist);
+        audioCache.deleteOrphans(this::checkIdExist);
     }
 
     public void updateOriginalHtml(String originalHtml, long id) {
-        entryDao.updateOriginalHtml(originalHtml, id);
+        byte[] encodedHtml = entryDao.getEncodedHtmlById(id);
+        String html = decodeBody(id, BodyFileStore.HTML, encodedHtml);
+        entryDao.updateEncodedOriginalHtml(BodyCodec.encodeAgainst(originalHtml, html, !BodyCodec.isFileReference(encodedHtml)), id);
+        bodyFileStore.deletePages(id);
+        entryCache.invalidate(id);
     }
 
     public String getOriginalHtmlById(long id) {
-        return entryDao.getOriginalHtmlById(id);
+        Entry entry = entryCache.get(id);
+        if (entry != null) {
+            return entry.getOriginalHtml();
+        }
+        byte[] encoded = entryDao.getEncodedOriginalHtmlById(id);
+        if (!BodyCodec.dependsOnBase(encoded)) {
+            return BodyCodec.decode(encoded);
+        }
+        return BodyCodec.decode(encoded, decodeBody(id, BodyFileStore.HTML, entryDao.getEncodedHtmlById(id)));
     }
 
+    // The translated text and its utterance index, in a file like the other bodies when it is large
     public void updateTranslated(String translated, long id) {
-        entryDao.updateTranslated(translated, id);
+        byte[] encoded = encodeBody(id, BodyFileStore.TRANSLATED, translated);
+        entryDao.updateTranslated(encoded, Utterances.index(translated), id);
+        bodyFileStore.retain(id, BodyFileStore.TRANSLATED, encoded);
+        entryCache.invalidate(id);
     }
 
     public LiveData<Entry> getEntryEntityById(long id) {
-        return entryDao.getEntryEntityById(id);
+        return Transformations.map(entryDao.getEntryEntityById(id), entryWithBody -> entryWithBody != null ? toEntry(entryWithBody) : null);
     }
 
+    // The row and its body in one query, served from memory while nothing has written to it since
     public Entry getEntryById(long id) {
-        return entryDao.getEntryById(id);
-    }
-
-    public void updateTranslatedText(String translatedContent, long entryId) {
-        entryDao.updateTranslatedText(translatedContent, entryId);
-
-        Entry entry = getEntryById(entryId);
-        if (entry != null) {
-            entry.setTranslated(translatedContent);
-            entryCache.put(entryId, entry);
-            Log.d(TAG, "Cache updated with translated text for entry ID: " + entryId);
+        Entry entry = entryCache.get(id);
+        if (entry == null) {
+            // A write landing during the read must not leave the old entry cached
+            int generation = entryCache.generation(id);
+            EntryWithBody entryWithBody = entryDao.getEntryById(id);
+            if (entryWithBody == null) {
+                return null;
+            }
+            entry = toEntry(entryWithBody);
+            // Bodies big enough to be kept in files would crowd everything else out of the cache
+            if (!isFileBacked(entryWithBody)) {
+                entryCache.putIfUnchanged(entry, generation);
+            }
         }
+        return entry;
     }
 
     public String getTranslatedTextById(long id) {
-        Entry entry = entryDao.getEntryById(id);
-        return (entry != null) ? entry.getTranslated() : null;
+        Entry entry = entryCache.get(id);
+        return entry != null ? entry.getTranslated() : decodeBody(id, BodyFileStore.TRANSLATED, entryDao.getEncodedTranslatedById(id));
     }
 }
@@ -0,0 +1,24 @@
+package my.mmu.rssnewsreader.data.entry;
+
+// One full-text hit with its raw matchinfo(entry_fts, 'pcnx') blob, ranked in EntryRepository
+public class EntrySearchMatch {
+
+    private long entryId;
+    private byte[] matchInfo;
+
+    public long getEntryId() {
+        return entryId;
+    }
+
+    public void setEntryId(long entryId) {
+        this.entryId = entryId;
+    }
+
+    public byte[] getMatchInfo() {
+        return matchInfo;
+    }
+
+    public void setMatchInfo(byte[] matchInfo) {
+        this.matchInfo = matchInfo;
+    }
+}
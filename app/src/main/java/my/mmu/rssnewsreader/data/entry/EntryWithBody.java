@@ -0,0 +1,25 @@
+package my.mmu.rssnewsreader.data.entry;
+
+import androidx.room.Embedded;
+import androidx.room.Relation;
+
+public class EntryWithBody {
+
+    @Embedded
+    public Entry entry;
+
+    @Relation(parentColumn = "id", entityColumn = "entryId")
+    public EntryBody body;
+
+    // Decodes the body onto the entry so callers keep using the Entry getters
+    public Entry toEntry() {
+        if (body != null) {
+            String html = BodyCodec.decode(body.getHtml());
+            entry.setContent(BodyCodec.decode(body.getContent()));
+            entry.setHtml(html);
+            entry.setOriginalHtml(BodyCodec.decode(body.getOriginalHtml(), html));
+            entry.setTranslated(BodyCodec.decode(body.getTranslated()));
+        }
+        return entry;
+    }
+}
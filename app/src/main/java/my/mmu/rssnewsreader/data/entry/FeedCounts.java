@@ -0,0 +1,68 @@
+package my.mmu.rssnewsreader.data.entry;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// Unread badges per feed, kept current by triggers on entry_table so nothing has to count rows
+@Entity(tableName = "feed_counts")
+public class FeedCounts {
+
+    @PrimaryKey
+    private long feedId;
+    private int unread;
+    private int unreadBookmarked;
+
+    public FeedCounts(long feedId, int unread, int unreadBookmarked) {
+        this.feedId = feedId;
+        this.unread = unread;
+        this.unreadBookmarked = unreadBookmarked;
+    }
+
+    public long getFeedId() {
+        return feedId;
+    }
+
+    public void setFeedId(long feedId) {
+        this.feedId = feedId;
+    }
+
+    public int getUnread() {
+        return unread;
+    }
+
+    public void setUnread(int unread) {
+        this.unread = unread;
+    }
+
+    public int getUnreadBookmarked() {
+        return unreadBookmarked;
+    }
+
+    public void setUnreadBookmarked(int unreadBookmarked) {
+        this.unreadBookmarked = unreadBookmarked;
+    }
+
+    public int getUnread(String filter) {
+        switch (filter) {
+            case "bookmark":
+                return unreadBookmarked;
+            case "read":
+                return 0;
+            default:
+                return unread;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FeedCounts)) return false;
+        FeedCounts that = (FeedCounts) o;
+        return feedId == that.feedId && unread == that.unread && unreadBookmarked == that.unreadBookmarked;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (feedId * 31 + unread) * 31 + unreadBookmarked;
+    }
+}
@@ -0,0 +1,238 @@
+package my.mmu.rssnewsreader.data.entry;
+
+import android.annotation.SuppressLint;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import my.mmu.rssnewsreader.model.EntryInfo;
+
+// Render-ready reader pages: the stored html with the style, the entry header and the sentence tags
+// SegmentHighlighter uses, so opening an entry only hands a finished document to the WebView.
+// The original and translated views live side by side in one page, and the view shown is a class on the body,
+// so switching them is a script call instead of a new document. Their text blocks are numbered in document order
+// in each view, which pairs a sentence in one view with the block holding its counterpart in the other.
+// A page is built once per entry, and kept in memory and next to the bodies in BodyFileStore.
+// It is found by a fingerprint of everything it is built from, so a changed body or header never shows an old page.
+@Singleton
+public class ReaderPages {
+
+    private static final String TAG = "ReaderPages";
+    public static final String ORIGINAL = "original";
+    public static final String TRANSLATED = "translated";
+    private static final String VARIANT = "reader";
+    private static final String VIEW_ATTRIBUTE = "data-reader-view";
+    // Bumped whenever build() changes, which makes every stored page stale
+    private static final int VERSION = 2;
+    // In chars
+    private static final int MEMORY_BUDGET = 4 * 1024 * 1024;
+    private static final String BLOCKS = "h1, h2, h3, h4, h5, h6, p, td, pre, th, li, figcaption, blockquote, section";
+
+    public static final String STYLE = "<style>\n" +
+            "    @font-face {\n" +
+            "        font-family: open_sans;\n" +
+            "        src: url(\"file:///android_res/font/open_sans.ttf\")\n" +
+            "    }\n" +
+            "    body {\n" +
+            "        font-family: open_sans;\n" +
+            "        text-align: justify;\n" +
+            "        font-size: 0.875em;\n" +
+            "    }\n" +
+            "</style>";
+
+    // Only the view named on the body is shown
+    private static final String VIEW_STYLE = "<style>\n" +
+            "    .reader-view { display: none; }\n" +
+            "    body[data-reader-view=\"original\"] .reader-view[data-view=\"original\"],\n" +
+            "    body[data-reader-view=\"translated\"] .reader-view[data-view=\"translated\"] { display: block; }\n" +
+            "</style>";
+
+    private static class Page {
+        final long fingerprint;
+        final String html;
+
+        Page(long fingerprint, String html) {
+            this.fingerprint = fingerprint;
+            this.html = html;
+        }
+    }
+
+    private final BodyFileStore bodyFileStore;
+    private final LruCache<String, Page> memory = new LruCache<String, Page>(MEMORY_BUDGET) {
+        @Override
+        protected int sizeOf(String key, Page value) {
+            return value.html.length();
+        }
+    };
+
+    @Inject
+    public ReaderPages(BodyFileStore bodyFileStore) {
+        this.bodyFileStore = bodyFileStore;
+    }
+
+    @SuppressLint("SimpleDateFormat")
+    public static String header(String entryTitle, String feedTitle, Date publishDate, String feedImageUrl) {
+        return "<div class=\"entry-header\">" +
+                "  <div style=\"display: flex; align-items: center;\">" +
+                "    <img style=\"margin-right: 10px; width: 20px; height: 20px\" src=" + feedImageUrl + ">" +
+                "    <p style=\"font-size: 0.75em\">" + feedTitle + "</p>" +
+                "  </div>" +
+                "  <p style=\"margin:0; font-size: 1.25em; font-weight:bold\">" + entryTitle + "</p>" +
+                "  <p style=\"font-size: 0.75em;\">" + new SimpleDateFormat("EEE, d MMM yyyy 'at' hh:mm aaa").format(publishDate) + "</p>" +
+                "</div>";
+    }
+
+    // The page of the entry opened on the original or translated view, or null when that view has no html
+    @Nullable
+    @WorkerThread
+    public String get(EntryInfo info, Entry entry, boolean translated) {
+        String original = entry.getOriginalHtml();
+        // An entry that was never translated keeps its original in html as well
+        String html = entry.getHtml() != null && !entry.getHtml().equals(original) ? entry.getHtml() : null;
+        if (isEmpty(translated ? entry.getHtml() : original)) {
+            return null;
+        }
+        String key = entry.getId() + ":" + VARIANT;
+        long fingerprint = fingerprint(info, original, entry.getContent(), html, entry.getTranslated());
+
+        Page page = memory.get(key);
+        String built = page != null && page.fingerprint == fingerprint ? page.html : null;
+        if (built == null) {
+            built = bodyFileStore.readPage(entry.getId(), VARIANT, fingerprint);
+            if (built == null) {
+                long start = SystemClock.elapsedRealtime();
+                built = build(info, original, entry.getContent(), html, entry.getTranslated());
+                try {
+                    bodyFileStore.writePage(entry.getId(), VARIANT, fingerprint, built);
+                } catch (IOException e) {
+                    Log.w(TAG, "Cannot store the page of " + key, e);
+                }
+                Log.d(TAG, "Built the page of " + key + " in " + (SystemClock.elapsedRealtime() - start) + " ms");
+            }
+            memory.put(key, new Page(fingerprint, built));
+        }
+        // Pages are built showing the original, only the first occurrence of the attribute is the body's
+        return translated && html != null ? built.replaceFirst(VIEW_ATTRIBUTE + "=\"" + ORIGINAL + "\"", VIEW_ATTRIBUTE + "=\"" + TRANSLATED + "\"") : built;
+    }
+
+    private static String build(@Nullable EntryInfo info, @Nullable String original, @Nullable String originalSpoken,
+                                @Nullable String translated, @Nullable String translatedSpoken) {
+        Document page = Jsoup.parse("");
+        page.head().append(STYLE);
+        page.head().append(VIEW_STYLE);
+        page.body().attr(VIEW_ATTRIBUTE, ORIGINAL);
+        if (!isEmpty(original)) {
+            addView(page, ORIGINAL, info, original, originalSpoken);
+        }
+        if (!isEmpty(translated)) {
+            addView(page, TRANSLATED, info, translated, translatedSpoken);
+        }
+        return page.html();
+    }
+
+    private static void addView(Document page, String view, @Nullable EntryInfo info, String html, @Nullable String spoken) {
+        Document doc = Jsoup.parse(html);
+        // Html translated in the reader is stored with its header already in place
+        if (info != null && doc.selectFirst(".entry-header") == null) {
+            doc.body().prepend(header(info.getEntryTitle(), info.getFeedTitle(), info.getEntryPublishedDate(), info.getFeedImageUrl()));
+        }
+        for (Element style : doc.head().select("style, link[rel=stylesheet]")) {
+            page.head().appendChild(style);
+        }
+        Element container = page.body().appendElement("div").addClass("reader-view").attr("data-view", view);
+        for (Node node : new ArrayList<>(doc.body().childNodes())) {
+            container.appendChild(node);
+        }
+        tagSegments(container, spoken != null && !spoken.isEmpty() ? Utterances.split(spoken) : new ArrayList<>());
+    }
+
+    // Numbers every innermost text block and gives it the indexes of the sentences it holds, matched in document order
+    // so a repeated sentence lands on the right block. The count on the view lets the page tell whether the tags fit
+    // the list playing.
+    private static void tagSegments(Element view, List<String> sentences) {
+        List<Element> blocks = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        for (Element element : view.select(BLOCKS)) {
+            if (element.select(BLOCKS).size() == 1) {
+                element.attr("data-block", String.valueOf(blocks.size()));
+                blocks.add(element);
+                texts.add(normalize(element.text()));
+            }
+        }
+        StringBuilder[] tags = new StringBuilder[blocks.size()];
+        int block = 0;
+        for (int i = 0; i < sentences.size(); i++) {
+            String probe = normalize(sentences.get(i));
+            if (probe.isEmpty()) continue;
+            probe = probe.substring(0, Math.min(probe.length(), 60));
+            for (int j = block; j < blocks.size(); j++) {
+                if (texts.get(j).contains(probe)) {
+                    if (tags[j] == null) {
+                        tags[j] = new StringBuilder();
+                    } else {
+                        tags[j].append(' ');
+                    }
+                    tags[j].append(i);
+                    block = j;
+                    break;
+                }
+            }
+        }
+        for (int j = 0; j < blocks.size(); j++) {
+            if (tags[j] != null) {
+                blocks.get(j).attr("data-tts", tags[j].toString());
+            }
+        }
+        view.attr("data-tts-count", String.valueOf(sentences.size()));
+    }
+
+    private static boolean isEmpty(@Nullable String html) {
+        return html == null || html.trim().isEmpty();
+    }
+
+    private static String normalize(String text) {
+        return text.replaceAll("[\\s\\u00a0]+", " ").trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long fingerprint(@Nullable EntryInfo info, String... parts) {
+        CRC32 crc = new CRC32();
+        StringBuilder input = new StringBuilder().append(VERSION).append('\n');
+        if (info != null) {
+            input.append(info.getEntryTitle()).append('\n')
+                    .append(info.getFeedTitle()).append('\n')
+                    .append(info.getEntryPublishedDate() != null ? info.getEntryPublishedDate().getTime() : 0).append('\n')
+                    .append(info.getFeedImageUrl()).append('\n');
+        }
+        crc.update(input.toString().getBytes(StandardCharsets.UTF_8));
+        long length = 0;
+        for (String part : parts) {
+            // Separates an empty part from a missing one, and keeps parts from running into each other
+            crc.update(part == null ? 0 : 1);
+            if (part != null) {
+                crc.update(part.getBytes(StandardCharsets.UTF_8));
+                length += part.length();
+            }
+        }
+        return crc.getValue() ^ (length << 32);
+    }
+}
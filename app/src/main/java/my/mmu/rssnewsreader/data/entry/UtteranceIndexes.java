@@ -0,0 +1,25 @@
+package my.mmu.rssnewsreader.data.entry;
+
+import androidx.room.ColumnInfo;
+
+// Both Utterances indexes of an entry, read without the bodies they belong to
+public class UtteranceIndexes {
+
+    @ColumnInfo(name = "content_utterances")
+    private final byte[] content;
+    @ColumnInfo(name = "translated_utterances")
+    private final byte[] translated;
+
+    public UtteranceIndexes(byte[] content, byte[] translated) {
+        this.content = content;
+        this.translated = translated;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public byte[] getTranslated() {
+        return translated;
+    }
+}
@@ -0,0 +1,162 @@
+package my.mmu.rssnewsreader.data.entry;
+
+import android.speech.tts.TextToSpeech;
+
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.text.BreakIterator;
+import java.text.StringCharacterIterator;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+// The sentences TTS speaks for one body, kept as start/end offsets into its text.
+// The offsets are worked out once when the text is stored, so playback only cuts out the sentences it reaches.
+public final class Utterances extends AbstractList<String> implements RandomAccess {
+
+    private static final String DELIMITER = "--####--";
+    // First byte of an index that starts with the length and hash of its text. Indexes from before that
+    // start with their count, which is only 0 for an index of a single byte.
+    private static final int FORMAT = 0;
+
+    private final String text;
+    private final int[] bounds;
+
+    private Utterances(String text, int[] bounds) {
+        this.text = text;
+        this.bounds = bounds;
+    }
+
+    // Segments between delimiters, trimmed and without empty ones, with anything too long
+    // for the engine cut at sentence boundaries
+    public static Utterances split(String text) {
+        return split(text, TextToSpeech.getMaxSpeechInputLength());
+    }
+
+    static Utterances split(String text, int maxLength) {
+        int[] bounds = new int[16];
+        int count = 0;
+        int start = 0;
+        while (true) {
+            int end = text.indexOf(DELIMITER, start);
+            if (end < 0) end = text.length();
+
+            int from = start;
+            int to = end;
+            while (from < to && text.charAt(from) <= ' ') from++;
+            while (to > from && text.charAt(to - 1) <= ' ') to--;
+            if (from < to) {
+                if (to - from >= maxLength) {
+                    BreakIterator iterator = BreakIterator.getSentenceInstance();
+                    iterator.setText(new StringCharacterIterator(text, from, to, from));
+                    int sentenceStart = iterator.first();
+                    for (int sentenceEnd = iterator.next(); sentenceEnd != BreakIterator.DONE; sentenceStart = sentenceEnd, sentenceEnd = iterator.next()) {
+                        bounds = append(bounds, count++, sentenceStart, sentenceEnd);
+                    }
+                } else {
+                    bounds = append(bounds, count++, from, to);
+                }
+            }
+
+            if (end == text.length()) break;
+            start = end + DELIMITER.length();
+        }
+        return new Utterances(text, Arrays.copyOf(bounds, count * 2));
+    }
+
+    // The stored index when it was worked out for this text, told by its length and hash so the
+    // body it was stored with never has to be read back. Null for another text or an old index.
+    @Nullable
+    public static Utterances fromIndex(String text, @Nullable byte[] index) {
+        int[] bounds = index != null ? decode(index, text) : null;
+        return bounds != null ? new Utterances(text, bounds) : null;
+    }
+
+    // False for a missing index or one stored before indexes carried the length and hash of their text
+    public static boolean isCurrent(@Nullable byte[] index) {
+        return index != null && index.length > 1 && index[0] == FORMAT;
+    }
+
+    @Nullable
+    public static byte[] index(@Nullable String text) {
+        return text != null ? split(text).toIndex() : null;
+    }
+
+    // Format, length and hash of the text, count, then for each utterance the gap since the previous one
+    // and its length, as varints
+    public byte[] toIndex() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(bounds.length * 2 + 16);
+        output.write(FORMAT);
+        writeVarint(output, text.length());
+        writeVarint(output, text.hashCode());
+        writeVarint(output, size());
+        int previousEnd = 0;
+        for (int i = 0; i < bounds.length; i += 2) {
+            writeVarint(output, bounds[i] - previousEnd);
+            writeVarint(output, bounds[i + 1] - bounds[i]);
+            previousEnd = bounds[i + 1];
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    public String get(int index) {
+        return text.substring(bounds[index * 2], bounds[index * 2 + 1]);
+    }
+
+    @Override
+    public int size() {
+        return bounds.length / 2;
+    }
+
+    private static int[] append(int[] bounds, int index, int start, int end) {
+        if (bounds.length < index * 2 + 2) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[index * 2] = start;
+        bounds[index * 2 + 1] = end;
+        return bounds;
+    }
+
+    // Null when the index is old, damaged or belongs to another text
+    @Nullable
+    private static int[] decode(byte[] index, String text) {
+        if (!isCurrent(index)) return null;
+        int[] position = {1};
+        if (readVarint(index, position) != text.length() || readVarint(index, position) != text.hashCode()) return null;
+        int count = readVarint(index, position);
+        if (count < 0 || count > index.length) return null;
+        int[] bounds = new int[count * 2];
+        int previousEnd = 0;
+        for (int i = 0; i < bounds.length; i += 2) {
+            int gap = readVarint(index, position);
+            int length = readVarint(index, position);
+            if (gap < 0 || length < 0) return null;
+            bounds[i] = previousEnd + gap;
+            bounds[i + 1] = bounds[i] + length;
+            if (bounds[i] < previousEnd || bounds[i + 1] < bounds[i] || bounds[i + 1] > text.length()) return null;
+            previousEnd = bounds[i + 1];
+        }
+        return position[0] == index.length ? bounds : null;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream output, int value) {
+        while ((value & ~0x7F) != 0) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] position) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (position[0] >= data.length) return -1;
+            byte b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        return -1;
+    }
+}
@@ -3,13 +3,14 @@ package my.mmu.rssnewsreader.data.feed;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 
-@Entity(tableName = "feed_table")
+@Entity(tableName = "feed_table", indices = {@Index(value = {"link"})})
 public class Feed {
 
     @PrimaryKey(autoGenerate = true)
@@ -42,6 +42,9 @@ public interface FeedDao {
     @Query("UPDATE feed_table SET delayTime = :delayTime WHERE id = :id")
     void updateDelayTimeById(long id, int delayTime);
 
+    @Query("SELECT language FROM feed_table WHERE id = :id")
+    String getLanguageById(long id);
+
     @Query("SELECT COUNT(*) FROM feed_table")
     int getFeedCount();
 
@@ -5,8 +5,8 @@ import android.util.Log;
 import androidx.lifecycle.MutableLiveData;
 
 import my.mmu.rssnewsreader.data.entry.Entry;
+import my.mmu.rssnewsreader.data.entry.EntryIdentity;
 import my.mmu.rssnewsreader.data.entry.EntryRepository;
-import my.mmu.rssnewsreader.data.history.History;
 import my.mmu.rssnewsreader.data.history.HistoryRepository;
 import my.mmu.rssnewsreader.service.rss.RssFeed;
 import my.mmu.rssnewsreader.service.rss.RssItem;
@@ -16,7 +16,6 @@ import my.mmu.rssnewsreader.data.sharedpreferences.SharedPreferencesRepository;
 import my.mmu.rssnewsreader.service.tts.TtsExtractor;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -159,12 +158,15 @@ public class FeedRepository {
         feedDao.insert(newFeed);
         long feedId = feedDao.getIdByLink(feed.getLink());
 
-        List<Entry> entriesToPreload = new ArrayList<>();
-        for (RssItem rssItem : feed.getRssItems()) {
-            Entry entry = new Entry(feedId, rssItem.getTitle(), rssItem.getLink(), rssItem.getDescription(), rssItem.getImageUrl(), rssItem.getCategory(), rssItem.getPubDate());
+        List<RssItem> rssItems = feed.getRssItems();
+        List<Entry> entries = toEntries(feedId, rssItems);
+        List<Long> insertedIds = entryRepository.insertNewEntries(feedId, entries);
 
-            long insertedId = entryRepository.insert(feedId, entry);
-            if (insertedId > 0 && rssItem.getPriority() > 0) { // Check for successful insertion
+        List<Entry> entriesToPreload = new ArrayList<>();
+        for (int i = 0; i < rssItems.size(); i++) {
+            RssItem rssItem = rssItems.get(i);
+            if (insertedIds.get(i) > 0 && rssItem.getPriority() > 0) { // Check for successful insertion
+                Entry entry = entries.get(i);
                 entry.setPriority(rssItem.getPriority());
                 entriesToPreload.add(entry);
             }
@@ -235,23 +237,15 @@ public class FeedRepository {
                     RssReader rssReader = new RssReader(feed.getLink());
                     RssFeed rssFeed = rssReader.getFeed();
 
-                    List<History> histories = new ArrayList<>();
-                    for (RssItem rssItem : rssFeed.getRssItems()) {
-                        Entry entry = new Entry(feed.getId(), rssItem.getTitle(), rssItem.getLink(), rssItem.getDescription(),
-                                rssItem.getImageUrl(), rssItem.getCategory(), rssItem.getPubDate());
-                        long insertedId = entryRepository.insert(feed.getId(), entry);
+                    List<Long> insertedIds = entryRepository.insertNewEntries(feed.getId(), toEntries(feed.getId(), rssFeed.getRssItems()));
+                    for (long insertedId : insertedIds) {
                         if (insertedId > 0) {
                             counter.incrementAndGet(); // Increment the counter atomically
-                            entryRepository.updatePriority(1, insertedId);
-                        } else {
-                            histories.add(new History(entry.getFeedId(), new Date(), entry.getTitle(), entry.getLink()));
+                            entryRepository.updatePriority(Entry.PRIORITY_QUEUED, insertedId);
                         }
                     }
 
                     entryRepository.limitEntriesByFeedId(feed.getId());
-                    if (!histories.isEmpty()) {
-                        historyRepository.updateHistoriesByFeedId(feed.getId(), histories);
-                    }
                     Log.d(TAG, "Successfully fetched and processed feed: " + feed.getTitle());
                 } catch (Exception e) {
                     Log.e(TAG, "Error fetching or processing feed: " + feed.getTitle(), e);
@@ -271,6 +265,17 @@ public class FeedRepository {
     }
 
 
+    private List<Entry> toEntries(long feedId, List<RssItem> rssItems) {
+        List<Entry> entries = new ArrayList<>();
+        for (RssItem rssItem : rssItems) {
+            Entry entry = new Entry(feedId, rssItem.getTitle(), rssItem.getLink(), rssItem.getDescription(),
+                    rssItem.getImageUrl(), rssItem.getCategory(), rssItem.getPubDate());
+            entry.setItemHash(EntryIdentity.hash(rssItem.getGuid(), rssItem.getLink(), rssItem.getTitle()));
+            entries.add(entry);
+        }
+        return entries;
+    }
+
     public int getDelayTimeById(long id) {
         return feedDao.getDelayTimeById(id);
     }
@@ -279,6 +284,10 @@ public class FeedRepository {
         feedDao.updateDelayTimeById(id, delayTime);
     }
 
+    public String getLanguageById(long id) {
+        return feedDao.getLanguageById(id);
+    }
+
     public void updateTitleDescLanguage(String title, String desc, String language, String link) {
         feedDao.updateTitleDescLanguage(title, desc, language, link);
     }
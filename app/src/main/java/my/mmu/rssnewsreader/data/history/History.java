@@ -1,11 +1,14 @@
 package my.mmu.rssnewsreader.data.history;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import java.util.Date;
 
-@Entity(tableName = "history_table")
+// Remembers every item seen per feed, so entries trimmed or deleted from entry_table are not added again
+@Entity(tableName = "history_table", indices = {@Index(value = {"feedId", "itemHash"}, unique = true)})
 public class History {
 
     @PrimaryKey(autoGenerate = true)
@@ -14,12 +17,15 @@ public class History {
     private Date insertDate;
     private String title;
     private String link;
+    @ColumnInfo(defaultValue = "0")
+    private long itemHash;
 
-    public History(long feedId, Date insertDate, String title, String link) {
+    public History(long feedId, Date insertDate, String title, String link, long itemHash) {
         this.feedId = feedId;
         this.insertDate = insertDate;
         this.title = title;
         this.link = link;
+        this.itemHash = itemHash;
     }
 
     public long getId() {
@@ -61,4 +67,12 @@ public class History {
     public void setLink(String link) {
         this.link = link;
     }
+
+    public long getItemHash() {
+        return itemHash;
+    }
+
+    public void setItemHash(long itemHash) {
+        this.itemHash = itemHash;
+    }
 }
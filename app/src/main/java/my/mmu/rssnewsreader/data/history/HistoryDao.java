@@ -3,6 +3,7 @@ package my.mmu.rssnewsreader.data.history;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
 import androidx.room.Update;
 
@@ -12,7 +13,7 @@ import java.util.List;
 @Dao
 public interface HistoryDao {
 
-    @Insert
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
     void insert(History history);
 
     @Update
@@ -21,21 +22,6 @@ public interface HistoryDao {
     @Delete
     void delete(History history);
 
-    @Query("UPDATE history_table SET insertDate = :newDate WHERE feedId = :feedId AND title = :title")
-    void updateInsertDateByTitle(long feedId, String title, Date newDate);
-
-    @Query("UPDATE history_table SET insertDate = :newDate WHERE feedId = :feedId AND link = :link")
-    void updateInsertDateByLink(long feedId, String link, Date newDate);
-
-    @Query("SELECT id FROM history_table WHERE feedId = :feedId AND title = :title")
-    long checkTitle(long feedId, String title);
-
-    @Query("SELECT id FROM history_table WHERE feedId = :feedId AND link = :link")
-    long checkLink(long feedId, String link);
-
-    @Query("DELETE FROM history_table WHERE feedId = :feedId AND insertDate < :thirtyDaysAgo")
-    void deleteOldHistoriesByFeedId(long feedId, Date thirtyDaysAgo);
-
     @Query("DELETE FROM history_table WHERE feedId = :feedId")
     void deleteByFeedId(long feedId);
 }
@@ -0,0 +1,34 @@
+package my.mmu.rssnewsreader.data.playback;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// Sentence the player stopped at; kept out of entry_table so progress writes don't refresh the entry lists
+@Entity(tableName = "playback_position")
+public class PlaybackPosition {
+
+    @PrimaryKey
+    private long entryId;
+    private int sentence;
+
+    public PlaybackPosition(long entryId, int sentence) {
+        this.entryId = entryId;
+        this.sentence = sentence;
+    }
+
+    public long getEntryId() {
+        return entryId;
+    }
+
+    public void setEntryId(long entryId) {
+        this.entryId = entryId;
+    }
+
+    public int getSentence() {
+        return sentence;
+    }
+
+    public void setSentence(int sentence) {
+        this.sentence = sentence;
+    }
+}
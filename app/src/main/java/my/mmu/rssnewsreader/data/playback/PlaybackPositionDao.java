@@ -0,0 +1,32 @@
+package my.mmu.rssnewsreader.data.playback;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.List;
+
+@Dao
+public interface PlaybackPositionDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(List<PlaybackPosition> positions);
+
+    @Query("DELETE FROM playback_position WHERE entryId IN (:entryIds)")
+    void delete(List<Long> entryIds);
+
+    @Transaction
+    default void write(List<PlaybackPosition> positions, List<Long> cleared) {
+        if (!cleared.isEmpty()) {
+            delete(cleared);
+        }
+        if (!positions.isEmpty()) {
+            insert(positions);
+        }
+    }
+
+    @Query("SELECT sentence FROM playback_position WHERE entryId = :entryId")
+    Integer getSentence(long entryId);
+}
@@ -0,0 +1,76 @@
+package my.mmu.rssnewsreader.data.playback;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+// Holds the latest sentence per entry in memory and writes them out in one transaction a few seconds later,
+// or straight away when the player pauses, skips or stops
+@Singleton
+public class PlaybackPositionRepository {
+
+    private static final String TAG = "PlaybackPosition";
+    private static final long FLUSH_DELAY_SECONDS = 5;
+
+    private final PlaybackPositionDao playbackPositionDao;
+    private final Map<Long, Integer> pending = new HashMap<>();
+    private Disposable scheduledFlush;
+
+    @Inject
+    public PlaybackPositionRepository(PlaybackPositionDao playbackPositionDao) {
+        this.playbackPositionDao = playbackPositionDao;
+    }
+
+    public synchronized void save(long entryId, int sentence) {
+        pending.put(entryId, sentence);
+        if (scheduledFlush == null || scheduledFlush.isDisposed()) {
+            scheduledFlush = Completable.timer(FLUSH_DELAY_SECONDS, TimeUnit.SECONDS, Schedulers.io())
+                    .subscribe(this::flush, error -> Log.e(TAG, "Failed to write playback positions", error));
+        }
+    }
+
+    public void reset(long entryId) {
+        save(entryId, 0);
+    }
+
+    public synchronized int get(long entryId) {
+        Integer sentence = pending.get(entryId);
+        if (sentence == null) {
+            sentence = playbackPositionDao.getSentence(entryId);
+        }
+        return sentence != null ? sentence : 0;
+    }
+
+    public synchronized void flush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.dispose();
+            scheduledFlush = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<PlaybackPosition> positions = new ArrayList<>();
+        List<Long> cleared = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : pending.entrySet()) {
+            if (entry.getValue() > 0) {
+                positions.add(new PlaybackPosition(entry.getKey(), entry.getValue()));
+            } else {
+                cleared.add(entry.getKey());
+            }
+        }
+        playbackPositionDao.write(positions, cleared);
+        pending.clear();
+    }
+}
@@ -1,5 +1,6 @@
 package my.mmu.rssnewsreader.data.playlist;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.PrimaryKey;
 
@@ -11,11 +12,13 @@ public class Playlist {
     @PrimaryKey(autoGenerate = true)
     private long id;
     private Date createdDate;
-    private String playlist;
+    // Position in playlist_item of the entry that is currently playing
+    @ColumnInfo(defaultValue = "0")
+    private int currentPosition;
 
-    public Playlist(Date createdDate, String playlist) {
+    public Playlist(Date createdDate, int currentPosition) {
         this.createdDate = createdDate;
-        this.playlist = playlist;
+        this.currentPosition = currentPosition;
     }
 
     public long getId() {
@@ -34,11 +37,11 @@ public class Playlist {
         this.createdDate = createdDate;
     }
 
-    public String getPlaylist() {
-        return playlist;
+    public int getCurrentPosition() {
+        return currentPosition;
     }
 
-    public void setPlaylist(String playlist) {
-        this.playlist = playlist;
+    public void setCurrentPosition(int currentPosition) {
+        this.currentPosition = currentPosition;
     }
 }
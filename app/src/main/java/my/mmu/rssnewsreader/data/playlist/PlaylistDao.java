@@ -4,9 +4,11 @@ import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
 import java.util.Date;
+import java.util.List;
 
 @Dao
 public interface PlaylistDao {
@@ -14,6 +16,9 @@ public interface PlaylistDao {
     @Insert
     void insert(Playlist history);
 
+    @Insert
+    void insertItems(List<PlaylistItem> items);
+
     @Update
     void update(Playlist history);
 
@@ -23,9 +28,36 @@ public interface PlaylistDao {
     @Query("DELETE FROM playlist_table")
     void deleteAllPlaylists();
 
-    @Query("SELECT playlist FROM playlist_table ORDER BY createdDate DESC LIMIT 1")
-    String getLatestPlaylist();
+    @Query("DELETE FROM playlist_item")
+    void deleteAllItems();
+
+    @Transaction
+    default void replacePlaylist(Playlist playlist, List<PlaylistItem> items) {
+        deleteAllPlaylists();
+        deleteAllItems();
+        insert(playlist);
+        insertItems(items);
+    }
+
+    @Query("SELECT * FROM playlist_table ORDER BY createdDate DESC LIMIT 1")
+    Playlist getLatestPlaylist();
 
     @Query("SELECT createdDate FROM playlist_table ORDER BY createdDate DESC LIMIT 1")
     Date getLatestPlaylistCreatedDate();
+
+    @Query("UPDATE playlist_table SET currentPosition = :position WHERE id = :id")
+    void updateCurrentPosition(long id, int position);
+
+    @Query("SELECT position FROM playlist_item WHERE entryId = :entryId LIMIT 1")
+    Integer getPositionOfEntry(long entryId);
+
+    // Entries deleted since the playlist was built are stepped over by the join
+    @Query("SELECT p.* FROM playlist_item p INNER JOIN entry_table e ON e.id = p.entryId WHERE p.position > :position ORDER BY p.position ASC LIMIT 1")
+    PlaylistItem getNextItem(int position);
+
+    @Query("SELECT p.* FROM playlist_item p INNER JOIN entry_table e ON e.id = p.entryId WHERE p.position < :position ORDER BY p.position DESC LIMIT 1")
+    PlaylistItem getPreviousItem(int position);
+
+    @Query("SELECT entryId FROM playlist_item WHERE position >= :position ORDER BY position ASC LIMIT :limit")
+    List<Long> getEntryIdsFrom(int position, int limit);
 }
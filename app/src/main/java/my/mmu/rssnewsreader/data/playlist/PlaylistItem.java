@@ -0,0 +1,35 @@
+package my.mmu.rssnewsreader.data.playlist;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+// One row per queued entry; the position key keeps next/previous an index seek instead of a string split
+@Entity(tableName = "playlist_item", indices = {@Index("entryId")})
+public class PlaylistItem {
+
+    @PrimaryKey
+    private int position;
+    private long entryId;
+
+    public PlaylistItem(int position, long entryId) {
+        this.position = position;
+        this.entryId = entryId;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public long getEntryId() {
+        return entryId;
+    }
+
+    public void setEntryId(long entryId) {
+        this.entryId = entryId;
+    }
+}
@@ -2,7 +2,6 @@ package my.mmu.rssnewsreader.data.playlist;
 
 import android.util.Log;
 
-import my.mmu.rssnewsreader.data.entry.Entry;
 import my.mmu.rssnewsreader.data.entry.EntryRepository;
 
 import java.util.ArrayList;
@@ -43,65 +42,67 @@ public class PlaylistRepository {
         return playlistDao.getLatestPlaylistCreatedDate();
     }
 
-    public String getLatestPlaylist() {
-        return playlistDao.getLatestPlaylist();
+    // Stores the ids in list order with the cursor on the entry the user started from
+    public void replacePlaylist(List<Long> entryIds, long currentEntryId) {
+        List<PlaylistItem> items = new ArrayList<>(entryIds.size());
+        int currentPosition = 0;
+        for (int i = 0; i < entryIds.size(); i++) {
+            long entryId = entryIds.get(i);
+            if (entryId == currentEntryId) {
+                currentPosition = i;
+            }
+            items.add(new PlaylistItem(i, entryId));
+        }
+        playlistDao.replacePlaylist(new Playlist(new Date(), currentPosition), items);
+    }
+
+    // The entry being played now and at most limit - 1 queued after it, in playlist order
+    public List<Long> getUpcomingEntryIds(int limit) {
+        Playlist playlist = playlistDao.getLatestPlaylist();
+        if (playlist == null) {
+            return new ArrayList<>();
+        }
+        return playlistDao.getEntryIdsFrom(getCurrentPosition(playlist), limit);
     }
 
     public boolean updatePlaylistToPrevious() {
-        boolean loop = true;
-        List<Long> playlist = stringToLongList(playlistDao.getLatestPlaylist());
-        long lastId = entryRepository.getLastVisitedEntryId();
-        int index = playlist.indexOf(lastId);
-
-        while (loop) {
-            index -= 1;
-            if (index >= 0) {
-                long currentId = playlist.get(index);
-                if (entryRepository.checkIdExist(currentId)) {
-                    Date date = new Date();
-                    entryRepository.updateDate(date, currentId);
-                    return true;
-                }
-            } else {
-                loop = false;
-            }
+        Playlist playlist = playlistDao.getLatestPlaylist();
+        if (playlist == null) {
+            return false;
         }
-        return false;
+        return moveTo(playlist, playlistDao.getPreviousItem(syncCurrentPosition(playlist)));
     }
 
     public boolean updatePlayListToNext() {
-        boolean loop = true;
-        List<Long> playlist = stringToLongList(playlistDao.getLatestPlaylist());
-        long lastId = entryRepository.getLastVisitedEntryId();
-        int index = playlist.indexOf(lastId);
-
-        while (loop) {
-            index += 1;
-            if (index < playlist.size()) {
-                long currentId = playlist.get(index);
-                if (entryRepository.checkIdExist(currentId)) {
-                    Date date = new Date();
-                    entryRepository.updateDate(date, currentId);
-                    return true;
-                }
-            } else {
-                loop = false;
-            }
+        Playlist playlist = playlistDao.getLatestPlaylist();
+        if (playlist == null) {
+            return false;
         }
-        return false;
+        return moveTo(playlist, playlistDao.getNextItem(syncCurrentPosition(playlist)));
     }
 
-    public List<Long> stringToLongList(String genreIds) {
-        List<Long> list = new ArrayList<>();
+    private boolean moveTo(Playlist playlist, PlaylistItem item) {
+        if (item == null) {
+            return false;
+        }
+        playlistDao.updateCurrentPosition(playlist.getId(), item.getPosition());
+        entryRepository.updateDate(new Date(), item.getEntryId());
+        return true;
+    }
 
-        String[] array = genreIds.split(",");
+    // The stored cursor is used unless the user has since opened another entry of the same playlist
+    private int getCurrentPosition(Playlist playlist) {
+        Integer position = playlistDao.getPositionOfEntry(entryRepository.getLastVisitedEntryId());
+        return position != null ? position : playlist.getCurrentPosition();
+    }
 
-        for (String s : array) {
-            if (s != null && !s.isEmpty()) {
-                list.add(Long.parseLong(s));
-            }
+    // Before a skip the stored cursor is moved to the entry the user opened, so it holds even when there is nowhere to go
+    private int syncCurrentPosition(Playlist playlist) {
+        int position = getCurrentPosition(playlist);
+        if (position != playlist.getCurrentPosition()) {
+            playlistDao.updateCurrentPosition(playlist.getId(), position);
         }
-        return list;
+        return position;
     }
 
 //    public void updateVisitedDate(int entryId) {
@@ -0,0 +1,65 @@
+package my.mmu.rssnewsreader.data.translation;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.util.Date;
+
+@Entity(tableName = "translation_job_table", indices = {@Index("status")})
+public class TranslationJob {
+
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_DONE = "done";
+    public static final String STATUS_FAILED = "failed";
+    public static final String STATUS_SKIPPED = "skipped-same-language";
+
+    @PrimaryKey
+    private long entryId;
+    @NonNull
+    private String status;
+    private int attempts;
+    private Date updatedDate;
+
+    public TranslationJob(long entryId, @NonNull String status, int attempts, Date updatedDate) {
+        this.entryId = entryId;
+        this.status = status;
+        this.attempts = attempts;
+        this.updatedDate = updatedDate;
+    }
+
+    public long getEntryId() {
+        return entryId;
+    }
+
+    public void setEntryId(long entryId) {
+        this.entryId = entryId;
+    }
+
+    @NonNull
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(@NonNull String status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Date getUpdatedDate() {
+        return updatedDate;
+    }
+
+    public void setUpdatedDate(Date updatedDate) {
+        this.updatedDate = updatedDate;
+    }
+}
@@ -0,0 +1,67 @@
+package my.mmu.rssnewsreader.data.translation;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.Date;
+import java.util.List;
+
+@Dao
+public interface TranslationJobDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(TranslationJob job);
+
+    @Query("SELECT status FROM translation_job_table WHERE entryId = :entryId")
+    String getStatus(long entryId);
+
+    @Query("UPDATE translation_job_table SET status = :status, updatedDate = :date WHERE entryId = :entryId")
+    void updateStatus(long entryId, String status, Date date);
+
+    // Failed attempts go back to pending until they run out of retries
+    @Query("UPDATE translation_job_table SET attempts = attempts + 1, updatedDate = :date, " +
+            "status = CASE WHEN attempts + 1 >= :maxAttempts THEN 'failed' ELSE 'pending' END WHERE entryId = :entryId")
+    void markFailed(long entryId, int maxAttempts, Date date);
+
+    // Playlist entries first (lowest priority number), then the newest articles
+    @Query("SELECT j.entryId FROM translation_job_table j INNER JOIN entry_table e ON e.id = j.entryId " +
+            "WHERE j.status = 'pending' ORDER BY e.priority = 0, e.priority ASC, e.publishedDate DESC LIMIT :limit")
+    List<Long> getPendingIds(int limit);
+
+    @Query("UPDATE translation_job_table SET status = 'running', updatedDate = :date WHERE entryId IN (:ids)")
+    void markRunning(List<Long> ids, Date date);
+
+    @Transaction
+    default List<Long> claimPending(int limit, Date date) {
+        List<Long> ids = getPendingIds(limit);
+        if (!ids.isEmpty()) {
+            markRunning(ids, date);
+        }
+        return ids;
+    }
+
+    @Query("SELECT entryId FROM translation_job_table WHERE status = 'pending' AND entryId IN (:entryIds)")
+    List<Long> getPendingIdsIn(List<Long> entryIds);
+
+    @Transaction
+    default List<Long> claimPending(List<Long> entryIds, Date date) {
+        List<Long> ids = getPendingIdsIn(entryIds);
+        if (!ids.isEmpty()) {
+            markRunning(ids, date);
+        }
+        return ids;
+    }
+
+    // Jobs left running by a process that died never finish on their own
+    @Query("UPDATE translation_job_table SET status = 'pending' WHERE status = 'running' AND updatedDate < :before")
+    void resetStaleRunning(Date before);
+
+    @Query("DELETE FROM translation_job_table WHERE entryId NOT IN (SELECT id FROM entry_table)")
+    void deleteOrphans();
+
+    @Query("SELECT COUNT(*) FROM translation_job_table WHERE status = 'pending'")
+    int getPendingCount();
+}
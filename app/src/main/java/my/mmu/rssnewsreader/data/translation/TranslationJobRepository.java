@@ -0,0 +1,63 @@
+package my.mmu.rssnewsreader.data.translation;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.inject.Inject;
+
+public class TranslationJobRepository {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long STALE_RUNNING_MILLIS = 10 * 60 * 1000;
+
+    private TranslationJobDao translationJobDao;
+
+    @Inject
+    public TranslationJobRepository(TranslationJobDao translationJobDao) {
+        this.translationJobDao = translationJobDao;
+    }
+
+    // (Re)queues an entry whose html has just been extracted
+    public void enqueue(long entryId) {
+        translationJobDao.insert(new TranslationJob(entryId, TranslationJob.STATUS_PENDING, 0, new Date()));
+    }
+
+    public List<Long> claimPending(int limit) {
+        return translationJobDao.claimPending(limit, new Date());
+    }
+
+    // Claims only those of the given entries whose job is pending, so the worker cannot take them as well
+    public List<Long> claimPending(List<Long> entryIds) {
+        return translationJobDao.claimPending(entryIds, new Date());
+    }
+
+    public boolean isFinished(long entryId) {
+        String status = translationJobDao.getStatus(entryId);
+        return TranslationJob.STATUS_DONE.equals(status) || TranslationJob.STATUS_SKIPPED.equals(status);
+    }
+
+    public void markRunning(long entryId) {
+        translationJobDao.updateStatus(entryId, TranslationJob.STATUS_RUNNING, new Date());
+    }
+
+    public void markDone(long entryId) {
+        translationJobDao.updateStatus(entryId, TranslationJob.STATUS_DONE, new Date());
+    }
+
+    public void markSkipped(long entryId) {
+        translationJobDao.updateStatus(entryId, TranslationJob.STATUS_SKIPPED, new Date());
+    }
+
+    public void markFailed(long entryId) {
+        translationJobDao.markFailed(entryId, MAX_ATTEMPTS, new Date());
+    }
+
+    public void recover() {
+        translationJobDao.deleteOrphans();
+        translationJobDao.resetStaleRunning(new Date(System.currentTimeMillis() - STALE_RUNNING_MILLIS));
+    }
+
+    public int getPendingCount() {
+        return translationJobDao.getPendingCount();
+    }
+}
@@ -3,12 +3,19 @@ package my.mmu.rssnewsreader.di;
 import android.app.Application;
 
 import androidx.room.Room;
+import androidx.room.RoomDatabase;
 
 import my.mmu.rssnewsreader.data.database.AppDatabase;
 import my.mmu.rssnewsreader.data.entry.EntryDao;
 import my.mmu.rssnewsreader.data.feed.FeedDao;
 import my.mmu.rssnewsreader.data.history.HistoryDao;
+import my.mmu.rssnewsreader.data.playback.PlaybackPositionDao;
 import my.mmu.rssnewsreader.data.playlist.PlaylistDao;
+import my.mmu.rssnewsreader.data.translation.TranslationJobDao;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Singleton;
 
@@ -21,16 +28,26 @@ import dagger.hilt.components.SingletonComponent;
 @InstallIn(SingletonComponent.class)
 public class AppModule {
 
+    // Readers run side by side under WAL, writes queue on one thread since SQLite only takes one writer at a time
+    private static final int QUERY_THREADS = 4;
+
     @Provides
     @Singleton
     public static AppDatabase provideDatabase(Application app, AppDatabase.Callback callback) {
         return Room.databaseBuilder(app, AppDatabase.class, "app_database")
-                .addMigrations(AppDatabase.MIGRATION_2_3, AppDatabase.MIGRATION_3_4, AppDatabase.MIGRATION_4_5)
+                .addMigrations(AppDatabase.MIGRATION_2_3, AppDatabase.MIGRATION_3_4, AppDatabase.MIGRATION_4_5, AppDatabase.MIGRATION_5_6, AppDatabase.MIGRATION_6_7, AppDatabase.MIGRATION_7_8, AppDatabase.MIGRATION_8_9, AppDatabase.MIGRATION_9_10, AppDatabase.MIGRATION_10_11, AppDatabase.MIGRATION_11_12, AppDatabase.MIGRATION_12_13, AppDatabase.MIGRATION_13_14, AppDatabase.MIGRATION_14_15, AppDatabase.MIGRATION_15_16)
                 .addCallback(callback)
-                .allowMainThreadQueries()
+                .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+                .setQueryExecutor(newDatabaseExecutor("db-query", QUERY_THREADS))
+                .setTransactionExecutor(newDatabaseExecutor("db-write", 1))
                 .build();
     }
 
+    private static ExecutorService newDatabaseExecutor(String name, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> new Thread(runnable, name + "-" + count.incrementAndGet()));
+    }
+
     @Provides // no need include singleton as room automatically set singleton for DAO
     public static FeedDao provideFeedDao(AppDatabase db) {
         return db.feedDao();
@@ -50,4 +67,14 @@ public class AppModule {
     public static HistoryDao provideHistoryDao(AppDatabase db) {
         return db.historyDao();
     }
+
+    @Provides
+    public static TranslationJobDao provideTranslationJobDao(AppDatabase db) {
+        return db.translationJobDao();
+    }
+
+    @Provides
+    public static PlaybackPositionDao providePlaybackPositionDao(AppDatabase db) {
+        return db.playbackPositionDao();
+    }
 }
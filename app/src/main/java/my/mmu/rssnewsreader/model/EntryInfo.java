@@ -3,7 +3,6 @@ package my.mmu.rssnewsreader.model;
 import androidx.room.ColumnInfo;
 import androidx.room.Ignore;
 
-import java.util.Comparator;
 import java.util.Date;
 import java.util.Objects;
 
@@ -19,10 +18,14 @@ public class EntryInfo {
     private Date entryPublishedDate;
     private Date visitedDate;
     private String bookmark;
+    // Bodies are compressed and never selected into EntryInfo; lists use the has* flags and readers load the Entry
     private String content;
     private int priority;
     private String originalHtml;
     private String html;
+    private boolean hasContent;
+    private boolean hasOriginalHtml;
+    private boolean hasTranslation;
 
     // Feed
     private long feedId;
@@ -37,6 +40,10 @@ public class EntryInfo {
     @Ignore
     private boolean isLoading = false;
 
+    // Stands in for the rows of the next page while it is being loaded
+    @Ignore
+    private boolean placeholder = false;
+
     @Ignore
     public EntryInfo(String entryTitle, String entryLink, String entryDescription, String entryImageUrl, String entryCategory, Date entryPublishedDate, Date visitedDate, String bookmark, long feedId, float ttsSpeechRate, String feedLanguage, String feedTitle, String feedImageUrl) {
         this.entryTitle = entryTitle;
@@ -59,6 +66,17 @@ public class EntryInfo {
         // Required by Room
     }
 
+    public static EntryInfo placeholder(long position) {
+        EntryInfo entryInfo = new EntryInfo();
+        entryInfo.entryId = -1 - position;
+        entryInfo.placeholder = true;
+        return entryInfo;
+    }
+
+    public boolean isPlaceholder() {
+        return placeholder;
+    }
+
     public long getEntryId() {
         return entryId;
     }
@@ -203,7 +221,9 @@ public class EntryInfo {
         EntryInfo entryInfo = (EntryInfo) o;
         return entryId == entryInfo.entryId &&
                 priority == entryInfo.priority &&
-                Objects.equals(content, entryInfo.content) &&
+                hasContent == entryInfo.hasContent &&
+                hasOriginalHtml == entryInfo.hasOriginalHtml &&
+                hasTranslation == entryInfo.hasTranslation &&
                 Objects.equals(entryTitle, entryInfo.entryTitle) &&
                 Objects.equals(entryLink, entryInfo.entryLink) &&
                 Objects.equals(entryDescription, entryInfo.entryDescription) &&
@@ -216,20 +236,6 @@ public class EntryInfo {
                 Objects.equals(bookmark, entryInfo.bookmark);
     }
 
-    public static class LatestComparator implements Comparator<EntryInfo> {
-        @Override
-        public int compare(EntryInfo entryInfo, EntryInfo t1) {
-            return t1.getEntryPublishedDate().compareTo(entryInfo.getEntryPublishedDate());
-        }
-    }
-
-    public static class OldestComparator implements Comparator<EntryInfo> {
-        @Override
-        public int compare(EntryInfo entryInfo, EntryInfo t1) {
-            return entryInfo.getEntryPublishedDate().compareTo(t1.getEntryPublishedDate());
-        }
-    }
-
     public String getContent() {
         return content;
     }
@@ -260,4 +266,28 @@ public class EntryInfo {
     public void   setHtml(String html) {
         this.html = html;
     }
+
+    public boolean hasContent() {
+        return hasContent;
+    }
+
+    public void setHasContent(boolean hasContent) {
+        this.hasContent = hasContent;
+    }
+
+    public boolean hasOriginalHtml() {
+        return hasOriginalHtml;
+    }
+
+    public void setHasOriginalHtml(boolean hasOriginalHtml) {
+        this.hasOriginalHtml = hasOriginalHtml;
+    }
+
+    public boolean hasTranslation() {
+        return hasTranslation;
+    }
+
+    public void setHasTranslation(boolean hasTranslation) {
+        this.hasTranslation = hasTranslation;
+    }
 }
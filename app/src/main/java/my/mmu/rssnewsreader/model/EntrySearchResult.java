@@ -0,0 +1,15 @@
+package my.mmu.rssnewsreader.model;
+
+// An entry found by full-text search, with the matching words wrapped in <b> tags
+public class EntrySearchResult extends EntryInfo {
+
+    private String snippet;
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+}
@@ -84,6 +84,9 @@ public class RssHandler extends DefaultHandler {
                     case "link":
                         rssItem.setLink(stringBuilder.toString().trim());
                         break;
+                    case "guid":
+                        rssItem.setGuid(stringBuilder.toString().trim());
+                        break;
                     case "description":
                         rssItem.setDescription(stringBuilder.toString().trim());
                         break;
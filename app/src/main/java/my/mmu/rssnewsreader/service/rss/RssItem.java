@@ -10,6 +10,7 @@ public class RssItem {
     private String title;
     private String description;
     private String link;
+    private String guid;
     private String imageUrl;
     private Date pubDate;
     private String category;
@@ -39,6 +40,14 @@ public class RssItem {
         this.link = link;
     }
 
+    public String getGuid() {
+        return guid;
+    }
+
+    public void setGuid(String guid) {
+        this.guid = guid;
+    }
+
     public void setDescription(String description) {
         this.description = description;
     }
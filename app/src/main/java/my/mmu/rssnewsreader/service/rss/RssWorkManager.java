@@ -5,6 +5,7 @@ import android.util.Log;
 
 import androidx.work.Constraints;
 import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
 import androidx.work.NetworkType;
 import androidx.work.OneTimeWorkRequest;
 import androidx.work.PeriodicWorkRequest;
@@ -12,6 +13,8 @@ import androidx.work.WorkInfo;
 import androidx.work.WorkManager;
 
 import my.mmu.rssnewsreader.data.sharedpreferences.SharedPreferencesRepository;
+import my.mmu.rssnewsreader.service.tts.PreSynthesisWorker;
+import my.mmu.rssnewsreader.service.util.TranslationWorker;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.util.Collections;
@@ -29,6 +32,8 @@ public class RssWorkManager {
 
     private static final String TAG = "RssWorkManager";
     public static final String refreshWorkerName = "RefreshWorker";
+    public static final String translationWorkerName = "TranslationWorker";
+    public static final String preSynthesisWorkerName = "PreSynthesisWorker";
 
     private Context context;
     private SharedPreferencesRepository sharedPreferencesRepository;
@@ -57,6 +62,35 @@ public class RssWorkManager {
         }
     }
 
+    // Translation is heavy on CPU, so the queue is only drained while the device is charging and idle
+    public void enqueueTranslationWorker() {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(TranslationWorker.class)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(translationWorkerName, ExistingWorkPolicy.KEEP, request);
+        Log.d(TAG, "TranslationWorker scheduled.");
+    }
+
+    // Rendering articles to audio keeps the engine busy for minutes, so it only runs on the charger.
+    // A run already in progress is kept, since it reads the playlist again after every entry.
+    public void enqueuePreSynthesisWorker() {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresStorageNotLow(true)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(PreSynthesisWorker.class)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(preSynthesisWorkerName, ExistingWorkPolicy.KEEP, request);
+        Log.d(TAG, "PreSynthesisWorker scheduled.");
+    }
+
     public void dequeueRssWorker() {
         WorkManager.getInstance(context).cancelUniqueWork(refreshWorkerName);
     }
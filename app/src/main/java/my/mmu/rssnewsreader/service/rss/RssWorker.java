@@ -10,8 +10,6 @@ import androidx.work.WorkerParameters;
 
 import my.mmu.rssnewsreader.data.feed.FeedRepository;
 import my.mmu.rssnewsreader.service.tts.TtsExtractor;
-import my.mmu.rssnewsreader.service.util.AutoTranslator;
-import my.mmu.rssnewsreader.service.util.TextUtil;
 
 import dagger.assisted.Assisted;
 import dagger.assisted.AssistedInject;
@@ -23,14 +21,16 @@ public class RssWorker extends Worker {
 
     private FeedRepository feedRepository;
     private TtsExtractor ttsExtractor;
+    private RssWorkManager rssWorkManager;
     private Context context;
 
     @AssistedInject
-    public RssWorker(@Assisted @NonNull Context context, @Assisted @NonNull WorkerParameters workerParams, FeedRepository feedRepository, TtsExtractor ttsExtractor) {
+    public RssWorker(@Assisted @NonNull Context context, @Assisted @NonNull WorkerParameters workerParams, FeedRepository feedRepository, TtsExtractor ttsExtractor, RssWorkManager rssWorkManager) {
         super(context, workerParams);
         this.context = context;
         this.feedRepository = feedRepository;
         this.ttsExtractor = ttsExtractor;
+        this.rssWorkManager = rssWorkManager;
     }
 
     @NonNull
@@ -48,12 +48,9 @@ public class RssWorker extends Worker {
                 Log.d(TAG, "No entries to extract in RssWorker.");
             }
 
-            AutoTranslator autoTranslator = new AutoTranslator(
-                    feedRepository.getEntryRepository(),
-                    new TextUtil(feedRepository.getSharedPreferencesRepository()),
-                    feedRepository.getSharedPreferencesRepository()
-            );
-            autoTranslator.runAutoTranslation();
+            if (feedRepository.getSharedPreferencesRepository().getAutoTranslate()) {
+                rssWorkManager.enqueueTranslationWorker();
+            }
 
             return Result.success();
         } catch (Exception e) {
@@ -0,0 +1,66 @@
+package my.mmu.rssnewsreader.service.tts;
+
+import androidx.annotation.WorkerThread;
+
+import org.jsoup.Jsoup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.inject.Inject;
+
+import my.mmu.rssnewsreader.data.entry.EntryRepository;
+import my.mmu.rssnewsreader.data.entry.Utterances;
+import my.mmu.rssnewsreader.data.sharedpreferences.SharedPreferencesRepository;
+import my.mmu.rssnewsreader.model.EntryInfo;
+
+// What TtsPlayer speaks of an entry while its body is still being extracted: the title and feed description.
+// Once the body is in, playback goes on after the preview sentences it also contains.
+public class ArticlePreview {
+
+    private final EntryRepository entryRepository;
+    private final SharedPreferencesRepository sharedPreferencesRepository;
+
+    @Inject
+    public ArticlePreview(EntryRepository entryRepository, SharedPreferencesRepository sharedPreferencesRepository) {
+        this.entryRepository = entryRepository;
+        this.sharedPreferencesRepository = sharedPreferencesRepository;
+    }
+
+    // Empty for the translated view, the description is in the original language
+    @WorkerThread
+    public List<String> load(long entryId) {
+        List<String> preview = new ArrayList<>();
+        EntryInfo info = entryRepository.getEntryInfoById(entryId);
+        if (info == null || sharedPreferencesRepository.getIsTranslatedView(entryId)) {
+            return preview;
+        }
+        if (info.getEntryTitle() != null) {
+            preview.addAll(Utterances.split(info.getEntryTitle()));
+        }
+        if (info.getEntryDescription() != null) {
+            preview.addAll(Utterances.split(Jsoup.parse(info.getEntryDescription()).text()));
+        }
+        return preview;
+    }
+
+    // The index of the first body sentence after the preview sentences up to heard that it also contains
+    public static int resumeAfter(List<String> preview, int heard, List<String> body) {
+        int resume = 0;
+        for (int i = 0; i <= heard && i < preview.size(); i++) {
+            String spoken = normalize(preview.get(i));
+            for (int j = resume; j < body.size(); j++) {
+                if (normalize(body.get(j)).equals(spoken)) {
+                    resume = j + 1;
+                    break;
+                }
+            }
+        }
+        return resume;
+    }
+
+    private static String normalize(String sentence) {
+        return sentence.replaceAll("\\s+", " ").trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,223 @@
+package my.mmu.rssnewsreader.service.tts;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.LongPredicate;
+import java.util.zip.CRC32;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+
+// Articles rendered ahead of time, one AAC file per entry plus an index with the start of every sentence.
+// The index names the text and language it was rendered from, so a rendering is only used for exactly what would be spoken,
+// and it is written last, so an entry without one was never finished.
+@Singleton
+public class AudioCache {
+
+    private static final String TAG = "AudioCache";
+    private static final String DIRECTORY = "tts_audio";
+    private static final String AUDIO_SUFFIX = ".m4a";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int VERSION = 1;
+    public static final long DISK_BUDGET = 150L * 1024 * 1024;
+
+    private final File root;
+
+    @Inject
+    public AudioCache(@ApplicationContext Context context) {
+        this.root = new File(context.getFilesDir(), DIRECTORY);
+    }
+
+    public static class Rendering {
+        private final File audio;
+        private final float speechRate;
+        private final int[] starts;
+
+        Rendering(File audio, float speechRate, int[] starts) {
+            this.audio = audio;
+            this.speechRate = speechRate;
+            this.starts = starts;
+        }
+
+        public File getAudio() {
+            return audio;
+        }
+
+        public float getSpeechRate() {
+            return speechRate;
+        }
+
+        public int getSentenceCount() {
+            return starts.length;
+        }
+
+        // Milliseconds into the audio where the sentence begins
+        public int getStart(int sentence) {
+            return starts[sentence];
+        }
+
+        public int sentenceAt(int positionMs) {
+            int index = Arrays.binarySearch(starts, positionMs);
+            return index >= 0 ? index : Math.max(0, -index - 2);
+        }
+    }
+
+    // The finished rendering of exactly this text in this language, or null
+    @Nullable
+    public Rendering find(long entryId, String text, String language) {
+        File index = new File(root, entryId + INDEX_SUFFIX);
+        File audio = new File(root, entryId + AUDIO_SUFFIX);
+        if (!index.isFile() || !audio.isFile()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new FileInputStream(index))) {
+            if (input.readInt() != VERSION
+                    || input.readLong() != checksum(text)
+                    || !input.readUTF().equals(String.valueOf(language))) {
+                return null;
+            }
+            float speechRate = input.readFloat();
+            int[] starts = new int[input.readInt()];
+            for (int i = 0; i < starts.length; i++) {
+                starts[i] = input.readInt();
+            }
+            return new Rendering(audio, speechRate, starts);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot read index of " + entryId, e);
+            return null;
+        }
+    }
+
+    public boolean contains(long entryId, String text, String language) {
+        return find(entryId, text, language) != null;
+    }
+
+    // Where the renderer writes the audio before it is committed
+    public File newAudioFile(long entryId) throws IOException {
+        if (!root.isDirectory() && !root.mkdirs()) {
+            throw new IOException("Cannot create " + root);
+        }
+        return new File(root, entryId + AUDIO_SUFFIX + TEMP_SUFFIX);
+    }
+
+    public void commit(long entryId, File audio, String text, String language, float speechRate, int[] starts) throws IOException {
+        File target = new File(root, entryId + AUDIO_SUFFIX);
+        File index = new File(root, entryId + INDEX_SUFFIX);
+        File indexTemp = new File(root, entryId + INDEX_SUFFIX + TEMP_SUFFIX);
+        index.delete();
+        if (!audio.renameTo(target)) {
+            audio.delete();
+            throw new IOException("Cannot move " + audio + " into place");
+        }
+        try (FileOutputStream file = new FileOutputStream(indexTemp);
+             DataOutputStream output = new DataOutputStream(file)) {
+            output.writeInt(VERSION);
+            output.writeLong(checksum(text));
+            output.writeUTF(String.valueOf(language));
+            output.writeFloat(speechRate);
+            output.writeInt(starts.length);
+            for (int start : starts) {
+                output.writeInt(start);
+            }
+            output.flush();
+            file.getFD().sync();
+        }
+        if (!indexTemp.renameTo(index)) {
+            indexTemp.delete();
+            throw new IOException("Cannot move " + indexTemp + " into place");
+        }
+    }
+
+    public void delete(long entryId) {
+        new File(root, entryId + INDEX_SUFFIX).delete();
+        new File(root, entryId + AUDIO_SUFFIX).delete();
+    }
+
+    // Renderings of entries that were removed from the database, whose ids are only found in the file names
+    public void deleteOrphans(LongPredicate exists) {
+        File[] indexes = root.listFiles((directory, name) -> name.endsWith(INDEX_SUFFIX));
+        if (indexes == null) return;
+        int deleted = 0;
+        for (File index : indexes) {
+            long entryId;
+            try {
+                entryId = Long.parseLong(index.getName().substring(0, index.getName().length() - INDEX_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (!exists.test(entryId)) {
+                delete(entryId);
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            Log.d(TAG, "Deleted renderings of " + deleted + " removed entries");
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        File[] files = root.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+
+    // Only called between renders. Drops leftovers of interrupted renders, then the oldest renderings outside keep until the cache fits the budget
+    public void trim(Collection<Long> keep, long budget) {
+        File[] files = root.listFiles();
+        if (files == null) return;
+        long size = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX)
+                    || name.endsWith(AUDIO_SUFFIX) && !new File(root, name.replace(AUDIO_SUFFIX, INDEX_SUFFIX)).isFile()) {
+                file.delete();
+            } else {
+                size += file.length();
+            }
+        }
+
+        File[] indexes = root.listFiles((directory, name) -> name.endsWith(INDEX_SUFFIX));
+        if (indexes == null) return;
+        Arrays.sort(indexes, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File index : indexes) {
+            if (size <= budget) break;
+            long entryId;
+            try {
+                entryId = Long.parseLong(index.getName().substring(0, index.getName().length() - INDEX_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (keep.contains(entryId)) continue;
+            size -= index.length() + new File(root, entryId + AUDIO_SUFFIX).length();
+            delete(entryId);
+            Log.d(TAG, "Evicted rendering of " + entryId);
+        }
+    }
+
+    private static long checksum(String text) {
+        byte[] data = String.valueOf(text).getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return crc.getValue() ^ ((long) data.length << 32);
+    }
+}
@@ -0,0 +1,256 @@
+package my.mmu.rssnewsreader.service.tts;
+
+import android.content.Context;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.os.Bundle;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+// Speaks whole articles into AAC files with a TextToSpeech instance of its own, so it never touches the one playing.
+// Every sentence is synthesized to a WAV file, and its PCM is appended to a single encoder, which gives exact sentence starts.
+@WorkerThread
+public class AudioRenderer implements AutoCloseable {
+
+    private static final String TAG = "AudioRenderer";
+    private static final int BIT_RATE = 64000;
+    private static final long SENTENCE_TIMEOUT_SECONDS = 60;
+
+    private final TextToSpeech tts;
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private final File scratch;
+    private volatile boolean isInit;
+    private volatile CountDownLatch sentenceDone;
+    private volatile boolean sentenceFailed;
+
+    public AudioRenderer(Context context) {
+        scratch = new File(context.getCacheDir(), "tts_render.wav");
+        tts = new TextToSpeech(context, status -> {
+            isInit = status == TextToSpeech.SUCCESS;
+            ready.countDown();
+        });
+        tts.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+            @Override
+            public void onStart(String utteranceId) {
+            }
+
+            @Override
+            public void onDone(String utteranceId) {
+                sentenceDone.countDown();
+            }
+
+            @Override
+            public void onError(String utteranceId) {
+                sentenceFailed = true;
+                sentenceDone.countDown();
+            }
+        });
+    }
+
+    public boolean awaitReady() throws InterruptedException {
+        return ready.await(30, TimeUnit.SECONDS) && isInit;
+    }
+
+    // Writes the sentences to audio and returns the start of each in milliseconds, or null when the voice is missing or synthesis fails
+    public int[] render(List<String> sentences, String language, float speechRate, File audio, BooleanSupplier isStopped)
+            throws IOException, InterruptedException {
+        if (language == null || language.isEmpty()) {
+            Log.d(TAG, "No language to render in");
+            return null;
+        }
+        int result = tts.setLanguage(new Locale(language));
+        if (result == TextToSpeech.LANG_MISSING_DATA || result == TextToSpeech.LANG_NOT_SUPPORTED) {
+            Log.d(TAG, "No voice installed for " + language);
+            return null;
+        }
+        tts.setSpeechRate(speechRate);
+
+        int[] starts = new int[sentences.size()];
+        try (AacWriter writer = new AacWriter(audio)) {
+            for (int i = 0; i < sentences.size(); i++) {
+                if (isStopped.getAsBoolean()) {
+                    return null;
+                }
+                sentenceDone = new CountDownLatch(1);
+                sentenceFailed = false;
+                tts.synthesizeToFile(sentences.get(i), new Bundle(), scratch, String.valueOf(i));
+                if (!sentenceDone.await(SENTENCE_TIMEOUT_SECONDS, TimeUnit.SECONDS) || sentenceFailed) {
+                    Log.d(TAG, "Synthesis failed at sentence " + i);
+                    return null;
+                }
+                starts[i] = writer.getPositionMs();
+                if (!writer.appendWav(scratch)) {
+                    Log.d(TAG, "Unexpected audio format at sentence " + i);
+                    return null;
+                }
+            }
+            writer.finish();
+        } finally {
+            scratch.delete();
+        }
+        return starts;
+    }
+
+    @Override
+    public void close() {
+        tts.shutdown();
+        scratch.delete();
+    }
+
+    // Encodes 16-bit PCM to AAC-LC in an MP4 container. The format is taken from the first WAV and every later one has to match it.
+    private static class AacWriter implements AutoCloseable {
+        private final File file;
+        private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        private MediaCodec codec;
+        private MediaMuxer muxer;
+        private int track = -1;
+        private int sampleRate;
+        private int channels;
+        private long frames;
+
+        AacWriter(File file) {
+            this.file = file;
+        }
+
+        int getPositionMs() {
+            return sampleRate == 0 ? 0 : (int) (frames * 1000 / sampleRate);
+        }
+
+        boolean appendWav(File wav) throws IOException {
+            ByteBuffer pcm;
+            int rate;
+            int channelCount;
+            try (RandomAccessFile input = new RandomAccessFile(wav, "r")) {
+                byte[] data = new byte[(int) input.length()];
+                input.readFully(data);
+                ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+                if (data.length < 12 || buffer.getInt(0) != 0x46464952 || buffer.getInt(8) != 0x45564157) {
+                    return false;
+                }
+                rate = 0;
+                channelCount = 0;
+                pcm = null;
+                int position = 12;
+                while (position + 8 <= data.length && pcm == null) {
+                    int id = buffer.getInt(position);
+                    int size = buffer.getInt(position + 4);
+                    int body = position + 8;
+                    if (size < 0) break;
+                    if (id == 0x20746d66) {
+                        if (buffer.getShort(body) != 1 || buffer.getShort(body + 14) != 16) {
+                            return false;
+                        }
+                        channelCount = buffer.getShort(body + 2);
+                        rate = buffer.getInt(body + 4);
+                    } else if (id == 0x61746164) {
+                        // Some engines leave the data size at zero, in which case the rest of the file is the data
+                        int length = size <= 0 || size > data.length - body ? data.length - body : size;
+                        pcm = ByteBuffer.wrap(data, body, length);
+                    }
+                    position = body + size + (size & 1);
+                }
+            }
+            if (pcm == null || rate <= 0 || channelCount <= 0) {
+                return false;
+            }
+            if (codec == null) {
+                start(rate, channelCount);
+            } else if (rate != sampleRate || channelCount != channels) {
+                return false;
+            }
+            while (pcm.remaining() >= 2 * channels) {
+                int inputIndex = codec.dequeueInputBuffer(10_000);
+                if (inputIndex >= 0) {
+                    ByteBuffer input = codec.getInputBuffer(inputIndex);
+                    int length = Math.min(input.remaining(), pcm.remaining());
+                    length -= length % (2 * channels);
+                    ByteBuffer chunk = pcm.slice();
+                    chunk.limit(length);
+                    input.put(chunk);
+                    pcm.position(pcm.position() + length);
+                    codec.queueInputBuffer(inputIndex, 0, length, frames * 1_000_000L / sampleRate, 0);
+                    frames += length / (2 * channels);
+                }
+                drain(false);
+            }
+            return true;
+        }
+
+        void finish() throws IOException {
+            if (codec == null) {
+                throw new IOException("Nothing was rendered");
+            }
+            int inputIndex;
+            while ((inputIndex = codec.dequeueInputBuffer(10_000)) < 0) {
+                drain(false);
+            }
+            codec.queueInputBuffer(inputIndex, 0, 0, frames * 1_000_000L / sampleRate, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+            drain(true);
+        }
+
+        private void start(int rate, int channelCount) throws IOException {
+            sampleRate = rate;
+            channels = channelCount;
+            MediaFormat format = MediaFormat.createAudioFormat(MediaFormat.MIMETYPE_AUDIO_AAC, rate, channelCount);
+            format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+            format.setInteger(MediaFormat.KEY_BIT_RATE, BIT_RATE);
+            codec = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_AUDIO_AAC);
+            codec.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            codec.start();
+            muxer = new MediaMuxer(file.getPath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        }
+
+        private void drain(boolean untilEnd) {
+            while (true) {
+                int outputIndex = codec.dequeueOutputBuffer(info, untilEnd ? 10_000 : 0);
+                if (outputIndex == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                    if (!untilEnd) return;
+                } else if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    track = muxer.addTrack(codec.getOutputFormat());
+                    muxer.start();
+                } else if (outputIndex >= 0) {
+                    ByteBuffer output = codec.getOutputBuffer(outputIndex);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0 && info.size > 0 && track >= 0) {
+                        muxer.writeSampleData(track, output, info);
+                    }
+                    codec.releaseOutputBuffer(outputIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) return;
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (codec != null) {
+                codec.stop();
+                codec.release();
+            }
+            if (muxer != null) {
+                if (track >= 0) {
+                    try {
+                        muxer.stop();
+                    } catch (IllegalStateException e) {
+                        Log.w(TAG, "Muxer stopped before any sample", e);
+                    }
+                }
+                muxer.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package my.mmu.rssnewsreader.service.tts;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+// Time from a user action to the first audible sentence, kept per kind of transition over the last samples.
+// The summary travels in the extras of every playback state, so any media controller can read it.
+public class PlaybackLatency {
+
+    private static final String TAG = "PlaybackLatency";
+    private static final int WINDOW = 50;
+
+    public enum Transition {
+        // An article opened from the list or the reader
+        OPEN,
+        // Next or previous, from the request until the new article is heard
+        SKIP,
+        // Play after a pause
+        RESUME,
+        // Fast forward or rewind within the article
+        SEEK
+    }
+
+    private final long[][] samples = new long[Transition.values().length][WINDOW];
+    private final int[] counts = new int[Transition.values().length];
+    private Transition pending;
+    private long startedAt;
+
+    // A skip is measured from the request, so the open that follows it does not restart the clock
+    public synchronized void begin(Transition transition) {
+        if (pending == Transition.SKIP && transition == Transition.OPEN) {
+            return;
+        }
+        pending = transition;
+        startedAt = SystemClock.elapsedRealtime();
+    }
+
+    public synchronized void cancel() {
+        pending = null;
+    }
+
+    public synchronized void audioStarted() {
+        if (pending == null) {
+            return;
+        }
+        long elapsed = SystemClock.elapsedRealtime() - startedAt;
+        int kind = pending.ordinal();
+        samples[kind][counts[kind] % WINDOW] = elapsed;
+        counts[kind]++;
+        Log.d(TAG, pending + " to audio: " + elapsed + " ms");
+        pending = null;
+    }
+
+    // count, last, p50 and p95 in milliseconds for each transition seen so far
+    public synchronized Bundle toBundle() {
+        Bundle bundle = new Bundle();
+        for (Transition transition : Transition.values()) {
+            int kind = transition.ordinal();
+            if (counts[kind] == 0) continue;
+            int size = Math.min(counts[kind], WINDOW);
+            long[] sorted = Arrays.copyOf(samples[kind], size);
+            Arrays.sort(sorted);
+            String prefix = "latency_" + transition.name().toLowerCase(Locale.ROOT);
+            bundle.putInt(prefix + "_count", counts[kind]);
+            bundle.putLong(prefix + "_last_ms", samples[kind][(counts[kind] - 1) % WINDOW]);
+            bundle.putLong(prefix + "_p50_ms", sorted[(size - 1) / 2]);
+            bundle.putLong(prefix + "_p95_ms", sorted[(int) Math.ceil(size * 0.95) - 1]);
+        }
+        return bundle;
+    }
+}
@@ -0,0 +1,107 @@
+package my.mmu.rssnewsreader.service.tts;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.util.Pair;
+import androidx.hilt.work.HiltWorker;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import dagger.assisted.Assisted;
+import dagger.assisted.AssistedInject;
+import my.mmu.rssnewsreader.data.entry.EntryRepository;
+import my.mmu.rssnewsreader.model.EntryInfo;
+
+// Renders the next few playlist entries to audio, so moving to them plays at once and does not need the engine or the network
+@HiltWorker
+public class PreSynthesisWorker extends Worker {
+
+    public static final String TAG = "PreSynthesisWorker";
+    public static final int LOOK_AHEAD = TtsExtractor.PREFETCH_WINDOW;
+
+    private final TtsPlaylist ttsPlaylist;
+    private final EntryRepository entryRepository;
+    private final AudioCache audioCache;
+
+    @AssistedInject
+    public PreSynthesisWorker(@Assisted @NonNull Context context, @Assisted @NonNull WorkerParameters workerParams, TtsPlaylist ttsPlaylist, EntryRepository entryRepository, AudioCache audioCache) {
+        super(context, workerParams);
+        this.ttsPlaylist = ttsPlaylist;
+        this.entryRepository = entryRepository;
+        this.audioCache = audioCache;
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Set<Long> attempted = new HashSet<>();
+        try (AudioRenderer renderer = new AudioRenderer(getApplicationContext())) {
+            if (!renderer.awaitReady()) {
+                Log.d(TAG, "No TTS engine available");
+                return Result.success();
+            }
+            // The playlist may move on while an entry renders, so the window is read again after each one
+            while (!isStopped()) {
+                List<Long> window = ttsPlaylist.getNextEntryIds(LOOK_AHEAD);
+                audioCache.trim(window, AudioCache.DISK_BUDGET);
+                if (audioCache.size() >= AudioCache.DISK_BUDGET) {
+                    Log.d(TAG, "Disk budget reached");
+                    break;
+                }
+
+                long next = -1;
+                Pair<String, String> spoken = null;
+                for (long id : window) {
+                    if (attempted.contains(id)) continue;
+                    spoken = ttsPlaylist.getSpokenText(id);
+                    if (spoken != null && spoken.first != null && spoken.second != null && !audioCache.contains(id, spoken.first, spoken.second)) {
+                        next = id;
+                        break;
+                    }
+                }
+                if (next < 0) break;
+                attempted.add(next);
+                // One entry that cannot be rendered is left to live TTS, the rest of the window still is
+                try {
+                    render(renderer, next, spoken.first, spoken.second);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Exception e) {
+                    Log.w(TAG, "Cannot render " + next, e);
+                }
+            }
+            return Result.success();
+        } catch (Exception e) {
+            // The work is queued again when the next article plays, a retry would only repeat the same failure
+            Log.e(TAG, "Error in pre-synthesis", e);
+            return Result.success();
+        }
+    }
+
+    private void render(AudioRenderer renderer, long entryId, String text, String language) throws Exception {
+        List<String> sentences = entryRepository.getUtterances(entryId, text);
+        if (sentences.size() < 2) {
+            return;
+        }
+        EntryInfo info = entryRepository.getEntryInfoById(entryId);
+        float speechRate = TtsPlayer.resolveSpeechRate(getApplicationContext(), info != null ? info.getTtsSpeechRate() : 0);
+
+        long start = System.currentTimeMillis();
+        File audio = audioCache.newAudioFile(entryId);
+        int[] starts = renderer.render(sentences, language, speechRate, audio, this::isStopped);
+        if (starts == null) {
+            audio.delete();
+            return;
+        }
+        audioCache.commit(entryId, audio, text, language, speechRate, starts);
+        Log.d(TAG, "Rendered " + entryId + ": " + sentences.size() + " sentences in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
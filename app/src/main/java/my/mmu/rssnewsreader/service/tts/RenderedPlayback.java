@@ -0,0 +1,124 @@
+package my.mmu.rssnewsreader.service.tts;
+
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.os.Handler;
+import android.util.Log;
+
+import java.io.IOException;
+
+// Plays an article rendered ahead of time from its file, for TtsPlayer. Everything here runs on the playback looper,
+// the MediaPlayer is created on it so its callbacks arrive there too.
+class RenderedPlayback {
+
+    private static final String TAG = TtsPlayer.TAG;
+    private static final long PROGRESS_INTERVAL = 200;
+
+    interface Listener {
+        // The seek has landed and the sentence asked for is audible
+        void onStarted();
+
+        void onCompleted();
+
+        // Polled while playing, the sentence the audio is at
+        void onSentence(int index);
+    }
+
+    private final Handler playback;
+    private final Listener listener;
+    private AudioCache.Rendering rendering;
+    private MediaPlayer player;
+    private final Runnable progress = new Runnable() {
+        @Override
+        public void run() {
+            if (player == null || rendering == null || !player.isPlaying()) {
+                return;
+            }
+            listener.onSentence(rendering.sentenceAt(player.getCurrentPosition()));
+            playback.postDelayed(this, PROGRESS_INTERVAL);
+        }
+    };
+
+    RenderedPlayback(Handler playback, Listener listener) {
+        this.playback = playback;
+        this.listener = listener;
+    }
+
+    // The rendering of the article about to be played, or null to speak it live
+    void set(AudioCache.Rendering rendering) {
+        this.rendering = rendering;
+    }
+
+    boolean isSet() {
+        return rendering != null;
+    }
+
+    boolean isPlaying() {
+        return player != null && player.isPlaying();
+    }
+
+    // Plays from the given sentence. False when it is not in the rendering, or when the file cannot be played
+    // and the rendering is dropped, the sentence then has to be spoken live.
+    boolean play(int sentence, float speechRate) {
+        if (sentence >= rendering.getSentenceCount()) {
+            return false;
+        }
+        if (player == null) {
+            MediaPlayer created = new MediaPlayer();
+            try {
+                created.setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_MEDIA)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                        .build());
+                created.setDataSource(rendering.getAudio().getPath());
+                created.prepare();
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot play rendered audio, speaking live", e);
+                created.release();
+                rendering = null;
+                return false;
+            }
+            created.setOnCompletionListener(mp -> listener.onCompleted());
+            // The position is only tracked once the seek has landed, before that it still reports the old sentence
+            created.setOnSeekCompleteListener(mp -> listener.onStarted());
+            player = created;
+        }
+        applySpeed(speechRate);
+        player.seekTo(rendering.getStart(sentence), MediaPlayer.SEEK_CLOSEST);
+        player.start();
+        return true;
+    }
+
+    // Polls the position from now on, called once the seek has landed
+    void track() {
+        playback.removeCallbacks(progress);
+        playback.post(progress);
+    }
+
+    // The audio was rendered at one rate, playback speeds it up or down to the rate the feed asks for now
+    void applySpeed(float speechRate) {
+        if (player == null || rendering == null || speechRate <= 0 || rendering.getSpeechRate() <= 0) {
+            return;
+        }
+        float speed = speechRate / rendering.getSpeechRate();
+        if (player.getPlaybackParams().getSpeed() != speed) {
+            player.setPlaybackParams(player.getPlaybackParams().setSpeed(speed));
+        }
+    }
+
+    void pause() {
+        playback.removeCallbacks(progress);
+        if (isPlaying()) {
+            player.pause();
+        }
+    }
+
+    void release() {
+        rendering = null;
+        playback.removeCallbacks(progress);
+        if (player != null) {
+            player.release();
+            player = null;
+        }
+    }
+}
@@ -16,16 +16,22 @@ import android.webkit.WebChromeClient;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
 
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.core.content.ContextCompat;
 
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Maybe;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 import my.mmu.rssnewsreader.data.entry.Entry;
 import my.mmu.rssnewsreader.data.entry.EntryRepository;
 import my.mmu.rssnewsreader.data.feed.FeedRepository;
 import my.mmu.rssnewsreader.data.playlist.PlaylistRepository;
+import my.mmu.rssnewsreader.data.translation.TranslationJobRepository;
 import my.mmu.rssnewsreader.data.sharedpreferences.SharedPreferencesRepository;
+import my.mmu.rssnewsreader.service.util.AutoTranslator;
 import my.mmu.rssnewsreader.service.util.TextUtil;
 import my.mmu.rssnewsreader.ui.webview.WebViewListener;
 
@@ -43,7 +49,6 @@ import java.net.URISyntaxException;
 import java.text.BreakIterator;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
@@ -56,6 +61,9 @@ import dagger.hilt.android.qualifiers.ApplicationContext;
 @Singleton
 public class TtsExtractor {
 
+    // Entries after the playing one that are extracted, and translated when needed, before anything else
+    public static final int PREFETCH_WINDOW = 3;
+
     private final String TAG = TtsExtractor.class.getSimpleName();
     private String currentLanguage;
     private boolean isLockedByTtsPlayer = false;
@@ -63,18 +71,21 @@ public class TtsExtractor {
     private final EntryRepository entryRepository;
     private final FeedRepository feedRepository;
     private final PlaylistRepository playlistRepository;
+    private final TranslationJobRepository translationJobRepository;
+    private final AutoTranslator autoTranslator;
     private final TextUtil textUtil;
     private final SharedPreferencesRepository sharedPreferencesRepository;
     private WebView webView;
     private String currentLink;
     private String currentTitle;
     private long currentIdInProgress;
+    private long currentFeedId;
     private boolean extractionInProgress;
     private int delayTime;
     private TtsPlayerListener ttsCallback;
     private TtsPlaylist ttsPlaylist;
     private WebViewListener webViewCallback;
-    private Date playlistDate;
+    private List<Long> prefetchWindow;
     public final String delimiter = "--####--";
     private final List<Long> failedIds = new ArrayList<>();
     private final HashMap<Long, Integer> retryCountMap = new HashMap<>();
@@ -83,12 +94,14 @@ public class TtsExtractor {
 
     @SuppressLint("SetJavaScriptEnabled")
     @Inject
-    public TtsExtractor(@ApplicationContext Context context, TtsPlaylist ttsPlaylist, EntryRepository entryRepository, FeedRepository feedRepository, PlaylistRepository playlistRepository, TextUtil textUtil, SharedPreferencesRepository sharedPreferencesRepository) {
+    public TtsExtractor(@ApplicationContext Context context, TtsPlaylist ttsPlaylist, EntryRepository entryRepository, FeedRepository feedRepository, PlaylistRepository playlistRepository, TranslationJobRepository translationJobRepository, AutoTranslator autoTranslator, TextUtil textUtil, SharedPreferencesRepository sharedPreferencesRepository) {
         this.context = context;
         this.ttsPlaylist = ttsPlaylist;
         this.entryRepository = entryRepository;
         this.feedRepository = feedRepository;
         this.playlistRepository = playlistRepository;
+        this.translationJobRepository = translationJobRepository;
+        this.autoTranslator = autoTranslator;
         this.textUtil = textUtil;
         this.sharedPreferencesRepository = sharedPreferencesRepository;
 
@@ -112,61 +125,86 @@ public class TtsExtractor {
             extractionInProgress = false;
         }
 
-        Entry entry = entryRepository.getEmptyContentEntry();
+        // The next entry is looked up on io, the extraction state is only changed on the main thread
+        Maybe.fromCallable(entryRepository::getEmptyContentEntry)
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .switchIfEmpty(Maybe.defer(this::nextRetry))
+                .subscribe(this::startExtraction,
+                        error -> Log.e(TAG, "Cannot pick the next entry to extract", error),
+                        () -> Log.d(TAG, "No entry returned by getEmptyContentEntry()"));
+    }
 
-        if (entry == null && !failedIds.isEmpty()) {
+    // A failed entry to try again once nothing is left to extract, on the main thread like everything touching failedIds
+    private Maybe<Entry> nextRetry() {
+        while (!failedIds.isEmpty()) {
             long retryId = failedIds.remove(0);
             int attempts = retryCountMap.getOrDefault(retryId, 0);
 
             if (attempts < MAX_RETRIES) {
                 retryCountMap.put(retryId, attempts + 1);
                 Log.d(TAG, "Retrying failed article ID: " + retryId + " | Attempt " + (attempts + 1));
-                entry = entryRepository.getEntryById(retryId);
-            } else {
-                Log.w(TAG, "Max retries reached for article ID: " + retryId);
-                extractAllEntries();
-                return;
+                return Maybe.fromCallable(() -> entryRepository.getEntryById(retryId))
+                        .subscribeOn(Schedulers.io())
+                        .observeOn(AndroidSchedulers.mainThread());
             }
+            Log.w(TAG, "Max retries reached for article ID: " + retryId);
         }
+        return Maybe.empty();
+    }
 
-        if (entry != null) {
-            Log.d(TAG, "Next entry: id=" + entry.getId() + ", title=" + entry.getTitle() + ", priority=" + entry.getPriority());
-            if (!extractionInProgress) {
-                Log.d(TAG, "extracting...");
-                extractionInProgress = true;
-                currentIdInProgress = entry.getId();
-                currentLink = entry.getLink();
-                currentTitle = entry.getTitle();
-                delayTime = feedRepository.getDelayTimeById(entry.getFeedId());
-                ContextCompat.getMainExecutor(context).execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        webView.loadUrl(currentLink);
-                        Log.d("Test url",currentLink);
-                    }
-                });
-                lastExtractStart = System.currentTimeMillis();
-
-                new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                    if (extractionInProgress && System.currentTimeMillis() - lastExtractStart > 30000) {
-                        Log.w(TAG, "[Timeout] Extraction stuck >30s, resetting manually");
-                        failedIds.add(currentIdInProgress);
-                        currentIdInProgress = -1;
-                        extractionInProgress = false;
-                        extractAllEntries();
-                    }
-                }, 30000);
-            }
-        }else {
-            Log.d(TAG, "No entry returned by getEmptyContentEntry()");
+    private void startExtraction(Entry entry) {
+        Log.d(TAG, "Next entry: id=" + entry.getId() + ", title=" + entry.getTitle() + ", priority=" + entry.getPriority());
+        if (extractionInProgress) {
+            return;
         }
+        Log.d(TAG, "extracting...");
+        extractionInProgress = true;
+        currentIdInProgress = entry.getId();
+        currentLink = entry.getLink();
+        currentTitle = entry.getTitle();
+        currentFeedId = entry.getFeedId();
+        lastExtractStart = System.currentTimeMillis();
+
+        Single.fromCallable(() -> feedRepository.getDelayTimeById(entry.getFeedId()))
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(delay -> {
+                    delayTime = delay;
+                    webView.loadUrl(currentLink);
+                    Log.d("Test url", currentLink);
+                }, error -> Log.e(TAG, "Cannot read the delay of feed " + entry.getFeedId(), error));
+
+        new Handler(Looper.getMainLooper()).postDelayed(() -> {
+            if (extractionInProgress && System.currentTimeMillis() - lastExtractStart > 30000) {
+                Log.w(TAG, "[Timeout] Extraction stuck >30s, resetting manually");
+                failedIds.add(currentIdInProgress);
+                currentIdInProgress = -1;
+                extractionInProgress = false;
+                extractAllEntries();
+            }
+        }, 30000);
     }
 
-    private void translateHtml(String html, String content, final long currentIdInProgress, String currentTitle) {
-        String sourceLanguage = textUtil.identifyLanguageRx(content).blockingGet();
+    private void translateHtml(String html, String content, final long currentIdInProgress, String currentTitle, long feedId) {
         String targetLanguage = sharedPreferencesRepository.getDefaultTranslationLanguage();
         setCurrentLanguage(targetLanguage, false);
 
+        // The job and feed language are read on io, and the answer is handled there too since ML Kit replies on main
+        Completable.fromAction(() -> translationJobRepository.markRunning(currentIdInProgress))
+                .andThen(Single.defer(() -> textUtil.identifyLanguageRx(currentIdInProgress, feedId, feedRepository.getLanguageById(feedId), content)))
+                .subscribeOn(Schedulers.io())
+                .observeOn(Schedulers.io())
+                .subscribe(
+                        sourceLanguage -> translateHtmlFrom(html, sourceLanguage, targetLanguage, currentIdInProgress, currentTitle),
+                        throwable -> {
+                            Log.e(TAG, "translateHtml: error identifying language", throwable);
+                            translationJobRepository.markFailed(currentIdInProgress);
+                        }
+                );
+    }
+
+    private void translateHtmlFrom(String html, String sourceLanguage, String targetLanguage, final long currentIdInProgress, String currentTitle) {
         if (!sourceLanguage.equals(targetLanguage)) {
             Log.d(TAG, "translateHtml: translating from " + sourceLanguage + " to " + targetLanguage);
 
@@ -203,13 +241,17 @@ public class TtsExtractor {
 
             translationSingle
                     .subscribeOn(Schedulers.io())
+                    .observeOn(Schedulers.io())
+                    .doOnSuccess(translatedHtml -> {
+                        entryRepository.updateHtml(translatedHtml, currentIdInProgress);
+                        String translatedContent = textUtil.extractHtmlContent(translatedHtml, delimiter);
+                        entryRepository.updateTranslated(translatedContent, currentIdInProgress);
+                        translationJobRepository.markDone(currentIdInProgress);
+                    })
+                    .doOnError(throwable -> translationJobRepository.markFailed(currentIdInProgress))
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(
                             translatedHtml -> {
-                                entryRepository.updateHtml(translatedHtml, currentIdInProgress);
-                                String translatedContent = textUtil.extractHtmlContent(translatedHtml, delimiter);
-                                entryRepository.updateTranslatedText(translatedContent, currentIdInProgress);
-                                entryRepository.updateTranslated(translatedContent, currentIdInProgress);
                                 setCurrentLanguage(targetLanguage, true);
 
                                 if (!sharedPreferencesRepository.hasTranslationToggle(currentIdInProgress)) {
@@ -224,6 +266,8 @@ public class TtsExtractor {
                                 failedIds.add(currentIdInProgress);
                             }
                     );
+        } else {
+            translationJobRepository.markSkipped(currentIdInProgress);
         }
     }
 
@@ -235,31 +279,39 @@ public class TtsExtractor {
         this.webViewCallback = callback;
     }
 
+    // Moves the prefetch window to the playlist cursor, then goes on extracting from the top of the queue
     public void prioritize() {
-        Date newPlaylistDate = playlistRepository.getLatestPlaylistCreatedDate();
-
-        if (playlistDate == null || !playlistDate.equals(newPlaylistDate)) {
-            playlistDate = newPlaylistDate;
-            entryRepository.clearPriority();
-            List<Long> playlist = stringToLongList(playlistRepository.getLatestPlaylist());
-            long lastId = entryRepository.getLastVisitedEntryId();
-            int index = playlist.indexOf(lastId);
-            int priority = 1;
-            entryRepository.updatePriority(priority, lastId);
-
-            boolean loop = true;
-            while (loop) {
-                index += 1;
-                priority += 1;
-                if (index < playlist.size()) {
-                    long id = playlist.get(index);
-                    entryRepository.updatePriority(priority, id);
-                } else {
-                    loop = false;
-                }
-            }
+        Completable.fromAction(this::slidePrefetchWindow)
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(this::extractAllEntries, error -> Log.e(TAG, "Cannot move the prefetch window", error));
+    }
+
+    // The window is the playing entry and the next PREFETCH_WINDOW. Only the entries entering or leaving it are written,
+    // in one statement, and those in it that were extracted but are still waiting for translation are translated now.
+    private synchronized void slidePrefetchWindow() {
+        List<Long> window = playlistRepository.getUpcomingEntryIds(PREFETCH_WINDOW + 1);
+        if (prefetchWindow == null) {
+            entryRepository.resetWindowPriority();
+            prefetchWindow = new ArrayList<>();
         }
-        extractAllEntries();
+        if (window.equals(prefetchWindow)) {
+            return;
+        }
+
+        List<Long> changed = new ArrayList<>();
+        for (long id : window) {
+            if (!prefetchWindow.contains(id)) changed.add(id);
+        }
+        for (long id : prefetchWindow) {
+            if (!window.contains(id)) changed.add(id);
+        }
+        entryRepository.updateWindowPriority(window, changed);
+        Log.d(TAG, "Prefetch window " + window + ", " + changed.size() + " entries re-ranked");
+        prefetchWindow = window;
+
+        autoTranslator.translateNow(window)
+                .subscribe(() -> {}, error -> Log.e(TAG, "Cannot translate the prefetch window", error));
     }
 
     public class WebClient extends WebViewClient {
@@ -292,6 +344,7 @@ public class TtsExtractor {
                                 JsonReader reader = new JsonReader(new StringReader(value));
                                 reader.setLenient(true);
                                 boolean stopExtracting = false;
+                                boolean storing = false;
                                 StringBuilder content = new StringBuilder();
                                 try {
                                     if (reader.peek() == JsonToken.STRING) {
@@ -340,42 +393,19 @@ public class TtsExtractor {
                                                     }
                                                 }
 
-                                                entryRepository.updateHtml(doc.html(), currentIdInProgress);
-
-                                                if (entryRepository.getOriginalHtmlById(currentIdInProgress) == null) {
-                                                    entryRepository.updateOriginalHtml(doc.html(), currentIdInProgress);
-                                                    entryRepository.updateContent(content.toString(), currentIdInProgress);
-                                                }
-
-                                                if (sharedPreferencesRepository.getAutoTranslate()) {
-                                                    translateHtml(doc.html(), content.toString(), currentIdInProgress, currentTitle);
-                                                }
-
                                                 if (content.toString().isEmpty()) {
                                                     stopExtracting = true;
                                                 }
 
+                                                TtsPlayerListener callback = null;
                                                 if (currentIdInProgress == ttsPlaylist.getPlayingId()) {
-                                                    if (ttsCallback != null) {
-                                                        String lang = currentLanguage != null ? currentLanguage : "en";
-
-                                                        Entry entry = entryRepository.getEntryById(currentIdInProgress);
-                                                        String contentToRead;
-
-                                                        if (isTranslated && entry != null && entry.getTranslated() != null && !entry.getTranslated().trim().isEmpty()) {
-                                                            contentToRead = entry.getTranslated();
-                                                            Log.d(TAG, "[TtsExtractor] Using translated content for TTS");
-                                                        } else {
-                                                            contentToRead = entry != null ? entry.getContent() : "";
-                                                            Log.d(TAG, "[TtsExtractor] Using original content for TTS");
-                                                        }
-
-                                                        ttsCallback.extractToTts(contentToRead, lang);
-                                                        ttsCallback = null;
-                                                    }
+                                                    callback = ttsCallback;
+                                                    ttsCallback = null;
                                                 } else {
                                                     Log.d(TAG, "not playing this ID");
                                                 }
+                                                storeExtraction(currentIdInProgress, currentTitle, currentFeedId, doc.html(), content.toString(), isTranslated, callback);
+                                                storing = true;
                                             } else {
                                                 Log.d(TAG, "Empty content");
                                             }
@@ -398,10 +428,12 @@ public class TtsExtractor {
                                     Log.d(TAG, e.getMessage());
                                     e.printStackTrace();
                                 } finally {
-                                    Log.d(TAG, "[onReceiveValue] Finally block: resetting flags for ID = " + currentIdInProgress);
-                                    currentIdInProgress = -1;
-                                    extractionInProgress = false;
-                                    extractAllEntries();
+                                    // A page being stored stays in progress until finishExtraction
+                                    if (!storing) {
+                                        Log.d(TAG, "[onReceiveValue] Finally block: resetting flags for ID = " + currentIdInProgress);
+                                        currentIdInProgress = -1;
+                                        extractionInProgress = false;
+                                    }
                                 }
 
                                 if (stopExtracting || content.toString().isEmpty()) {
@@ -409,16 +441,11 @@ public class TtsExtractor {
                                     failedIds.add(currentIdInProgress);
                                 }
 
-                                if (webViewCallback != null) {
-                                    Log.d(TAG, "Extraction complete. Notifying UI via finishedSetup()");
-                                    webViewCallback.finishedSetup();
-                                    webViewCallback = null;
-                                }
-
                                 Log.d(TAG, "[onReceiveValue] Extraction completed for ID: " + currentIdInProgress);
-                                currentIdInProgress = -1;
-                                extractionInProgress = false;
-                                extractAllEntries();
+                                // Otherwise storeExtraction goes on once the page is stored
+                                if (!storing) {
+                                    finishExtraction();
+                                }
                             }
                         });
                     }
@@ -429,6 +456,60 @@ public class TtsExtractor {
         }
     }
 
+    // Stores the page on io, then translates it and hands it to TTS when it is the entry playing.
+    // Nothing else is extracted until it is stored, or the same entry would still look empty.
+    private void storeExtraction(long id, String title, long feedId, String html, String content, boolean isTranslated, @Nullable TtsPlayerListener callback) {
+        Single.fromCallable(() -> {
+                    entryRepository.updateHtml(html, id);
+                    translationJobRepository.enqueue(id);
+
+                    if (entryRepository.getOriginalHtmlById(id) == null) {
+                        entryRepository.updateOriginalHtml(html, id);
+                        entryRepository.updateContent(content, id);
+                    }
+                    return callback != null ? textToRead(id, isTranslated) : "";
+                })
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(contentToRead -> {
+                    if (sharedPreferencesRepository.getAutoTranslate()) {
+                        translateHtml(html, content, id, title, feedId);
+                    }
+                    if (callback != null) {
+                        String lang = currentLanguage != null ? currentLanguage : "en";
+                        callback.extractToTts(contentToRead, lang);
+                    }
+                    finishExtraction();
+                }, error -> {
+                    Log.e(TAG, "Cannot store the extraction of " + id, error);
+                    failedIds.add(id);
+                    finishExtraction();
+                });
+    }
+
+    // The reader waiting for this page is told once it is stored, then the next entry is extracted
+    private void finishExtraction() {
+        currentIdInProgress = -1;
+        extractionInProgress = false;
+        if (webViewCallback != null) {
+            Log.d(TAG, "Extraction complete. Notifying UI via finishedSetup()");
+            webViewCallback.finishedSetup();
+            webViewCallback = null;
+        }
+        extractAllEntries();
+    }
+
+    @WorkerThread
+    private String textToRead(long id, boolean isTranslated) {
+        Entry entry = entryRepository.getEntryById(id);
+        if (isTranslated && entry != null && entry.getTranslated() != null && !entry.getTranslated().trim().isEmpty()) {
+            Log.d(TAG, "[TtsExtractor] Using translated content for TTS");
+            return entry.getTranslated();
+        }
+        Log.d(TAG, "[TtsExtractor] Using original content for TTS");
+        return entry != null && entry.getContent() != null ? entry.getContent() : "";
+    }
+
     public void setCurrentLanguage(String lang, boolean lock) {
         Log.d("TtsExtractor", "[setCurrentLanguage] REQUESTED lang = " + lang + ", lock = " + lock + " | current = " + currentLanguage + ", isLocked = " + isLockedByTtsPlayer);
 
@@ -445,19 +526,6 @@ public class TtsExtractor {
         Log.d("TtsExtractor", "Language set to: " + lang + " | lock=" + lock + " | isLocked=" + isLockedByTtsPlayer);
     }
 
-    public List<Long> stringToLongList(String genreIds) {
-        List<Long> list = new ArrayList<>();
-
-        String[] array = genreIds.split(",");
-
-        for (String s : array) {
-            if (!s.isEmpty()) {
-                list.add(Long.parseLong(s));
-            }
-        }
-        return list;
-    }
-
     public boolean isLocked() {
         return isLockedByTtsPlayer;
     }
@@ -5,7 +5,7 @@ import android.content.Context;
 import android.media.MediaPlayer;
 import android.net.Uri;
 import android.os.Handler;
-import android.os.Looper;
+import android.os.HandlerThread;
 import android.os.SystemClock;
 import android.provider.Settings;
 import android.speech.tts.TextToSpeech;
@@ -14,154 +14,225 @@ import android.support.v4.media.session.MediaSessionCompat;
 import android.support.v4.media.session.PlaybackStateCompat;
 import android.util.Log;
 
-import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
 
 import my.mmu.rssnewsreader.R;
 import my.mmu.rssnewsreader.data.entry.EntryRepository;
+import my.mmu.rssnewsreader.data.entry.Utterances;
+import my.mmu.rssnewsreader.data.playback.PlaybackPositionRepository;
 import my.mmu.rssnewsreader.data.sharedpreferences.SharedPreferencesRepository;
+import my.mmu.rssnewsreader.service.util.LanguageDetector;
 import my.mmu.rssnewsreader.ui.webview.WebViewActivity;
 import my.mmu.rssnewsreader.ui.webview.WebViewListener;
-import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
-import com.google.android.material.snackbar.Snackbar;
-import com.google.mlkit.nl.languageid.LanguageIdentification;
-import com.google.mlkit.nl.languageid.LanguageIdentificationOptions;
-import com.google.mlkit.nl.languageid.LanguageIdentifier;
-
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.w3c.dom.Text;
 
 import java.io.File;
-import java.io.IOException;
-import java.text.BreakIterator;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.CountDownLatch;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import dagger.hilt.android.qualifiers.ApplicationContext;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 
-
+// Playback runs on a looper of its own as a state machine. The public methods only post events, engine and
+// MediaPlayer callbacks are posted the same way, and everything about the current article is touched on that looper alone.
+// UI callbacks are posted on to the main thread.
 @Singleton
 public class TtsPlayer extends PlayerAdapter implements TtsPlayerListener {
 
     public static final String TAG = TtsPlayer.class.getSimpleName();
+    // Sentences kept queued in the engine behind the one being spoken, so it never waits on us between them
+    private static final int QUEUE_AHEAD = 3;
+
+    public enum State {
+        // No article
+        IDLE,
+        // An article is set, its sentences are still being loaded or extracted
+        PREPARING,
+        // Sentences are loaded, nothing is playing
+        READY,
+        PLAYING,
+        // A streamed article caught up with its producer, or a preview with the extraction of its body
+        WAITING_FOR_SEGMENTS,
+        // The last sentence was heard and the next article was asked for
+        FINISHED
+    }
+
+    private enum Event {
+        CREATE_ENGINE, ENGINE_READY, OPEN, PREVIEW, LOADED, LANGUAGE, SEGMENT, STREAM_FINISHED,
+        PLAY, PAUSE, RESET, SEEK, RATE, UTTERANCE_STARTED, UTTERANCE_DONE, RENDERED_STARTED, RENDERED_DONE, SHUTDOWN
+    }
+
+    private static class Article {
+        final long id;
+        final long feedId;
+        final String content;
+        final String language;
+        final boolean streaming;
+        // Sentence to start from instead of the saved position, or -1
+        final int startAt;
+
+        Article(long id, long feedId, String content, String language, boolean streaming) {
+            this(id, feedId, content, language, streaming, -1);
+        }
+
+        Article(long id, long feedId, String content, String language, boolean streaming, int startAt) {
+            this.id = id;
+            this.feedId = feedId;
+            this.content = content;
+            this.language = language;
+            this.streaming = streaming;
+            this.startAt = startAt;
+        }
+    }
+
+    private static class Loaded {
+        final long id;
+        final List<String> sentences;
+        final AudioCache.Rendering rendering;
+        final int position;
+
+        Loaded(long id, List<String> sentences, AudioCache.Rendering rendering, int position) {
+            this.id = id;
+            this.sentences = sentences;
+            this.rendering = rendering;
+            this.position = position;
+        }
+    }
+
+    private static class Segment {
+        final long id;
+        final List<String> sentences;
+
+        Segment(long id, List<String> sentences) {
+            this.id = id;
+            this.sentences = sentences;
+        }
+    }
 
-    private TextToSpeech tts;
     private PlaybackStateListener listener;
     private MediaSessionCompat.Callback callback;
-    private WebViewListener webViewCallback;
+    private volatile WebViewListener webViewCallback;
     private Context context;
     private final TtsExtractor ttsExtractor;
     private final EntryRepository entryRepository;
+    private final PlaybackPositionRepository playbackPositionRepository;
     private final SharedPreferencesRepository sharedPreferencesRepository;
-
-    private int sentenceCounter;
-    private List<String> sentences = new ArrayList<>();
-
-    private CountDownLatch countDownLatch;
+    private final LanguageDetector languageDetector;
+    private final AudioCache audioCache;
+    private final ArticlePreview articlePreview;
+    private final PlaybackLatency latency = new PlaybackLatency();
+    private final Handler playback;
+
+    // Read from any thread, written by the callers of extract, startStreaming and stopTtsPlayback
+    private volatile long currentId = 0;
+    private volatile boolean isPausedManually;
+    private volatile State state = State.IDLE;
+    // Articles asked for whose OPEN the looper has not handled yet, so isPreparing() holds from the moment one is asked for
+    private final AtomicInteger pendingOpens = new AtomicInteger();
+    // Whether initTts was called since the last stop. The engine itself is created and shut down on the looper.
+    private volatile boolean engineRequested;
+    private volatile int currentExtractProgress = 0;
+    private volatile boolean isStreaming = false;
     private int currentState;
-    private long currentId = 0;
-    private long feedId = 0;
-    private String language;
-    private boolean isInit = false;
-    private boolean isPreparing = false;
-    private boolean actionNeeded = false;
-    private boolean isPausedManually;
     private boolean webViewConnected = false;
     private boolean uiControlPlayback = false;
-    private boolean isManualSkip = false;
-    private boolean isArticleFinished = false;
-    private boolean isSettingUpNewArticle = false;
     private MediaPlayer mediaPlayer;
-    private String currentUtteranceID = null;
-    private boolean hasSpokenAfterSetup = false;
     private PlaybackUiListener playbackUiListener;
-    private int currentExtractProgress = 0;
+
+    // Owned by the playback looper
+    private TextToSpeech tts;
+    private Article article;
+    private List<String> sentences = new ArrayList<>();
+    private int sentenceCounter;
+    private String language;
+    // The sentences are the title and feed description, spoken until the extracted body replaces them
+    private boolean previewing;
+    private TextToSpeech readyEngine;
+    // Utterance ids are "generation:sentence"; every flush starts a new generation so late callbacks are ignored
+    private int queueGeneration = 0;
+    private int queuedUntil = -1;
+    private float speechRate = 0;
+    // Plays the article from its file when it was rendered ahead of time, instead of speaking it live
+    private final RenderedPlayback rendered;
 
     @Inject
-    public TtsPlayer(@ApplicationContext Context context, TtsExtractor ttsExtractor, EntryRepository entryRepository, SharedPreferencesRepository sharedPreferencesRepository) {
+    public TtsPlayer(@ApplicationContext Context context, TtsExtractor ttsExtractor, EntryRepository entryRepository, PlaybackPositionRepository playbackPositionRepository, SharedPreferencesRepository sharedPreferencesRepository, LanguageDetector languageDetector, AudioCache audioCache, ArticlePreview articlePreview) {
         super(context);
+        this.audioCache = audioCache;
+        this.articlePreview = articlePreview;
         this.ttsExtractor = ttsExtractor;
+        this.languageDetector = languageDetector;
         this.entryRepository = entryRepository;
+        this.playbackPositionRepository = playbackPositionRepository;
         this.sharedPreferencesRepository = sharedPreferencesRepository;
         this.context = context;
         this.isPausedManually = sharedPreferencesRepository.getIsPausedManually();
+
+        HandlerThread thread = new HandlerThread("tts-playback");
+        thread.start();
+        playback = new Handler(thread.getLooper(), message -> {
+            handle(Event.values()[message.what], message.obj);
+            return true;
+        });
+        rendered = new RenderedPlayback(playback, new RenderedPlayback.Listener() {
+            @Override
+            public void onStarted() {
+                send(Event.RENDERED_STARTED, null);
+            }
+
+            @Override
+            public void onCompleted() {
+                send(Event.RENDERED_DONE, null);
+            }
+
+            @Override
+            public void onSentence(int index) {
+                if (index != sentenceCounter && index < sentences.size()) {
+                    sentenceCounter = index;
+                    playbackPositionRepository.save(article.id, sentenceCounter);
+                    highlight(index);
+                }
+            }
+        });
     }
 
     @SuppressLint("SetJavaScriptEnabled")
     public void initTts(TtsService ttsService, PlaybackStateListener listener, MediaSessionCompat.Callback callback) {
         this.listener = listener;
         this.callback = callback;
-        tts = new TextToSpeech(ttsService, status -> {
+        engineRequested = true;
+        send(Event.CREATE_ENGINE, ttsService);
+    }
+
+    // Runs on the playback looper. The engine reports that it is ready on the main thread, which posts it back here,
+    // so ENGINE_READY is always handled after tts is set.
+    private void createEngine(Context service) {
+        if (tts != null) {
+            silence();
+            tts.shutdown();
+            readyEngine = null;
+        }
+        TextToSpeech[] engine = new TextToSpeech[1];
+        engine[0] = new TextToSpeech(service, status -> {
             if (status == TextToSpeech.SUCCESS) {
                 Log.d(TAG, "initTts successful");
-                isInit = true;
-
-                if (actionNeeded) {
-                    Log.d(TAG, "Deferred auto-play activated — TTS is now ready");
-                    setupTts();
-                    if (!isPausedManually) {
-                        speak();
-                    } else {
-                        Log.d(TAG, "Deferred play skipped due to manual pause");
-                    }
-                    actionNeeded = false;
-                }
+                send(Event.ENGINE_READY, engine[0]);
             }
         });
-        tts.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+        engine[0].setOnUtteranceProgressListener(new UtteranceProgressListener() {
             @Override
-            public void onStart(String s) {
-
+            public void onStart(String utteranceId) {
+                send(Event.UTTERANCE_STARTED, utteranceId);
             }
 
             @Override
-            public void onDone(String s) {
-                if (isManualSkip) {
-                    Log.d(TAG, "Manual skip — skipping sentenceCounter++ in onDone");
-                    isManualSkip = false;
-
-                    if (sentenceCounter < sentences.size() - 1) {
-                        sentenceCounter++;
-                        speak();
-                        entryRepository.updateSentCount(sentenceCounter, currentId);
-                        Log.d(TAG, "Manual skip done. Continuing at [#" + sentenceCounter + "]");
-                    } else {
-                        Log.d(TAG, "Manual skip finished last sentence. Moving to next article.");
-                        entryRepository.updateSentCount(0, currentId);
-                        sentenceCounter = 0;
-                        isArticleFinished = true;
-                        callback.onSkipToNext();
-                    }
-                    return;
-                }
-
-                if (isArticleFinished) {
-                    Log.d(TAG, "Already finished article, skipping duplicate onDone");
-                    return;
-                }
-
-                if (sentenceCounter < sentences.size() - 1) {
-                    sentenceCounter++;
-                    speak();
-                    entryRepository.updateSentCount(sentenceCounter, currentId);
-                    Log.d(TAG, "Finished [#" + sentenceCounter + "]: " + sentences.get(sentenceCounter));
-                } else {
-                    Log.d(TAG, "Finished last sentence. Moving to next article.");
-                    entryRepository.updateSentCount(0, currentId);
-                    sentenceCounter = 0;
-                    isArticleFinished = true;
-                    callback.onSkipToNext();
-                }
+            public void onDone(String utteranceId) {
+                send(Event.UTTERANCE_DONE, utteranceId);
             }
 
             @Override
@@ -169,248 +240,341 @@ public class TtsPlayer extends PlayerAdapter implements TtsPlayerListener {
                 Log.d("TTS", "onError");
             }
         });
+        tts = engine[0];
     }
 
-    public interface PlaybackUiListener {
-        void onPlaybackStarted();
-        void onPlaybackPaused();
+    private void send(Event event, Object payload) {
+        playback.obtainMessage(event.ordinal(), payload).sendToTarget();
     }
 
-    public void setPlaybackUiListener(PlaybackUiListener listener) {
-        this.playbackUiListener = listener;
+    private void onMain(Runnable runnable) {
+        ContextCompat.getMainExecutor(context).execute(runnable);
     }
 
-    public void stopTtsPlayback() {
-        if (tts != null && tts.isSpeaking()) {
-            tts.stop();
-        }
-
-        currentId = -1;
-        isPausedManually = false;
-        isPreparing = false;
-        isArticleFinished = false;
-        isSettingUpNewArticle = false;
-        setUiControlPlayback(false);
-        if (playbackUiListener != null) {
-            playbackUiListener.onPlaybackPaused();
+    // Runs on the playback looper
+    private void handle(Event event, Object payload) {
+        switch (event) {
+            case CREATE_ENGINE:
+                createEngine((Context) payload);
+                break;
+            case ENGINE_READY:
+                if (payload != tts) {
+                    return;
+                }
+                readyEngine = tts;
+                if (speechRate > 0) {
+                    tts.setSpeechRate(speechRate);
+                }
+                if (state == State.READY) {
+                    applyLanguage();
+                    if (!isPausedManually) {
+                        Log.d(TAG, "Deferred auto-play activated — TTS is now ready");
+                        startPlayback();
+                    }
+                }
+                break;
+            case OPEN:
+                open((Article) payload);
+                break;
+            case PREVIEW:
+                onPreview((Loaded) payload);
+                break;
+            case LOADED:
+                onLoaded((Loaded) payload);
+                break;
+            case LANGUAGE:
+                if (state == State.PLAYING || state == State.READY) {
+                    language = (String) payload;
+                    setEngineLanguage(new Locale(language));
+                    if (state == State.READY && !isPausedManually) {
+                        startPlayback();
+                    }
+                }
+                break;
+            case SEGMENT:
+                onSegment((Segment) payload);
+                break;
+            case STREAM_FINISHED:
+                onStreamFinished((Long) payload);
+                break;
+            case PLAY:
+                if (state == State.READY) {
+                    latency.begin(PlaybackLatency.Transition.RESUME);
+                    startPlayback();
+                } else {
+                    Log.d(TAG, "play ignored in state " + state);
+                }
+                break;
+            case PAUSE:
+                if (state == State.PLAYING || state == State.WAITING_FOR_SEGMENTS) {
+                    silence();
+                    setState(State.READY);
+                }
+                latency.cancel();
+                playbackPositionRepository.flush();
+                publishState(PlaybackStateCompat.STATE_PAUSED);
+                break;
+            case RESET:
+                silence();
+                rendered.release();
+                playbackPositionRepository.flush();
+                article = null;
+                sentences = new ArrayList<>();
+                previewing = false;
+                setState(State.IDLE);
+                break;
+            case SEEK:
+                seek((Integer) payload);
+                break;
+            case RATE:
+                setRate((Float) payload);
+                break;
+            case UTTERANCE_STARTED:
+                onUtteranceStarted(sentenceOf((String) payload));
+                break;
+            case UTTERANCE_DONE:
+                onUtteranceDone(sentenceOf((String) payload));
+                break;
+            case RENDERED_STARTED:
+                if (state == State.PLAYING) {
+                    latency.audioStarted();
+                    rendered.track();
+                }
+                break;
+            case RENDERED_DONE:
+                if (state == State.PLAYING && rendered.isSet()) {
+                    finishArticle();
+                }
+                break;
+            case SHUTDOWN:
+                silence();
+                rendered.release();
+                if (tts != null) {
+                    tts.shutdown();
+                    tts = null;
+                }
+                readyEngine = null;
+                article = null;
+                sentences = new ArrayList<>();
+                previewing = false;
+                setState(State.IDLE);
+                publishState(PlaybackStateCompat.STATE_STOPPED);
+                break;
         }
     }
 
-    public void pauseTts() {
-        if (tts != null && tts.isSpeaking()) {
-            tts.stop();
-        }
-        isPausedManually = true;
-        sharedPreferencesRepository.setIsPausedManually(true);
-        setNewState(PlaybackStateCompat.STATE_PAUSED);
-        setUiControlPlayback(false);
-        if (playbackUiListener != null) {
-            playbackUiListener.onPlaybackPaused();
+    private void setState(State next) {
+        if (state != next) {
+            Log.d(TAG, "State " + state + " -> " + next);
+            state = next;
         }
     }
 
-    public void extract(long currentId, long feedId, String content, String language) {
-        Log.d(TAG, "Switching to new article: ID=" + currentId);
+    private boolean isEngineReady() {
+        return tts != null && readyEngine == tts;
+    }
 
-        boolean wasSpeaking = tts != null && tts.isSpeaking();
-        isPausedManually = !wasSpeaking && sharedPreferencesRepository.getIsPausedManually();
-        sharedPreferencesRepository.setIsPausedManually(isPausedManually);
-        Log.d(TAG, "Detected isPausedManually = " + isPausedManually);
+    private void open(Article next) {
+        silence();
+        rendered.release();
+        // The previous article's position is written before the next one reads its own
+        playbackPositionRepository.flush();
 
-        if (tts != null && tts.isSpeaking()) {
-            Log.d(TAG, "stop current TTS");
-            tts.stop();
-        }
-
-        isPreparing = true;
-        isSettingUpNewArticle = true;
+        article = next;
         sentences = new ArrayList<>();
-        isArticleFinished = false;
-
-        this.language = language;
-        this.currentId = currentId;
-        this.feedId = feedId;
-        hasSpokenAfterSetup = false;
-        countDownLatch = new CountDownLatch(1);
-
-        if (language != null && !language.isEmpty()) {
-            ttsExtractor.setCurrentLanguage(language, true);
-            Log.d(TAG, "[extract] Locked language = " + language);
+        sentenceCounter = 0;
+        language = next.language;
+        previewing = false;
+        setState(State.PREPARING);
+        pendingOpens.decrementAndGet();
+        publishSegments();
+        if (next.content != null) {
+            load(next.id, next.content, next.language);
+        } else if (!next.streaming) {
+            loadPreview(next.id);
         }
+    }
 
-        if (content != null) {
-            new Thread(() -> {
-                extractToTts(content, language);
-
-                try {
-                    countDownLatch.await();
+    // Title and feed description of an entry that still has to be extracted, see ArticlePreview
+    private void loadPreview(long entryId) {
+        Single.fromCallable(() -> new Loaded(entryId, articlePreview.load(entryId), null, 0))
+                .subscribeOn(Schedulers.io())
+                .subscribe(preview -> send(Event.PREVIEW, preview),
+                        error -> Log.e(TAG, "Cannot load the preview of " + entryId, error));
+    }
 
-                    if (isInit) {
-                        setupTts();
-                        if (!isPausedManually) {
-                            Log.d(TAG, "TTS ready and not manually paused — auto speaking");
-                            speak();
-                        } else {
-                            Log.d(TAG, "TTS ready but paused manually — not speaking");
-                        }
-                    } else {
-                        Log.d(TAG, "TTS not initialized yet, setting actionNeeded = true");
-                        actionNeeded = true;
-                    }
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }).start();
-        } else {
-            ttsExtractor.setCallback(this);
-            ttsExtractor.prioritize();
+    private void onPreview(Loaded preview) {
+        if (article == null || preview.id != article.id || state != State.PREPARING || preview.sentences.isEmpty()) {
+            return;
         }
+        Log.d(TAG, "Speaking the preview of ID=" + preview.id + " while its body is extracted");
+        previewing = true;
+        sentences = preview.sentences;
+        sentenceCounter = 0;
+        setState(State.READY);
+        startWhenEngineReady();
     }
 
+    // Called by TtsExtractor once it has extracted the text of the entry being played
     @Override
     public void extractToTts(String content, String language) {
-        if (tts == null) {
-            Log.w(TAG, "TTS engine is not initialized.");
-            return;
-        }
+        load(currentId, content, language);
+    }
 
+    // Reads the utterances, saved position and any rendering of the text on io, then hands them to the looper
+    private void load(long entryId, String content, String language) {
         if (content == null || content.trim().isEmpty()) {
             Log.w(TAG, "extractToTts: No content provided.");
             return;
         }
-
-        sentences.clear();
-
-        String[] raw = content.split(Pattern.quote(ttsExtractor.delimiter));
-        List<String> sentenceList = new ArrayList<>(raw.length);
-        for(String part : raw) {
-            String trimmed = part.trim();
-            if(! trimmed.isEmpty()) {
-                sentenceList.add(trimmed);
-            }
-        }
-        int totalSentences = sentenceList.size();
-
-        new Thread(() -> {
-            for (int i = 0; i < sentenceList.size(); i++) {
-                String sentence = sentenceList.get(i);
-                if (sentence.length() >= TextToSpeech.getMaxSpeechInputLength()) {
-                    BreakIterator iterator = BreakIterator.getSentenceInstance();
-                    iterator.setText(sentence);
-                    int start = iterator.first();
-                    for (int end = iterator.next(); end != BreakIterator.DONE; start = end, end = iterator.next()) {
-                        sentences.add(sentence.substring(start, end));
+        Single.fromCallable(() -> {
+                    List<String> utterances = entryRepository.getUtterances(entryId, content);
+                    if (utterances.size() < 2) {
+                        return new Loaded(entryId, new ArrayList<>(), null, 0);
                     }
-                } else {
-                    sentences.add(sentence);
-                }
-
-                currentExtractProgress = Math.min((int) (((double) sentences.size() / totalSentences) * 100), 95);
-
-                if (i % 3 == 0 || i == sentenceList.size() - 1) {
-                    ContextCompat.getMainExecutor(context).execute(() -> {
-                        if (webViewCallback != null) {
-                            webViewCallback.updateLoadingProgress(currentExtractProgress);
-                        }
-                    });
-                }
-            }
+                    AudioCache.Rendering found = audioCache.find(entryId, content, language);
+                    return new Loaded(entryId, utterances,
+                            found != null && found.getSentenceCount() == utterances.size() ? found : null,
+                            playbackPositionRepository.get(entryId));
+                })
+                .subscribeOn(Schedulers.io())
+                .subscribe(loaded -> send(Event.LOADED, loaded),
+                        error -> Log.e(TAG, "extractToTts: cannot load " + entryId, error));
+    }
 
-            if (sentences.size() < 2) {
+    private void onLoaded(Loaded loaded) {
+        if (article == null || loaded.id != article.id || (state != State.PREPARING && !previewing)) {
+            Log.d(TAG, "Dropping stale load of ID=" + loaded.id);
+            return;
+        }
+        if (loaded.sentences.isEmpty()) {
+            long feedId = article.feedId;
+            onMain(() -> {
                 if (webViewCallback != null) webViewCallback.askForReload(feedId);
-                sentences.clear();
-                actionNeeded = false;
-                return;
+            });
+            if (!previewing) {
+                setState(State.IDLE);
             } else {
-                int savedProgress = entryRepository.getSentCount(currentId);
-                sentenceCounter = Math.min(savedProgress, sentences.size() - 1);
-
-                if (!isInit) {
-                    Log.d(TAG, "TTS not initialized yet");
-                    actionNeeded = true;
-                } else {
-                    Log.d(TAG, "TTS is initialized");
-                    setupTts();
+                previewing = false;
+                if (state == State.WAITING_FOR_SEGMENTS) {
+                    finishArticle();
                 }
             }
-            countDownLatch.countDown();
-        }).start();
+            return;
+        }
+        if (previewing) {
+            continueFromPreview(loaded);
+            return;
+        }
+
+        sentences = loaded.sentences;
+        rendered.set(loaded.rendering);
+        sentenceCounter = Math.min(article.startAt >= 0 ? article.startAt : loaded.position, sentences.size() - 1);
+        Log.d(TAG, "Loaded ID=" + loaded.id + ": " + sentences.size() + " sentences, rendered audio " + (rendered.isSet() ? "found" : "not found"));
+        currentExtractProgress = 95;
+        onReady();
     }
 
-    private void setupTts() {
-        ContextCompat.getMainExecutor(context).execute(() -> {
-            Log.d(TAG, "[setupTts] currentLanguage = " + language + ", isLockedByTtsPlayer = " + ttsExtractor.isLocked() + ", ttsExtractor.language = " + ttsExtractor.getCurrentLanguage());
-            if (sentences == null || sentences.isEmpty()) {
-                Log.w(TAG, "No content to read in setupTts(), skipping...");
-                return;
-            }
+    // The body replaces the preview without a gap. Preview sentences already handed to the engine still play,
+    // and the body goes on after the last of them it contains, matched by text.
+    private void continueFromPreview(Loaded body) {
+        previewing = false;
+        int heard;
+        if (state == State.PLAYING && queuedUntil >= 0) {
+            heard = queuedUntil;
+        } else if (state == State.WAITING_FOR_SEGMENTS) {
+            heard = sentenceCounter;
+        } else {
+            heard = sentenceCounter - 1;
+        }
+        int resume = Math.max(ArticlePreview.resumeAfter(sentences, heard, body.sentences), body.position);
+        sentences = body.sentences;
+        sentenceCounter = Math.min(resume, sentences.size() - 1);
+        currentExtractProgress = 95;
+        Log.d(TAG, "Body of ID=" + body.id + " arrived, continuing at [#" + sentenceCounter + "] of " + sentences.size());
+        notifyReady();
+
+        if (state == State.PLAYING && queuedUntil >= 0) {
+            // A new generation, so the preview's own callbacks are ignored and the body is queued right behind it
+            queueGeneration++;
+            queuedUntil = sentenceCounter - 1;
+            topUpQueue();
+        } else if (state == State.WAITING_FOR_SEGMENTS) {
+            startPlayback();
+        } else {
+            rendered.set(body.rendering);
+        }
+    }
 
-            isPreparing = false;
+    // The first sentences of the article are in: the UI is told, and playback starts unless the user paused it
+    private void onReady() {
+        setState(State.READY);
+        notifyReady();
+        startWhenEngineReady();
+    }
 
+    private void notifyReady() {
+        publishSegments();
+        onMain(() -> {
             if (webViewCallback != null) {
                 webViewCallback.finishedSetup();
                 webViewCallback.updateLoadingProgress(100);
                 webViewCallback.hideFakeLoading();
             }
-
             if (webViewCallback instanceof WebViewActivity) {
                 ((WebViewActivity) webViewCallback).syncLoadingWithTts();
             }
-
-            if (language == null || language.isEmpty()) {
-                Log.w(TAG, "Warning: Language is null or empty, defaulting to English.");
-                language = "en";
-            }
-
-            try {
-                Log.d(TAG, "Setting TTS language to: " + language);
-                Log.d(TAG, "setupTts() using language: " + language);
-                setLanguage(new Locale(language), true);
-            } catch (Exception e) {
-                Log.d(TAG, "Invalid locale " + e.getMessage());
-                setLanguage(Locale.ENGLISH, true);
-            }
-
-            new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                isSettingUpNewArticle = false;
-
-                if (sentences.size() > 0 && !isPausedManually && !hasSpokenAfterSetup) {
-                    hasSpokenAfterSetup = true;
-                    speak();
-                    if (webViewCallback != null) {
-                        Log.d(TAG, "Hiding fake loading after TTS starts.");
-                        webViewCallback.hideFakeLoading();
-                    } else {
-                        Log.w(TAG, "webViewCallback is null, cannot hideFakeLoading.");
-                    }
-                } else {
-                    Log.d(TAG, "TTS ready, but paused manually or no content. Waiting for user to resume.");
-                }
-            }, 200);
         });
     }
 
-    private void identifyLanguage(String sentence, boolean fromService) {
-        float confidenceThreshold = (float) sharedPreferencesRepository.getConfidenceThreshold() / 100;
+    private void startWhenEngineReady() {
+        if (!isEngineReady()) {
+            Log.d(TAG, "TTS not initialized yet, playback starts once it is");
+            return;
+        }
+        applyLanguage();
+        if (!isPausedManually) {
+            startPlayback();
+        } else {
+            Log.d(TAG, "TTS ready but paused manually — not speaking");
+        }
+    }
 
-        LanguageIdentifier languageIdentifier = LanguageIdentification.getClient(
-                new LanguageIdentificationOptions.Builder()
-                        .setConfidenceThreshold(confidenceThreshold)
-                        .build());
-        languageIdentifier.identifyLanguage(sentence)
-                .addOnSuccessListener(languageCode -> {
-                    if (languageCode.equals("und")) {
+    private void applyLanguage() {
+        if (language == null || language.isEmpty()) {
+            Log.w(TAG, "Warning: Language is null or empty, defaulting to English.");
+            language = "en";
+        }
+        try {
+            Log.d(TAG, "Setting TTS language to: " + language);
+            setEngineLanguage(new Locale(language));
+        } catch (Exception e) {
+            Log.d(TAG, "Invalid locale " + e.getMessage());
+            setEngineLanguage(Locale.ENGLISH);
+        }
+        // Lets the service attach the session metadata and take audio focus for an article opened from the reader
+        onMain(() -> callback.onCustomAction("playFromService", null));
+    }
+
+    private void identifyLanguage() {
+        // A streamed list keeps growing on this looper, a stored one never changes. Streams are always translations.
+        boolean translated = article.streaming || sharedPreferencesRepository.getIsTranslatedView(article.id);
+        languageDetector.identify(article.id, article.feedId, null, article.streaming ? new ArrayList<>(sentences) : sentences, translated)
+                .subscribe(languageCode -> {
+                    if (languageCode.equals(LanguageDetector.UNDETERMINED)) {
                         Log.i(TAG, "Can't identify language.");
-                        setLanguage(Locale.ENGLISH, fromService);
+                        send(Event.LANGUAGE, "en");
                     } else {
                         Log.i(TAG, "Language: " + languageCode);
-                        setLanguage(new Locale(languageCode), fromService);
+                        send(Event.LANGUAGE, languageCode);
                     }
-                })
-                .addOnFailureListener(Throwable::printStackTrace);
+                }, error -> {
+                    Log.w(TAG, "Cannot identify the language of " + article.id + ", speaking English", error);
+                    send(Event.LANGUAGE, "en");
+                });
     }
 
-    private void setLanguage(Locale locale, boolean fromService) {
+    private void setEngineLanguage(Locale locale) {
         if (tts == null) {
             return;
         }
@@ -421,93 +585,371 @@ public class TtsPlayer extends PlayerAdapter implements TtsPlayerListener {
 
         if (result == TextToSpeech.LANG_MISSING_DATA || result == TextToSpeech.LANG_NOT_SUPPORTED) {
             Log.d(TAG, "Language not supported" + locale);
-            if (webViewCallback != null) {
-                webViewCallback.makeSnackbar("Language not installed. Required language: " + locale.getDisplayLanguage());
-            }
+            onMain(() -> {
+                if (webViewCallback != null) {
+                    webViewCallback.makeSnackbar("Language not installed. Required language: " + locale.getDisplayLanguage());
+                }
+            });
             tts.setLanguage(Locale.ENGLISH);
-        }
-        else {
+        } else {
             Log.d(TAG, "Language successfully set to: " + locale);
         }
+    }
+
+    // From READY, or from PLAYING to restart at sentenceCounter
+    private void startPlayback() {
+        if (!isEngineReady()) {
+            Log.d(TAG, "speak() skipped — TTS not initialized yet. Waiting for init.");
+            return;
+        }
+        if (sentences.isEmpty() || sentenceCounter >= sentences.size()) {
+            Log.d(TAG, "sentenceCounter out of bounds, skipping speak()");
+            return;
+        }
+        if (sentenceCounter < 0) sentenceCounter = 0;
+        if (language == null) {
+            identifyLanguage();
+            return;
+        }
 
-        if (fromService) {
-            callback.onCustomAction("playFromService", null);
+        Log.d(TAG, "TTS Speaking [#" + sentenceCounter + "]: " + sentences.get(sentenceCounter));
+        setState(State.PLAYING);
+        if (rendered.isSet()) {
+            if (!rendered.play(sentenceCounter, speechRate)) {
+                // Past the end of the rendering or unreadable, spoken live instead
+                queueFrom(sentenceCounter);
+            }
         } else {
-            Log.d(TAG, "Language set. Waiting for speak() to be called.");
+            queueFrom(sentenceCounter);
         }
+        setUiControlPlayback(true);
+        publishState(PlaybackStateCompat.STATE_PLAYING);
+        onMain(() -> {
+            if (playbackUiListener != null) {
+                playbackUiListener.onPlaybackStarted();
+            }
+        });
+        highlight(sentenceCounter);
     }
 
-    public void speak() {
-        if (isSettingUpNewArticle) {
-            Log.d(TAG, "TTS setup in progress, skipping speak()");
-            return;
+    // The reader finds the sentence by its index, preview sentences are not in its list and are searched for by text
+    private void highlight(int index) {
+        String sentence = sentences.get(index);
+        int segment = previewing ? -1 : index;
+        onMain(() -> {
+            if (webViewCallback != null) {
+                webViewCallback.highlightText(segment, sentence);
+            }
+        });
+    }
+
+    // Hands the reader the sentences to tag its page with, a snapshot since a streamed list keeps growing
+    private void publishSegments() {
+        List<String> segments = previewing ? new ArrayList<>() : new ArrayList<>(sentences);
+        onMain(() -> {
+            if (webViewCallback != null) {
+                webViewCallback.indexSegments(segments);
+            }
+        });
+    }
+
+    // Stops whatever is audible and makes every callback still in flight stale
+    private void silence() {
+        if (tts != null) {
+            tts.stop();
         }
+        queueGeneration++;
+        queuedUntil = -1;
+        rendered.pause();
+    }
 
-        if (!isInit || tts == null) {
-            Log.d(TAG, "speak() skipped — TTS not initialized yet. Waiting for init.");
-            actionNeeded = true;
+    private void onUtteranceStarted(int index) {
+        if (state != State.PLAYING || index < 0 || index >= sentences.size()) {
             return;
         }
-        if (sentences == null || sentences.size() == 0) {
-            Log.d(TAG, "Waiting latch");
-            try {
-                countDownLatch.await();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+        latency.audioStarted();
+        sentenceCounter = index;
+        // Preview indexes mean nothing in the body, so they are not kept as the position
+        if (!previewing) {
+            playbackPositionRepository.save(article.id, sentenceCounter);
         }
-        if (sentenceCounter < 0) sentenceCounter = 0;
+        topUpQueue();
+        highlight(index);
+    }
 
-        if (sentenceCounter >= sentences.size()) {
-            Log.d(TAG, "sentenceCounter out of bounds, skipping speak()");
+    private void onUtteranceDone(int index) {
+        if (state != State.PLAYING || index < 0 || index < queuedUntil) {
+            // The next queued sentence is already playing
             return;
         }
 
-        if (sentences.size() != 0) {
-            Log.d(TAG, "speak() with language = " + language + ", sentence = " + sentences.get(sentenceCounter));
+        if (index < sentences.size() - 1) {
+            // Streamed sentences arrived after the queue ran dry
+            sentenceCounter = index + 1;
+            queueFrom(sentenceCounter);
+        } else if (article.streaming || previewing) {
+            Log.d(TAG, "Caught up with the stream. Waiting for next segment.");
+            sentenceCounter = index;
+            setState(State.WAITING_FOR_SEGMENTS);
+        } else {
+            finishArticle();
+        }
+    }
 
-            if (language == null) {
-                identifyLanguage(sentences.get(sentenceCounter), false);
+    private void finishArticle() {
+        Log.d(TAG, "Finished last sentence. Moving to next article.");
+        silence();
+        playbackPositionRepository.reset(article.id);
+        sentenceCounter = 0;
+        setState(State.FINISHED);
+        onMain(() -> callback.onSkipToNext());
+    }
+
+    private void seek(int delta) {
+        if (article == null || sentences.isEmpty()) {
+            return;
+        }
+        int target = sentenceCounter + delta;
+        if (target >= sentences.size()) {
+            if (article.streaming || previewing) {
+                Log.d(TAG, "fastForward ignored — next segment is still being produced");
             } else {
-                String sentence = sentences.get(sentenceCounter);
-                Log.d(TAG, "TTS Speaking [#" + sentenceCounter + "]: " + sentence);
-                int queueMode = isManualSkip ? TextToSpeech.QUEUE_FLUSH : TextToSpeech.QUEUE_ADD;
-                tts.speak(sentence, queueMode, null, TextToSpeech.ACTION_TTS_QUEUE_PROCESSING_COMPLETED);
-                setUiControlPlayback(true);
-                setNewState(PlaybackStateCompat.STATE_PLAYING);
-                if (playbackUiListener != null) {
-                    playbackUiListener.onPlaybackStarted();
-                }
-                if (webViewCallback != null) {
-                    webViewCallback.highlightText(sentence);
-                }
+                playbackPositionRepository.reset(article.id);
+                onMain(() -> callback.onSkipToNext());
             }
+            return;
+        }
+        if (target < 0) {
+            return;
+        }
+        sentenceCounter = target;
+        if (!previewing) {
+            playbackPositionRepository.save(article.id, sentenceCounter);
+        }
+        if (state == State.PLAYING || state == State.READY || state == State.WAITING_FOR_SEGMENTS) {
+            // Flushes the current sentence and everything queued behind it
+            latency.begin(PlaybackLatency.Transition.SEEK);
+            silence();
+            startPlayback();
         }
     }
 
-    public void fastForward() {
-        if (tts != null && sentenceCounter < sentences.size() - 1) {
-            isManualSkip = true;
+    private void onSegment(Segment segment) {
+        if (article == null || !article.streaming || segment.id != article.id) {
+            Log.d(TAG, "appendSegment ignored, stream for ID=" + segment.id + " is not active");
+            return;
+        }
+
+        boolean isFirstSegment = sentences.isEmpty();
+        sentences.addAll(segment.sentences);
+        publishSegments();
+
+        if (isFirstSegment && state == State.PREPARING) {
+            onReady();
+        } else if (state == State.WAITING_FOR_SEGMENTS) {
             sentenceCounter++;
-            entryRepository.updateSentCount(sentenceCounter, currentId);
-            tts.stop();
-            speak();
-        } else {
-            entryRepository.updateSentCount(0, currentId);
-            callback.onSkipToNext();
+            playbackPositionRepository.save(article.id, sentenceCounter);
+            Log.d(TAG, "Resuming stream at [#" + sentenceCounter + "]");
+            startPlayback();
+        } else if (state == State.PLAYING && queuedUntil >= 0) {
+            topUpQueue();
         }
     }
 
-    public void fastRewind() {
-        if (tts != null && sentenceCounter > 0) {
-            isManualSkip = true;
-            sentenceCounter--;
-            entryRepository.updateSentCount(sentenceCounter, currentId);
-            tts.stop(); // interrupt current sentence
-            speak();
+    private void onStreamFinished(long entryId) {
+        if (article == null || !article.streaming || entryId != article.id) {
+            return;
+        }
+        article = new Article(article.id, article.feedId, null, article.language, false);
+        isStreaming = false;
+        Log.d(TAG, "Stream finished for ID=" + entryId + " with " + sentences.size() + " sentences");
+
+        if (sentences.isEmpty()) {
+            setState(State.IDLE);
+        } else if (state == State.WAITING_FOR_SEGMENTS) {
+            finishArticle();
         }
     }
 
+    private void setRate(float rate) {
+        boolean changed = speechRate != 0 && speechRate != rate;
+        speechRate = rate;
+        if (tts != null) {
+            tts.setSpeechRate(rate);
+        }
+        if (rendered.isPlaying()) {
+            rendered.applySpeed(rate);
+        } else if (changed && state == State.PLAYING && queuedUntil >= 0) {
+            // Queued utterances keep the rate they were queued with, so the window is queued again from the current sentence
+            queueFrom(sentenceCounter);
+        }
+    }
+
+    // Flushes whatever the engine still holds and fills the window again from index
+    private void queueFrom(int index) {
+        TextToSpeech engine = tts;
+        if (engine == null) {
+            return;
+        }
+        queueGeneration++;
+        engine.speak(sentences.get(index), TextToSpeech.QUEUE_FLUSH, null, utteranceId(index));
+        queuedUntil = index;
+        topUpQueue();
+    }
+
+    private void topUpQueue() {
+        TextToSpeech engine = tts;
+        if (engine == null) {
+            return;
+        }
+        int last = Math.min(sentenceCounter + QUEUE_AHEAD, sentences.size() - 1);
+        while (queuedUntil < last) {
+            queuedUntil++;
+            engine.speak(sentences.get(queuedUntil), TextToSpeech.QUEUE_ADD, null, utteranceId(queuedUntil));
+        }
+    }
+
+    private String utteranceId(int index) {
+        return queueGeneration + ":" + index;
+    }
+
+    // The sentence an utterance of the current generation speaks, -1 for anything queued before the last flush
+    private int sentenceOf(String utteranceId) {
+        int separator = utteranceId != null ? utteranceId.indexOf(':') : -1;
+        if (separator < 0) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(utteranceId.substring(0, separator)) == queueGeneration
+                    ? Integer.parseInt(utteranceId.substring(separator + 1))
+                    : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public interface PlaybackUiListener {
+        void onPlaybackStarted();
+        void onPlaybackPaused();
+    }
+
+    public void setPlaybackUiListener(PlaybackUiListener listener) {
+        this.playbackUiListener = listener;
+    }
+
+    public void stopTtsPlayback() {
+        send(Event.RESET, null);
+
+        currentId = -1;
+        isPausedManually = false;
+        isStreaming = false;
+        setUiControlPlayback(false);
+        onMain(() -> {
+            if (playbackUiListener != null) {
+                playbackUiListener.onPlaybackPaused();
+            }
+        });
+    }
+
+    public void pauseTts() {
+        send(Event.PAUSE, null);
+        isPausedManually = true;
+        sharedPreferencesRepository.setIsPausedManually(true);
+        setUiControlPlayback(false);
+        onMain(() -> {
+            if (playbackUiListener != null) {
+                playbackUiListener.onPlaybackPaused();
+            }
+        });
+    }
+
+    public void extract(long currentId, long feedId, String content, String language) {
+        extract(currentId, feedId, content, language, -1);
+    }
+
+    // Starts at the given sentence rather than the saved position, e.g. the counterpart of the sentence being spoken
+    // when the reader switches between the original and the translation
+    public void extract(long currentId, long feedId, String content, String language, int startAt) {
+        Log.d(TAG, "Switching to new article: ID=" + currentId);
+
+        boolean wasSpeaking = isPlaying();
+        isPausedManually = !wasSpeaking && sharedPreferencesRepository.getIsPausedManually();
+        sharedPreferencesRepository.setIsPausedManually(isPausedManually);
+        Log.d(TAG, "Detected isPausedManually = " + isPausedManually);
+
+        latency.begin(PlaybackLatency.Transition.OPEN);
+        this.currentId = currentId;
+        isStreaming = false;
+        currentExtractProgress = 0;
+        pendingOpens.incrementAndGet();
+        send(Event.OPEN, new Article(currentId, feedId, content, language, false, startAt));
+
+        if (language != null && !language.isEmpty()) {
+            ttsExtractor.setCurrentLanguage(language, true);
+            Log.d(TAG, "[extract] Locked language = " + language);
+        }
+
+        if (content == null) {
+            ttsExtractor.setCallback(this);
+        }
+        ttsExtractor.prioritize();
+    }
+
+    // Marks the start of a move to another playlist entry, which is timed until its first sentence is heard
+    public void markSkipRequested() {
+        latency.begin(PlaybackLatency.Transition.SKIP);
+    }
+
+    // True when the article is loaded or being loaded, so preparing it again would only restart it
+    public boolean hasArticle(long entryId) {
+        return currentId == entryId && (pendingOpens.get() > 0 || state != State.IDLE);
+    }
+
+    // Prepares the player for an article whose text is still being produced (e.g. translated segment by segment).
+    // Playback starts as soon as the first segment is appended and waits whenever it catches up with the producer.
+    public void startStreaming(long currentId, long feedId, String language) {
+        Log.d(TAG, "Switching to streamed article: ID=" + currentId);
+
+        latency.begin(PlaybackLatency.Transition.OPEN);
+        this.currentId = currentId;
+        isStreaming = true;
+        currentExtractProgress = 0;
+        pendingOpens.incrementAndGet();
+        send(Event.OPEN, new Article(currentId, feedId, null, language, true));
+
+        if (language != null && !language.isEmpty()) {
+            ttsExtractor.setCurrentLanguage(language, true);
+            Log.d(TAG, "[startStreaming] Locked language = " + language);
+        }
+    }
+
+    public void appendSegment(long entryId, String segment) {
+        if (segment == null || segment.trim().isEmpty()) {
+            return;
+        }
+        send(Event.SEGMENT, new Segment(entryId, Utterances.split(segment)));
+    }
+
+    public void finishStreaming(long entryId) {
+        send(Event.STREAM_FINISHED, entryId);
+    }
+
+    public boolean isStreaming() {
+        return isStreaming;
+    }
+
+    public void speak() {
+        send(Event.PLAY, null);
+    }
+
+    public void fastForward() {
+        send(Event.SEEK, 1);
+    }
+
+    public void fastRewind() {
+        send(Event.SEEK, -1);
+    }
+
     @Override
     public boolean isPlayingMediaPlayer() {
         return mediaPlayer != null && mediaPlayer.isPlaying();
@@ -562,47 +1004,42 @@ public class TtsPlayer extends PlayerAdapter implements TtsPlayerListener {
 
     @Override
     public boolean isPlaying() {
-        return tts != null && tts.isSpeaking();
+        return state == State.PLAYING && pendingOpens.get() == 0;
     }
 
     @Override
     protected void onPlay() {
-        if (tts != null && !isPausedManually) {
+        if (engineRequested && !isPausedManually) {
             speak();
-            setNewState(PlaybackStateCompat.STATE_PLAYING);
         }
     }
 
     @Override
     protected void onPause() {
-        if (tts != null && tts.isSpeaking()) {
-            tts.stop();
-        }
-        setNewState(PlaybackStateCompat.STATE_PAUSED);
+        send(Event.PAUSE, null);
     }
 
     @Override
     protected void onStop() {
         stopMediaPlayer();
         Log.d(TAG, " player stopped");
-        if (tts != null) {
-            tts.stop();
-            tts.shutdown();
-            tts = null;
-            isInit = false;
-        }
+        engineRequested = false;
         currentId = 0;
-        setNewState(PlaybackStateCompat.STATE_STOPPED);
+        send(Event.SHUTDOWN, null);
     }
 
-    private void setNewState(@PlaybackStateCompat.State int state) {
-        if (listener != null) {
-            currentState = state;
-            final PlaybackStateCompat.Builder stateBuilder = new PlaybackStateCompat.Builder();
-            stateBuilder.setActions(getAvailableActions());
-            stateBuilder.setState(currentState, 0, 1.0f, SystemClock.elapsedRealtime());
-            listener.onPlaybackStateChange(stateBuilder.build());
-        }
+    // Published on the main thread, with the latency summary in the extras
+    private void publishState(@PlaybackStateCompat.State int state) {
+        onMain(() -> {
+            if (listener != null) {
+                currentState = state;
+                final PlaybackStateCompat.Builder stateBuilder = new PlaybackStateCompat.Builder();
+                stateBuilder.setActions(getAvailableActions());
+                stateBuilder.setState(currentState, 0, 1.0f, SystemClock.elapsedRealtime());
+                stateBuilder.setExtras(latency.toBundle());
+                listener.onPlaybackStateChange(stateBuilder.build());
+            }
+        });
     }
 
     @PlaybackStateCompat.Actions
@@ -632,21 +1069,29 @@ public class TtsPlayer extends PlayerAdapter implements TtsPlayerListener {
         return actions;
     }
 
-    public void setTtsSpeechRate(float speechRate) {
+    // A feed rate of 0 means the rate set for TTS in the system settings
+    public static float resolveSpeechRate(Context context, float speechRate) {
         if (speechRate == 0) {
             try {
                 int systemRate = Settings.Secure.getInt(context.getContentResolver(), Settings.Secure.TTS_DEFAULT_RATE);
                 speechRate = systemRate / 100.0f;
             } catch (Settings.SettingNotFoundException e) {
-                e.printStackTrace();
+                Log.w(TAG, "No system speech rate, using 1.0", e);
                 speechRate = 1.0f;
             }
         }
-        tts.setSpeechRate(speechRate);
+        return speechRate;
+    }
+
+    public void setTtsSpeechRate(float speechRate) {
+        send(Event.RATE, resolveSpeechRate(context, speechRate));
     }
 
     public void setWebViewCallback(WebViewListener listener) {
         this.webViewCallback = listener;
+        if (listener != null) {
+            playback.post(this::publishSegments);
+        }
     }
 
     public WebViewListener getWebViewCallback() {
@@ -666,7 +1111,7 @@ public class TtsPlayer extends PlayerAdapter implements TtsPlayerListener {
     }
 
     public boolean ttsIsNull() {
-        return tts == null;
+        return !engineRequested;
     }
 
     public boolean isWebViewConnected() {
@@ -699,14 +1144,22 @@ public class TtsPlayer extends PlayerAdapter implements TtsPlayerListener {
     }
 
     public boolean isPreparing() {
-        return isPreparing;
+        return pendingOpens.get() > 0 || state == State.PREPARING;
     }
 
     public boolean isSpeaking() {
-        return tts != null && tts.isSpeaking();
+        return isPlaying();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public PlaybackLatency getLatency() {
+        return latency;
     }
 
     public int getCurrentExtractProgress() {
         return currentExtractProgress;
     }
-}
\ No newline at end of file
+}
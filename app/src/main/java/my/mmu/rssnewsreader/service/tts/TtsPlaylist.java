@@ -4,9 +4,16 @@ import android.graphics.Bitmap;
 import android.support.v4.media.MediaBrowserCompat;
 import android.support.v4.media.MediaMetadataCompat;
 import android.util.Log;
+import android.util.LruCache;
 
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.core.util.Pair;
+
+import my.mmu.rssnewsreader.data.entry.Entry;
 import my.mmu.rssnewsreader.data.entry.EntryRepository;
 import my.mmu.rssnewsreader.data.playlist.PlaylistRepository;
+import my.mmu.rssnewsreader.data.sharedpreferences.SharedPreferencesRepository;
 import my.mmu.rssnewsreader.model.EntryInfo;
 import com.squareup.picasso.Picasso;
 
@@ -14,26 +21,38 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 @Singleton
 public class TtsPlaylist {
 
+    private static final String TAG = "TtsPlaylist";
+
     private final EntryRepository entryRepository;
     private final PlaylistRepository playlistRepository;
-    private MediaMetadataCompat metadata;
-    private EntryInfo entryInfo;
-    private String content;
-    private String html;
-    private Bitmap feedImage;
+    private final SharedPreferencesRepository sharedPreferencesRepository;
+    // Feed icons are shown at notification size, so they are kept downsampled and shared by every entry of the feed
+    private static final int ARTWORK_SIZE = 256;
+    private final LruCache<String, Bitmap> artworkCache = new LruCache<String, Bitmap>(4 * 1024 * 1024) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getByteCount();
+        }
+    };
+    private volatile MediaMetadataCompat metadata;
+    private volatile MediaMetadataCompat prefetched;
     private long playingId;
-    private String translated;
 
     @Inject
-    public TtsPlaylist(EntryRepository entryRepository, PlaylistRepository playlistRepository) {
+    public TtsPlaylist(EntryRepository entryRepository, PlaylistRepository playlistRepository, SharedPreferencesRepository sharedPreferencesRepository) {
         this.entryRepository = entryRepository;
         this.playlistRepository = playlistRepository;
+        this.sharedPreferencesRepository = sharedPreferencesRepository;
     }
 
     public List<MediaBrowserCompat.MediaItem> getMediaItems() {
@@ -44,46 +63,112 @@ public class TtsPlaylist {
         return result;
     }
 
+    // Reads the database and loads the feed icon, so callers run it on a background thread.
+    // The metadata crosses Binder to every controller, so it carries the entry id and small fields only, never the bodies.
+    @WorkerThread
     public MediaMetadataCompat getCurrentMetadata() {
-        Thread thread = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                entryInfo = entryRepository.getLastVisitedEntry();
-                content = entryRepository.getContentById(entryInfo.getEntryId());
-                html = entryRepository.getHtmlById(entryInfo.getEntryId());
-                String translated = entryRepository.getTranslatedTextById(entryInfo.getEntryId());
-                try {
-                    feedImage = Picasso.get().load(entryInfo.getFeedImageUrl()).get();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        });
-        thread.start();
-        try {
-            thread.join();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        long entryId = entryRepository.getLastVisitedEntryId();
+        MediaMetadataCompat next = prefetched;
+        if (next != null && entryId == Long.parseLong(next.getString(MediaMetadataCompat.METADATA_KEY_MEDIA_ID))) {
+            prefetched = null;
+            metadata = next;
+        } else {
+            metadata = buildMetadata(entryRepository.getEntryInfoById(entryId));
         }
+        return metadata;
+    }
 
-        metadata = new MediaMetadataCompat.Builder()
+    // Builds the current metadata on io and then prepares the next entry's, so a skip finds it ready
+    public Single<MediaMetadataCompat> loadCurrentMetadata() {
+        return Single.fromCallable(this::getCurrentMetadata)
+                .subscribeOn(Schedulers.io())
+                .doOnSuccess(current -> prefetchNext());
+    }
+
+    // Builds the metadata of the entry after the current one, picked up by getCurrentMetadata once the playlist moves to it
+    public void prefetchNext() {
+        Completable.fromAction(() -> {
+                    List<Long> next = getNextEntryIds(1);
+                    EntryInfo info = next.isEmpty() ? null : entryRepository.getEntryInfoById(next.get(0));
+                    if (info != null) {
+                        prefetched = buildMetadata(info);
+                    }
+                })
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> {}, error -> Log.w(TAG, "Cannot prefetch metadata", error));
+    }
+
+    private MediaMetadataCompat buildMetadata(EntryInfo entryInfo) {
+        return new MediaMetadataCompat.Builder()
                 .putString(MediaMetadataCompat.METADATA_KEY_MEDIA_ID, Long.toString(entryInfo.getEntryId()))
                 .putString(MediaMetadataCompat.METADATA_KEY_DISPLAY_TITLE, entryInfo.getFeedTitle())
                 .putString(MediaMetadataCompat.METADATA_KEY_DISPLAY_SUBTITLE, entryInfo.getEntryTitle())
                 .putString("link", entryInfo.getEntryLink())
-                .putString("content", content)
-                .putString("translated", translated)
-                .putString("html", html)
                 .putString("language", entryInfo.getFeedLanguage())
                 .putLong("date", entryInfo.getEntryPublishedDate().getTime())
-                .putBitmap(MediaMetadataCompat.METADATA_KEY_DISPLAY_ICON, feedImage)
+                .putBitmap(MediaMetadataCompat.METADATA_KEY_DISPLAY_ICON, loadArtwork(entryInfo.getFeedImageUrl()))
                 .putString("feedImageUrl", entryInfo.getFeedImageUrl())
                 .putString("entryImageUrl", entryInfo.getEntryImageUrl())
                 .putString("bookmark", entryInfo.getBookmark())
                 .putLong("feedId", entryInfo.getFeedId())
                 .putString("ttsSpeechRate", Float.toString(entryInfo.getTtsSpeechRate()))
                 .build();
-        return metadata;
+    }
+
+    private Bitmap loadArtwork(String url) {
+        if (url == null || url.isEmpty()) {
+            return null;
+        }
+        Bitmap artwork = artworkCache.get(url);
+        if (artwork == null) {
+            try {
+                artwork = Picasso.get().load(url)
+                        .resize(ARTWORK_SIZE, ARTWORK_SIZE)
+                        .centerInside()
+                        .onlyScaleDown()
+                        .get();
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot load the artwork " + url, e);
+            }
+            if (artwork != null) {
+                artworkCache.put(url, artwork);
+            }
+        }
+        return artwork;
+    }
+
+    // The text read aloud for an entry and the language to read it in, following the view the user left it in
+    @Nullable
+    @WorkerThread
+    public Pair<String, String> getSpokenText(long entryId) {
+        Entry entry = entryRepository.getEntryById(entryId);
+        EntryInfo info = entryRepository.getEntryInfoById(entryId);
+        if (entry == null || info == null) {
+            return null;
+        }
+        boolean isTranslatedView = sharedPreferencesRepository.getIsTranslatedView(entryId);
+        String original = entry.getContent();
+        String translated = entry.getTranslated();
+        String content = (isTranslatedView && translated != null && !translated.trim().isEmpty())
+                ? translated
+                : original;
+
+        String feedLanguage = info.getFeedLanguage();
+        if (feedLanguage == null || feedLanguage.isEmpty()) {
+            feedLanguage = "en";
+        }
+        String targetLanguage = sharedPreferencesRepository.getDefaultTranslationLanguage();
+        if (targetLanguage == null || targetLanguage.isEmpty()) {
+            targetLanguage = "zh";
+        }
+        return new Pair<>(content, isTranslatedView ? targetLanguage : feedLanguage);
+    }
+
+    // The entries queued after the one playing now, nearest first
+    @WorkerThread
+    public List<Long> getNextEntryIds(int count) {
+        List<Long> upcoming = playlistRepository.getUpcomingEntryIds(count + 1);
+        return upcoming.size() <= 1 ? new ArrayList<>() : new ArrayList<>(upcoming.subList(1, Math.min(upcoming.size(), count + 1)));
     }
 
     public boolean skipPrevious() {
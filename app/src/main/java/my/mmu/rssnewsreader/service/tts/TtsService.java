@@ -14,21 +14,22 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
+import androidx.core.util.Pair;
 import androidx.media.MediaBrowserServiceCompat;
 
 import java.util.List;
+import java.util.function.BooleanSupplier;
 
 import javax.inject.Inject;
 
 import dagger.hilt.android.AndroidEntryPoint;
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
 import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Maybe;
 import io.reactivex.rxjava3.functions.Action;
 import io.reactivex.rxjava3.schedulers.Schedulers;
-import my.mmu.rssnewsreader.data.entry.Entry;
-import my.mmu.rssnewsreader.data.entry.EntryRepository;
 import my.mmu.rssnewsreader.data.sharedpreferences.SharedPreferencesRepository;
-import my.mmu.rssnewsreader.model.EntryInfo;
+import my.mmu.rssnewsreader.service.rss.RssWorkManager;
 import my.mmu.rssnewsreader.ui.webview.WebViewListener;
 
 @AndroidEntryPoint
@@ -43,7 +44,7 @@ public class TtsService extends MediaBrowserServiceCompat {
     @Inject
     SharedPreferencesRepository sharedPreferencesRepository;
     @Inject
-    EntryRepository entryRepository;
+    RssWorkManager rssWorkManager;
     private TtsNotification ttsNotification;
     private static MediaSessionCompat mediaSession;
     private MediaMetadataCompat preparedData;
@@ -112,8 +113,16 @@ public class TtsService extends MediaBrowserServiceCompat {
 
     @Override
     public void onLoadChildren(@NonNull String parentId, @NonNull Result<List<MediaBrowserCompat.MediaItem>> result) {
-        preparedData = ttsPlaylist.getCurrentMetadata();
-        result.sendResult(ttsPlaylist.getMediaItems());
+        result.detach();
+        ttsPlaylist.loadCurrentMetadata()
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(metadata -> {
+                    preparedData = metadata;
+                    result.sendResult(ttsPlaylist.getMediaItems());
+                }, error -> {
+                    Log.e(TAG, "onLoadChildren: cannot load metadata", error);
+                    result.sendResult(null);
+                });
     }
 
     private final MediaSessionCompat.Callback callback = new MediaSessionCompat.Callback() {
@@ -129,37 +138,14 @@ public class TtsService extends MediaBrowserServiceCompat {
                     ttsPlayer.initTts(TtsService.this, new TtsPlayerListener(), callback);
                 }
                 long currentReadingId = sharedPreferencesRepository.getCurrentReadingEntryId();
-                boolean isTranslatedView = sharedPreferencesRepository.getIsTranslatedView(currentReadingId);
-
-                Entry entry = entryRepository.getEntryById(currentReadingId);
-                if (entry == null) {
+                Pair<String, String> spoken = ttsPlaylist.getSpokenText(currentReadingId);
+                if (spoken == null) {
                     Log.w(TAG, "Entry not found for ID: " + currentReadingId);
                     return;
                 }
-
-                String original = entry.getContent();
-                String translated = entry.getTranslated();
-
-                Log.d(TAG, "isTranslatedView = " + isTranslatedView);
-                Log.d(TAG, "original length = " + (original == null ? "null" : original.length()));
-                Log.d(TAG, "translated length = " + (translated == null ? "null" : translated.length()));
-
-                String content = (isTranslatedView && translated != null && !translated.trim().isEmpty())
-                        ? translated
-                        : original;
-
-                EntryInfo entryInfo = entryRepository.getEntryInfoById(currentReadingId);
-                String feedLanguage = entryInfo.getFeedLanguage();
-                if (feedLanguage == null || feedLanguage.isEmpty()) {
-                    feedLanguage = "en";
-                }
-
-                String targetLanguage = sharedPreferencesRepository.getDefaultTranslationLanguage();
-                if (targetLanguage == null || targetLanguage.isEmpty()) {
-                    targetLanguage = "zh";
-                }
-
-                String languageToUse = isTranslatedView ? targetLanguage : feedLanguage;
+                String content = spoken.first;
+                String languageToUse = spoken.second;
+                Log.d(TAG, "content length = " + (content == null ? "null" : content.length()) + ", language = " + languageToUse);
 
                 preparedData = ttsPlaylist.getCurrentMetadata();
                 if (!mediaSession.isActive()) {
@@ -176,9 +162,12 @@ public class TtsService extends MediaBrowserServiceCompat {
                     return;
                 }
 
-                ttsPlayer.stopTtsPlayback();
-
-                ttsPlayer.extract(mediaId, feedId, content, languageToUse);
+                // The reader may have opened this entry in the player already, preparing it again would restart it
+                if (!ttsPlayer.hasArticle(mediaId)) {
+                    ttsPlayer.stopTtsPlayback();
+                    ttsPlayer.extract(mediaId, feedId, content, languageToUse);
+                }
+                rssWorkManager.enqueuePreSynthesisWorker();
 
                 if (!ttsPlayer.isPausedManually()) {
                     ttsPlayer.speak();
@@ -226,49 +215,44 @@ public class TtsService extends MediaBrowserServiceCompat {
         @Override
         public void onSkipToNext() {
             Log.d(TAG, "onSkipToNext called");
+            skip(ttsPlaylist::skipNext);
+        }
 
+        // Moving through the playlist and reading the new entry both hit the database, so they run on io
+        private void skip(BooleanSupplier move) {
             if (ttsPlayer != null) {
+                ttsPlayer.markSkipRequested();
                 ttsPlayer.stopTtsPlayback();
                 ContextCompat.getMainExecutor(getApplicationContext()).execute(() -> ttsPlayer.showFakeLoading());
             }
 
-            if (ttsPlaylist.skipNext()) {
-                preparedData = null;
-                sharedPreferencesRepository.setCurrentReadingEntryId(
-                        Long.parseLong(ttsPlaylist.getCurrentMetadata().getString(MediaMetadataCompat.METADATA_KEY_MEDIA_ID))
-                );
-                onPrepare();
-            } else {
-                if (ttsPlayer != null) {
-                    ContextCompat.getMainExecutor(getApplicationContext()).execute(() -> ttsPlayer.hideFakeLoading());
-                    ttsPlayer.stopMediaPlayer();
-                }
+            Maybe.fromCallable(() -> move.getAsBoolean() ? ttsPlaylist.getCurrentMetadata() : null)
+                    .subscribeOn(Schedulers.io())
+                    .doOnSuccess(metadata -> ttsPlaylist.prefetchNext())
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(metadata -> {
+                        preparedData = null;
+                        sharedPreferencesRepository.setCurrentReadingEntryId(
+                                Long.parseLong(metadata.getString(MediaMetadataCompat.METADATA_KEY_MEDIA_ID))
+                        );
+                        onPrepare();
+                    }, error -> {
+                        Log.e(TAG, "skip failed", error);
+                        stopSkipping();
+                    }, this::stopSkipping);
+        }
+
+        private void stopSkipping() {
+            if (ttsPlayer != null) {
+                ContextCompat.getMainExecutor(getApplicationContext()).execute(() -> ttsPlayer.hideFakeLoading());
+                ttsPlayer.stopMediaPlayer();
             }
         }
 
         @Override
         public void onSkipToPrevious() {
             Log.d(TAG, "onSkipToPrevious called");
-
-            if (ttsPlayer != null) {
-                ttsPlayer.stopTtsPlayback();
-                ContextCompat.getMainExecutor(getApplicationContext()).execute(() -> ttsPlayer.showFakeLoading());
-            }
-
-            if (ttsPlaylist.skipPrevious()) {
-                preparedData = null;
-
-                sharedPreferencesRepository.setCurrentReadingEntryId(
-                        Long.parseLong(ttsPlaylist.getCurrentMetadata().getString(MediaMetadataCompat.METADATA_KEY_MEDIA_ID))
-                );
-
-                onPrepare();
-            } else {
-                if (ttsPlayer != null) {
-                    ContextCompat.getMainExecutor(getApplicationContext()).execute(() -> ttsPlayer.hideFakeLoading());
-                    ttsPlayer.stopMediaPlayer();
-                }
-            }
+            skip(ttsPlaylist::skipPrevious);
         }
 
         @Override
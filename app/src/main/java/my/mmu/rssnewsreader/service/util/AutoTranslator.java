@@ -4,112 +4,145 @@ import android.util.Log;
 import androidx.annotation.Nullable;
 
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import javax.inject.Inject;
 
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Flowable;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 import my.mmu.rssnewsreader.data.entry.Entry;
 import my.mmu.rssnewsreader.data.entry.EntryRepository;
+import my.mmu.rssnewsreader.data.feed.FeedRepository;
 import my.mmu.rssnewsreader.data.sharedpreferences.SharedPreferencesRepository;
-import my.mmu.rssnewsreader.service.util.TextUtil;
+import my.mmu.rssnewsreader.data.translation.TranslationJobRepository;
+import my.mmu.rssnewsreader.model.EntryInfo;
 
 public class AutoTranslator {
     private static final String TAG = "AutoTranslator";
+    // Jobs are claimed a few at a time and only this many are translated at once
+    private static final int BATCH_SIZE = 4;
+    private static final int MAX_CONCURRENT_TRANSLATIONS = 2;
 
     private final EntryRepository entryRepository;
+    private final FeedRepository feedRepository;
+    private final TranslationJobRepository translationJobRepository;
     private final TextUtil textUtil;
     private final SharedPreferencesRepository prefs;
     private final String delimiter = "--####--";
 
-    public AutoTranslator(EntryRepository entryRepository, TextUtil textUtil, SharedPreferencesRepository prefs) {
+    @Inject
+    public AutoTranslator(EntryRepository entryRepository, FeedRepository feedRepository, TranslationJobRepository translationJobRepository, TextUtil textUtil, SharedPreferencesRepository prefs) {
         this.entryRepository = entryRepository;
+        this.feedRepository = feedRepository;
+        this.translationJobRepository = translationJobRepository;
         this.textUtil = textUtil;
         this.prefs = prefs;
     }
 
-    public void runAutoTranslation(@Nullable Runnable onComplete) {
-        if (!prefs.getAutoTranslate()) {
-            Log.d(TAG, "Auto-translate disabled by user.");
-            return;
-        }
+    // Works through the pending jobs in playlist/recency order until none are left or isStopped says so
+    public Completable translatePendingJobs(BooleanSupplier isStopped) {
+        return Completable.fromAction(() -> {
+            if (!prefs.getAutoTranslate()) {
+                Log.d(TAG, "Auto-translate disabled by user.");
+                return;
+            }
 
-        List<Entry> untranslatedEntries = entryRepository.getUntranslatedEntries();
-        AtomicInteger remaining = new AtomicInteger(untranslatedEntries.size());
+            translationJobRepository.recover();
+            List<Long> ids;
+            while (!isStopped.getAsBoolean() && !(ids = translationJobRepository.claimPending(BATCH_SIZE)).isEmpty()) {
+                Flowable.fromIterable(ids)
+                        .flatMapCompletable(this::translateEntry, false, MAX_CONCURRENT_TRANSLATIONS)
+                        .blockingAwait();
+            }
+        }).subscribeOn(Schedulers.io());
+    }
+
+    // Translates those of the given entries still waiting for the worker now, whatever the device state
+    public Completable translateNow(List<Long> entryIds) {
+        return Completable.fromAction(() -> {
+            if (!prefs.getAutoTranslate()) {
+                return;
+            }
+            List<Long> ids = translationJobRepository.claimPending(entryIds);
+            if (!ids.isEmpty()) {
+                Log.d(TAG, "Translating ahead of playback: " + ids);
+                Flowable.fromIterable(ids)
+                        .flatMapCompletable(this::translateEntry, false, MAX_CONCURRENT_TRANSLATIONS)
+                        .blockingAwait();
+            }
+        }).subscribeOn(Schedulers.io());
+    }
 
-        if (untranslatedEntries.isEmpty() && onComplete != null) {
-            onComplete.run();
-            return;
+    private Completable translateEntry(long id) {
+        // The flags are read without the bodies, so an entry translated from the reader while the job was waiting
+        // is never loaded
+        EntryInfo info = entryRepository.getEntryInfoById(id);
+        if (info != null && info.hasOriginalHtml() && info.hasTranslation()) {
+            translationJobRepository.markDone(id);
+            return Completable.complete();
+        }
+        Entry entry = info != null ? entryRepository.getEntryById(id) : null;
+        if (entry == null || entry.getHtml() == null) {
+            translationJobRepository.markFailed(id);
+            return Completable.complete();
         }
 
-        for (Entry entry : untranslatedEntries) {
-            String html = entry.getHtml();
-            String content = entry.getContent();
-            String title = entry.getTitle();
-            long id = entry.getId();
-
-            if (html != null && !html.contains("translated-title")) {
-                textUtil.identifyLanguageRx(content)
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(sourceLang -> {
-                            String targetLang = prefs.getDefaultTranslationLanguage();
-                            if (!sourceLang.equalsIgnoreCase(targetLang)) {
-                                String method = prefs.getTranslationMethod();
-                                Single<String> translationSingle;
-
-                                if ("lineByLine".equalsIgnoreCase(method)) {
-                                    translationSingle = textUtil.translateHtmlLineByLine(sourceLang, targetLang, html, title, id);
-                                } else if ("paragraphByParagraph".equalsIgnoreCase(method)) {
-                                    translationSingle = textUtil.translateHtmlByParagraph(sourceLang, targetLang, html, title, id, progress-> {});
-                                } else {
-                                    translationSingle = textUtil.translateHtmlAllAtOnce(sourceLang, targetLang, html, title, id, progress -> {});
+        String html = entry.getHtml();
+        String title = entry.getTitle();
+        String targetLang = prefs.getDefaultTranslationLanguage();
+        String feedLanguage = feedRepository.getLanguageById(entry.getFeedId());
+
+        return textUtil.identifyLanguageRx(id, entry.getFeedId(), feedLanguage, entry.getContent())
+                .flatMapCompletable(sourceLang -> {
+                    if (sourceLang.equalsIgnoreCase(targetLang)) {
+                        translationJobRepository.markSkipped(id);
+                        return Completable.complete();
+                    }
+
+                    String method = prefs.getTranslationMethod();
+                    Single<String> translationSingle;
+
+                    if ("lineByLine".equalsIgnoreCase(method)) {
+                        translationSingle = textUtil.translateHtmlLineByLine(sourceLang, targetLang, html, title, id);
+                    } else if ("paragraphByParagraph".equalsIgnoreCase(method)) {
+                        translationSingle = textUtil.translateHtmlByParagraph(sourceLang, targetLang, html, title, id, progress -> {});
+                    } else {
+                        translationSingle = textUtil.translateHtmlAllAtOnce(sourceLang, targetLang, html, title, id, progress -> {});
+                    }
+
+                    return translationSingle
+                            .observeOn(Schedulers.io())
+                            .doOnSuccess(translatedHtml -> {
+                                String existingOriginal = entryRepository.getOriginalHtmlById(id);
+                                if ((existingOriginal == null || existingOriginal.trim().isEmpty()) && !html.trim().isEmpty()) {
+                                    entryRepository.updateOriginalHtml(html, id);
                                 }
+                                entryRepository.updateHtml(translatedHtml, id);
+                                String translatedContent = textUtil.extractHtmlContent(translatedHtml, delimiter);
+                                entryRepository.updateTranslated(translatedContent, id);
+                                translationJobRepository.markDone(id);
+                                Log.d(TAG, "Translated article ID: " + id);
+                            })
+                            .ignoreElement();
+                })
+                .doOnError(error -> {
+                    Log.e(TAG, "Failed to translate article ID: " + id, error);
+                    translationJobRepository.markFailed(id);
+                })
+                .onErrorComplete();
+    }
 
-                                translationSingle.subscribe(translatedHtml -> {
-                                    String existingOriginal = entryRepository.getOriginalHtmlById(id);
-                                    if ((existingOriginal == null || existingOriginal.trim().isEmpty()) && html != null && !html.trim().isEmpty()) {
-                                        entryRepository.updateOriginalHtml(html, id);
-                                    }
-                                    entryRepository.updateHtml(translatedHtml, id);
-                                    String translatedContent = textUtil.extractHtmlContent(translatedHtml, delimiter);
-                                    entryRepository.updateTranslatedText(translatedContent, id);
-                                    entryRepository.updateTranslated(translatedContent, id);
-                                    entry.setHtml(translatedHtml);
-                                    entry.setTranslated(translatedContent);
-                                    Log.d(TAG, "Original HTML saved:\n" + html);
-                                    Log.d(TAG, "Translated HTML saved:\n" + translatedHtml);
-
-                                    Log.d(TAG, "Translated article ID: " + id);
-                                    if (remaining.decrementAndGet() == 0 && onComplete != null) {
-                                        onComplete.run();
-                                    }
-
-                                }, error -> {
-                                    Log.e(TAG, "Failed to translate article ID: " + id, error);
-                                    if (remaining.decrementAndGet() == 0 && onComplete != null) {
-                                        onComplete.run();
-                                    }
-                                });
-
-                            } else {
-                                if (remaining.decrementAndGet() == 0 && onComplete != null) {
-                                    onComplete.run();
-                                }
-                            }
-
-                        }, error -> {
-                            Log.e(TAG, "Language detection failed for article ID: " + id, error);
-                            if (remaining.decrementAndGet() == 0 && onComplete != null) {
-                                onComplete.run();
-                            }
-                        });
-            } else {
-                if (remaining.decrementAndGet() == 0 && onComplete != null) {
-                    onComplete.run();
-                }
-            }
-        }
+    public void runAutoTranslation(@Nullable Runnable onComplete) {
+        translatePendingJobs(() -> false)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(() -> {
+                    if (onComplete != null) {
+                        onComplete.run();
+                    }
+                }, error -> Log.e(TAG, "Auto-translation failed", error));
     }
 
     public void runAutoTranslation() {
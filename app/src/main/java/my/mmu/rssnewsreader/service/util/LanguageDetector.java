@@ -0,0 +1,199 @@
+package my.mmu.rssnewsreader.service.util;
+
+import android.util.Log;
+import android.util.LruCache;
+
+import com.google.mlkit.nl.languageid.IdentifiedLanguage;
+import com.google.mlkit.nl.languageid.LanguageIdentification;
+import com.google.mlkit.nl.languageid.LanguageIdentificationOptions;
+import com.google.mlkit.nl.languageid.LanguageIdentifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.reactivex.rxjava3.core.Single;
+import my.mmu.rssnewsreader.data.sharedpreferences.SharedPreferencesRepository;
+
+// Shares one ML Kit identifier across the app and remembers what it found, per entry text and per feed.
+// Only a few evenly spaced segments of an article are looked at instead of the whole body.
+// The feed's language describes its articles as published, so it is never used for a translation.
+@Singleton
+public class LanguageDetector {
+    public static final String TAG = LanguageDetector.class.getSimpleName();
+    public static final String UNDETERMINED = "und";
+
+    private static final String DELIMITER = "--####--";
+    private static final int SAMPLE_SEGMENTS = 3;
+    private static final int SAMPLE_LENGTH = 400;
+    private static final int MIN_SEGMENT_LENGTH = 20;
+    // A feed whose last few entries all came out in the same language is trusted without sampling
+    private static final int TRUSTED_FEED_STREAK = 3;
+    // The feed's language wins as long as it scores at least this fraction of the best candidate
+    private static final float PRIOR_WEIGHT = 0.5f;
+    private static final int CACHED_TEXTS = 256;
+
+    private final SharedPreferencesRepository sharedPreferencesRepository;
+    // Keyed by entry and sample, so the original and the translation of an entry are told apart
+    private final LruCache<String, String> entryLanguages = new LruCache<>(CACHED_TEXTS);
+    private final Map<Long, FeedLanguage> feedLanguages = new ConcurrentHashMap<>();
+
+    private LanguageIdentifier languageIdentifier;
+    private float identifierThreshold = -1;
+
+    @Inject
+    public LanguageDetector(SharedPreferencesRepository sharedPreferencesRepository) {
+        this.sharedPreferencesRepository = sharedPreferencesRepository;
+    }
+
+    public Single<String> identify(String text) {
+        return identify(text == null ? "" : sample(Arrays.asList(text.split(DELIMITER))), null);
+    }
+
+    // The original text of an entry
+    public Single<String> identify(long entryId, long feedId, String feedLanguage, String text) {
+        return identify(entryId, feedId, feedLanguage, text == null ? new ArrayList<>() : Arrays.asList(text.split(DELIMITER)), false);
+    }
+
+    public Single<String> identify(long entryId, long feedId, String feedLanguage, List<String> segments, boolean translated) {
+        String sample = sample(segments);
+        String key = entryId + ":" + Integer.toHexString(sample.hashCode());
+        String cached = entryLanguages.get(key);
+        if (cached != null) {
+            return Single.just(cached);
+        }
+
+        FeedLanguage known = translated ? null : feedLanguages.get(feedId);
+        if (known != null && known.streak >= TRUSTED_FEED_STREAK) {
+            entryLanguages.put(key, known.language);
+            return Single.just(known.language);
+        }
+
+        String prior = translated ? null : known != null ? known.language : normalize(feedLanguage);
+        return identify(sample, prior)
+                .doOnSuccess(languageCode -> {
+                    if (!UNDETERMINED.equals(languageCode)) {
+                        entryLanguages.put(key, languageCode);
+                        if (!translated) {
+                            feedLanguages.compute(feedId, (id, previous) -> previous != null && previous.language.equals(languageCode)
+                                    ? new FeedLanguage(languageCode, previous.streak + 1)
+                                    : new FeedLanguage(languageCode, 1));
+                        }
+                    }
+                });
+    }
+
+    private Single<String> identify(String sample, String prior) {
+        if (sample.isEmpty()) {
+            return Single.just(prior != null ? prior : UNDETERMINED);
+        }
+
+        return Single.<List<IdentifiedLanguage>>create(emitter -> getIdentifier().identifyPossibleLanguages(sample)
+                        .addOnSuccessListener(emitter::onSuccess)
+                        .addOnFailureListener(emitter::onError))
+                .map(candidates -> {
+                    String languageCode = pick(candidates, prior);
+                    Log.i(TAG, "Identified language: " + languageCode);
+                    return languageCode;
+                })
+                .onErrorReturn(error -> {
+                    Log.e(TAG, "Error identifying language", error);
+                    return prior != null ? prior : UNDETERMINED;
+                });
+    }
+
+    private String pick(List<IdentifiedLanguage> candidates, String prior) {
+        IdentifiedLanguage best = null;
+        float priorConfidence = 0;
+        for (IdentifiedLanguage candidate : candidates) {
+            if (best == null || candidate.getConfidence() > best.getConfidence()) {
+                best = candidate;
+            }
+            if (candidate.getLanguageTag().equals(prior)) {
+                priorConfidence = candidate.getConfidence();
+            }
+        }
+
+        if (best == null || UNDETERMINED.equals(best.getLanguageTag())) {
+            return prior != null ? prior : UNDETERMINED;
+        }
+        if (priorConfidence > 0 && priorConfidence >= best.getConfidence() * PRIOR_WEIGHT) {
+            return prior;
+        }
+        return best.getLanguageTag();
+    }
+
+    // Picks a few segments spread over the article; a single long segment is cut into windows instead
+    private String sample(List<String> allSegments) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : allSegments) {
+            segment = segment.trim();
+            if (segment.length() >= MIN_SEGMENT_LENGTH) {
+                segments.add(segment);
+            }
+        }
+
+        if (segments.isEmpty()) {
+            return allSegments.isEmpty() ? "" : allSegments.get(0).trim();
+        }
+        if (segments.size() == 1 && segments.get(0).length() > SAMPLE_LENGTH * SAMPLE_SEGMENTS) {
+            String body = segments.get(0);
+            segments.clear();
+            int step = (body.length() - SAMPLE_LENGTH) / (SAMPLE_SEGMENTS - 1);
+            for (int i = 0; i < SAMPLE_SEGMENTS; i++) {
+                segments.add(body.substring(i * step, i * step + SAMPLE_LENGTH));
+            }
+        }
+
+        StringBuilder sample = new StringBuilder();
+        int picks = Math.min(SAMPLE_SEGMENTS, segments.size());
+        for (int i = 0; i < picks; i++) {
+            int index = picks == 1 ? 0 : i * (segments.size() - 1) / (picks - 1);
+            String segment = segments.get(index);
+            sample.append(segment.length() > SAMPLE_LENGTH ? segment.substring(0, SAMPLE_LENGTH) : segment);
+            sample.append(' ');
+        }
+        return sample.toString().trim();
+    }
+
+    // Feeds declare things like "en-US"; ML Kit answers with "en"
+    private String normalize(String language) {
+        if (language == null || language.trim().isEmpty()) {
+            return null;
+        }
+        String code = language.trim().toLowerCase(Locale.ROOT);
+        int separator = code.indexOf('-') >= 0 ? code.indexOf('-') : code.indexOf('_');
+        return separator > 0 ? code.substring(0, separator) : code;
+    }
+
+    // The identifier is rebuilt only when the user changes the confidence threshold
+    private synchronized LanguageIdentifier getIdentifier() {
+        float confidenceThreshold = (float) sharedPreferencesRepository.getConfidenceThreshold() / 100;
+        if (languageIdentifier == null || confidenceThreshold != identifierThreshold) {
+            if (languageIdentifier != null) {
+                languageIdentifier.close();
+            }
+            languageIdentifier = LanguageIdentification.getClient(new LanguageIdentificationOptions.Builder()
+                    .setConfidenceThreshold(confidenceThreshold)
+                    .build());
+            identifierThreshold = confidenceThreshold;
+        }
+        return languageIdentifier;
+    }
+
+    private static class FeedLanguage {
+        final String language;
+        final int streak;
+
+        FeedLanguage(String language, int streak) {
+            this.language = language;
+            this.streak = streak;
+        }
+    }
+}
@@ -2,11 +2,7 @@ package my.mmu.rssnewsreader.service.util;
 
 import android.util.Log;
 
-import com.google.android.gms.tasks.Tasks;
 import com.google.mlkit.common.model.DownloadConditions;
-import com.google.mlkit.nl.languageid.LanguageIdentification;
-import com.google.mlkit.nl.languageid.LanguageIdentificationOptions;
-import com.google.mlkit.nl.languageid.LanguageIdentifier;
 import com.google.mlkit.nl.translate.Translation;
 import com.google.mlkit.nl.translate.Translator;
 import com.google.mlkit.nl.translate.TranslatorOptions;
@@ -24,22 +20,27 @@ import java.util.concurrent.atomic.AtomicInteger;
 import javax.inject.Inject;
 
 import io.reactivex.rxjava3.core.Flowable;
-import io.reactivex.rxjava3.core.Maybe;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.disposables.CompositeDisposable;
 import io.reactivex.rxjava3.functions.BiConsumer;
 import io.reactivex.rxjava3.functions.Consumer;
-import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.functions.Predicate;
 import my.mmu.rssnewsreader.data.sharedpreferences.SharedPreferencesRepository;
 
 public class TextUtil {
     public static final String TAG = TextUtil.class.getSimpleName();
+    // Blocks whose text is read and translated. Only the innermost ones are used, so nested text is taken once.
+    private static final String BLOCKS = "h2, h3, h4, h5, h6, p, td, pre, th, li, figcaption, blockquote, section";
+    // Blocks the paragraph by paragraph translation translates, the others keep their text
+    private static final List<String> PARAGRAPHS = Arrays.asList("p", "section", "blockquote");
     private final CompositeDisposable compositeDisposable;
     private final SharedPreferencesRepository sharedPreferencesRepository;
+    private final LanguageDetector languageDetector;
 
     @Inject
-    public TextUtil(SharedPreferencesRepository sharedPreferencesRepository) {
+    public TextUtil(SharedPreferencesRepository sharedPreferencesRepository, LanguageDetector languageDetector) {
         this.sharedPreferencesRepository = sharedPreferencesRepository;
+        this.languageDetector = languageDetector;
         compositeDisposable = new CompositeDisposable();
     }
 
@@ -51,9 +52,7 @@ public class TextUtil {
         Document doc = Jsoup.parse(html);
         StringBuilder content = new StringBuilder();
 
-        // Using CSS selector to directly access the required elements
-        String cssQuery = "h2, h3, h4, h5, h6, p, td, pre, th, li, figcaption, blockquote, section";
-        Elements elements = doc.select(cssQuery);
+        Elements elements = leafBlocks(doc);
 
         // Iterate over the selected elements and append them to the StringBuilder
         for (Element element : elements) {
@@ -64,6 +63,17 @@ public class TextUtil {
         return content.toString().trim();  // Return the trimmed result to remove the last delimiter
     }
 
+    // The blocks that hold no other block, in document order
+    static Elements leafBlocks(Element root) {
+        Elements leaves = new Elements();
+        for (Element element : root.select(BLOCKS)) {
+            if (element.select(BLOCKS).size() == 1) {
+                leaves.add(element);
+            }
+        }
+        return leaves;
+    }
+
     // Translate text element by element
     // Pro: Preserves the HTML structure of the text (e.g. <h1> remains <h1>, <h2> remains <h2>, <p> remains <p>)
     // Con: Slower performance (e.g. translating a very long content (198 elements) can take up to 5 minutes.
@@ -71,94 +81,73 @@ public class TextUtil {
     // Note: Specifying maxConcurrency in x.flatMap (tried with 10 and 100) showed no noticeable difference in performance
     //        compared to leaving it unspecified.
     public Single<String> translateHtmlLineByLine(String sourceLanguage, String targetLanguage, String html, String title, long articleId, Consumer<Integer> progressCallback) {
-        Log.d(TAG, "translateHtmlLineByLine: from " + sourceLanguage + " to " + targetLanguage);
-        return Single.create(emitter -> {
-            try {
-                // First, translate the title
-                translateText(sourceLanguage, targetLanguage, title)
-                        .flatMap(translatedTitle -> {
-                            // Parse the HTML
-                            Document document = Jsoup.parse(html);
-                            // List of tags to extract text from
-                            List<String> tags = Arrays.asList("h2", "h3", "h4", "h5", "h6", "p", "td", "pre", "th", "li", "figcaption", "blockquote", "section");
-                            // Get all elements with the specified tags
-                            Elements elements = document.select(String.join(",", tags));
-
-                            // Check if the translated title has already been prepended
-                            Element existingTitleElement = document.select("p.translated-title").first();
-                            if (existingTitleElement == null) {
-                                Element titleParagraph = new Element(Tag.valueOf("p"), "");
-                                titleParagraph.text(translatedTitle);
-                                titleParagraph.addClass("translated-title");
-                                titleParagraph.attr("data-article-id", String.valueOf(articleId));
-                                document.body().prependChild(titleParagraph);
-                            }
+        return translateHtmlLineByLine(sourceLanguage, targetLanguage, html, title, articleId, progressCallback, segment -> {});
+    }
 
-                            AtomicInteger translatedElements = new AtomicInteger(0);
-                            // Create a Flowable from the elements
-                            return Flowable.fromIterable(elements)
-                                    .flatMapMaybe(element -> {
-                                        if (element.hasText()) {
-                                            return translateText(sourceLanguage, targetLanguage, element.text())
-                                                    .map(translatedText -> {
-                                                        element.text(translatedText);
-                                                        return translatedText;
-                                                    })
-                                                    .toMaybe();
-                                        }
-                                        return Maybe.empty();
-                                    })
-                                    .doOnNext(translatedText -> {
-                                        // Emit progress update
-                                        int progress = (int) (100.0 * (translatedElements.incrementAndGet()) / elements.size());
-                                        progressCallback.accept(progress);
-                                    })
-                                    .toList()
-                                    .map(ignored -> document.outerHtml());
-                        })
-                        .subscribe(
-                                emitter::onSuccess,
-                                emitter::onError
-                        );
-            } catch (Exception e) {
-                emitter.onError(e);
-            }
-        });
+    // Same as above, but also hands every translated segment (title first, then each block in document order)
+    // to segmentCallback as soon as it and all the segments before it are available, so TTS can start early.
+    public Single<String> translateHtmlLineByLine(String sourceLanguage, String targetLanguage, String html, String title, long articleId, Consumer<Integer> progressCallback, Consumer<String> segmentCallback) {
+        Log.d(TAG, "translateHtmlLineByLine: from " + sourceLanguage + " to " + targetLanguage);
+        return translateBlocks(sourceLanguage, targetLanguage, html, title, articleId, block -> true, progressCallback, segmentCallback);
     }
 
     public Single<String> translateHtmlLineByLine(String sourceLanguage, String targetLanguage, String html, String title, long articleId) {
-        Log.d(TAG, "translateHtmlLineByLine: from " + sourceLanguage + " to " + targetLanguage);
+        return translateHtmlLineByLine(sourceLanguage, targetLanguage, html, title, articleId, progress -> {}, segment -> {});
+    }
+
+    // Translates the leaf blocks accepted by translate concurrently, and hands the text of every leaf block to
+    // segmentCallback in document order, translated or not. The segments are then exactly the ones
+    // extractHtmlContent reads from the translated html later, so a streamed sentence keeps its index once the
+    // stored translation replaces the stream.
+    private Single<String> translateBlocks(String sourceLanguage, String targetLanguage, String html, String title, long articleId,
+                                           Predicate<Element> translate, Consumer<Integer> progressCallback, Consumer<String> segmentCallback) {
         return Single.create(emitter -> {
             try {
                 // First, translate the title
                 translateText(sourceLanguage, targetLanguage, title)
                         .flatMap(translatedTitle -> {
-                            // Parse the HTML
                             Document document = Jsoup.parse(html);
-                            // List of tags to extract text from
-                            List<String> tags = Arrays.asList("h2", "h3", "h4", "h5", "h6", "p", "td", "pre", "th", "li", "figcaption", "blockquote", "section");
-                            // Get all elements with the specified tags
-                            Elements elements = document.select(String.join(",", tags));
 
-                            Element existingTitleElement = document.select("p.translated-title").first();
-                            if (existingTitleElement == null) {
-                                Element titleParagraph = new Element(Tag.valueOf("p"), "");
-                                titleParagraph.text(translatedTitle);
+                            // A translated title prepended before is translated again rather than read as a block
+                            Element titleParagraph = document.selectFirst("p.translated-title");
+                            if (titleParagraph == null) {
+                                titleParagraph = new Element(Tag.valueOf("p"), "");
                                 titleParagraph.addClass("translated-title");
                                 titleParagraph.attr("data-article-id", String.valueOf(articleId));
                                 document.body().prependChild(titleParagraph);
                             }
-
-                            // Create a Flowable from the elements
-                            return Flowable.fromIterable(elements)
-                                    .flatMapMaybe(element -> {
-                                        if (element.hasText()) {
-                                            return translateText(sourceLanguage, targetLanguage, element.text()).map(translateText -> {
-                                                element.text(translateText);
-                                                return translateText;
-                                            }).toMaybe();
+                            titleParagraph.text(translatedTitle);
+                            segmentCallback.accept(titleParagraph.text());
+
+                            Elements blocks = leafBlocks(document.body());
+                            blocks.remove(titleParagraph);
+
+                            AtomicInteger handedOn = new AtomicInteger(0);
+                            // concatMapEager still translates concurrently but emits in document order
+                            return Flowable.fromIterable(blocks)
+                                    .concatMapEager(block -> {
+                                        if (!block.hasText()) {
+                                            return Flowable.<String>empty();
+                                        }
+                                        if (!translate.test(block)) {
+                                            return Flowable.just(block.text());
+                                        }
+                                        return translateText(sourceLanguage, targetLanguage, block.text())
+                                                .map(translatedText -> {
+                                                    block.text(translatedText);
+                                                    // Normalized the way extractHtmlContent will read it
+                                                    return block.text();
+                                                })
+                                                .toFlowable();
+                                    })
+                                    .doOnNext(segment -> {
+                                        segmentCallback.accept(segment);
+                                        int progress = (int) (100.0 * handedOn.incrementAndGet() / blocks.size());
+                                        try {
+                                            progressCallback.accept(progress);
+                                        } catch (Throwable callbackException) {
+                                            Log.e(TAG, "Progress callback failed", callbackException);
                                         }
-                                        return Maybe.empty();
                                     })
                                     .toList()
                                     .map(ignored -> document.outerHtml());
@@ -189,18 +178,22 @@ public class TextUtil {
     // 3. The accuracy of translation can sometimes be compromised, resulting in unusual or unexpected translations.
     // 4. MLKit uses English as an intermediate language for translation. For example, when translating from Chinese to Malay, the process is actually Chinese -> English -> Malay. This indirect translation process may affect the quality of the final translation.
     public Single<String> translateHtmlAllAtOnce(String sourceLanguage, String targetLanguage, String html, String title, long articleId, Consumer<Integer> progressCallback) {
+        return translateHtmlAllAtOnce(sourceLanguage, targetLanguage, html, title, articleId, progressCallback, segment -> {});
+    }
+
+    // The body comes back from a single translation call here, so only the title can be streamed early;
+    // the body segments are handed to segmentCallback in order once the combined text is split again.
+    public Single<String> translateHtmlAllAtOnce(String sourceLanguage, String targetLanguage, String html, String title, long articleId, Consumer<Integer> progressCallback, Consumer<String> segmentCallback) {
         Log.d(TAG, "translateHtmlAllAtOnce: from " + sourceLanguage + " to " + targetLanguage);
         return Single.create(emitter -> {
             try {
                 // First, translate the title
                 translateText(sourceLanguage, targetLanguage, title)
+                        .doOnSuccess(segmentCallback)
                         .flatMap(translatedTitle -> {
                             // Parse the HTML
                             Document document = Jsoup.parse(html);
-                            // List of tags to extract text from
-                            List<String> tags = Arrays.asList("h2", "h3", "h4", "h5", "h6", "p", "td", "pre", "th", "li", "figcaption", "blockquote", "section");
-                            // Get all elements with the specified tags
-                            Elements elements = document.select(String.join(",", tags));
+                            Elements elements = leafBlocks(document.body());
 
                             // Check if the translated title has already been prepended
                             Element existingTitleElement = document.select("p.translated-title").first();
@@ -256,6 +249,9 @@ public class TextUtil {
                                         Log.d(TAG, "translateHtml: translatedText: " + translatedText);
                                         String[] translatedTexts = translatedText.split("((\\+ *){1,} *(@ *)* *(\\+ *){1,})|((\\+ *)* *(@ *){2,} *(\\+ *)*)");
                                         Log.d(TAG, "translateHtml: totalTextstoTranslate: " + elements.size() + ", totalTranslatedTexts: " + translatedTexts.length);
+                                        for (String translatedSegment : translatedTexts) {
+                                            segmentCallback.accept(translatedSegment);
+                                        }
                                         // If total translatedTexts is less or equal than the total elements, replace the text then remove additional elements
                                         if (translatedTexts.length <= elements.size()) {
                                             for (int i = 0; i < translatedTexts.length; i++) {
@@ -302,61 +298,15 @@ public class TextUtil {
     }
 
     public Single<String> translateHtmlByParagraph(String sourceLanguage, String targetLanguage, String html, String title, long articleId, Consumer<Integer> progressCallback) {
-        Log.d(TAG, "translateHtmlByParagraph: from " + sourceLanguage + " to " + targetLanguage);
-        Log.d(TAG, "translateHtmlByParagraph CALLED");
-        return Single.create(emitter -> {
-            try {
-                translateText(sourceLanguage, targetLanguage, title)
-                        .flatMap(translatedTitle -> {
-                            Document document = Jsoup.parse(html);
-                            List<String> tags = Arrays.asList("p", "section", "blockquote");
-                            Elements paragraphs = document.select(String.join(",", tags));
-                            Log.d(TAG, "Found " + paragraphs.size() + " paragraphs for translation");
-
-                            Element existingTitleElement = document.select("p.translated-title").first();
-                            if (existingTitleElement == null) {
-                                Element titleParagraph = new Element(Tag.valueOf("p"), "");
-                                titleParagraph.text(translatedTitle);
-                                titleParagraph.addClass("translated-title");
-                                titleParagraph.attr("data-article-id", String.valueOf(articleId));
-                                document.body().prependChild(titleParagraph);
-                            }
+        return translateHtmlByParagraph(sourceLanguage, targetLanguage, html, title, articleId, progressCallback, segment -> {});
+    }
 
-                            AtomicInteger translatedCount = new AtomicInteger(0);
-                            int total = paragraphs.size();
-
-                            return Flowable.fromIterable(paragraphs)
-                                    .flatMapMaybe(paragraph -> {
-                                        if (paragraph.hasText()) {
-                                            return translateText(sourceLanguage, targetLanguage, paragraph.text())
-                                                    .map(translatedText -> {
-                                                        paragraph.text(translatedText);
-                                                        int progress = (int) ((translatedCount.incrementAndGet() / (float) total) * 100);
-                                                        try {
-                                                            progressCallback.accept(progress);
-                                                        } catch (Exception e) {
-                                                            Log.e(TAG, "Progress callback failed", e);
-                                                        }
-                                                        return translatedText;
-                                                    }).toMaybe();
-                                        }
-                                        return Maybe.empty();
-                                    })
-                                    .toList()
-                                    .map(ignored -> document.outerHtml());
-                        })
-                        .subscribe(
-                                emitter::onSuccess,
-                                error -> {
-                                    Log.e(TAG, "Error during paragraph translation", error);
-                                    emitter.onError(error);
-                                }
-                        );
-            } catch (Exception e) {
-                Log.e(TAG, "Unexpected error in translateHtmlByParagraph", e);
-                emitter.onError(e);
-            }
-        });
+    // Only paragraphs are translated, headings, list items and table cells keep their text but are still streamed
+    public Single<String> translateHtmlByParagraph(String sourceLanguage, String targetLanguage, String html, String title, long articleId, Consumer<Integer> progressCallback, Consumer<String> segmentCallback) {
+        Log.d(TAG, "translateHtmlByParagraph: from " + sourceLanguage + " to " + targetLanguage);
+        return translateBlocks(sourceLanguage, targetLanguage, html, title, articleId,
+                block -> PARAGRAPHS.contains(block.tagName()), progressCallback, segmentCallback)
+                .doOnError(error -> Log.e(TAG, "Error during paragraph translation", error));
     }
 
     public Single<String> translateText(String sourceLanguage, String targetLanguage, String text) {
@@ -389,32 +339,12 @@ public class TextUtil {
     }
 
     public Single<String> identifyLanguageRx(String sentence) {
-        float confidenceThreshold = (float) sharedPreferencesRepository.getConfidenceThreshold() / 100;
-
-        LanguageIdentificationOptions options = new LanguageIdentificationOptions.Builder()
-                .setConfidenceThreshold(confidenceThreshold)
-                .build();
-
-        LanguageIdentifier languageIdentifier = LanguageIdentification.getClient(options);
-
-        return Single.fromCallable(() -> languageIdentifier.identifyLanguage(sentence))
-                .subscribeOn(Schedulers.io())
-                .map(languageCodeTask -> {
-                    try {
-                        String languageCode = Tasks.await(languageCodeTask);
-                        if ("und".equals(languageCode)) {
-                            Log.i(TAG, "Unable to identify language.");
-                            return "und";
-                        } else {
-                            Log.i(TAG, "Identified language: " + languageCode);
-                            return languageCode;
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error identifying language", e);
-                        return "und";
-                    }
-                })
-                .onErrorReturnItem("und");
+        return languageDetector.identify(sentence);
+    }
+
+    // Cached per entry, and the feed's language is preferred when the sample is ambiguous
+    public Single<String> identifyLanguageRx(long entryId, long feedId, String feedLanguage, String content) {
+        return languageDetector.identify(entryId, feedId, feedLanguage, content);
     }
 
     public void onDestroy() {
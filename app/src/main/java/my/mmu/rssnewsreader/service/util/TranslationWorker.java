@@ -0,0 +1,39 @@
+package my.mmu.rssnewsreader.service.util;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.hilt.work.HiltWorker;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import dagger.assisted.Assisted;
+import dagger.assisted.AssistedInject;
+
+@HiltWorker
+public class TranslationWorker extends Worker {
+
+    public static final String TAG = "TranslationWorker";
+
+    private AutoTranslator autoTranslator;
+
+    @AssistedInject
+    public TranslationWorker(@Assisted @NonNull Context context, @Assisted @NonNull WorkerParameters workerParams, AutoTranslator autoTranslator) {
+        super(context, workerParams);
+        this.autoTranslator = autoTranslator;
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        try {
+            Log.d(TAG, "Working through pending translation jobs...");
+            autoTranslator.translatePendingJobs(this::isStopped).blockingAwait();
+            return Result.success();
+        } catch (Exception e) {
+            Log.e(TAG, "Error in auto-translation: " + e.getMessage());
+            return Result.retry();
+        }
+    }
+}
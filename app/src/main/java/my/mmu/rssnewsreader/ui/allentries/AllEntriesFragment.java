@@ -3,8 +3,6 @@ package my.mmu.rssnewsreader.ui.allentries;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -33,17 +31,17 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
+import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
 import io.reactivex.rxjava3.disposables.CompositeDisposable;
 import io.reactivex.rxjava3.disposables.Disposable;
 import my.mmu.rssnewsreader.R;
-import my.mmu.rssnewsreader.data.entry.Entry;
-import my.mmu.rssnewsreader.data.entry.EntryRepository;
 import my.mmu.rssnewsreader.data.sharedpreferences.SharedPreferencesRepository;
 import my.mmu.rssnewsreader.service.tts.TtsPlayer;
 import my.mmu.rssnewsreader.service.tts.TtsPlaylist;
 import my.mmu.rssnewsreader.databinding.FragmentAllEntriesBinding;
 
 import my.mmu.rssnewsreader.model.EntryInfo;
+import my.mmu.rssnewsreader.model.EntrySearchResult;
 import my.mmu.rssnewsreader.service.util.AutoTranslator;
 import my.mmu.rssnewsreader.service.util.TextUtil;
 import my.mmu.rssnewsreader.ui.webview.WebViewActivity;
@@ -54,9 +52,7 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
 import java.util.Objects;
 
 import javax.inject.Inject;
@@ -76,6 +72,7 @@ public class AllEntriesFragment extends Fragment implements EntryItemAdapter.Ent
     private List<EntryInfo> entries = new ArrayList<>();
     private String sortBy;
     private String filterBy = "all";
+    private String searchQuery = "";
     private String title;
     private long feedId;
     private List<EntryInfo> selectedEntries = new ArrayList<>();
@@ -90,7 +87,7 @@ public class AllEntriesFragment extends Fragment implements EntryItemAdapter.Ent
     @Inject
     SharedPreferencesRepository sharedPreferencesRepository;
     @Inject
-    EntryRepository entryRepository;
+    TextUtil textUtil;
 
     private boolean isSelectionMode = false;
     private WebViewViewModel webViewViewModel;
@@ -123,25 +120,35 @@ public class AllEntriesFragment extends Fragment implements EntryItemAdapter.Ent
             public void onItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
             }
 
+            // Pages and placeholders come and go at the end of the list, only changes at the top scroll back up
             @Override
             public void onItemRangeInserted(int positionStart, int itemCount) {
-                entriesRecycler.scrollToPosition(0);
+                if (positionStart == 0) entriesRecycler.scrollToPosition(0);
 
             }
 
             @Override
             public void onItemRangeRemoved(int positionStart, int itemCount) {
-                entriesRecycler.scrollToPosition(0);
+                if (positionStart == 0) entriesRecycler.scrollToPosition(0);
 
             }
 
             @Override
             public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
-                entriesRecycler.scrollToPosition(0);
+                if (toPosition == 0) entriesRecycler.scrollToPosition(0);
 
             }
         });
         entriesRecycler.setAdapter(adapter);
+        entriesRecycler.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager != null && searchQuery.isEmpty()) {
+                    allEntriesViewModel.onVisibleRangeChanged(layoutManager.findFirstVisibleItemPosition(), layoutManager.findLastVisibleItemPosition());
+                }
+            }
+        });
 
         sortBy = allEntriesViewModel.getSortBy();
 
@@ -196,13 +203,19 @@ public class AllEntriesFragment extends Fragment implements EntryItemAdapter.Ent
                 } else {
                     emptyContainer.setVisibility(View.GONE);
                     entriesRecycler.setVisibility(View.VISIBLE);
-                    if (sortBy.equals("oldest")) {
-                        Collections.sort(entries, new EntryInfo.OldestComparator());
-                    } else {
-                        Collections.sort(entries, new EntryInfo.LatestComparator());
-                    }
                 }
-                adapter.submitList(new ArrayList<>(entries));
+                if (searchQuery.isEmpty()) {
+                    adapter.submitList(allEntriesViewModel.withPlaceholders(entries));
+                }
+            }
+        });
+
+        allEntriesViewModel.getSearchResults().observe(getViewLifecycleOwner(), new Observer<List<EntrySearchResult>>() {
+            @Override
+            public void onChanged(List<EntrySearchResult> results) {
+                if (!searchQuery.isEmpty()) {
+                    adapter.submitList(new ArrayList<>(results));
+                }
             }
         });
 
@@ -224,12 +237,11 @@ public class AllEntriesFragment extends Fragment implements EntryItemAdapter.Ent
                 allEntriesViewModel.getEntriesByFeed(feedId, filterBy);
 
                 allEntriesViewModel.getAllEntries().observe(getViewLifecycleOwner(), entries -> {
-                    this.entries = entries;
-                    adapter.submitList(entries);
-
                     if (autoTranslator != null) {
                         autoTranslator.runAutoTranslation(() -> {
-                            adapter.submitList(new ArrayList<>(entries));
+                            if (searchQuery.isEmpty()) {
+                                adapter.submitList(allEntriesViewModel.withPlaceholders(this.entries));
+                            }
                         });
                     } else {
                         Log.e("AutoTranslator", "autoTranslator is null when attempting to translate");
@@ -273,13 +285,12 @@ public class AllEntriesFragment extends Fragment implements EntryItemAdapter.Ent
 
                         @Override
                         public boolean onQueryTextChange(String newText) {
-                            final String query = newText.toLowerCase(Locale.ROOT);
-                            final List<EntryInfo> filteredEntries = new ArrayList<>();
-                            for (EntryInfo entryInfo : entries) {
-                                final String entryTitle = entryInfo.getEntryTitle().toLowerCase(Locale.ROOT);
-                                if (entryTitle.contains(query)) filteredEntries.add(entryInfo);
+                            // Searches the full-text index of the whole feed, not just the pages loaded so far
+                            searchQuery = newText.trim();
+                            if (searchQuery.isEmpty()) {
+                                adapter.submitList(allEntriesViewModel.withPlaceholders(entries));
                             }
-                            adapter.submitList(filteredEntries);
+                            allEntriesViewModel.search(searchQuery);
                             return true;
                         }
                     });
@@ -314,8 +325,6 @@ public class AllEntriesFragment extends Fragment implements EntryItemAdapter.Ent
     }
 
     private void doWhenTranslationFinish(EntryInfo entryInfo, String translatedHtml, String targetLanguage) {
-        webViewViewModel.resetEntry(entryInfo.getEntryId());
-
         // Handle html
         Document doc = Jsoup.parse(translatedHtml);
         doc.head().append(webViewViewModel.getStyle());
@@ -328,50 +337,48 @@ public class AllEntriesFragment extends Fragment implements EntryItemAdapter.Ent
                 ));
         String finalHtml = doc.html();
 
-        webViewViewModel.updateHtml(finalHtml, entryInfo.getEntryId());
-        entryRepository.updateHtml(finalHtml, entryInfo.getEntryId());
+        // Read before the header goes in, so the text matches what the other translation paths store
+        final String translatedContent = textUtil.extractHtmlContent(translatedHtml, "--####--");
 
-        TextUtil textUtil = new TextUtil(sharedPreferencesRepository);
-        final String translatedContent = textUtil.extractHtmlContent(finalHtml, "--####--");
+        long entryId = entryInfo.getEntryId();
+        compositeDisposable.add(webViewViewModel.resetEntry(entryId)
+                .andThen(webViewViewModel.saveTranslation(entryId, null, finalHtml, translatedContent))
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(() -> {
+                    sharedPreferencesRepository.setIsTranslatedView(entryId, true);
 
-        webViewViewModel.updateTranslated(translatedContent, entryInfo.getEntryId());
-        webViewViewModel.updateEntryTranslatedField(entryInfo.getEntryId(), translatedContent);
-        entryRepository.updateTranslatedText(translatedContent, entryInfo.getEntryId());
-
-        sharedPreferencesRepository.setIsTranslatedView(entryInfo.getEntryId(), true);
-
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            Entry updatedEntry = entryRepository.getEntryById(entryInfo.getEntryId());
-            String contentToSpeak = (updatedEntry != null) ? updatedEntry.getTranslated() : null;
-
-            if (contentToSpeak != null && !contentToSpeak.trim().isEmpty()) {
-                Log.d("AllEntriesFragment", "Triggering TTS with translated content");
+                    if (translatedContent == null || translatedContent.trim().isEmpty()) {
+                        Log.w("AllEntriesFragment", "Translated content is empty or missing");
+                        return;
+                    }
+                    Log.d("AllEntriesFragment", "Triggering TTS with translated content");
 
-                boolean isInWebView = sharedPreferencesRepository.getCurrentReadingEntryId() == entryInfo.getEntryId();
-                boolean isTranslatedView = sharedPreferencesRepository.getIsTranslatedView(entryInfo.getEntryId());
+                    boolean isInWebView = sharedPreferencesRepository.getCurrentReadingEntryId() == entryId;
+                    boolean isTranslatedView = sharedPreferencesRepository.getIsTranslatedView(entryId);
 
-                if (isInWebView && isTranslatedView) {
-                    ttsPlayer.extract(entryInfo.getEntryId(), entryInfo.getFeedId(), contentToSpeak, targetLanguage);
-                } else {
-                    Log.d("AllEntriesFragment", "TTS extract skipped (not current or not translated view)");
-                }
-            } else {
-                Log.w("AllEntriesFragment", "Translated content is empty or missing");
-            }
-        }, 500);
+                    if (isInWebView && isTranslatedView) {
+                        ttsPlayer.extract(entryId, entryInfo.getFeedId(), translatedContent, targetLanguage);
+                    } else {
+                        Log.d("AllEntriesFragment", "TTS extract skipped (not current or not translated view)");
+                    }
+                }, error -> Log.e(TAG, "Cannot store the translation of " + entryId, error)));
     }
 
     private void translate(EntryInfo entryInfo) {
-        String html = webViewViewModel.getHtmlById(entryInfo.getEntryId());
-        if (html == null) return;
+        compositeDisposable.add(webViewViewModel.loadHtml(entryInfo.getEntryId())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(html -> translate(entryInfo, html),
+                        error -> Log.e(TAG, "translate: cannot load " + entryInfo.getEntryId(), error)));
+    }
+
+    private void translate(EntryInfo entryInfo, String html) {
         Log.d(TAG, "translating title: " + entryInfo.getEntryTitle());
         // Identify source language
-        TextUtil textUtil = new TextUtil(sharedPreferencesRepository);
         String content = textUtil.extractHtmlContent(html, "--####--");
         String translationMethod = sharedPreferencesRepository.getTranslationMethod();
         String targetLanguage = sharedPreferencesRepository.getDefaultTranslationLanguage();
 
-        Disposable disposable = textUtil.identifyLanguageRx(content).subscribe(languageCode -> {
+        Disposable disposable = textUtil.identifyLanguageRx(entryInfo.getEntryId(), entryInfo.getFeedId(), entryInfo.getFeedLanguage(), content).subscribe(languageCode -> {
             Disposable translateDisposable;
             Log.d(TAG, "translate: translation method: " + translationMethod);
             if (translationMethod.equals("lineByLine")) {
@@ -431,21 +438,27 @@ public class AllEntriesFragment extends Fragment implements EntryItemAdapter.Ent
 
     @Override
     public void onMoreButtonClick(long entryId, String link, boolean unread) {
-        long[] allLinks = new long[entries.size()];
-        int index = 0;
-        for (EntryInfo entryInfo : entries) {
-            allLinks[index] = entryInfo.getEntryId();
-            index++;
-        }
+        // Includes the entries that have not been paged in yet, so deleting above/below covers the whole list
+        compositeDisposable.add(allEntriesViewModel.getEntryIds()
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(entryIds -> {
+                    if (binding == null) return;
+                    long[] allLinks = new long[entryIds.size()];
+                    int index = 0;
+                    for (long id : entryIds) {
+                        allLinks[index] = id;
+                        index++;
+                    }
 
-        Bundle args = new Bundle();
-        args.putLongArray("ids", allLinks);
-        args.putLong("id", entryId);
-        args.putString("link", link);
-        args.putBoolean("unread", unread);
-        EntryItemBottomSheet bottomSheet = new EntryItemBottomSheet();
-        bottomSheet.setArguments(args);
-        bottomSheet.show(getChildFragmentManager(), EntryItemBottomSheet.TAG);
+                    Bundle args = new Bundle();
+                    args.putLongArray("ids", allLinks);
+                    args.putLong("id", entryId);
+                    args.putString("link", link);
+                    args.putBoolean("unread", unread);
+                    EntryItemBottomSheet bottomSheet = new EntryItemBottomSheet();
+                    bottomSheet.setArguments(args);
+                    bottomSheet.show(getChildFragmentManager(), EntryItemBottomSheet.TAG);
+                }, error -> Log.e(TAG, "Cannot list the entries for " + entryId, error)));
     }
 
     @Override
@@ -479,56 +492,36 @@ public class AllEntriesFragment extends Fragment implements EntryItemAdapter.Ent
 
     @Override
     public void onSortChange(String sort) {
-        allEntriesViewModel.setSortBy(sort);
         sortBy = sort;
-        List<EntryInfo> sortedEntries = new ArrayList<>(entries);
-        if (sortBy.equals("oldest")) {
-            Collections.sort(sortedEntries, new EntryInfo.OldestComparator());
-        } else {
-            Collections.sort(sortedEntries, new EntryInfo.LatestComparator());
-        }
-        adapter.submitList(sortedEntries);
-        entries = sortedEntries;
+        // The order comes from SQL, so changing it reloads the list from the first page
+        allEntriesViewModel.setSortBy(sort);
     }
 
     @Override
     public void onPlayingButtonClick(long entryId) {
-        Context context = getContext();
-        Intent intent = new Intent(context, WebViewActivity.class);
-        intent.putExtra("read", false);
-        intent.putExtra("entry_id", entryId);
-
-        List<Long> allLinks = new ArrayList<>();
-        for (EntryInfo entryInfo : entries) {
-            allLinks.add(entryInfo.getEntryId());
-        }
-        allEntriesViewModel.insertPlaylist(allLinks, entryId);
-        allEntriesViewModel.updateVisitedDate(entryId);
-
-//        Bundle b = ActivityOptions.makeSceneTransitionAnimation(getActivity()).toBundle();
-        if (context != null) {
-            context.startActivity(intent);
-        }
+        openEntry(entryId, false);
     }
 
     @Override
     public void onReadingButtonClick(long entryId) {
-        Context context = getContext();
-        Intent intent = new Intent(context, WebViewActivity.class);
-        intent.putExtra("read", true);
-        intent.putExtra("entry_id", entryId);
-
-        List<Long> allLinks = new ArrayList<>();
-        for (EntryInfo entryInfo : entries) {
-            allLinks.add(entryInfo.getEntryId());
-        }
-        allEntriesViewModel.insertPlaylist(allLinks, entryId);
-        allEntriesViewModel.updateVisitedDate(entryId);
+        openEntry(entryId, true);
+    }
 
-//        Bundle b = ActivityOptions.makeSceneTransitionAnimation(getActivity()).toBundle();
-        if (context != null) {
-            context.startActivity(intent);
-        }
+    // WebViewActivity opens the last visited entry, so it starts once the playlist and visit are stored
+    private void openEntry(long entryId, boolean read) {
+        compositeDisposable.add(allEntriesViewModel.openEntry(entryId)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(() -> {
+                    Context context = getContext();
+                    Intent intent = new Intent(context, WebViewActivity.class);
+                    intent.putExtra("read", read);
+                    intent.putExtra("entry_id", entryId);
+
+//                    Bundle b = ActivityOptions.makeSceneTransitionAnimation(getActivity()).toBundle();
+                    if (context != null) {
+                        context.startActivity(intent);
+                    }
+                }, error -> Log.e(TAG, "Cannot open entry " + entryId, error)));
     }
 
     @Override
@@ -1,6 +1,8 @@
 package my.mmu.rssnewsreader.ui.allentries;
 
 
+import android.util.Log;
+
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
@@ -8,15 +10,18 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import my.mmu.rssnewsreader.data.entry.EntryRepository;
 import my.mmu.rssnewsreader.data.feed.FeedRepository;
-import my.mmu.rssnewsreader.data.playlist.Playlist;
 import my.mmu.rssnewsreader.data.playlist.PlaylistRepository;
 import my.mmu.rssnewsreader.data.sharedpreferences.SharedPreferencesRepository;
 import my.mmu.rssnewsreader.service.tts.TtsExtractor;
 import my.mmu.rssnewsreader.service.tts.TtsPlayer;
 import my.mmu.rssnewsreader.model.EntryInfo;
+import my.mmu.rssnewsreader.model.EntrySearchResult;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -25,16 +30,27 @@ import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
 import io.reactivex.rxjava3.annotations.NonNull;
 import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.CompletableObserver;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.core.SingleObserver;
 import io.reactivex.rxjava3.disposables.Disposable;
 import io.reactivex.rxjava3.functions.Action;
 import io.reactivex.rxjava3.functions.Consumer;
 import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.subjects.PublishSubject;
 
 @HiltViewModel
 public class AllEntriesViewModel extends ViewModel {
 
+    private static final String TAG = AllEntriesViewModel.class.getSimpleName();
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 20;
+    private static final int PLACEHOLDER_COUNT = 3;
+    private static final int SEARCH_DEBOUNCE_MS = 300;
+    private static final int SEARCH_LIMIT = 100;
+
     private Disposable disposableEntries;
     private Disposable disposableCount;
+    private Disposable disposableSearch;
 
     private FeedRepository feedRepository;
     private EntryRepository entryRepository;
@@ -45,10 +61,49 @@ public class AllEntriesViewModel extends ViewModel {
     private MutableLiveData<List<EntryInfo>> allEntries = new MutableLiveData<>();
     private MutableLiveData<String> toastMessage = new MutableLiveData<>();
     private MutableLiveData<Integer> unreadCount = new MutableLiveData<>();
-    private LiveData<List<EntryInfo>> liveEntries;
+    private MutableLiveData<List<EntrySearchResult>> searchResults = new MutableLiveData<>();
+    private final PublishSubject<SearchRequest> searchQueries = PublishSubject.create();
 
     private String filter = "all";
     private long id;
+    private String query = "";
+
+    // Paging state, only touched on the main thread
+    private List<EntryInfo> loadedEntries = new ArrayList<>();
+    private boolean endReached;
+    private boolean isLoadingPage;
+    private int generation;
+    // Rows from freshFrom on match the tables. Rows above it were loaded before the last change and are loaded
+    // again once they scroll back into view.
+    private int freshFrom;
+    private int firstVisible;
+    private int lastVisible;
+
+    // A search runs again when the feed or filter changes, not only the text
+    private static class SearchRequest {
+        final String query;
+        final long feedId;
+        final String filter;
+
+        SearchRequest(String query, long feedId, String filter) {
+            this.query = query;
+            this.feedId = feedId;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SearchRequest)) return false;
+            SearchRequest that = (SearchRequest) o;
+            return feedId == that.feedId && query.equals(that.query) && filter.equals(that.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, feedId, filter);
+        }
+    }
 
     @Inject
     public AllEntriesViewModel(FeedRepository feedRepository, EntryRepository entryRepository, PlaylistRepository playlistRepository, SharedPreferencesRepository sharedPreferencesRepository, TtsExtractor ttsExtractor, TtsPlayer ttsPlayer) {
@@ -59,9 +114,34 @@ public class AllEntriesViewModel extends ViewModel {
         this.ttsExtractor = ttsExtractor;
         this.ttsPlayer = ttsPlayer;
 
-        liveEntries = entryRepository.getAllEntriesLive();
-
         getEntriesByFeed(0, "all");
+
+        // Only the last query typed after a short pause runs; switchMap drops the results of older ones
+        disposableSearch = searchQueries
+                .debounce(SEARCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS)
+                .distinctUntilChanged()
+                .switchMapSingle(request -> {
+                    if (request.query.isEmpty()) {
+                        return Single.<List<EntrySearchResult>>just(new ArrayList<>());
+                    }
+                    return Single.<List<EntrySearchResult>>fromCallable(() -> entryRepository.searchEntries(request.feedId, request.filter, request.query, SEARCH_LIMIT))
+                            .subscribeOn(Schedulers.io())
+                            .onErrorReturn(error -> {
+                                Log.e(TAG, "Search failed", error);
+                                return new ArrayList<>();
+                            });
+                })
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(searchResults::setValue);
+    }
+
+    public void search(String query) {
+        this.query = query.trim();
+        searchQueries.onNext(new SearchRequest(this.query, id, filter));
+    }
+
+    public LiveData<List<EntrySearchResult>> getSearchResults() {
+        return searchResults;
     }
 
     public String getSortBy() {
@@ -70,6 +150,7 @@ public class AllEntriesViewModel extends ViewModel {
 
     public void setSortBy(String sortBy) {
         sharedPreferencesRepository.setSortBy(sortBy);
+        getEntriesByFeed(id, filter);
     }
 
     public void getEntriesByFeed(long id, String filter) {
@@ -79,14 +160,23 @@ public class AllEntriesViewModel extends ViewModel {
         }
 
         this.id = id;
-
-        disposableEntries = entryRepository.getEntries(id, filter)
+        this.filter = filter;
+        loadedEntries = new ArrayList<>();
+        endReached = false;
+        freshFrom = 0;
+        firstVisible = 0;
+        lastVisible = 0;
+        generation++;
+        searchQueries.onNext(new SearchRequest(query, id, filter));
+
+        // Every change to the tables reloads one page around the rows on screen, never the whole table
+        disposableEntries = entryRepository.getEntryListChanges()
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(new Consumer<List<EntryInfo>>() {
+                .subscribe(new Consumer<Long>() {
                     @Override
-                    public void accept(List<EntryInfo> entriesInfo) throws Throwable {
-                        allEntries.postValue(entriesInfo);
+                    public void accept(Long change) throws Throwable {
+                        reloadEntries();
                     }
                 });
 
@@ -101,6 +191,144 @@ public class AllEntriesViewModel extends ViewModel {
                 });
     }
 
+    // Loads the rows on screen again from the keyset of the row above them, so a change costs one page however far
+    // the list was scrolled. Rows below the page are dropped and paged in again, rows above are marked stale.
+    private void reloadEntries() {
+        int start = Math.min(Math.max(firstVisible - PREFETCH_DISTANCE, 0), loadedEntries.size());
+        EntryInfo anchor = start > 0 ? loadedEntries.get(start - 1) : null;
+        int limit = Math.max(PAGE_SIZE, lastVisible - start + 1 + PREFETCH_DISTANCE);
+        loadPage(anchor, limit, false, (loaded, page) -> {
+            List<EntryInfo> entries = new ArrayList<>(loaded.subList(0, start));
+            entries.addAll(page);
+            freshFrom = start;
+            endReached = page.size() < limit;
+            return entries;
+        });
+    }
+
+    // Called while scrolling with the rows on screen. Loads the next page once they are within PREFETCH_DISTANCE
+    // of the end, and the stale rows above the fresh ones once they come back into view.
+    public void onVisibleRangeChanged(int firstVisiblePosition, int lastVisiblePosition) {
+        if (firstVisiblePosition < 0) return;
+        firstVisible = firstVisiblePosition;
+        lastVisible = lastVisiblePosition;
+        if (isLoadingPage || loadedEntries.isEmpty()) return;
+        if (firstVisiblePosition < freshFrom) {
+            refreshAbove();
+        } else if (!endReached && lastVisiblePosition >= loadedEntries.size() - PREFETCH_DISTANCE) {
+            loadPage(loadedEntries.get(loadedEntries.size() - 1), PAGE_SIZE, true, (loaded, page) -> {
+                List<EntryInfo> entries = new ArrayList<>(loaded);
+                entries.addAll(page);
+                endReached = page.size() < PAGE_SIZE;
+                return entries;
+            });
+        }
+    }
+
+    // Loads the page of stale rows just above the fresh ones and keeps the fresh rows that follow it. When rows
+    // were added in between and the page does not reach them, everything after the page is paged in again.
+    private void refreshAbove() {
+        int start = Math.max(freshFrom - PAGE_SIZE, 0);
+        EntryInfo anchor = start > 0 ? loadedEntries.get(start - 1) : null;
+        int staleCount = freshFrom - start;
+        int limit = staleCount + PREFETCH_DISTANCE;
+        loadPage(anchor, limit, false, (loaded, page) -> {
+            List<EntryInfo> entries = new ArrayList<>(loaded.subList(0, start));
+            EntryInfo boundary = freshFrom < loaded.size() ? loaded.get(freshFrom) : null;
+            boolean reached = boundary == null;
+            for (EntryInfo entry : page) {
+                if (boundary != null && !precedes(entry, boundary)) {
+                    reached = true;
+                    break;
+                }
+                entries.add(entry);
+            }
+            if (reached && boundary != null) {
+                entries.addAll(loaded.subList(freshFrom, loaded.size()));
+            } else if (!reached) {
+                endReached = page.size() < limit;
+            }
+            freshFrom = start;
+            return entries;
+        });
+    }
+
+    // Whether a comes before b in the order of the list
+    private boolean precedes(EntryInfo a, EntryInfo b) {
+        int byDate = Long.compare(a.getEntryPublishedDate().getTime(), b.getEntryPublishedDate().getTime());
+        int order = byDate != 0 ? byDate : Long.compare(a.getEntryId(), b.getEntryId());
+        return isOldestFirst() ? order < 0 : order > 0;
+    }
+
+    private interface Splice {
+        List<EntryInfo> apply(List<EntryInfo> loaded, List<EntryInfo> page);
+    }
+
+    private void loadPage(EntryInfo afterEntry, int limit, boolean append, Splice splice) {
+        long pageId = id;
+        String pageFilter = filter;
+        boolean oldestFirst = isOldestFirst();
+        if (!append) {
+            // A reload supersedes any page that is still loading
+            generation++;
+        }
+        int pageGeneration = generation;
+        isLoadingPage = true;
+
+        Single.fromCallable(() -> entryRepository.getEntriesPage(pageId, pageFilter, oldestFirst, afterEntry, limit))
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new SingleObserver<List<EntryInfo>>() {
+                    @Override
+                    public void onSubscribe(@NonNull Disposable d) {
+                    }
+
+                    @Override
+                    public void onSuccess(@NonNull List<EntryInfo> page) {
+                        // The list was reloaded, or the feed, filter or sort changed while this page was loading
+                        if (pageGeneration != generation) return;
+                        isLoadingPage = false;
+
+                        loadedEntries = splice.apply(loadedEntries, page);
+                        allEntries.setValue(new ArrayList<>(loadedEntries));
+                    }
+
+                    @Override
+                    public void onError(@NonNull Throwable e) {
+                        isLoadingPage = false;
+                        Log.e(TAG, "Failed to load entries", e);
+                    }
+                });
+    }
+
+    public boolean hasMoreEntries() {
+        return !endReached;
+    }
+
+    // Placeholder rows appended after the loaded entries while more pages remain
+    public List<EntryInfo> withPlaceholders(List<EntryInfo> entries) {
+        List<EntryInfo> list = new ArrayList<>(entries);
+        if (!entries.isEmpty() && hasMoreEntries()) {
+            for (int i = 0; i < PLACEHOLDER_COUNT; i++) {
+                list.add(EntryInfo.placeholder(i));
+            }
+        }
+        return list;
+    }
+
+    // The full ordered id list of the current feed and filter, for the playlist and bulk deletes, read on io
+    public Single<List<Long>> getEntryIds() {
+        long listId = id;
+        String listFilter = filter;
+        boolean oldestFirst = isOldestFirst();
+        return Single.fromCallable(() -> entryRepository.getEntryIds(listId, listFilter, oldestFirst))
+                .subscribeOn(Schedulers.io());
+    }
+
+    private boolean isOldestFirst() {
+        return "oldest".equals(getSortBy());
+    }
+
     public LiveData<List<EntryInfo>> getAllEntries() {
         return allEntries;
     }
@@ -109,10 +337,6 @@ public class AllEntriesViewModel extends ViewModel {
         return toastMessage;
     }
 
-    public LiveData<List<EntryInfo>> getLiveEntries() {
-        return liveEntries;
-    }
-
     public LiveData<Integer> getUnreadCount() {
         return unreadCount;
     }
@@ -121,17 +345,20 @@ public class AllEntriesViewModel extends ViewModel {
         toastMessage.postValue(null);
     }
 
-    public void insertPlaylist(List<Long> allEntryIds, long entryId) {
-        Date date = new Date();
-
-        Playlist playlist = new Playlist(date, longListToString(allEntryIds));
-        playlistRepository.deleteAllPlaylists();
-        playlistRepository.insert(playlist);
+    // Queues the list from the entry on and marks it visited, which WebViewActivity reads back to open it
+    public Completable openEntry(long entryId) {
+        return getEntryIds()
+                .flatMapCompletable(ids -> Completable.fromAction(() -> {
+                    playlistRepository.replacePlaylist(ids, entryId);
+                    entryRepository.updateDate(new Date(), entryId);
+                }))
+                .subscribeOn(Schedulers.io());
     }
 
     public void updateVisitedDate(long entryId) {
-        Date date = new Date();
-        entryRepository.updateDate(date, entryId);
+        Completable.fromAction(() -> entryRepository.updateDate(new Date(), entryId))
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> {}, error -> Log.e(TAG, "Cannot mark " + entryId + " as read", error));
     }
 
     @Override
@@ -139,18 +366,7 @@ public class AllEntriesViewModel extends ViewModel {
         super.onCleared();
         disposableEntries.dispose();
         disposableCount.dispose();
-    }
-
-    public String longListToString(List<Long> list) {
-        String genreIds = "";
-        if (!list.isEmpty()) {
-            genreIds = list.get(0).toString();
-            list.remove(0);
-            for (long s : list) {
-                genreIds += "," + s;
-            }
-        }
-        return genreIds;
+        disposableSearch.dispose();
     }
 
     public void deleteAllVisitedEntries() {
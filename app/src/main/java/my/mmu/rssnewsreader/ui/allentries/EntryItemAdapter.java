@@ -2,6 +2,7 @@ package my.mmu.rssnewsreader.ui.allentries;
 
 import android.content.Context;
 import android.graphics.Color;
+import android.text.Html;
 import android.text.TextUtils;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -21,6 +22,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import my.mmu.rssnewsreader.R;
 import my.mmu.rssnewsreader.model.EntryInfo;
+import my.mmu.rssnewsreader.model.EntrySearchResult;
 
 import com.google.android.material.button.MaterialButton;
 import com.squareup.picasso.Picasso;
@@ -54,21 +56,25 @@ public class EntryItemAdapter extends ListAdapter<EntryInfo, EntryItemAdapter.En
             boolean oldTranslated = hasTranslation(oldE);
             boolean newTranslated = hasTranslation(newE);
 
-            boolean oldExtracted = !TextUtils.isEmpty(oldE.getContent());
-            boolean newExtracted = !TextUtils.isEmpty(newE.getContent());
+            boolean oldExtracted = oldE.hasContent();
+            boolean newExtracted = newE.hasContent();
 
             boolean sameBookmark = Objects.equals(oldE.getBookmark(), newE.getBookmark());
             boolean sameVisited  = Objects.equals(oldE.getVisitedDate(), newE.getVisitedDate());
 
-            return sameBookmark && sameVisited &&
+            boolean sameSnippet = Objects.equals(snippetOf(oldE), snippetOf(newE));
+
+            return sameBookmark && sameVisited && sameSnippet &&
                     (oldTranslated == newTranslated) &&
                     (oldExtracted  == newExtracted);
         }
 
+        private String snippetOf(EntryInfo e) {
+            return e instanceof EntrySearchResult ? ((EntrySearchResult) e).getSnippet() : null;
+        }
+
         private boolean hasTranslation(EntryInfo e) {
-            String orig  = e.getOriginalHtml();
-            String trans = e.getHtml();
-            return trans != null && orig != null && !trans.equals(orig);
+            return e.hasOriginalHtml() && e.hasTranslation();
         }
     };
 
@@ -99,7 +105,7 @@ public class EntryItemAdapter extends ListAdapter<EntryInfo, EntryItemAdapter.En
 
     class EntryItemHolder extends RecyclerView.ViewHolder {
 
-        private TextView textViewEntryTitle, textViewFeedTitle, textViewEntryPubDate;
+        private TextView textViewEntryTitle, textViewFeedTitle, textViewEntryPubDate, textViewEntrySnippet;
         private ImageView imageViewEntryImage, imageViewFeedImage;
         private MaterialButton bookmarkButton;
         private MaterialButton moreButton;
@@ -111,6 +117,7 @@ public class EntryItemAdapter extends ListAdapter<EntryInfo, EntryItemAdapter.En
             textViewEntryTitle = itemView.findViewById(R.id.entryTitle);
             textViewFeedTitle = itemView.findViewById(R.id.feedTitle);
             textViewEntryPubDate = itemView.findViewById(R.id.entryPubDate);
+            textViewEntrySnippet = itemView.findViewById(R.id.entrySnippet);
             imageViewFeedImage = itemView.findViewById(R.id.feedImage);
             imageViewEntryImage = itemView.findViewById(R.id.entryImage);
             bookmarkButton = itemView.findViewById(R.id.bookmark_button);
@@ -122,10 +129,25 @@ public class EntryItemAdapter extends ListAdapter<EntryInfo, EntryItemAdapter.En
         public void bind(EntryInfo entryInfo) {
             TextView statusView = view.findViewById(R.id.extractionStatus);
 
+            if (entryInfo.isPlaceholder()) {
+                bindPlaceholder(statusView);
+                return;
+            }
+            bookmarkButton.setVisibility(View.VISIBLE);
+            moreButton.setVisibility(View.VISIBLE);
+
             textViewEntryTitle.setTextColor(textViewEntryPubDate.getTextColors());
             textViewEntryTitle.setText(entryInfo.getEntryTitle());
             textViewFeedTitle.setText(entryInfo.getFeedTitle());
 
+            String snippet = entryInfo instanceof EntrySearchResult ? ((EntrySearchResult) entryInfo).getSnippet() : null;
+            if (TextUtils.isEmpty(snippet)) {
+                textViewEntrySnippet.setVisibility(View.GONE);
+            } else {
+                textViewEntrySnippet.setVisibility(View.VISIBLE);
+                textViewEntrySnippet.setText(Html.fromHtml(snippet, Html.FROM_HTML_MODE_COMPACT));
+            }
+
             String pubDate = covertTimeToText(entryInfo.getEntryPublishedDate());
             textViewEntryPubDate.setText(pubDate);
 
@@ -200,12 +222,10 @@ public class EntryItemAdapter extends ListAdapter<EntryInfo, EntryItemAdapter.En
                 }
             });
 
-            String content = entryInfo.getContent();
+            boolean hasContent = entryInfo.hasContent();
             int priority = entryInfo.getPriority();
-            boolean hasOriginalHtml   = !TextUtils.isEmpty(entryInfo.getOriginalHtml());
-            boolean hasTranslatedHtml = !TextUtils.isEmpty(entryInfo.getHtml())
-                    && (entryInfo.getOriginalHtml() == null ||
-                    !entryInfo.getHtml().equals(entryInfo.getOriginalHtml()));
+            boolean hasOriginalHtml   = entryInfo.hasOriginalHtml();
+            boolean hasTranslatedHtml = entryInfo.hasTranslation();
 
             statusView.setText("");
 
@@ -213,7 +233,7 @@ public class EntryItemAdapter extends ListAdapter<EntryInfo, EntryItemAdapter.En
                 if (hasOriginalHtml && hasTranslatedHtml) {
                     statusView.setBackgroundResource(R.drawable.status_dot_green);
                     statusView.setVisibility(View.VISIBLE);
-                } else if ((!TextUtils.isEmpty(content)) || priority > 0) {
+                } else if (hasContent || priority > 0) {
                     statusView.setBackgroundResource(R.drawable.status_dot_yellow);
                     statusView.setVisibility(View.VISIBLE);
                 }else {
@@ -221,7 +241,7 @@ public class EntryItemAdapter extends ListAdapter<EntryInfo, EntryItemAdapter.En
                     statusView.setVisibility(View.VISIBLE);
                 }
             } else {
-                if (content != null && !content.isEmpty()) {
+                if (hasContent) {
                     statusView.setBackgroundResource(R.drawable.status_dot_green);
                     statusView.setVisibility(View.VISIBLE);
                 } else if (priority > 0) {
@@ -233,6 +253,22 @@ public class EntryItemAdapter extends ListAdapter<EntryInfo, EntryItemAdapter.En
                 }
             }
         }
+
+        // Keeps the row height of a real entry so the list does not jump when the page arrives
+        private void bindPlaceholder(TextView statusView) {
+            textViewEntryTitle.setText("");
+            textViewFeedTitle.setText("");
+            textViewEntryPubDate.setText("");
+            textViewEntrySnippet.setVisibility(View.GONE);
+            imageViewEntryImage.setVisibility(View.GONE);
+            imageViewFeedImage.setVisibility(View.GONE);
+            bookmarkButton.setVisibility(View.INVISIBLE);
+            moreButton.setVisibility(View.INVISIBLE);
+            selectedCheckbox.setVisibility(View.GONE);
+            statusView.setVisibility(View.INVISIBLE);
+            view.setOnClickListener(null);
+            view.setOnLongClickListener(null);
+        }
     }
 
     public interface EntryItemClickInterface {
@@ -24,6 +24,7 @@ import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
 import io.reactivex.rxjava3.annotations.NonNull;
 import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.CompletableObserver;
+import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.disposables.CompositeDisposable;
 import io.reactivex.rxjava3.disposables.Disposable;
 import io.reactivex.rxjava3.functions.Action;
@@ -82,12 +83,15 @@ public class FeedViewModel extends ViewModel {
         return allFeeds;
     }
 
-    public int getDelayTimeById(long id) {
-        return feedRepository.getDelayTimeById(id);
+    public Single<Integer> getDelayTimeById(long id) {
+        return Single.fromCallable(() -> feedRepository.getDelayTimeById(id))
+                .subscribeOn(Schedulers.io());
     }
 
-    public void updateDelayTimeById(long id, int delayTime) {
-        feedRepository.updateDelayTimeById(id, delayTime);
+    // Completes once stored, so a re-extraction started after it waits the new delay
+    public Completable updateDelayTimeById(long id, int delayTime) {
+        return Completable.fromAction(() -> feedRepository.updateDelayTimeById(id, delayTime))
+                .subscribeOn(Schedulers.io());
     }
 
     public void checkNewFeed(String link, AddFeedCallback addFeedCallback) {
@@ -24,6 +24,8 @@ import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import java.util.Arrays;
 
 import dagger.hilt.android.AndroidEntryPoint;
+import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
+import io.reactivex.rxjava3.disposables.Disposable;
 
 @AndroidEntryPoint
 public class ReloadDialog extends AppCompatDialogFragment implements AdapterView.OnItemSelectedListener{
@@ -38,6 +40,7 @@ public class ReloadDialog extends AppCompatDialogFragment implements AdapterView
     private int title;
     private int message;
     private long id;
+    private Disposable delayDisposable;
     private String[] options = {"0", "3", "5", "10", "20", "30", "40", "50", "60"};
 
     public ReloadDialog(WebViewListener webViewListener, long id, int title, int message) {
@@ -60,7 +63,6 @@ public class ReloadDialog extends AppCompatDialogFragment implements AdapterView
         LayoutInflater inflater = getLayoutInflater();
         View view = inflater.inflate(R.layout.dialog_reloadfeed, null);
         feedViewModel = new ViewModelProvider(this).get(FeedViewModel.class);
-        delayTime = feedViewModel.getDelayTimeById(id);
 
         TextView reloadMessage = view.findViewById(R.id.reloadDialogTextView);
         reloadMessage.setText(message);
@@ -69,14 +71,9 @@ public class ReloadDialog extends AppCompatDialogFragment implements AdapterView
         ArrayAdapter<String> adapter = new ArrayAdapter<>(requireContext(), android.R.layout.simple_spinner_dropdown_item, options);
         spinner.setAdapter(adapter);
         spinner.setOnItemSelectedListener(this);
-        int position = -1;
-        for (int i = 0; i < options.length; i++) {
-            if (options[i].equals(Integer.toString(delayTime))) {
-                position = i;
-                break;
-            }
-        }
-        spinner.setSelection(position);
+        delayDisposable = feedViewModel.getDelayTimeById(id)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(this::selectDelayTime, error -> Log.e(TAG, "Cannot read the delay of feed " + id, error));
 
         MaterialAlertDialogBuilder builder = new MaterialAlertDialogBuilder(requireContext());
         builder.setView(view)
@@ -92,23 +89,47 @@ public class ReloadDialog extends AppCompatDialogFragment implements AdapterView
                 .setPositiveButton(R.string.yes, new DialogInterface.OnClickListener() {
                     @Override
                     public void onClick(DialogInterface dialogInterface, int i) {
-                        feedViewModel.updateDelayTimeById(id, delayTime);
-
-                        if (webViewListener != null) {
-                            webViewListener.reload();
-                            webViewListener = null;
-                        }
-
-                        if (manageFeedListener != null) {
-                            manageFeedListener.reExtract(id);
-                            manageFeedListener = null;
-                        }
+                        // Not tied to the dialog, which is dismissed before the delay is stored
+                        WebViewListener webView = webViewListener;
+                        ManageFeedListener manageFeed = manageFeedListener;
+                        webViewListener = null;
+                        manageFeedListener = null;
+                        feedViewModel.updateDelayTimeById(id, delayTime)
+                                .observeOn(AndroidSchedulers.mainThread())
+                                .subscribe(() -> {
+                                    if (webView != null) {
+                                        webView.reload();
+                                    }
+                                    if (manageFeed != null) {
+                                        manageFeed.reExtract(id);
+                                    }
+                                }, error -> Log.e(TAG, "Cannot store the delay of feed " + id, error));
                     }
                 });
 
         return builder.create();
     }
 
+    private void selectDelayTime(int delayTime) {
+        this.delayTime = delayTime;
+        int position = -1;
+        for (int i = 0; i < options.length; i++) {
+            if (options[i].equals(Integer.toString(delayTime))) {
+                position = i;
+                break;
+            }
+        }
+        spinner.setSelection(position);
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        if (delayDisposable != null) {
+            delayDisposable.dispose();
+        }
+    }
+
     @Override
     public void onItemSelected(AdapterView<?> adapterView, View view, int i, long l) {
         delayTime = Integer.parseInt((String) adapterView.getItemAtPosition(i));
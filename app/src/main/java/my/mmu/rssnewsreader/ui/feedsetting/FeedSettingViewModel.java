@@ -1,5 +1,7 @@
 package my.mmu.rssnewsreader.ui.feedsetting;
 
+import android.util.Log;
+
 import androidx.lifecycle.ViewModel;
 
 import my.mmu.rssnewsreader.data.feed.FeedRepository;
@@ -7,10 +9,14 @@ import my.mmu.rssnewsreader.data.feed.FeedRepository;
 import javax.inject.Inject;
 
 import dagger.hilt.android.lifecycle.HiltViewModel;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 
 @HiltViewModel
 public class FeedSettingViewModel extends ViewModel {
 
+    private static final String TAG = "FeedSettingViewModel";
+
     private FeedRepository feedRepository;
 
     @Inject
@@ -19,6 +25,8 @@ public class FeedSettingViewModel extends ViewModel {
     }
 
     public void updateTitleDescLanguage(String title, String desc, String language, String link) {
-        feedRepository.updateTitleDescLanguage(title, desc, language, link);
+        Completable.fromAction(() -> feedRepository.updateTitleDescLanguage(title, desc, language, link))
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> {}, error -> Log.e(TAG, "Cannot update feed " + link, error));
     }
 }
@@ -32,6 +32,8 @@ import java.util.stream.Collectors;
 import javax.inject.Inject;
 
 import dagger.hilt.android.AndroidEntryPoint;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 
 @AndroidEntryPoint
 public class SpeechRateSelectionDialog extends AppCompatDialogFragment {
@@ -139,7 +141,10 @@ public class SpeechRateSelectionDialog extends AppCompatDialogFragment {
                                 speechRate = 3.0f;
                                 break;
                         }
-                        feedRepository.updateTtsSpeechRateById(feedId, speechRate);
+                        float rate = speechRate;
+                        Completable.fromAction(() -> feedRepository.updateTtsSpeechRateById(feedId, rate))
+                                .subscribeOn(Schedulers.io())
+                                .subscribe(() -> {}, error -> Log.e(TAG, "Cannot update the speech rate of feed " + feedId, error));
                         listener.modifySpeechRate(speechRate);
                     }
                 });
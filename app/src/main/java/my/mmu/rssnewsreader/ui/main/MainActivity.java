@@ -32,6 +32,7 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import my.mmu.rssnewsreader.data.entry.Entry;
+import my.mmu.rssnewsreader.data.entry.FeedCounts;
 import my.mmu.rssnewsreader.data.feed.Feed;
 import my.mmu.rssnewsreader.data.sharedpreferences.SharedPreferencesRepository;
 import my.mmu.rssnewsreader.databinding.ActivityMainBinding;
@@ -50,10 +51,14 @@ import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 
 import dagger.hilt.android.AndroidEntryPoint;
+import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 @AndroidEntryPoint
 public class MainActivity extends AppCompatActivity {
 
@@ -79,124 +84,15 @@ public class MainActivity extends AppCompatActivity {
                         for (Uri uri : uris) {
                             // Do something with the URI(s) of the imported OPML file(s)
                             if (uri != null) {
-                                try {
-                                    InputStream inputStream = getContentResolver().openInputStream(uri);
-                                    XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
-                                    XmlPullParser parser = factory.newPullParser();
-                                    parser.setInput(inputStream, null);
-                                    int eventType = parser.getEventType();
-                                    @SuppressLint("SimpleDateFormat") SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                                    long feedId = 0;
-                                    while (eventType != XmlPullParser.END_DOCUMENT) {
-                                        if (eventType == XmlPullParser.START_TAG && parser.getName().equals("setting")) {
-                                            String jobPeriodic = parser.getAttributeValue(null, "jobPeriodic");
-                                            String displaySummary = parser.getAttributeValue(null, "displaySummary");
-                                            String highlightText = parser.getAttributeValue(null, "highlightText");
-                                            String confidenceThreshold = parser.getAttributeValue(null, "confidenceThreshold");
-                                            String textZoom = parser.getAttributeValue(null, "textZoom");
-                                            String sortBy = parser.getAttributeValue(null, "sortBy");
-                                            String backgroundMusic = parser.getAttributeValue(null, "backgroundMusic");
-                                            String backgroundMusicVolume = parser.getAttributeValue(null, "backgroundMusicVolume");
-                                            String entriesLimitPerFeed = parser.getAttributeValue(null, "entriesLimitPerFeed");
-                                            String defaultTranslationLanguage = parser.getAttributeValue(null, "defaultTranslationLanguage");
-                                            String translationMethod = parser.getAttributeValue(null, "translationMethod");
-                                            Log.d(TAG, "onActivityResult: set defaultTranslationLanguage" + defaultTranslationLanguage);
-                                            if (jobPeriodic != null && !jobPeriodic.isEmpty()) {
-                                                sharedPreferencesRepository.setJobPeriodic(jobPeriodic);
-                                            }
-                                            if (displaySummary != null && !displaySummary.isEmpty()) {
-                                                sharedPreferencesRepository.setDisplaySummary(displaySummary.equals("true"));
-                                            }
-                                            if (highlightText != null && !highlightText.isEmpty()) {
-                                                sharedPreferencesRepository.setHighlightText(highlightText.equals("true"));
-                                            }
-                                            if (sortBy != null && !textZoom.isEmpty()) {
-                                                sharedPreferencesRepository.setTextZoom(Integer.parseInt(textZoom));
-                                            }
-                                            if (sortBy != null && !sortBy.isEmpty()) {
-                                                sharedPreferencesRepository.setSortBy(sortBy);
-                                            }
-                                            if (backgroundMusic != null && !backgroundMusic.isEmpty()) {
-                                                sharedPreferencesRepository.setBackgroundMusic(backgroundMusic.equals("true"));
-                                            }
-                                            if (backgroundMusicVolume != null && !backgroundMusicVolume.isEmpty()) {
-                                                sharedPreferencesRepository.setBackgroundMusicVolume(Integer.parseInt(backgroundMusicVolume));
-                                            }
-                                            if (entriesLimitPerFeed != null && !entriesLimitPerFeed.isEmpty()) {
-                                                sharedPreferencesRepository.setEntriesLimitPerFeed(Integer.parseInt(entriesLimitPerFeed));
-                                            }
-                                            if (confidenceThreshold != null && !confidenceThreshold.isEmpty()) {
-                                                sharedPreferencesRepository.setConfidenceThreshold(Integer.parseInt(confidenceThreshold));
-                                            }
-                                            if (defaultTranslationLanguage != null && !defaultTranslationLanguage.isEmpty()) {
-                                                sharedPreferencesRepository.setDefaultTranslationLanguage(defaultTranslationLanguage);
-                                            }
-                                            if (translationMethod != null && !translationMethod.isEmpty()) {
-                                                sharedPreferencesRepository.setTranslationMethod(translationMethod);
-                                            }
-                                        } else if (eventType == XmlPullParser.START_TAG && parser.getName().equals("outline")) {
-                                            String title = parser.getAttributeValue(null, "text");
-                                            String link = parser.getAttributeValue(null, "xmlUrl");
-                                            Log.d("Test url", link);
-                                            String imageUrl = parser.getAttributeValue(null, "imageUrl");
-                                            String description = parser.getAttributeValue(null, "description");
-                                            String language = parser.getAttributeValue(null, "language");
-                                            String delayTimeString = parser.getAttributeValue(null, "delayTime");
-                                            int delayTime = 0;
-                                            if (delayTimeString != null) {
-                                                delayTime = Integer.parseInt(delayTimeString);
-                                            }
-                                            String ttsSpeechRateString = parser.getAttributeValue(null, "ttsSpeechRate");
-                                            float ttsSpeechRate = 0;
-                                            if (ttsSpeechRateString != null) {
-                                                ttsSpeechRate = Float.parseFloat(ttsSpeechRateString);
-                                            }
-
-                                            if (link != null && !link.isEmpty()) {
-                                                Feed feed = new Feed(title, link, description, imageUrl, language.isEmpty() ? null : language, delayTime, ttsSpeechRate);
-                                                mainActivityViewModel.addFeedUsingOPML(feed);
-                                                feedId = mainActivityViewModel.getFeedIdByLink(link);
-                                            }
-                                        } else if (eventType == XmlPullParser.START_TAG && parser.getName().equals("entry")) {
-                                            String entryTitle = parser.getAttributeValue(null, "entryTitle");
-                                            String bookmark = parser.getAttributeValue(null, "bookmark");
-                                            String visitedDate = parser.getAttributeValue(null, "visitedDate");
-                                            String link = parser.getAttributeValue(null, "link");
-                                            String description = parser.getAttributeValue(null, "description");
-                                            String publishedDate = parser.getAttributeValue(null, "publishedDate");
-                                            String entryImageUrl = parser.getAttributeValue(null, "entryImageUrl");
-                                            String entryCategory = parser.getAttributeValue(null, "entryCategory");
-
-                                            if (entryCategory != null && entryCategory.isEmpty()) {
-                                                entryCategory = null;
-                                            }
-                                            if (entryImageUrl != null && entryImageUrl.isEmpty()) {
-                                                entryImageUrl = null;
-                                            }
-                                            if (description != null && description.isEmpty()) {
-                                                description = null;
-                                            }
-
-                                            try {
-                                                Entry entry = new Entry(feedId, entryTitle, link, description, entryImageUrl, entryCategory, formatter.parse(publishedDate));
-                                                if (!bookmark.isEmpty()) {
-                                                    entry.setBookmark(bookmark);
-                                                }
-                                                if (!visitedDate.isEmpty()) {
-                                                    entry.setVisitedDate(formatter.parse(visitedDate));
-                                                }
-                                                mainActivityViewModel.addEntry(feedId, entry);
-                                            } catch (ParseException e) {
-                                                e.printStackTrace();
-                                            }
-                                        }
-                                        eventType = parser.next();
-                                    }
-                                    Toast.makeText(getApplicationContext(), "Feeds imported successfully", Toast.LENGTH_SHORT).show();
-                                } catch (IOException | XmlPullParserException e) {
-                                    e.printStackTrace();
-                                    Toast.makeText(getApplicationContext(), "Import failed", Toast.LENGTH_SHORT).show();
-                                }
+                                // The feeds are looked up and inserted as they are read, so the whole file is read on io
+                                Completable.fromAction(() -> importOpml(uri))
+                                        .subscribeOn(Schedulers.io())
+                                        .observeOn(AndroidSchedulers.mainThread())
+                                        .subscribe(() -> Toast.makeText(getApplicationContext(), "Feeds imported successfully", Toast.LENGTH_SHORT).show(),
+                                                error -> {
+                                                    Log.e(TAG, "Import failed", error);
+                                                    Toast.makeText(getApplicationContext(), "Import failed", Toast.LENGTH_SHORT).show();
+                                                });
                             }
                         }
                     }
@@ -211,63 +107,16 @@ public class MainActivity extends AppCompatActivity {
                 public void onActivityResult(ActivityResult result) {
                     // Handle the result of exporting OPML file
                     if (result.getResultCode() == RESULT_OK) {
-                        try {
-                            XmlSerializer serializer = Xml.newSerializer();
-                            OutputStream os = getContentResolver().openOutputStream(result.getData().getData());
-                            serializer.setOutput(os, StandardCharsets.UTF_8.name());
-                            serializer.startDocument(null, true);
-                            serializer.startTag(null, "opml");
-                            serializer.startTag(null, "body");
-                            serializer.startTag(null, "setting");
-                            serializer.attribute(null, "jobPeriodic", Integer.toString(sharedPreferencesRepository.getJobPeriodic()));
-                            serializer.attribute(null, "displaySummary", sharedPreferencesRepository.getDisplaySummary() ? "true" : "false");
-                            serializer.attribute(null, "highlightText", sharedPreferencesRepository.getHighlightText() ? "true" : "false");
-                            serializer.attribute(null, "textZoom", Integer.toString(sharedPreferencesRepository.getTextZoom()));
-                            serializer.attribute(null, "sortBy", sharedPreferencesRepository.getSortBy());
-                            serializer.attribute(null, "backgroundMusic", sharedPreferencesRepository.getBackgroundMusic() ? "true" : "false");
-                            serializer.attribute(null, "backgroundMusicVolume", Integer.toString(sharedPreferencesRepository.getBackgroundMusicVolume()));
-                            serializer.attribute(null, "entriesLimitPerFeed", Integer.toString(sharedPreferencesRepository.getEntriesLimitPerFeed()));
-                            serializer.attribute(null, "confidenceThreshold", Integer.toString(sharedPreferencesRepository.getConfidenceThreshold()));
-                            serializer.attribute(null, "defaultTranslationLanguage", sharedPreferencesRepository.getDefaultTranslationLanguage());
-                            serializer.attribute(null, "translationMethod", sharedPreferencesRepository.getTranslationMethod());
-                            serializer.endTag(null, "setting");
-                            List<Feed> feeds = mainActivityViewModel.getAllStaticFeeds();
-                            @SuppressLint("SimpleDateFormat") SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                            for (Feed feed : feeds) {
-                                serializer.startTag(null, "outline");
-                                serializer.attribute(null, "text", feed.getTitle() != null ? feed.getTitle() : "");
-                                serializer.attribute(null, "title", feed.getTitle() != null ? feed.getTitle() : "");
-                                serializer.attribute(null, "imageUrl", feed.getImageUrl() != null ? feed.getImageUrl() : "");
-                                serializer.attribute(null, "description", feed.getDescription() != null ? feed.getDescription() : "");
-                                serializer.attribute(null, "language", feed.getLanguage() != null ? feed.getLanguage() : "");
-                                serializer.attribute(null, "xmlUrl", feed.getLink() != null ? feed.getLink() : "");
-                                serializer.attribute(null, "delayTime", Integer.toString(feed.getDelayTime()));
-                                serializer.attribute(null, "ttsSpeechRate", Float.toString(feed.getTtsSpeechRate()));
-                                serializer.attribute(null, "type", "rss");
-                                List<Entry> entries = mainActivityViewModel.getAllStaticEntries(feed.getId());
-                                for (Entry entry : entries) {
-                                    serializer.startTag(null, "entry");
-                                    serializer.attribute(null, "entryTitle", entry.getTitle() != null ? entry.getTitle() : "");
-                                    serializer.attribute(null, "bookmark", entry.getBookmark() != null ? entry.getBookmark() : "");
-                                    serializer.attribute(null, "visitedDate", entry.getVisitedDate() != null ? formatter.format(entry.getVisitedDate()) : "");
-                                    serializer.attribute(null, "link", entry.getLink() != null ? entry.getLink() : "");
-                                    serializer.attribute(null, "description", entry.getDescription() != null ? entry.getDescription() : "");
-                                    serializer.attribute(null, "publishedDate", entry.getPublishedDate() != null ? formatter.format(entry.getPublishedDate()) : "");
-                                    serializer.attribute(null, "entryImageUrl", entry.getImageUrl() != null ? entry.getImageUrl() : "");
-                                    serializer.attribute(null, "entryCategory", entry.getCategory() != null ? entry.getCategory() : "");
-                                    serializer.endTag(null, "entry");
-                                }
-                                serializer.endTag(null, "outline");
-                            }
-                            serializer.endTag(null, "body");
-                            serializer.endTag(null, "opml");
-                            serializer.endDocument();
-                            os.close();
-                            Toast.makeText(getApplicationContext(), "Feeds exported successfully", Toast.LENGTH_SHORT).show();
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                            Toast.makeText(getApplicationContext(), "Export failed", Toast.LENGTH_SHORT).show();
-                        }
+                        // Every feed and its entries are read from the database, so the file is written on io
+                        Uri uri = result.getData().getData();
+                        Completable.fromAction(() -> exportOpml(uri))
+                                .subscribeOn(Schedulers.io())
+                                .observeOn(AndroidSchedulers.mainThread())
+                                .subscribe(() -> Toast.makeText(getApplicationContext(), "Feeds exported successfully", Toast.LENGTH_SHORT).show(),
+                                        error -> {
+                                            Log.e(TAG, "Export failed", error);
+                                            Toast.makeText(getApplicationContext(), "Export failed", Toast.LENGTH_SHORT).show();
+                                        });
                     } else {
                         // Handle the case where the OPML file export is cancelled or failed
                         Toast.makeText(getApplicationContext(), "Export failed", Toast.LENGTH_SHORT).show();
@@ -275,6 +124,175 @@ public class MainActivity extends AppCompatActivity {
                 }
             });
 
+    private void importOpml(Uri uri) throws IOException, XmlPullParserException {
+        InputStream inputStream = getContentResolver().openInputStream(uri);
+        XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+        XmlPullParser parser = factory.newPullParser();
+        parser.setInput(inputStream, null);
+        int eventType = parser.getEventType();
+        @SuppressLint("SimpleDateFormat") SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        long feedId = 0;
+        while (eventType != XmlPullParser.END_DOCUMENT) {
+            if (eventType == XmlPullParser.START_TAG && parser.getName().equals("setting")) {
+                String jobPeriodic = parser.getAttributeValue(null, "jobPeriodic");
+                String displaySummary = parser.getAttributeValue(null, "displaySummary");
+                String highlightText = parser.getAttributeValue(null, "highlightText");
+                String confidenceThreshold = parser.getAttributeValue(null, "confidenceThreshold");
+                String textZoom = parser.getAttributeValue(null, "textZoom");
+                String sortBy = parser.getAttributeValue(null, "sortBy");
+                String backgroundMusic = parser.getAttributeValue(null, "backgroundMusic");
+                String backgroundMusicVolume = parser.getAttributeValue(null, "backgroundMusicVolume");
+                String entriesLimitPerFeed = parser.getAttributeValue(null, "entriesLimitPerFeed");
+                String defaultTranslationLanguage = parser.getAttributeValue(null, "defaultTranslationLanguage");
+                String translationMethod = parser.getAttributeValue(null, "translationMethod");
+                Log.d(TAG, "onActivityResult: set defaultTranslationLanguage" + defaultTranslationLanguage);
+                if (jobPeriodic != null && !jobPeriodic.isEmpty()) {
+                    sharedPreferencesRepository.setJobPeriodic(jobPeriodic);
+                }
+                if (displaySummary != null && !displaySummary.isEmpty()) {
+                    sharedPreferencesRepository.setDisplaySummary(displaySummary.equals("true"));
+                }
+                if (highlightText != null && !highlightText.isEmpty()) {
+                    sharedPreferencesRepository.setHighlightText(highlightText.equals("true"));
+                }
+                if (sortBy != null && !textZoom.isEmpty()) {
+                    sharedPreferencesRepository.setTextZoom(Integer.parseInt(textZoom));
+                }
+                if (sortBy != null && !sortBy.isEmpty()) {
+                    sharedPreferencesRepository.setSortBy(sortBy);
+                }
+                if (backgroundMusic != null && !backgroundMusic.isEmpty()) {
+                    sharedPreferencesRepository.setBackgroundMusic(backgroundMusic.equals("true"));
+                }
+                if (backgroundMusicVolume != null && !backgroundMusicVolume.isEmpty()) {
+                    sharedPreferencesRepository.setBackgroundMusicVolume(Integer.parseInt(backgroundMusicVolume));
+                }
+                if (entriesLimitPerFeed != null && !entriesLimitPerFeed.isEmpty()) {
+                    sharedPreferencesRepository.setEntriesLimitPerFeed(Integer.parseInt(entriesLimitPerFeed));
+                }
+                if (confidenceThreshold != null && !confidenceThreshold.isEmpty()) {
+                    sharedPreferencesRepository.setConfidenceThreshold(Integer.parseInt(confidenceThreshold));
+                }
+                if (defaultTranslationLanguage != null && !defaultTranslationLanguage.isEmpty()) {
+                    sharedPreferencesRepository.setDefaultTranslationLanguage(defaultTranslationLanguage);
+                }
+                if (translationMethod != null && !translationMethod.isEmpty()) {
+                    sharedPreferencesRepository.setTranslationMethod(translationMethod);
+                }
+            } else if (eventType == XmlPullParser.START_TAG && parser.getName().equals("outline")) {
+                String title = parser.getAttributeValue(null, "text");
+                String link = parser.getAttributeValue(null, "xmlUrl");
+                Log.d("Test url", link);
+                String imageUrl = parser.getAttributeValue(null, "imageUrl");
+                String description = parser.getAttributeValue(null, "description");
+                String language = parser.getAttributeValue(null, "language");
+                String delayTimeString = parser.getAttributeValue(null, "delayTime");
+                int delayTime = 0;
+                if (delayTimeString != null) {
+                    delayTime = Integer.parseInt(delayTimeString);
+                }
+                String ttsSpeechRateString = parser.getAttributeValue(null, "ttsSpeechRate");
+                float ttsSpeechRate = 0;
+                if (ttsSpeechRateString != null) {
+                    ttsSpeechRate = Float.parseFloat(ttsSpeechRateString);
+                }
+
+                if (link != null && !link.isEmpty()) {
+                    Feed feed = new Feed(title, link, description, imageUrl, language.isEmpty() ? null : language, delayTime, ttsSpeechRate);
+                    mainActivityViewModel.addFeedUsingOPML(feed);
+                    feedId = mainActivityViewModel.getFeedIdByLink(link);
+                }
+            } else if (eventType == XmlPullParser.START_TAG && parser.getName().equals("entry")) {
+                String entryTitle = parser.getAttributeValue(null, "entryTitle");
+                String bookmark = parser.getAttributeValue(null, "bookmark");
+                String visitedDate = parser.getAttributeValue(null, "visitedDate");
+                String link = parser.getAttributeValue(null, "link");
+                String description = parser.getAttributeValue(null, "description");
+                String publishedDate = parser.getAttributeValue(null, "publishedDate");
+                String entryImageUrl = parser.getAttributeValue(null, "entryImageUrl");
+                String entryCategory = parser.getAttributeValue(null, "entryCategory");
+
+                if (entryCategory != null && entryCategory.isEmpty()) {
+                    entryCategory = null;
+                }
+                if (entryImageUrl != null && entryImageUrl.isEmpty()) {
+                    entryImageUrl = null;
+                }
+                if (description != null && description.isEmpty()) {
+                    description = null;
+                }
+
+                try {
+                    Entry entry = new Entry(feedId, entryTitle, link, description, entryImageUrl, entryCategory, formatter.parse(publishedDate));
+                    if (!bookmark.isEmpty()) {
+                        entry.setBookmark(bookmark);
+                    }
+                    if (!visitedDate.isEmpty()) {
+                        entry.setVisitedDate(formatter.parse(visitedDate));
+                    }
+                    mainActivityViewModel.addEntry(feedId, entry);
+                } catch (ParseException e) {
+                    e.printStackTrace();
+                }
+            }
+            eventType = parser.next();
+        }
+    }
+
+    private void exportOpml(Uri uri) throws IOException {
+        XmlSerializer serializer = Xml.newSerializer();
+        OutputStream os = getContentResolver().openOutputStream(uri);
+        serializer.setOutput(os, StandardCharsets.UTF_8.name());
+        serializer.startDocument(null, true);
+        serializer.startTag(null, "opml");
+        serializer.startTag(null, "body");
+        serializer.startTag(null, "setting");
+        serializer.attribute(null, "jobPeriodic", Integer.toString(sharedPreferencesRepository.getJobPeriodic()));
+        serializer.attribute(null, "displaySummary", sharedPreferencesRepository.getDisplaySummary() ? "true" : "false");
+        serializer.attribute(null, "highlightText", sharedPreferencesRepository.getHighlightText() ? "true" : "false");
+        serializer.attribute(null, "textZoom", Integer.toString(sharedPreferencesRepository.getTextZoom()));
+        serializer.attribute(null, "sortBy", sharedPreferencesRepository.getSortBy());
+        serializer.attribute(null, "backgroundMusic", sharedPreferencesRepository.getBackgroundMusic() ? "true" : "false");
+        serializer.attribute(null, "backgroundMusicVolume", Integer.toString(sharedPreferencesRepository.getBackgroundMusicVolume()));
+        serializer.attribute(null, "entriesLimitPerFeed", Integer.toString(sharedPreferencesRepository.getEntriesLimitPerFeed()));
+        serializer.attribute(null, "confidenceThreshold", Integer.toString(sharedPreferencesRepository.getConfidenceThreshold()));
+        serializer.attribute(null, "defaultTranslationLanguage", sharedPreferencesRepository.getDefaultTranslationLanguage());
+        serializer.attribute(null, "translationMethod", sharedPreferencesRepository.getTranslationMethod());
+        serializer.endTag(null, "setting");
+        List<Feed> feeds = mainActivityViewModel.getAllStaticFeeds();
+        @SuppressLint("SimpleDateFormat") SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        for (Feed feed : feeds) {
+            serializer.startTag(null, "outline");
+            serializer.attribute(null, "text", feed.getTitle() != null ? feed.getTitle() : "");
+            serializer.attribute(null, "title", feed.getTitle() != null ? feed.getTitle() : "");
+            serializer.attribute(null, "imageUrl", feed.getImageUrl() != null ? feed.getImageUrl() : "");
+            serializer.attribute(null, "description", feed.getDescription() != null ? feed.getDescription() : "");
+            serializer.attribute(null, "language", feed.getLanguage() != null ? feed.getLanguage() : "");
+            serializer.attribute(null, "xmlUrl", feed.getLink() != null ? feed.getLink() : "");
+            serializer.attribute(null, "delayTime", Integer.toString(feed.getDelayTime()));
+            serializer.attribute(null, "ttsSpeechRate", Float.toString(feed.getTtsSpeechRate()));
+            serializer.attribute(null, "type", "rss");
+            List<Entry> entries = mainActivityViewModel.getAllStaticEntries(feed.getId());
+            for (Entry entry : entries) {
+                serializer.startTag(null, "entry");
+                serializer.attribute(null, "entryTitle", entry.getTitle() != null ? entry.getTitle() : "");
+                serializer.attribute(null, "bookmark", entry.getBookmark() != null ? entry.getBookmark() : "");
+                serializer.attribute(null, "visitedDate", entry.getVisitedDate() != null ? formatter.format(entry.getVisitedDate()) : "");
+                serializer.attribute(null, "link", entry.getLink() != null ? entry.getLink() : "");
+                serializer.attribute(null, "description", entry.getDescription() != null ? entry.getDescription() : "");
+                serializer.attribute(null, "publishedDate", entry.getPublishedDate() != null ? formatter.format(entry.getPublishedDate()) : "");
+                serializer.attribute(null, "entryImageUrl", entry.getImageUrl() != null ? entry.getImageUrl() : "");
+                serializer.attribute(null, "entryCategory", entry.getCategory() != null ? entry.getCategory() : "");
+                serializer.endTag(null, "entry");
+            }
+            serializer.endTag(null, "outline");
+        }
+        serializer.endTag(null, "body");
+        serializer.endTag(null, "opml");
+        serializer.endDocument();
+        os.close();
+    }
+
     @Override
     public void onBackPressed() {
         if (this.drawerLayout.isDrawerOpen(GravityCompat.START)) {
@@ -443,6 +461,13 @@ public class MainActivity extends AppCompatActivity {
                 adapter.submitList(feeds);
             }
         });
+
+        mainActivityViewModel.getFeedCounts().observe(this, new Observer<Map<Long, FeedCounts>>() {
+            @Override
+            public void onChanged(Map<Long, FeedCounts> counts) {
+                adapter.setCounts(counts);
+            }
+        });
     }
 
     private void switchTheme() {
@@ -1,16 +1,19 @@
 package my.mmu.rssnewsreader.ui.main;
 
+import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
 import my.mmu.rssnewsreader.data.entry.Entry;
 import my.mmu.rssnewsreader.data.entry.EntryRepository;
+import my.mmu.rssnewsreader.data.entry.FeedCounts;
 import my.mmu.rssnewsreader.data.feed.Feed;
 import my.mmu.rssnewsreader.data.feed.FeedRepository;
 import my.mmu.rssnewsreader.data.sharedpreferences.SharedPreferencesRepository;
 
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 
@@ -33,6 +36,7 @@ public class MainActivityViewModel extends ViewModel {
     private SharedPreferencesRepository sharedPreferencesRepository;
 
     private MutableLiveData<List<Feed>> allFeeds = new MutableLiveData<>();
+    private MutableLiveData<Map<Long, FeedCounts>> feedCounts = new MutableLiveData<>();
 
     @Inject
     public MainActivityViewModel(FeedRepository feedRepository, EntryRepository entryRepository, SharedPreferencesRepository sharedPreferencesRepository) {
@@ -51,24 +55,43 @@ public class MainActivityViewModel extends ViewModel {
                 });
 
         compositeDisposable.add(disposable);
+
+        compositeDisposable.add(entryRepository.getFeedCounts()
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new Consumer<Map<Long, FeedCounts>>() {
+                    @Override
+                    public void accept(Map<Long, FeedCounts> counts) throws Throwable {
+                        feedCounts.setValue(counts);
+                    }
+                }));
     }
 
     public LiveData<List<Feed>> getAllFeeds() {
         return allFeeds;
     }
 
+    public LiveData<Map<Long, FeedCounts>> getFeedCounts() {
+        return feedCounts;
+    }
+
+    // The OPML import and export go through these on io
+    @WorkerThread
     public List<Feed> getAllStaticFeeds() {
         return feedRepository.getAllStaticFeeds();
     }
 
+    @WorkerThread
     public List<Entry> getAllStaticEntries(long id) {
         return entryRepository.getStaticEntries(id);
     }
 
+    @WorkerThread
     public long getFeedIdByLink(String link) {
         return feedRepository.getFeedIdByLink(link);
     }
 
+    @WorkerThread
     public void addFeedUsingOPML(Feed feed) {
         if (!feedRepository.checkFeedExist(feed.getLink())) {
             feedRepository.insert(feed);
@@ -94,4 +117,9 @@ public class MainActivityViewModel extends ViewModel {
         sharedPreferencesRepository.setNight(isNight);
     }
 
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        compositeDisposable.dispose();
+    }
 }
@@ -3,7 +3,9 @@ package my.mmu.rssnewsreader.ui.main;
 import android.app.Application;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
+import android.content.pm.ApplicationInfo;
 import android.os.Build;
+import android.os.StrictMode;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatDelegate;
@@ -24,6 +26,14 @@ public class MainApplication extends Application implements Configuration.Provid
 
     @Override
     public void onCreate() {
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            // Database queries and file reads left on the main thread show up in logcat as disk access
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyLog()
+                    .build());
+        }
         super.onCreate();
     }
 
@@ -8,6 +8,7 @@ import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.DiffUtil;
@@ -15,12 +16,16 @@ import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import my.mmu.rssnewsreader.R;
+import my.mmu.rssnewsreader.data.entry.FeedCounts;
 import my.mmu.rssnewsreader.data.feed.Feed;
 import com.google.android.material.button.MaterialButton;
 import com.squareup.picasso.Picasso;
 import com.squareup.picasso.Target;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
 import io.reactivex.rxjava3.core.Completable;
@@ -29,7 +34,10 @@ import io.reactivex.rxjava3.schedulers.Schedulers;
 
 public class NavigationFeedItemAdapter extends ListAdapter<Feed, NavigationFeedItemAdapter.FeedItemHolder> {
 
+    private static final Object PAYLOAD_COUNTS = new Object();
+
     private FeedItemClickInterface feedItemClickInterface;
+    private Map<Long, FeedCounts> counts = new HashMap<>();
 
     protected NavigationFeedItemAdapter(FeedItemClickInterface feedItemClickInterface) {
         super(DIFF_CALLBACK);
@@ -62,17 +70,45 @@ public class NavigationFeedItemAdapter extends ListAdapter<Feed, NavigationFeedI
         holder.bind(currentFeed);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull FeedItemHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_COUNTS)) {
+            holder.bindCount(getItem(position));
+        } else {
+            super.onBindViewHolder(holder, position, payloads);
+        }
+    }
+
+    // Only the badges are rebound, the titles and icons stay as they are
+    public void setCounts(Map<Long, FeedCounts> counts) {
+        this.counts = counts;
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_COUNTS);
+    }
+
     class FeedItemHolder extends RecyclerView.ViewHolder {
 
         private MaterialButton navigationButton;
+        private TextView unreadTextView;
 
         public FeedItemHolder(@NonNull View itemView) {
             super(itemView);
             navigationButton = itemView.findViewById(R.id.navigationFeedButton);
+            unreadTextView = itemView.findViewById(R.id.navigationFeedUnread);
+        }
+
+        public void bindCount(Feed feed) {
+            FeedCounts feedCounts = counts.get(feed.getId());
+            if (feedCounts != null && feedCounts.getUnread() > 0) {
+                unreadTextView.setText(String.valueOf(feedCounts.getUnread()));
+                unreadTextView.setVisibility(View.VISIBLE);
+            } else {
+                unreadTextView.setVisibility(View.GONE);
+            }
         }
 
         public void bind(Feed feed) {
             navigationButton.setText(feed.getTitle());
+            bindCount(feed);
             if (!TextUtils.isEmpty(feed.getImageUrl())) {
                 Picasso.get().load(feed.getImageUrl()).into(new Target() {
                     @Override
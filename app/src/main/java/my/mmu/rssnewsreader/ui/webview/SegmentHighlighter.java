@@ -0,0 +1,170 @@
+package my.mmu.rssnewsreader.ui.webview;
+
+import android.util.Log;
+import android.webkit.ValueCallback;
+import android.webkit.WebView;
+
+import org.json.JSONArray;
+
+import java.util.List;
+
+import my.mmu.rssnewsreader.data.entry.ReaderPages;
+
+// Highlights the sentence TTS is speaking by its index instead of searching the page for its text.
+// Pages built by ReaderPages carry the sentence indexes of every text block already. For any other page, the blocks
+// are matched to the sentences in document order once per load and per sentence list. Highlighting is then a class toggle.
+// The same script switches such a page between its original and translated view.
+public class SegmentHighlighter {
+
+    private static final String TAG = "SegmentHighlighter";
+
+    // Same blocks TtsExtractor turns into sentences, only the innermost ones are matched. Everything works on the view
+    // shown, a page from ReaderPages holds the original and the translated view side by side.
+    private static final String SCRIPT = "(function() {" +
+            "  if (window.ttsIndex) return;" +
+            "  var BLOCKS = 'h1,h2,h3,h4,h5,h6,p,td,pre,th,li,figcaption,blockquote,section';" +
+            "  var style = document.createElement('style');" +
+            "  style.textContent = '.tts-current { background-color: rgba(255, 213, 79, 0.45); border-radius: 3px; }';" +
+            "  (document.head || document.documentElement).appendChild(style);" +
+            "  var current = null, currentIndex = -1;" +
+            "  var norm = function(text) { return text.replace(/\\s+/g, ' ').trim().toLowerCase(); };" +
+            "  var shown = function() {" +
+            "    return document.querySelector('.reader-view[data-view=\"' + document.body.getAttribute('data-reader-view') + '\"]') || document.body;" +
+            "  };" +
+            "  var ids = function(block) { return block.getAttribute('data-tts').split(' ').map(Number); };" +
+            "  window.ttsIndex = function(list) {" +
+            "    var root = shown(), map = [];" +
+            "    if (root.getAttribute('data-tts-count') == list.length) {" +
+            "      var tagged = root.querySelectorAll('[data-tts]');" +
+            "      for (var t = 0; t < tagged.length; t++) {" +
+            "        var own = ids(tagged[t]);" +
+            "        for (var n = 0; n < own.length; n++) map[own[n]] = tagged[t];" +
+            "      }" +
+            "      window.ttsSegments = map;" +
+            "      return;" +
+            "    }" +
+            "    var all = root.querySelectorAll(BLOCKS);" +
+            "    var blocks = [], texts = [];" +
+            "    for (var i = 0; i < all.length; i++) {" +
+            "      if (!all[i].querySelector(BLOCKS)) { blocks.push(all[i]); texts.push(norm(all[i].textContent)); }" +
+            "    }" +
+            "    var k = 0;" +
+            "    for (var s = 0; s < list.length; s++) {" +
+            "      var probe = norm(list[s]).substring(0, 60);" +
+            "      if (!probe) continue;" +
+            "      for (var j = k; j < blocks.length; j++) {" +
+            "        if (texts[j].indexOf(probe) >= 0) {" +
+            "          map[s] = blocks[j];" +
+            "          k = j;" +
+            "          break;" +
+            "        }" +
+            "      }" +
+            "    }" +
+            "    window.ttsSegments = map;" +
+            "  };" +
+            "  window.ttsHighlight = function(i) {" +
+            "    if (current) current.classList.remove('tts-current');" +
+            "    currentIndex = i;" +
+            "    current = (window.ttsSegments && window.ttsSegments[i]) || null;" +
+            "    if (!current) return false;" +
+            "    current.classList.add('tts-current');" +
+            "    current.scrollIntoView({block: 'center', behavior: 'smooth'});" +
+            "    return true;" +
+            "  };" +
+            // Shows the other view and keeps the reader where they were: the block at the top of the screen and the
+            // sentence being spoken are carried over to their counterparts by block number. Views that were split
+            // into a different number of blocks are paired proportionally. Returns the sentence to go on from in
+            // the view now shown, -1 when nothing was spoken, or -2 when the page has no such view.
+            "  window.ttsShow = function(view) {" +
+            "    var from = shown();" +
+            "    var to = document.querySelector('.reader-view[data-view=\"' + view + '\"]');" +
+            "    if (!to) return -2;" +
+            "    if (to === from) return currentIndex;" +
+            "    var fromBlocks = from.querySelectorAll('[data-block]'), toBlocks = to.querySelectorAll('[data-block]');" +
+            "    var counterpart = function(block) {" +
+            "      if (!block || !toBlocks.length) return null;" +
+            "      var n = +block.getAttribute('data-block');" +
+            "      if (fromBlocks.length != toBlocks.length) n = Math.floor(n * toBlocks.length / fromBlocks.length);" +
+            "      return toBlocks[Math.min(n, toBlocks.length - 1)];" +
+            "    };" +
+            "    var top = null, offset = 0;" +
+            "    for (var b = 0; b < fromBlocks.length; b++) {" +
+            "      var rect = fromBlocks[b].getBoundingClientRect();" +
+            "      if (rect.bottom > 0) { top = fromBlocks[b]; offset = rect.top; break; }" +
+            "    }" +
+            "    var spoken = current && current.hasAttribute('data-block') && current.hasAttribute('data-tts') ? current : null;" +
+            "    var next = -1;" +
+            "    var target = counterpart(spoken);" +
+            "    if (target) {" +
+            "      while (target && !target.hasAttribute('data-tts')) target = toBlocks[+target.getAttribute('data-block') + 1];" +
+            "      if (target) {" +
+            "        var before = ids(spoken), after = ids(target);" +
+            "        var within = Math.floor(before.indexOf(currentIndex) * after.length / before.length);" +
+            "        next = after[Math.max(0, Math.min(within, after.length - 1))];" +
+            "      }" +
+            "    }" +
+            "    if (current) current.classList.remove('tts-current');" +
+            "    current = null;" +
+            "    currentIndex = -1;" +
+            "    window.ttsSegments = null;" +
+            "    document.body.setAttribute('data-reader-view', view);" +
+            "    var anchor = counterpart(top);" +
+            "    if (anchor) window.scrollBy(0, anchor.getBoundingClientRect().top - offset);" +
+            "    return next;" +
+            "  };" +
+            "})();";
+
+    private final WebView webView;
+    private String segments;
+
+    public SegmentHighlighter(WebView webView) {
+        this.webView = webView;
+    }
+
+    // The sentences of the article being played, the page is tagged for them now and after every load
+    public void setSegments(List<String> sentences) {
+        segments = sentences.isEmpty() ? null : new JSONArray(sentences).toString();
+        index();
+    }
+
+    // A new page has lost the map, so it is built again once the page has finished loading
+    public void index() {
+        if (segments != null) {
+            webView.evaluateJavascript(SCRIPT + "ttsIndex(" + segments + ");", null);
+        }
+    }
+
+    // Falls back to a text search when the sentence is not tagged, e.g. a preview or a page that is still loading
+    public void highlight(int index, String text) {
+        webView.evaluateJavascript(SCRIPT + "ttsHighlight(" + index + ");", result -> {
+            if ("true".equals(result)) {
+                webView.clearMatches();
+            } else {
+                Log.d(TAG, "Sentence " + index + " is not tagged, searching for its text");
+                webView.findAllAsync(text);
+            }
+        });
+    }
+
+    // Switches a page from ReaderPages to the original or translated view without loading it again. The callback gets
+    // the sentence of the new view that matches the one being spoken, -1 when nothing is spoken, or -2 when the page
+    // does not hold that view.
+    public void show(boolean translated, ValueCallback<Integer> callback) {
+        String view = translated ? ReaderPages.TRANSLATED : ReaderPages.ORIGINAL;
+        webView.evaluateJavascript(SCRIPT + "ttsShow('" + view + "');", result -> {
+            int index;
+            try {
+                index = Integer.parseInt(result);
+            } catch (NumberFormatException e) {
+                index = -2;
+            }
+            webView.clearMatches();
+            callback.onReceiveValue(index);
+        });
+    }
+
+    public void clear() {
+        webView.evaluateJavascript(SCRIPT + "ttsHighlight(-1);", null);
+        webView.clearMatches();
+    }
+}
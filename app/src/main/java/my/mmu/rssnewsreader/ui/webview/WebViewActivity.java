@@ -25,16 +25,21 @@ import android.webkit.WebViewClient;
 import android.widget.LinearLayout;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
+import androidx.core.util.Pair;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
 
+import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.disposables.CompositeDisposable;
 import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.functions.Consumer;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 import my.mmu.rssnewsreader.R;
 import my.mmu.rssnewsreader.data.sharedpreferences.SharedPreferencesRepository;
 import my.mmu.rssnewsreader.model.EntryInfo;
@@ -46,7 +51,6 @@ import my.mmu.rssnewsreader.databinding.ActivityWebviewBinding;
 import my.mmu.rssnewsreader.service.util.TextUtil;
 import my.mmu.rssnewsreader.ui.feed.ReloadDialog;
 import my.mmu.rssnewsreader.data.entry.Entry;
-import my.mmu.rssnewsreader.data.entry.EntryRepository;
 
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.button.MaterialButton;
@@ -62,6 +66,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 
 
@@ -88,9 +93,11 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
     private MenuItem backgroundMusicButton;
     private String currentLink;
     private long currentId;
+    private EntryInfo currentEntryInfo;
     private long feedId;
     private String html;
     private String content;
+    private SegmentHighlighter segmentHighlighter;
     private String bookmark;
     private boolean isPlaying;
     private boolean isReadingMode;
@@ -98,12 +105,12 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
     private boolean clearHistory;
     private MenuItem toggleTranslationButton;
     private boolean isTranslatedView = true;
+    private boolean isStreamingTranslation = false;
     private MaterialToolbar toolbar;
 
     // Translation
     private String targetLanguage;
     private String translationMethod;
-    private TextUtil textUtil;
     private CompositeDisposable compositeDisposable;
     private LiveData<Entry> liveEntryObserver;
 
@@ -135,7 +142,7 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
     SharedPreferencesRepository sharedPreferencesRepository;
 
     @Inject
-    EntryRepository entryRepository;
+    TextUtil textUtil;
 
     @Override
     public boolean onKeyDown(int keyCode, KeyEvent event) {
@@ -184,14 +191,6 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
     }
 
     private void doWhenTranslationFinish(EntryInfo entryInfo, String originalHtml, String translatedHtml) {
-        loading.setVisibility(View.INVISIBLE);
-
-        if (webViewViewModel.getOriginalHtmlById(currentId) == null && originalHtml != null) {
-            webViewViewModel.updateOriginalHtml(originalHtml, currentId);
-            entryRepository.updateOriginalHtml(originalHtml, currentId);
-            Log.d(TAG, "Original HTML backed up from method parameter.");
-        }
-
         Document doc = Jsoup.parse(translatedHtml);
         doc.head().append(webViewViewModel.getStyle());
         Objects.requireNonNull(doc.selectFirst("body"))
@@ -203,73 +202,104 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
                 ));
         String finalHtml = doc.html();
 
-        webViewViewModel.updateHtml(finalHtml, currentId);
-        entryRepository.updateHtml(finalHtml, currentId);
-
-        String translatedContent = textUtil.extractHtmlContent(finalHtml, "--####--");
-        webViewViewModel.updateTranslated(translatedContent, currentId);
-        webViewViewModel.updateEntryTranslatedField(currentId, translatedContent);
-        entryRepository.updateTranslatedText(translatedContent, currentId);
-
-        webView.loadDataWithBaseURL("file///android_res/", finalHtml, "text/html", "UTF-8", null);
+        // Read before the header goes in, so the text matches the segments streamed while translating
+        String translatedContent = textUtil.extractHtmlContent(translatedHtml, "--####--");
 
-        toggleTranslationButton.setVisible(true);
-        isTranslatedView = true;
-        sharedPreferencesRepository.setIsTranslatedView(currentId, true);
-
-        webViewViewModel.setTranslatedTextReady(currentId, translatedContent);
-
-        Log.d(TAG, "FINAL translatedContent passed to TTS: " + translatedContent);
-        Log.d(TAG, "FINAL currentId: " + currentId + ", isTranslatedView: " + isTranslatedView);
+        // Stored before TTS is told the translation is finished, since it reads the text back
+        long entryId = entryInfo.getEntryId();
+        compositeDisposable.add(webViewViewModel.saveTranslation(entryId, originalHtml, finalHtml, translatedContent)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(() -> {
+                    loading.setVisibility(View.INVISIBLE);
+                    sharedPreferencesRepository.setIsTranslatedView(entryId, true);
+                    if (isStreamingTranslation) {
+                        ttsPlayer.finishStreaming(entryId);
+                    }
+                    if (entryId != currentId) {
+                        return;
+                    }
+                    webView.loadDataWithBaseURL("file///android_res/", finalHtml, "text/html", "UTF-8", null);
+                    toggleTranslationButton.setVisible(true);
+                    isTranslatedView = true;
+                    webViewViewModel.setTranslatedTextReady(entryId, translatedContent);
+
+                    Log.d(TAG, "FINAL translatedContent passed to TTS: " + translatedContent);
+                    Log.d(TAG, "FINAL currentId: " + currentId + ", isTranslatedView: " + isTranslatedView);
+                }, error -> {
+                    Log.e(TAG, "Cannot store the translation of " + entryId, error);
+                    loading.setVisibility(View.GONE);
+                    makeSnackbar("Translation could not be saved.");
+                }));
     }
 
     private void translate() {
-        Log.d(TAG, "translate: html\n" + webViewViewModel.getHtmlById(currentId));
         makeSnackbar("Translation in progress");
         loading.setVisibility(View.VISIBLE);
         loading.setProgress(0);
 
-        String content = webViewViewModel.getHtmlById(currentId);
-        EntryInfo entryInfo = webViewViewModel.getEntryInfoById(currentId);
-        if (entryInfo == null) {
-            makeSnackbar("Entry info could not be loaded.");
-            return;
-        }
+        long entryId = currentId;
+        compositeDisposable.add(webViewViewModel.prepareTranslation(entryId)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(loaded -> {
+                    EntryInfo entryInfo = loaded.info;
+                    Entry entry = loaded.entry;
+                    if (entryInfo == null || entry == null || entryId != currentId) {
+                        loading.setVisibility(View.GONE);
+                        makeSnackbar("Entry info could not be loaded.");
+                        return;
+                    }
+                    String content = entry.getHtml();
+                    Log.d(TAG, "translate: html\n" + content);
+
+                    String feedLanguage = entryInfo.getFeedLanguage();
+                    String userConfiguredLang = sharedPreferencesRepository.getDefaultTranslationLanguage();
+
+                    // Sample the extracted text rather than the raw html so markup does not skew the result
+                    String sampleText = entry.getContent() != null ? entry.getContent() : content;
+                    textUtil.identifyLanguageRx(entryId, entryInfo.getFeedId(), feedLanguage, sampleText).subscribe(
+                            identifiedLanguage -> {
+                                String sourceLanguage = (userConfiguredLang != null && !userConfiguredLang.isEmpty())
+                                        ? feedLanguage : identifiedLanguage;
+
+                                Log.d(TAG, "Translating from " + sourceLanguage + " to " + targetLanguage);
+                                performTranslation(entryInfo, sourceLanguage, targetLanguage, content);
+                            },
+                            error -> {
+                                Log.e(TAG, "Language identification failed, falling back to feedLanguage");
+                                performTranslation(entryInfo, feedLanguage, targetLanguage, content);
+                            }
+                    );
+                }, error -> {
+                    Log.e(TAG, "translate: cannot load entry " + entryId, error);
+                    loading.setVisibility(View.GONE);
+                    makeSnackbar("Entry info could not be loaded.");
+                }));
+    }
 
-        if (webViewViewModel.getOriginalHtmlById(currentId) == null) {
-            webViewViewModel.updateOriginalHtml(content, currentId);
-            Log.d(TAG, "Original HTML backed up before translation.");
+    private void performTranslation(EntryInfo entryInfo, String sourceLang, String targetLang, String html) {
+        // In play mode, speak the translated segments while the rest of the article is still being translated
+        final long streamingId = entryInfo.getEntryId();
+        final String title = entryInfo.getEntryTitle();
+        isStreamingTranslation = !isReadingMode;
+        if (isStreamingTranslation) {
+            ttsPlayer.startStreaming(streamingId, feedId, targetLang);
         }
+        Consumer<String> segmentCallback = segment -> {
+            if (isStreamingTranslation) {
+                ttsPlayer.appendSegment(streamingId, segment);
+            }
+        };
 
-        String feedLanguage = entryInfo.getFeedLanguage();
-        String userConfiguredLang = sharedPreferencesRepository.getDefaultTranslationLanguage();
-
-        textUtil.identifyLanguageRx(content).subscribe(
-                identifiedLanguage -> {
-                    String sourceLanguage = (userConfiguredLang != null && !userConfiguredLang.isEmpty())
-                            ? feedLanguage : identifiedLanguage;
-
-                    Log.d(TAG, "Translating from " + sourceLanguage + " to " + targetLanguage);
-                    performTranslation(sourceLanguage, targetLanguage, content, entryInfo.getEntryTitle());
-                },
-                error -> {
-                    Log.e(TAG, "Language identification failed, falling back to feedLanguage");
-                    performTranslation(feedLanguage, targetLanguage, content, entryInfo.getEntryTitle());
-                }
-        );
-    }
-
-    private void performTranslation(String sourceLang, String targetLang, String html, String title) {
         Single<String> translationFlow;
         switch (translationMethod) {
             case "lineByLine":
-                translationFlow = textUtil.translateHtmlLineByLine(sourceLang, targetLang, html, title, currentId, this::updateLoadingProgress);
+                translationFlow = textUtil.translateHtmlLineByLine(sourceLang, targetLang, html, title, streamingId, this::updateLoadingProgress, segmentCallback);
                 break;
             case "paragraphByParagraph":
-                translationFlow = textUtil.translateHtmlByParagraph(sourceLang, targetLang, html, title, currentId, this::updateLoadingProgress);
+                translationFlow = textUtil.translateHtmlByParagraph(sourceLang, targetLang, html, title, streamingId, this::updateLoadingProgress, segmentCallback);
                 break;
             default:
-                translationFlow = textUtil.translateHtmlAllAtOnce(sourceLang, targetLang, html, title, currentId, this::updateLoadingProgress);
+                translationFlow = textUtil.translateHtmlAllAtOnce(sourceLang, targetLang, html, title, streamingId, this::updateLoadingProgress, segmentCallback);
         }
 
         final String originalHtml = html;
@@ -277,10 +307,14 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
         translationFlow.subscribe(
                 translatedHtml -> {
                     Log.d(TAG, "Translation completed");
-                    doWhenTranslationFinish(webViewViewModel.getLastVisitedEntry(), originalHtml, translatedHtml);
+                    doWhenTranslationFinish(entryInfo, originalHtml, translatedHtml);
                 },
                 throwable -> {
                     Log.e(TAG, "Translation failed", throwable);
+                    if (isStreamingTranslation) {
+                        isStreamingTranslation = false;
+                        ttsPlayer.finishStreaming(streamingId);
+                    }
                     loading.setVisibility(View.GONE);
                 }
         );
@@ -295,10 +329,15 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
         webViewViewModel = new ViewModelProvider(this).get(WebViewViewModel.class);
 
         webViewViewModel.getTranslatedTextReady().observe(this, translatedText -> {
+            if (isStreamingTranslation) {
+                // TTS already consumed this translation segment by segment
+                isStreamingTranslation = false;
+                return;
+            }
             if (!isReadingMode && isTranslatedView && translatedText != null && !translatedText.trim().isEmpty()) {
                 Log.d(TAG, "TTS triggered after LiveData translation update");
 
-                String lang = getLanguageForCurrentView(currentId, isTranslatedView, "en");
+                String lang = getLanguageForCurrentView(currentEntryInfo, isTranslatedView, "en");
 
                 ttsPlayer.extract(currentId, feedId, translatedText, lang);
                 Log.d(TAG, "LiveData.observe fired, isTranslatedView = " + isTranslatedView);
@@ -315,7 +354,6 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
 
         targetLanguage = sharedPreferencesRepository.getDefaultTranslationLanguage();
         translationMethod = sharedPreferencesRepository.getTranslationMethod();
-        textUtil = new TextUtil(sharedPreferencesRepository);
         compositeDisposable = new CompositeDisposable();
 
         initializeToolbarListeners();
@@ -351,6 +389,7 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
         setContentView(binding.getRoot());
 
         webView = binding.webview;
+        segmentHighlighter = new SegmentHighlighter(webView);
         loading = binding.loadingWebView;
         functionButtons = binding.functionButtons;
         functionButtonsReadingMode = binding.functionButtonsReading;
@@ -381,37 +420,28 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
                 ? R.string.background_music_turn_off : R.string.background_music_turn_on);
     }
 
-    private void loadHtmlIntoWebView(String html) {
-        Document doc = Jsoup.parse(html);
-        doc.head().append(webViewViewModel.getStyle());
-
-        EntryInfo entryInfo = webViewViewModel.getEntryInfoById(currentId);
-        if (entryInfo != null && !doc.html().contains("class=\"entry-header\"")) {
-            doc.selectFirst("body").prepend(
-                    webViewViewModel.getHtml(
-                            entryInfo.getEntryTitle(),
-                            entryInfo.getFeedTitle(),
-                            entryInfo.getEntryPublishedDate(),
-                            entryInfo.getFeedImageUrl()
-                    )
-            );
-        }
-
-        webView.loadDataWithBaseURL("file///android_res/", doc.html(), "text/html", "UTF-8", null);
-
-        webView.postDelayed(() -> {
-            int scrollX = sharedPreferencesRepository.getScrollX(currentId);
-            int scrollY = sharedPreferencesRepository.getScrollY(currentId);
-            webView.scrollTo(scrollX, scrollY);
-        }, 300);
-
-        syncLoadingWithTts();
+    // Shows the page of the current view, built off the main thread the first time and cached by ReaderPages after that
+    private void showPage(boolean restoreScroll) {
+        long entryId = currentId;
+        compositeDisposable.add(webViewViewModel.loadPage(entryId, isTranslatedView)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(page -> {
+                    if (entryId != currentId) {
+                        return;
+                    }
+                    webView.loadDataWithBaseURL("file///android_res/", page, "text/html", "UTF-8", null);
+                    if (restoreScroll) {
+                        webView.postDelayed(() -> {
+                            int scrollX = sharedPreferencesRepository.getScrollX(entryId);
+                            int scrollY = sharedPreferencesRepository.getScrollY(entryId);
+                            webView.scrollTo(scrollX, scrollY);
+                        }, 300);
+                        syncLoadingWithTts();
+                    }
+                }, error -> Log.e(TAG, "Cannot show the page of " + entryId, error)));
     }
 
-    private void updateToggleTranslationVisibility() {
-        String originalHtml = webViewViewModel.getOriginalHtmlById(currentId);
-        String translatedHtml = webViewViewModel.getHtmlById(currentId);
-
+    private void updateToggleTranslationVisibility(String originalHtml, String translatedHtml) {
         if (originalHtml != null && translatedHtml != null && !originalHtml.equals(translatedHtml)) {
             toggleTranslationButton.setVisible(true);
         } else {
@@ -429,15 +459,26 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
         }
     }
 
+    // The article is read on an io thread so opening it does not wait behind a refresh writing to the database
     private void loadEntryContent() {
-        EntryInfo entryInfo = webViewViewModel.getLastVisitedEntry();
+        compositeDisposable.add(webViewViewModel.loadLastVisitedEntry()
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(this::showEntryContent, error -> {
+                    Log.e(TAG, "loadEntryContent failed", error);
+                    makeSnackbar("Failed to load article content.");
+                }));
+    }
+
+    private void showEntryContent(WebViewViewModel.LoadedEntry loaded) {
+        EntryInfo entryInfo = loaded.info;
         if (entryInfo == null) {
             makeSnackbar("No article to load.");
             return;
         }
 
         currentId = entryInfo.getEntryId();
-        Entry entry = entryRepository.getEntryById(currentId);
+        currentEntryInfo = entryInfo;
+        Entry entry = loaded.entry;
 
         if (entry == null) {
             makeSnackbar("Failed to load article content.");
@@ -454,11 +495,7 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
 
         if (entry.getOriginalHtml() != null && entry.getTranslated() != null) {
             toggleTranslationButton.setVisible(true);
-            webViewViewModel.updateOriginalHtml(entry.getOriginalHtml(), entry.getId());
-
-            if (entry.getHtml() != null) {
-                webViewViewModel.updateHtml(entry.getHtml(), entry.getId());
-            }
+            webViewViewModel.publishHtml(entry.getOriginalHtml(), entry.getHtml());
         } else {
             toggleTranslationButton.setVisible(false);
         }
@@ -475,19 +512,13 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
 
         Log.d(TAG, "loadEntryContent: isTranslatedView = " + isTranslatedView);
 
-        EntryInfo info = webViewViewModel.getEntryInfoById(currentId);
-        if (info == null) {
-            makeSnackbar("Feed language info not found.");
-            return;
-        }
-
         Log.d("LoadEntry", "entry.getHtml() = " + (entry.getHtml() != null));
         Log.d("LoadEntry", "entry.getTranslated() = " + (entry.getTranslated() != null));
         Log.d("LoadEntry", "isTranslatedView = " + isTranslatedView);
 
         String html = isTranslatedView
-                ? webViewViewModel.getHtmlById(currentId)
-                : webViewViewModel.getOriginalHtmlById(currentId);
+                ? entry.getHtml()
+                : entry.getOriginalHtml();
 
         Log.d("LoadEntry", "htmlToLoad (translated) = " + (html != null ? html.length() : "null"));
 
@@ -495,7 +526,7 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
                 ? entry.getTranslated()
                 : entry.getContent();
 
-        String lang = getLanguageForCurrentView(currentId, isTranslatedView, "en");
+        String lang = getLanguageForCurrentView(entryInfo, isTranslatedView, "en");
 
         Log.d(TAG, "loadEntryContent - About to speak " + (isTranslatedView ? "Translated" : "Original"));
         Log.d(TAG, "Language to use: " + lang);
@@ -504,7 +535,7 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
         ttsExtractor.setCurrentLanguage(lang, true);
 
         if (html != null && !html.trim().isEmpty()) {
-            loadHtmlIntoWebView(html);
+            showPage(true);
             ttsPlayer.extract(entry.getId(), entry.getFeedId(), contentToRead, lang);
         } else {
             Log.w(TAG, "HTML missing, skipping load.");
@@ -558,7 +589,7 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
         Log.d(TAG, "LiveEntry - HTML to Load:\n" + htmlToLoad);
 
         if (htmlToLoad != null && !htmlToLoad.trim().isEmpty()) {
-            loadHtmlToWebView(htmlToLoad);
+            showPage(false);
         } else {
             Log.w(TAG, "Skipped loading empty html in updateToggleStateAndWebView()");
         }
@@ -571,23 +602,12 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
             public void onChanged(Entry entry) {
                 if (entry != null && entry.getTranslated() != null) {
 
-                    String originalHtmlFromDb = entryRepository.getOriginalHtmlById(currentId);
-                    if (originalHtmlFromDb != null) {
-                        webViewViewModel.updateOriginalHtml(originalHtmlFromDb, currentId);
-                        Log.d(TAG, "Original HTML restored from DB.");
-                    }
-
-                    String translatedHtmlFromDb = entry.getHtml();
-                    if (translatedHtmlFromDb != null) {
-                        webViewViewModel.updateHtml(translatedHtmlFromDb, currentId);
-                        Log.d(TAG, "Translated HTML synced from auto translation.");
-                    }
+                    // Both bodies are already stored, they only need to reach the observers
+                    webViewViewModel.publishHtml(entry.getOriginalHtml(), entry.getHtml());
+                    Log.d(TAG, "Translated HTML synced from auto translation.");
 
                     toggleTranslationButton.setTitle(isTranslatedView ? "Show Original" : "Show Translation");
 
-                    Log.d(TAG, "AutoTranslation - Final Original:\n" + webViewViewModel.getOriginalHtmlById(currentId));
-                    Log.d(TAG, "AutoTranslation - Final Translated:\n" + webViewViewModel.getHtmlById(currentId));
-
                     webViewViewModel.triggerEntryRefresh(currentId);
 
                     observer.removeObserver(this);
@@ -597,29 +617,6 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
         observer.observeForever(checkAutoTranslated);
     }
 
-    private void loadHtmlToWebView(String html) {
-        if (html == null || html.trim().isEmpty()) {
-            return;
-        }
-
-        Document doc = Jsoup.parse(html);
-        doc.head().append(webViewViewModel.getStyle());
-
-        EntryInfo entryInfo = webViewViewModel.getEntryInfoById(currentId);
-        if (entryInfo != null && !doc.html().contains("class=\"entry-header\"")) {
-            doc.selectFirst("body").prepend(
-                    webViewViewModel.getHtml(
-                            entryInfo.getEntryTitle(),
-                            entryInfo.getFeedTitle(),
-                            entryInfo.getEntryPublishedDate(),
-                            entryInfo.getFeedImageUrl()
-                    )
-            );
-        }
-
-        webView.loadDataWithBaseURL("file///android_res/", doc.html(), "text/html", "UTF-8", null);
-    }
-
     private boolean handleOtherToolbarItems(int itemId) {
         switch (itemId) {
             case R.id.translate:
@@ -655,8 +652,6 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
 
             case R.id.exitBrowser:
                 sharedPreferencesRepository.setWebViewMode(currentId, false);
-                EntryInfo entryInfo = webViewViewModel.getLastVisitedEntry();
-                String rebuiltHtml = rebuildHtml(entryInfo);
                 loadEntryContent();
                 offlineButton.setVisible(false);
                 browserButton.setVisible(true);
@@ -677,60 +672,7 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
                 return true;
 
             case R.id.toggleTranslation:
-                boolean currentMode = sharedPreferencesRepository.getIsTranslatedView(currentId);
-                isTranslatedView = !currentMode;
-                sharedPreferencesRepository.setIsTranslatedView(currentId, isTranslatedView);
-
-                Entry entry = webViewViewModel.getEntryById(currentId);
-                if (entry == null) {
-                    makeSnackbar("Entry not found.");
-                    return true;
-                }
-
-                entryInfo = webViewViewModel.getEntryInfoById(currentId);
-                if (entryInfo == null) {
-                    makeSnackbar("Feed language info not found.");
-                    isTranslatedView = currentMode;
-                    sharedPreferencesRepository.setIsTranslatedView(currentId, currentMode);
-                    return true;
-                }
-
-                String translatedHtml = webViewViewModel.getHtmlById(currentId);
-                String originalHtml = webViewViewModel.getOriginalHtmlById(currentId);
-                String htmlToLoad = isTranslatedView ? translatedHtml : originalHtml;
-
-                Log.d(TAG, "TOGGLE BUTTON PRESSED");
-                Log.d(TAG, "Original HTML:\n" + originalHtml);
-                Log.d(TAG, "Translated HTML:\n" + translatedHtml);
-                Log.d(TAG, "HTML loaded for toggle view:\n" + htmlToLoad);
-
-                if (htmlToLoad != null && !htmlToLoad.trim().isEmpty()) {
-                    toggleTranslationButton.setTitle(isTranslatedView ? "Show Original" : "Show Translation");
-                    loadHtmlIntoWebView(htmlToLoad);
-
-                    if (isTranslatedView) {
-                        String translated = entry.getTranslated();
-                        if (translated != null && !translated.trim().isEmpty()) {
-                            Log.d(TAG, "ToggleTranslation: Broadcasting translatedTextReady again");
-                            webViewViewModel.setTranslatedTextReady(currentId, translated);
-                            String lang = getLanguageForCurrentView(currentId, isTranslatedView, "en");
-                            ttsPlayer.extract(entry.getId(), entry.getFeedId(), translated, lang);
-                        } else {
-                            Log.w(TAG, "ToggleTranslation: translated content missing, skipping extract");
-                        }
-                    } else {
-                        String original = entry.getContent();
-                        String lang = getLanguageForCurrentView(currentId, isTranslatedView, "en");
-                        if (original != null && !original.trim().isEmpty()) {
-                            Log.d(TAG, "ToggleTranslation: Reading original content");
-                            ttsPlayer.extract(entry.getId(), entry.getFeedId(), original, lang);
-                        }
-                    }
-                } else {
-                    makeSnackbar("No alternate version available.");
-                    isTranslatedView = currentMode;
-                    sharedPreferencesRepository.setIsTranslatedView(currentId, currentMode);
-                }
+                toggleTranslation();
                 return true;
 
             default:
@@ -738,22 +680,42 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
         }
     }
 
-    private String rebuildHtml(EntryInfo entryInfo) {
-        String html = webViewViewModel.getHtmlById(entryInfo.getEntryId());
-
-        Document doc = Jsoup.parse(html);
-        doc.head().append(webViewViewModel.getStyle());
-
-        Objects.requireNonNull(doc.selectFirst("body")).prepend(
-                webViewViewModel.getHtml(
-                        entryInfo.getEntryTitle(),
-                        entryInfo.getFeedTitle(),
-                        entryInfo.getEntryPublishedDate(),
-                        entryInfo.getFeedImageUrl()
-                )
-        );
+    // The page already holds both views, so only the shown one changes and the scroll position is kept.
+    // TTS goes on with the other text from the counterpart of the sentence it was speaking.
+    private void toggleTranslation() {
+        long entryId = currentId;
+        boolean translated = !sharedPreferencesRepository.getIsTranslatedView(entryId);
+        segmentHighlighter.show(translated, index -> {
+            if (entryId != currentId) {
+                return;
+            }
+            if (index == -2) {
+                makeSnackbar("No alternate version available.");
+                return;
+            }
+            isTranslatedView = translated;
+            sharedPreferencesRepository.setIsTranslatedView(entryId, translated);
+            toggleTranslationButton.setTitle(translated ? "Show Original" : "Show Translation");
+            readView(entryId, translated, index);
+        });
+    }
 
-        return doc.html();
+    private void readView(long entryId, boolean translated, int startAt) {
+        compositeDisposable.add(webViewViewModel.loadEntry(entryId)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(loaded -> {
+                    Entry entry = loaded.entry;
+                    if (entry == null || entryId != currentId || translated != isTranslatedView) {
+                        return;
+                    }
+                    String content = translated ? entry.getTranslated() : entry.getContent();
+                    if (content == null || content.trim().isEmpty()) {
+                        Log.w(TAG, "toggleTranslation: no text to read in the " + (translated ? "translated" : "original") + " view");
+                        return;
+                    }
+                    String lang = getLanguageForCurrentView(loaded.info, translated, "en");
+                    ttsPlayer.extract(entry.getId(), entry.getFeedId(), content, lang, startAt);
+                }, error -> Log.e(TAG, "toggleTranslation: cannot load entry " + entryId, error)));
     }
 
     private void adjustTextZoom(boolean zoomIn) {
@@ -834,7 +796,7 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
                 ttsPlayer.setWebViewCallback(null);
                 mMediaBrowserHelper.getTransportControls().stop();
                 mMediaBrowserHelper.onStop();
-                webView.clearMatches();
+                segmentHighlighter.clear();
                 switchReadMode();
                 return true;
 
@@ -842,7 +804,7 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
                 boolean isHighlight = sharedPreferencesRepository.getHighlightText();
                 sharedPreferencesRepository.setHighlightText(!isHighlight);
                 if (isHighlight) {
-                    webView.clearMatches();
+                    segmentHighlighter.clear();
                     highlightTextButton.setTitle(R.string.highlight_text_turn_on);
                     Snackbar.make(findViewById(R.id.webView_view), "Highlight is turned off", Snackbar.LENGTH_SHORT).show();
                 } else {
@@ -946,27 +908,8 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
 
         webView.setWebViewClient(new ReadingWebClient());
 
-        binding.nextArticleButton.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View view) {
-                if (ttsPlaylist.skipNext()) {
-                    setupReadingWebView();
-                } else {
-                    Snackbar.make(findViewById(R.id.webView_view), "This is the last article", Snackbar.LENGTH_SHORT).show();
-                }
-            }
-        });
-
-        binding.previousArticleButton.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View view) {
-                if (ttsPlaylist.skipPrevious()) {
-                    setupReadingWebView();
-                } else {
-                    Snackbar.make(findViewById(R.id.webView_view), "This is the first article", Snackbar.LENGTH_SHORT).show();
-                }
-            }
-        });
+        binding.nextArticleButton.setOnClickListener(view -> skipReading(ttsPlaylist::skipNext, "This is the last article"));
+        binding.previousArticleButton.setOnClickListener(view -> skipReading(ttsPlaylist::skipPrevious, "This is the first article"));
 
         setupReadingWebView();
 
@@ -975,6 +918,20 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
         switchPlayModeButton.setVisible(true);
     }
 
+    // The playlist moves on io, the next article is then read like any other
+    private void skipReading(Callable<Boolean> move, String edgeMessage) {
+        compositeDisposable.add(Single.fromCallable(move)
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(moved -> {
+                    if (moved) {
+                        setupReadingWebView();
+                    } else {
+                        Snackbar.make(findViewById(R.id.webView_view), edgeMessage, Snackbar.LENGTH_SHORT).show();
+                    }
+                }, error -> Log.e(TAG, "Cannot move through the playlist", error)));
+    }
+
     private void switchPlayMode() {
         webView.setWebViewClient(new WebClient());
         setupMediaPlaybackButtons();
@@ -1010,13 +967,22 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
         translationButton.setVisible(false);
         showOfflineButton = false;
 
-        MediaMetadataCompat metadata = ttsPlaylist.getCurrentMetadata();
+        compositeDisposable.add(ttsPlaylist.loadCurrentMetadata()
+                .flatMap(metadata -> webViewViewModel.loadEntry(Long.parseLong(metadata.getString(MediaMetadataCompat.METADATA_KEY_MEDIA_ID)))
+                        .map(loaded -> new Pair<>(metadata, loaded)))
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(pair -> showReadingEntry(pair.first, pair.second),
+                        error -> Log.e(TAG, "setupReadingWebView failed", error)));
+    }
 
-        content = metadata.getString("content");
+    private void showReadingEntry(MediaMetadataCompat metadata, WebViewViewModel.LoadedEntry loaded) {
+        Entry entry = loaded.entry;
+        content = entry != null ? entry.getContent() : null;
         bookmark = metadata.getString("bookmark");
         currentLink = metadata.getString("link");
         currentId = Long.parseLong(metadata.getString(MediaMetadataCompat.METADATA_KEY_MEDIA_ID));
-        updateToggleTranslationVisibility();
+        currentEntryInfo = loaded.info;
+        updateToggleTranslationVisibility(entry != null ? entry.getOriginalHtml() : null, entry != null ? entry.getHtml() : null);
         feedId = metadata.getLong("feedId");
 
         if (bookmark == null || bookmark.equals("N")) {
@@ -1041,16 +1007,12 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
             String feedImageUrl = metadata.getString("feedImageUrl");
 
             isTranslatedView = sharedPreferencesRepository.getIsTranslatedView(currentId);
-            String htmlToLoad = isTranslatedView
-                    ? webViewViewModel.getHtmlById(currentId)
-                    : webViewViewModel.getOriginalHtmlById(currentId);
-
-            if (htmlToLoad == null) {
-                htmlToLoad = metadata.getString("html");
-            }
+            String htmlToLoad = entry == null ? null : isTranslatedView
+                    ? entry.getHtml()
+                    : entry.getOriginalHtml();
 
             if (htmlToLoad != null) {
-                loadHtmlIntoWebView(htmlToLoad);
+                showPage(true);
             }
 
             offlineButton.setVisible(false);
@@ -1063,7 +1025,7 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
     }
 
     @Override
-    public void highlightText(String searchText) {
+    public void highlightText(int index, String searchText) {
         if (!isReadingMode && sharedPreferencesRepository.getHighlightText()) {
             String text = searchText.trim();
             if (webViewViewModel.endsWithBreak(text)) {
@@ -1071,10 +1033,15 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
             }
             Log.d(TAG, "Highlighted text: " + text);
             String finalText = text.trim();
-            ContextCompat.getMainExecutor(getApplicationContext()).execute(() -> webView.findAllAsync(finalText));
+            ContextCompat.getMainExecutor(getApplicationContext()).execute(() -> segmentHighlighter.highlight(index, finalText));
         }
     }
 
+    @Override
+    public void indexSegments(List<String> segments) {
+        ContextCompat.getMainExecutor(getApplicationContext()).execute(() -> segmentHighlighter.setSegments(segments));
+    }
+
     @Override
     public void finishedSetup() {
         ContextCompat.getMainExecutor(getApplicationContext()).execute(new Runnable() {
@@ -1096,12 +1063,12 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
         });
     }
 
-    private String getLanguageForCurrentView(long entryId, boolean isTranslated, String defaultLang) {
+    // The feed details come loaded with the entry, so nothing is read from the database here
+    private String getLanguageForCurrentView(@Nullable EntryInfo info, boolean isTranslated, String defaultLang) {
         if (isTranslated) {
             return sharedPreferencesRepository.getDefaultTranslationLanguage();
         }
 
-        EntryInfo info = webViewViewModel.getEntryInfoById(entryId);
         String lang = (info != null && info.getFeedLanguage() != null && !info.getFeedLanguage().trim().isEmpty())
                 ? info.getFeedLanguage()
                 : defaultLang;
@@ -1124,20 +1091,28 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
 
         Log.d(TAG, "Reload triggered for entryId: " + currentId);
 
-        webViewViewModel.resetEntry(currentId);
-        webViewViewModel.clearLiveEntryCache(currentId);
+        long entryId = currentId;
         if (getIntent().getBooleanExtra("forceOriginal", false)) {
-            sharedPreferencesRepository.setIsTranslatedView(currentId, false);
+            sharedPreferencesRepository.setIsTranslatedView(entryId, false);
         }
 
         if (!isReadingMode) {
             mMediaBrowserHelper.getTransportControls().stop();
         }
 
-        finish();
-        overridePendingTransition(0, 0);
-        startActivity(getIntent());
-        overridePendingTransition(0, 0);
+        // Restarted once the bodies are cleared, so the new activity extracts the entry again
+        compositeDisposable.add(webViewViewModel.resetEntry(entryId)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(() -> {
+                    webViewViewModel.clearLiveEntryCache(entryId);
+                    finish();
+                    overridePendingTransition(0, 0);
+                    startActivity(getIntent());
+                    overridePendingTransition(0, 0);
+                }, error -> {
+                    Log.e(TAG, "reload: cannot reset entry " + entryId, error);
+                    makeSnackbar("Reload failed.");
+                }));
     }
 
     @Override
@@ -1257,6 +1232,12 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
             return true;
         }
 
+        @Override
+        public void onPageFinished(WebView view, String url) {
+            super.onPageFinished(view, url);
+            segmentHighlighter.index();
+        }
+
         @Override
         public void onPageCommitVisible(WebView view, String url) {
             super.onPageCommitVisible(view, url);
@@ -1352,11 +1333,9 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
             highlightTextButton.setVisible(false);
             showOfflineButton = false;
 
-            content = metadata.getString("content");
             bookmark = metadata.getString("bookmark");
             currentLink = metadata.getString("link");
             currentId = Long.parseLong(metadata.getString(MediaMetadataCompat.METADATA_KEY_MEDIA_ID));
-            updateToggleTranslationVisibility();
             feedId = metadata.getLong("feedId");
 
             if (bookmark == null || bookmark.equals("N")) {
@@ -1365,45 +1344,56 @@ public class WebViewActivity extends AppCompatActivity implements WebViewListene
                 bookmarkButton.setIcon(R.drawable.ic_bookmark_filled);
             }
 
-            isTranslatedView = sharedPreferencesRepository.getIsTranslatedView(currentId);
-            String htmlToLoad = isTranslatedView
-                    ? webViewViewModel.getHtmlById(currentId)
-                    : webViewViewModel.getOriginalHtmlById(currentId);
-
-            if (htmlToLoad == null) {
-                htmlToLoad = metadata.getString("html");
-            }
+            long entryId = currentId;
+            compositeDisposable.add(webViewViewModel.loadEntry(entryId)
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(loaded -> {
+                        if (entryId == currentId) {
+                            showPlayingEntry(metadata, loaded);
+                        }
+                    }, error -> Log.e(TAG, "onMetadataChanged: cannot load entry " + entryId, error)));
+        }
 
-            boolean isWebViewMode = sharedPreferencesRepository.getWebViewMode(currentId);
+        @Override
+        public void onSessionDestroyed() {
+            super.onSessionDestroyed();
+        }
+    }
 
-            if (isWebViewMode) {
-                webView.loadUrl(currentLink);
-                Log.d(TAG, "Restoring web view mode: " + currentLink);
-                browserButton.setVisible(false);
-                offlineButton.setVisible(true);
-                showOfflineButton = false;
-            } else if (htmlToLoad != null) {
-                loadHtmlIntoWebView(htmlToLoad);
-                browserButton.setVisible(true);
-                offlineButton.setVisible(false);
-                showOfflineButton = false;
-            } else {
-                webView.loadUrl(currentLink);
-                Log.d(TAG, "Fallback: loading live URL - " + currentLink);
-                browserButton.setVisible(false);
-                showOfflineButton = true;
-            }
+    private void showPlayingEntry(MediaMetadataCompat metadata, WebViewViewModel.LoadedEntry loaded) {
+        Entry entry = loaded.entry;
+        content = entry != null ? entry.getContent() : null;
+        currentEntryInfo = loaded.info;
+        updateToggleTranslationVisibility(entry != null ? entry.getOriginalHtml() : null, entry != null ? entry.getHtml() : null);
 
+        isTranslatedView = sharedPreferencesRepository.getIsTranslatedView(currentId);
+        String htmlToLoad = entry == null ? null : isTranslatedView
+                ? entry.getHtml()
+                : entry.getOriginalHtml();
 
-            if (ttsPlayer.isWebViewConnected()) {
-                ttsPlayer.setUiControlPlayback(true);
-            }
+        boolean isWebViewMode = sharedPreferencesRepository.getWebViewMode(currentId);
 
+        if (isWebViewMode) {
+            webView.loadUrl(currentLink);
+            Log.d(TAG, "Restoring web view mode: " + currentLink);
+            browserButton.setVisible(false);
+            offlineButton.setVisible(true);
+            showOfflineButton = false;
+        } else if (htmlToLoad != null) {
+            showPage(true);
+            browserButton.setVisible(true);
+            offlineButton.setVisible(false);
+            showOfflineButton = false;
+        } else {
+            webView.loadUrl(currentLink);
+            Log.d(TAG, "Fallback: loading live URL - " + currentLink);
+            browserButton.setVisible(false);
+            showOfflineButton = true;
         }
 
-        @Override
-        public void onSessionDestroyed() {
-            super.onSessionDestroyed();
+
+        if (ttsPlayer.isWebViewConnected()) {
+            ttsPlayer.setUiControlPlayback(true);
         }
     }
 
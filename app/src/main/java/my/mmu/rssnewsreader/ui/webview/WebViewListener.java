@@ -1,7 +1,11 @@
 package my.mmu.rssnewsreader.ui.webview;
 
+import java.util.List;
+
 public interface WebViewListener {
-    void highlightText(String searchText);
+    // index is the sentence's position in the list last passed to indexSegments, -1 when it is not in it
+    void highlightText(int index, String searchText);
+    void indexSegments(List<String> segments);
     void finishedSetup();
     void makeSnackbar(String message);
     void reload();
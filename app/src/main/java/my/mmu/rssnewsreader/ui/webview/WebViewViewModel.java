@@ -1,7 +1,8 @@
 package my.mmu.rssnewsreader.ui.webview;
 
-import android.annotation.SuppressLint;
+import android.util.Log;
 
+import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Transformations;
@@ -9,9 +10,10 @@ import androidx.lifecycle.ViewModel;
 
 import my.mmu.rssnewsreader.data.entry.Entry;
 import my.mmu.rssnewsreader.data.entry.EntryRepository;
+import my.mmu.rssnewsreader.data.entry.ReaderPages;
+import my.mmu.rssnewsreader.data.playback.PlaybackPositionRepository;
 import my.mmu.rssnewsreader.model.EntryInfo;
 
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -19,11 +21,19 @@ import java.util.Map;
 import javax.inject.Inject;
 
 import dagger.hilt.android.lifecycle.HiltViewModel;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 
 @HiltViewModel
 public class WebViewViewModel extends ViewModel {
 
+    private static final String TAG = "WebViewViewModel";
+
     private EntryRepository entryRepository;
+    private PlaybackPositionRepository playbackPositionRepository;
+    private ReaderPages readerPages;
 
     private final MutableLiveData<String> originalHtmlLiveData = new MutableLiveData<>();
 
@@ -44,85 +54,113 @@ public class WebViewViewModel extends ViewModel {
     }
 
     @Inject
-    public WebViewViewModel(EntryRepository entryRepository) {
+    public WebViewViewModel(EntryRepository entryRepository, PlaybackPositionRepository playbackPositionRepository, ReaderPages readerPages) {
         this.entryRepository = entryRepository;
+        this.playbackPositionRepository = playbackPositionRepository;
+        this.readerPages = readerPages;
     }
 
-    public void resetEntry(long id) {
-        entryRepository.updateHtml(null, id);
-        entryRepository.updateOriginalHtml(null, id);
-        entryRepository.updateTranslatedText(null, id);
-        entryRepository.updateTranslated(null, id);
-        entryRepository.updateContent(null, id);
-        entryRepository.updateSentCountByLink(0, id);
-        entryRepository.updatePriority(1, id);
+    // Clears the bodies on io so the entry is extracted again
+    public Completable resetEntry(long id) {
+        return Completable.fromAction(() -> {
+                    entryRepository.updateHtml(null, id);
+                    entryRepository.updateOriginalHtml(null, id);
+                    entryRepository.updateTranslated(null, id);
+                    entryRepository.updateContent(null, id);
+                    playbackPositionRepository.reset(id);
+                    entryRepository.updatePriority(1, id);
+                })
+                .subscribeOn(Schedulers.io());
     }
 
     public void clearLiveEntryCache(long id) {
-        Entry entry = entryRepository.getEntryById(id);
-        if (entry != null) {
-            entry.setTranslated(null);
-            entry.setHtml(null);
-            entry.setContent(null);
-        }
+        entryRepository.invalidateCachedEntry(id);
     }
 
-    public void updateHtml(String html, long id) {
+    private void updateHtml(String html, long id) {
         entryRepository.updateHtml(html, id);
         translatedHtmlLiveData.postValue(html);
     }
 
-    public void updateContent(String content, long id) {
-        entryRepository.updateContent(content, id);
-    }
-
     public void updateBookmark(String bool, long id) {
-        entryRepository.updateBookmark(bool, id);
+        Completable.fromAction(() -> entryRepository.updateBookmark(bool, id))
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> {}, error -> Log.e(TAG, "Cannot update the bookmark of " + id, error));
     }
 
-    public EntryInfo getLastVisitedEntry() {
-        return entryRepository.getLastVisitedEntry();
+    // The stored html of an entry, read on an io thread. Empty when it has none.
+    public Maybe<String> loadHtml(long id) {
+        return Maybe.fromCallable(() -> entryRepository.getHtmlById(id))
+                .subscribeOn(Schedulers.io());
     }
 
-    public String getHtmlById(long id) {
-        return entryRepository.getHtmlById(id);
+    public String getStyle() {
+        return ReaderPages.STYLE;
     }
 
-    public String getStyle() {
-        return "<style>\n" +
-                "    @font-face {\n" +
-                "        font-family: open_sans;\n" +
-                "        src: url(\"file:///android_res/font/open_sans.ttf\")\n" +
-                "    }\n" +
-                "    body {\n" +
-                "        font-family: open_sans;\n" +
-                "        text-align: justify;\n" +
-                "        font-size: 0.875em;\n" +
-                "    }\n" +
-                "</style>";
-    }
-
-    @SuppressLint("SimpleDateFormat")
     public String getHtml(String entryTitle, String feedTitle, Date publishDate, String feedImageUrl) {
-        return "<div class=\"entry-header\">" +
-                "  <div style=\"display: flex; align-items: center;\">" +
-                "    <img style=\"margin-right: 10px; width: 20px; height: 20px\" src=" + feedImageUrl + ">" +
-                "    <p style=\"font-size: 0.75em\">" + feedTitle + "</p>" +
-                "  </div>" +
-                "  <p style=\"margin:0; font-size: 1.25em; font-weight:bold\">" + entryTitle + "</p>" +
-                "  <p style=\"font-size: 0.75em;\">" + new SimpleDateFormat("EEE, d MMM yyyy 'at' hh:mm aaa").format(publishDate) + "</p>" +
-                "</div>";
+        return ReaderPages.header(entryTitle, feedTitle, publishDate, feedImageUrl);
     }
 
     public boolean endsWithBreak(String text) {
         return text.endsWith(".") || text.endsWith("?") || text.endsWith("!") || text.endsWith("！") || text.endsWith("？") || text.endsWith("。");
     }
 
-    public EntryInfo getEntryInfoById(long id) {
-        return entryRepository.getEntryInfoById(id);
+    // Shows bodies that are already stored without writing them back
+    public void publishHtml(String originalHtml, String translatedHtml) {
+        originalHtmlLiveData.postValue(originalHtml);
+        translatedHtmlLiveData.postValue(translatedHtml);
+    }
+
+    // The entry with its bodies and feed details, read on an io thread
+    public Single<LoadedEntry> loadEntry(long id) {
+        return Single.fromCallable(() -> new LoadedEntry(entryRepository.getEntryInfoById(id), entryRepository.getEntryById(id)))
+                .subscribeOn(Schedulers.io());
+    }
+
+    // The finished page for one view of the entry, built or read from the cache on an io thread. Empty when the view has no html.
+    public Maybe<String> loadPage(long id, boolean translated) {
+        return Maybe.fromCallable(() -> {
+                    Entry entry = entryRepository.getEntryById(id);
+                    return entry != null ? readerPages.get(entryRepository.getEntryInfoById(id), entry, translated) : null;
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    // The entry about to be translated, with its html backed up as the original first if it has none yet
+    public Single<LoadedEntry> prepareTranslation(long id) {
+        return Single.fromCallable(() -> {
+                    EntryInfo info = entryRepository.getEntryInfoById(id);
+                    Entry entry = info != null ? entryRepository.getEntryById(id) : null;
+                    if (entry != null && entry.getOriginalHtml() == null && entry.getHtml() != null) {
+                        updateOriginalHtml(entry.getHtml(), id);
+                    }
+                    return new LoadedEntry(info, entry);
+                })
+                .subscribeOn(Schedulers.io());
     }
 
-    public void updateOriginalHtml(String html, long id) {
+    // Stores a finished translation on io: the original html when none was kept yet, the page and the text TTS reads
+    public Completable saveTranslation(long id, @Nullable String originalHtml, String html, String translated) {
+        return Completable.fromAction(() -> {
+                    if (originalHtml != null && entryRepository.getOriginalHtmlById(id) == null) {
+                        updateOriginalHtml(originalHtml, id);
+                    }
+                    updateHtml(html, id);
+                    entryRepository.updateTranslated(translated, id);
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    public Single<LoadedEntry> loadLastVisitedEntry() {
+        return Single.fromCallable(() -> {
+                    EntryInfo info = entryRepository.getLastVisitedEntry();
+                    return new LoadedEntry(info, info != null ? entryRepository.getEntryById(info.getEntryId()) : null);
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    private void updateOriginalHtml(String html, long id) {
         entryRepository.updateOriginalHtml(html, id);
         originalHtmlLiveData.postValue(html);
     }
@@ -135,10 +173,6 @@ public class WebViewViewModel extends ViewModel {
         return translatedHtmlLiveData;
     }
 
-    public String getOriginalHtmlById(long id) {
-        return entryRepository.getOriginalHtmlById(id);
-    }
-
     public void triggerEntryRefresh(long entryId) {
         entryIdTrigger.postValue(entryId);
     }
@@ -153,23 +187,15 @@ public class WebViewViewModel extends ViewModel {
         return entryRepository.getEntryEntityById(entryId);
     }
 
-    public Entry getEntryById(long entryId) {
-        return entryRepository.getEntryById(entryId);
-    }
-
-    public String getTranslatedById(long id) {
-        Entry entry = getEntryById(id);
-        return (entry != null) ? entry.getTranslated() : null;
-    }
-
-    public void updateTranslated(String text, long entryId) {
-        entryRepository.updateTranslated(text, entryId);
-    }
+    public static class LoadedEntry {
+        @Nullable
+        public final EntryInfo info;
+        @Nullable
+        public final Entry entry;
 
-    public void updateEntryTranslatedField(long entryId, String translatedContent) {
-        Entry entry = entryRepository.getEntryById(entryId);
-        if (entry != null) {
-            entry.setTranslated(translatedContent);
+        LoadedEntry(@Nullable EntryInfo info, @Nullable Entry entry) {
+            this.info = info;
+            this.entry = entry;
         }
     }
 
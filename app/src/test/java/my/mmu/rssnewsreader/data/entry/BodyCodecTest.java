@@ -0,0 +1,110 @@
+package my.mmu.rssnewsreader.data.entry;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BodyCodecTest {
+
+    private static final String HTML = "<html><body><h1>Title</h1><p>The first paragraph of the article.</p>"
+            + "<p>The second paragraph, with <a href=\"https://www.example.com/\">a link</a>.</p></body></html>";
+
+    @Test
+    public void nullAndEmptyAreKept() {
+        assertNull(BodyCodec.encode(null));
+        assertNull(BodyCodec.decode(null));
+        assertEquals(0, BodyCodec.encode("").length);
+        assertEquals("", BodyCodec.decode(new byte[0]));
+    }
+
+    @Test
+    public void deflatedRoundTrip() {
+        byte[] data = BodyCodec.encode(HTML);
+        assertEquals('Z', data[0]);
+        assertEquals(HTML, BodyCodec.decode(data));
+        assertFalse(BodyCodec.dependsOnBase(data));
+    }
+
+    @Test
+    public void deflatedRoundTripOfMultibyteText() {
+        String text = "Überschrift--####--日本語の文章。--####--Ελληνικά 🎧";
+        assertEquals(text, BodyCodec.decode(BodyCodec.encode(text)));
+    }
+
+    @Test
+    public void sameAsBaseIsOneByte() {
+        byte[] data = BodyCodec.encodeAgainst(HTML, HTML);
+        assertArrayEquals(new byte[]{'S'}, data);
+        assertTrue(BodyCodec.isSameAsBase(data));
+        assertTrue(BodyCodec.dependsOnBase(data));
+        assertEquals(HTML, BodyCodec.decode(data, HTML));
+    }
+
+    @Test
+    public void deltaRoundTrip() {
+        String translated = HTML.replace("paragraph", "Absatz");
+        byte[] data = BodyCodec.encodeAgainst(translated, HTML);
+        assertEquals('D', data[0]);
+        assertTrue(BodyCodec.dependsOnBase(data));
+        assertEquals(translated, BodyCodec.decode(data, HTML));
+        // Without its base a delta cannot be read
+        assertNull(BodyCodec.decode(data));
+    }
+
+    @Test
+    public void deltaAgainstBaseLongerThanTheWindow() {
+        StringBuilder base = new StringBuilder();
+        for (int i = 0; base.length() < 100_000; i++) {
+            base.append("<p>Sentence number ").append(i).append(".</p>");
+        }
+        String text = base + "<p>One more.</p>";
+        assertEquals(text, BodyCodec.decode(BodyCodec.encodeAgainst(text, base.toString()), base.toString()));
+    }
+
+    @Test
+    public void withoutDeltaOnlyEqualityRefersToBase() {
+        assertEquals('Z', BodyCodec.encodeAgainst(HTML + "x", HTML, false)[0]);
+        assertArrayEquals(new byte[]{'S'}, BodyCodec.encodeAgainst(HTML, HTML, false));
+    }
+
+    @Test
+    public void missingBaseEncodesOnItsOwn() {
+        assertEquals('Z', BodyCodec.encodeAgainst(HTML, null)[0]);
+        assertEquals('Z', BodyCodec.encodeAgainst(HTML, "")[0]);
+        assertEquals(0, BodyCodec.encodeAgainst("", HTML).length);
+        assertNull(BodyCodec.encodeAgainst(null, HTML));
+    }
+
+    @Test
+    public void fileReferenceRoundTrip() {
+        byte[] reference = BodyCodec.fileReference(123_456_789L, 0xCAFEBABEL);
+        assertEquals(17, reference.length);
+        assertEquals('F', reference[0]);
+        assertTrue(BodyCodec.isFileReference(reference));
+        assertEquals(123_456_789L, BodyCodec.fileLength(reference));
+        assertEquals(0xCAFEBABEL, BodyCodec.fileChecksum(reference));
+        assertFalse(BodyCodec.dependsOnBase(reference));
+        // EntryRepository reads these through BodyFileStore
+        assertNull(BodyCodec.decode(reference));
+    }
+
+    @Test
+    public void otherBlobsAreNotFileReferences() {
+        assertFalse(BodyCodec.isFileReference(null));
+        assertFalse(BodyCodec.isFileReference(BodyCodec.encode(HTML)));
+        assertFalse(BodyCodec.isFileReference(new byte[]{'F'}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownMarkerIsRejected() {
+        BodyCodec.decode(new byte[]{'X', 1, 2});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedBodyIsRejected() {
+        byte[] data = BodyCodec.encode(HTML);
+        BodyCodec.decode(Arrays.copyOf(data, data.length / 2));
+    }
+}
@@ -0,0 +1,143 @@
+package my.mmu.rssnewsreader.data.entry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BodyFileStoreTest {
+
+    private static final long ID = 42;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+    private BodyFileStore store;
+
+    @Before
+    public void setUp() {
+        root = folder.getRoot();
+        store = new BodyFileStore(root);
+    }
+
+    @Test
+    public void contentIsStoredAsASegmentTable() throws IOException {
+        String content = "First sentence.--####--Second sentence.--####--Third.";
+        byte[] reference = store.write(ID, BodyFileStore.CONTENT, content);
+
+        assertTrue(BodyCodec.isFileReference(reference));
+        // Count and three end offsets in front of the segments themselves
+        int segments = "First sentence.Second sentence.Third.".length();
+        assertEquals(4 + 3 * 4 + segments, BodyCodec.fileLength(reference));
+        assertEquals(BodyCodec.fileLength(reference), onlyFile(BodyFileStore.CONTENT).length());
+
+        assertEquals(Arrays.asList("First sentence.", "Second sentence.", "Third."), store.readSegments(ID, reference));
+        assertEquals(content, store.read(ID, BodyFileStore.CONTENT, reference));
+    }
+
+    @Test
+    public void segmentOffsetsAreInBytes() throws IOException {
+        String content = "Größe--####--日本語--####--🎧 ok";
+        byte[] reference = store.write(ID, BodyFileStore.CONTENT, content);
+
+        List<String> segments = store.readSegments(ID, reference);
+        assertEquals(3, segments.size());
+        assertEquals("日本語", segments.get(1));
+        assertEquals("🎧 ok", segments.get(2));
+        assertEquals("Größe", segments.get(0));
+        assertEquals(content, store.read(ID, BodyFileStore.CONTENT, reference));
+    }
+
+    @Test
+    public void emptySegmentsAreKept() throws IOException {
+        String content = "--####--a--####----####--b--####--";
+        byte[] reference = store.write(ID, BodyFileStore.CONTENT, content);
+
+        assertEquals(Arrays.asList("", "a", "", "b", ""), store.readSegments(ID, reference));
+        assertEquals(content, store.read(ID, BodyFileStore.CONTENT, reference));
+    }
+
+    @Test
+    public void contentWithoutDelimiterIsOneSegment() throws IOException {
+        byte[] reference = store.write(ID, BodyFileStore.CONTENT, "Only one");
+        assertEquals(Arrays.asList("Only one"), store.readSegments(ID, reference));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void segmentOutOfRangeThrows() throws IOException {
+        byte[] reference = store.write(ID, BodyFileStore.CONTENT, "a--####--b");
+        store.readSegments(ID, reference).get(2);
+    }
+
+    @Test
+    public void otherColumnsAreStoredAsIs() throws IOException {
+        String html = "<p>a</p>--####--<p>b</p>";
+        byte[] reference = store.write(ID, BodyFileStore.HTML, html);
+
+        assertEquals(html.getBytes(StandardCharsets.UTF_8).length, BodyCodec.fileLength(reference));
+        assertEquals(html, store.read(ID, BodyFileStore.HTML, reference));
+    }
+
+    @Test
+    public void damagedFileIsNotRead() throws IOException {
+        byte[] reference = store.write(ID, BodyFileStore.CONTENT, "First.--####--Second.");
+        try (RandomAccessFile file = new RandomAccessFile(onlyFile(BodyFileStore.CONTENT), "rw")) {
+            file.seek(file.length() - 1);
+            file.write('!');
+        }
+        assertNull(store.read(ID, BodyFileStore.CONTENT, reference));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedSegmentsAreNotMapped() throws IOException {
+        byte[] reference = store.write(ID, BodyFileStore.CONTENT, "First.--####--Second.");
+        try (RandomAccessFile file = new RandomAccessFile(onlyFile(BodyFileStore.CONTENT), "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        store.readSegments(ID, reference);
+    }
+
+    @Test
+    public void retainKeepsOnlyTheReferencedVersion() throws IOException {
+        byte[] old = store.write(ID, BodyFileStore.CONTENT, "Old.");
+        byte[] current = store.write(ID, BodyFileStore.CONTENT, "New.");
+        store.write(ID, BodyFileStore.HTML, "<p>New.</p>");
+        assertEquals(3, new File(root, String.valueOf(ID)).list().length);
+
+        store.retain(ID, BodyFileStore.CONTENT, current);
+        assertEquals(2, new File(root, String.valueOf(ID)).list().length);
+        assertEquals("New.", store.read(ID, BodyFileStore.CONTENT, current));
+        assertNull(store.read(ID, BodyFileStore.CONTENT, old));
+
+        store.retain(ID, BodyFileStore.CONTENT, null);
+        store.retain(ID, BodyFileStore.HTML, null);
+        assertFalse(new File(root, String.valueOf(ID)).exists());
+    }
+
+    @Test
+    public void orphansAreDeleted() throws IOException {
+        store.write(1, BodyFileStore.HTML, "kept");
+        store.write(2, BodyFileStore.HTML, "removed");
+
+        store.deleteOrphans(id -> id == 1);
+        assertTrue(new File(root, "1").exists());
+        assertFalse(new File(root, "2").exists());
+    }
+
+    private File onlyFile(String column) {
+        File[] files = new File(root, String.valueOf(ID)).listFiles((directory, name) -> name.startsWith(column + "-"));
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        return files[0];
+    }
+}
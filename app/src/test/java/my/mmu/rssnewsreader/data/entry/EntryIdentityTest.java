@@ -0,0 +1,63 @@
+package my.mmu.rssnewsreader.data.entry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EntryIdentityTest {
+
+    @Test
+    public void normalizeDropsSchemeWwwFragmentAndTrailingSlash() {
+        assertEquals("example.com/news/story", EntryIdentity.normalizeLink("https://www.Example.com/news/story/#comments"));
+        assertEquals("example.com/news/story", EntryIdentity.normalizeLink("http://example.com/news/story"));
+    }
+
+    @Test
+    public void normalizeDropsOnlyTrackingParameters() {
+        assertEquals("example.com/story?id=3&page=2",
+                EntryIdentity.normalizeLink("https://example.com/story?utm_source=rss&id=3&utm_medium=feed&page=2"));
+        assertEquals("example.com/story", EntryIdentity.normalizeLink("https://example.com/story?utm_campaign=x"));
+    }
+
+    @Test
+    public void normalizeKeepsPathCase() {
+        assertEquals("example.com/Story/ABC", EntryIdentity.normalizeLink(" https://EXAMPLE.com/Story/ABC "));
+    }
+
+    @Test
+    public void normalizeFallsBackToLowerCase() {
+        assertEquals("not a link", EntryIdentity.normalizeLink(" Not A Link "));
+        assertEquals("relative/path", EntryIdentity.normalizeLink("Relative/Path"));
+    }
+
+    @Test
+    public void permalinkGuidHashesLikeItsLink() {
+        String link = "https://www.example.com/story/";
+        assertEquals(EntryIdentity.hash(null, link, "Title"), EntryIdentity.hash("http://example.com/story", null, "Other"));
+        assertEquals(EntryIdentity.hash(null, link, null), EntryIdentity.hash(null, "https://example.com/story?utm_source=rss", null));
+    }
+
+    @Test
+    public void guidWinsOverLinkAndTitle() {
+        long hash = EntryIdentity.hash("urn:uuid:1234", "https://example.com/a", "Title");
+        assertEquals(hash, EntryIdentity.hash(" urn:uuid:1234 ", "https://example.com/b", "Another title"));
+        assertNotEquals(hash, EntryIdentity.hash(null, "https://example.com/a", "Title"));
+    }
+
+    @Test
+    public void linkWinsOverTitle() {
+        assertEquals(EntryIdentity.hash("", "https://example.com/a", "Title"), EntryIdentity.hash("  ", "https://example.com/a", "Changed"));
+    }
+
+    @Test
+    public void titleIgnoresCaseAndWhitespace() {
+        assertEquals(EntryIdentity.hash(null, null, "Breaking   News\n today"), EntryIdentity.hash(null, "", " breaking news today "));
+        assertNotEquals(EntryIdentity.hash(null, null, "Breaking News"), EntryIdentity.hash(null, null, "Other News"));
+    }
+
+    @Test
+    public void hashIsNeverTheUnhashedDefault() {
+        assertNotEquals(0, EntryIdentity.hash(null, null, null));
+        assertEquals(EntryIdentity.hash(null, null, null), EntryIdentity.hash(null, null, ""));
+    }
+}
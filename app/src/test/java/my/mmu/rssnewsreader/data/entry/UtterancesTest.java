@@ -0,0 +1,103 @@
+package my.mmu.rssnewsreader.data.entry;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class UtterancesTest {
+
+    // What TextToSpeech.getMaxSpeechInputLength() returns on current devices
+    private static final int MAX_LENGTH = 4000;
+
+    @Test
+    public void segmentsAreTrimmedAndEmptyOnesDropped() {
+        Utterances utterances = Utterances.split("  First sentence. --####--\n --####--Second one.\t--####--", MAX_LENGTH);
+        assertEquals(Arrays.asList("First sentence.", "Second one."), utterances);
+    }
+
+    @Test
+    public void emptyTextHasNoUtterances() {
+        assertEquals(Collections.emptyList(), Utterances.split("", MAX_LENGTH));
+        assertEquals(Collections.emptyList(), Utterances.split("--####--  --####--", MAX_LENGTH));
+    }
+
+    @Test
+    public void longSegmentsAreCutAtSentences() {
+        String text = "Short.--####--One sentence here. Another sentence there. And a third.";
+        Utterances utterances = Utterances.split(text, 20);
+
+        assertEquals(4, utterances.size());
+        assertEquals("Short.", utterances.get(0));
+        assertEquals("One sentence here.", utterances.get(1).trim());
+        assertEquals("Another sentence there.", utterances.get(2).trim());
+        assertEquals("And a third.", utterances.get(3).trim());
+    }
+
+    @Test
+    public void indexRoundTrip() {
+        String text = "Title--####--First sentence.--####--  --####--Second sentence.";
+        Utterances split = Utterances.split(text, MAX_LENGTH);
+        byte[] index = split.toIndex();
+
+        assertTrue(Utterances.isCurrent(index));
+        assertEquals(split, Utterances.fromIndex(text, index));
+    }
+
+    @Test
+    public void indexOfCutSegmentsRoundTrip() {
+        String text = "One sentence here. Another sentence there. And a third.";
+        Utterances split = Utterances.split(text, 20);
+        assertEquals(split, Utterances.fromIndex(text, split.toIndex()));
+    }
+
+    @Test
+    public void indexOfEmptyTextRoundTrip() {
+        byte[] index = Utterances.split("", MAX_LENGTH).toIndex();
+        assertTrue(Utterances.isCurrent(index));
+        assertEquals(Collections.emptyList(), Utterances.fromIndex("", index));
+    }
+
+    @Test
+    public void indexOfTextWithNegativeHash() {
+        // The hash is written as an unsigned varint, this one takes all five bytes
+        String text = "polygenelubricants";
+        assertEquals(Integer.MIN_VALUE, text.hashCode());
+        assertEquals(Collections.singletonList(text), Utterances.fromIndex(text, Utterances.split(text, MAX_LENGTH).toIndex()));
+    }
+
+    @Test
+    public void indexOfAnotherTextIsNotUsed() {
+        byte[] index = Utterances.split("First.--####--Second.", MAX_LENGTH).toIndex();
+        // Same length, other text
+        assertNull(Utterances.fromIndex("Second.--####--First.", index));
+        assertNull(Utterances.fromIndex("First.--####--Second. And more.", index));
+    }
+
+    @Test
+    public void missingOrOldIndexIsNotUsed() {
+        assertNull(Utterances.fromIndex("text", null));
+        assertFalse(Utterances.isCurrent(null));
+        // Before the format byte an index started with its count
+        byte[] old = {2, 0, 6, 8, 7};
+        assertFalse(Utterances.isCurrent(old));
+        assertNull(Utterances.fromIndex("First.--####--Second.", old));
+        // A single 0 was an index without utterances
+        assertFalse(Utterances.isCurrent(new byte[]{0}));
+    }
+
+    @Test
+    public void damagedIndexIsNotUsed() {
+        String text = "First.--####--Second.";
+        byte[] index = Utterances.split(text, MAX_LENGTH).toIndex();
+        assertNull(Utterances.fromIndex(text, Arrays.copyOf(index, index.length - 1)));
+        assertNull(Utterances.fromIndex(text, Arrays.copyOf(index, index.length + 1)));
+    }
+
+    @Test
+    public void nullTextHasNoIndex() {
+        assertNull(Utterances.index(null));
+    }
+}